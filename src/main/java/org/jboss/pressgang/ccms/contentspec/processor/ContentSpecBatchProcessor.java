@@ -0,0 +1,567 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.ITopicNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.interfaces.ShutdownAbleApp;
+import org.jboss.pressgang.ccms.contentspec.processor.enums.BatchProcessingStage;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.CachingDataProviderFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.BatchProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchItem;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchListener;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchResult;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ParserResults;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingStageEvent;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ServerSettingsSnapshot;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.DaemonThreadFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.ProcessorUtilities;
+import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
+import org.jboss.pressgang.ccms.provider.CategoryProvider;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.provider.exception.ProviderException;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.jboss.pressgang.ccms.wrapper.ServerEntitiesWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a batch of content specs through a pipeline of stages (parse, pre-validate, fetch, post-validate and save). Each
+ * stage has its own bounded pool of threads and queue, so different content specs can be in different stages at the same time
+ * and a slow stage holds back the stages before it. The topics, tags, categories and schemas that are read while validating are
+ * cached and shared by every content spec in a call to {@link #process(List, ContentSpecBatchListener)}, and the result for each
+ * content spec is passed to a listener as soon as it completes.
+ */
+public class ContentSpecBatchProcessor implements ShutdownAbleApp {
+    private static final Logger LOG = LoggerFactory.getLogger(ContentSpecBatchProcessor.class);
+
+    private final DataProviderFactory providerFactory;
+    private final ServerSettingsSnapshot serverSettingsSnapshot;
+    private final ServerEntitiesWrapper serverEntities;
+    private final ProcessingOptions processingOptions;
+    private final BatchProcessingOptions batchOptions;
+    private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final Set<ContentSpecProcessor> activeProcessors = Collections.newSetFromMap(
+            new ConcurrentHashMap<ContentSpecProcessor, Boolean>());
+
+    /**
+     * @param providerFactory   The factory to get the providers from.
+     * @param processingOptions The set of options to use when processing each content spec.
+     * @param batchOptions      The options that control how many content specs are processed at the same time.
+     */
+    public ContentSpecBatchProcessor(final DataProviderFactory providerFactory, final ProcessingOptions processingOptions,
+            final BatchProcessingOptions batchOptions) {
+        this(providerFactory, processingOptions, batchOptions, new ServerSettingsSnapshot(providerFactory));
+    }
+
+    /**
+     * @param providerFactory        The factory to get the providers from.
+     * @param processingOptions      The set of options to use when processing each content spec.
+     * @param batchOptions           The options that control how many content specs are processed at the same time.
+     * @param serverSettingsSnapshot The snapshot of the server settings to share between the content specs.
+     */
+    public ContentSpecBatchProcessor(final DataProviderFactory providerFactory, final ProcessingOptions processingOptions,
+            final BatchProcessingOptions batchOptions, final ServerSettingsSnapshot serverSettingsSnapshot) {
+        this.providerFactory = providerFactory;
+        this.serverSettingsSnapshot = serverSettingsSnapshot;
+        serverEntities = serverSettingsSnapshot.getServerSettings().getEntities();
+        this.processingOptions = processingOptions;
+        if (processingOptions.getTopicSaveJournal() != null) {
+            LOG.warn("The topic save journal in the processing options is ignored for batches. Set a journal on each batch item "
+                    + "instead.");
+        }
+        this.batchOptions = batchOptions;
+    }
+
+    @Override
+    public void shutdown() {
+        isShuttingDown.set(true);
+        for (final ContentSpecProcessor processor : activeProcessors) {
+            processor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown.get();
+    }
+
+    /**
+     * Processes a batch of content specs, and waits for them all to complete. If the thread is interrupted while waiting, then the
+     * batch is shutdown and the results that have completed so far are returned.
+     *
+     * @param items    The content specs to process.
+     * @param listener The listener to pass each result to as soon as it completes, or null if not required.
+     * @return The result for each content spec, in the order they completed.
+     */
+    public List<ContentSpecBatchResult> process(final List<ContentSpecBatchItem> items, final ContentSpecBatchListener listener) {
+        // The cache is only shared by the content specs in this batch, so that it's released once the batch completes
+        final CachingDataProviderFactory cachingProviderFactory = new CachingDataProviderFactory(providerFactory,
+                batchOptions.getCacheSize());
+        final BatchRun run = new BatchRun(items.size(), listener);
+        try {
+            for (final ContentSpecBatchItem item : items) {
+                run.submit(BatchProcessingStage.PARSE, new BatchJob(item, cachingProviderFactory));
+            }
+
+            run.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdown();
+        } finally {
+            run.shutdownNow();
+        }
+
+        if (isShuttingDown.get()) {
+            shutdown.set(true);
+        }
+
+        return run.getResults();
+    }
+
+    /**
+     * Parses the content spec text.
+     *
+     * @param job The content spec being processed.
+     * @return True if the content spec was parsed successfully, otherwise false.
+     */
+    protected boolean parse(final BatchJob job) {
+        final ContentSpecBatchItem item = job.getItem();
+        final CachingDataProviderFactory cachingProviderFactory = job.getCachingProviderFactory();
+        final ContentSpecParser parser = new ContentSpecParser(cachingProviderFactory, item.getLoggerManager(),
+                processingOptions.getMetrics());
+        final ParserResults parserResults = parser.parse(item.getContentSpec(), item.getMode());
+        job.setContentSpec(parserResults.getContentSpec());
+        if (!parserResults.parsedSuccessfully()) {
+            return false;
+        }
+
+        // The processor validates using the cached entities, but always saves using the actual providers
+        final ContentSpecProcessor processor = new ContentSpecProcessor(providerFactory, cachingProviderFactory,
+                item.getLoggerManager(), createProcessingOptions(item), serverSettingsSnapshot);
+        job.setProcessor(processor);
+        job.setProcessorData(processor.createProcessorData(parserResults.getContentSpec(), item.getUsername(), item.getLogMessage(),
+                null));
+        return true;
+    }
+
+    /**
+     * Creates the options to process a content spec with. Each content spec gets its own copy of the batch's options, so that
+     * state held by the options, like the topic save journal, is never shared between the content specs. The journal is taken
+     * from the batch item instead of the batch's options, so content specs without a journal of their own aren't journaled.
+     *
+     * @param item The content spec being processed.
+     * @return The options to process the content spec with.
+     */
+    protected ProcessingOptions createProcessingOptions(final ContentSpecBatchItem item) {
+        final ProcessingOptions itemOptions = new ProcessingOptions(processingOptions);
+        itemOptions.setTopicSaveJournal(item.getTopicSaveJournal());
+        return itemOptions;
+    }
+
+    /**
+     * Fetches the topics, tags and schemas that the content spec uses into the shared cache, so that they are already available
+     * when the content spec is validated against the server. Any entities that can't be found are left for the validation to
+     * report.
+     *
+     * @param job The content spec being processed.
+     */
+    protected void fetch(final BatchJob job) {
+        final ContentSpec contentSpec = job.getContentSpec();
+        final CachingDataProviderFactory cachingProviderFactory = job.getCachingProviderFactory();
+        final TopicProvider topicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        final TagProvider tagProvider = cachingProviderFactory.getProvider(TagProvider.class);
+        final BlobConstantProvider blobConstantProvider = cachingProviderFactory.getProvider(BlobConstantProvider.class);
+
+        final Set<String> tagNames = new LinkedHashSet<String>();
+        for (final ITopicNode topicNode : job.getProcessorData().getTopicNodeIndex().getTopicNodes()) {
+            if (isStopRequested(job)) return;
+
+            // Look up the topics at the same revisions as the validator, so that the validator uses the cached topics. Translations
+            // are validated against the translated topics, so there's no need to fetch the topics for them.
+            if (!processingOptions.isTranslation()) {
+                if (topicNode.isTopicAnExistingTopic() && topicNode.getDBId() != null) {
+                    fetchTopic(topicProvider, topicNode.getDBId(), ProcessorUtilities.getTopicRevision(topicNode,
+                            processingOptions.getMaxRevision()));
+                } else if (topicNode.isTopicAClonedTopic()) {
+                    fetchTopic(topicProvider, Integer.parseInt(topicNode.getId().substring(1)), topicNode.getRevision());
+                }
+            }
+
+            if (topicNode.getTags(false) != null) {
+                tagNames.addAll(topicNode.getTags(false));
+            }
+            if (topicNode.getAssignedWriter(false) != null) {
+                tagNames.add(topicNode.getAssignedWriter(false));
+            }
+            if (topicNode instanceof SpecTopic && ((SpecTopic) topicNode).getType() != null) {
+                tagNames.add(((SpecTopic) topicNode).getType());
+            }
+        }
+
+        for (final String tagName : tagNames) {
+            if (isStopRequested(job)) return;
+            try {
+                tagProvider.getTagByName(tagName);
+            } catch (ProviderException e) {
+                LOG.debug("Could not fetch tag {}", tagName);
+            }
+        }
+
+        // Fetch the schema that the content spec will be validated against
+        if (blobConstantProvider != null) {
+            final Integer schemaId = CommonConstants.DOCBOOK_50_TITLE.equalsIgnoreCase(contentSpec.getFormat()) ? serverEntities
+                    .getDocBook50RNGBlobConstantId() : serverEntities.getRocBook45DTDBlobConstantId();
+            try {
+                blobConstantProvider.getBlobConstant(schemaId);
+            } catch (ProviderException e) {
+                LOG.debug("Could not fetch blob constant {}", schemaId);
+            }
+        }
+    }
+
+    private void fetchTopic(final TopicProvider topicProvider, final Integer topicId, final Integer revision) {
+        try {
+            topicProvider.getTopic(topicId, revision);
+        } catch (ProviderException e) {
+            LOG.debug("Could not fetch topic {}", topicId);
+        }
+    }
+
+    /**
+     * Saves the content spec, and then removes the topics it saved from the shared cache so that the content specs after it get
+     * the updated topics. The cached tags and categories are also removed, since saving can add topics to them.
+     *
+     * @param job The content spec being processed.
+     * @return True if the content spec saved successfully, otherwise false.
+     */
+    protected boolean save(final BatchJob job) {
+        final ContentSpecBatchItem item = job.getItem();
+        try {
+            return job.getProcessor().doSavePass(job.getProcessorData(), ContentSpecProcessor.isEditing(job.getContentSpec(),
+                    item.getMode()));
+        } finally {
+            final Set<Integer> topicIds = new HashSet<Integer>();
+            for (final ITopicNode topicNode : job.getProcessorData().getTopicNodeIndex().getTopicNodes()) {
+                if (topicNode.isTopicAnExistingTopic() && topicNode.getDBId() != null) {
+                    topicIds.add(topicNode.getDBId());
+                }
+            }
+            final CachingDataProviderFactory cachingProviderFactory = job.getCachingProviderFactory();
+            cachingProviderFactory.invalidateTopics(topicIds);
+            cachingProviderFactory.invalidate(TagProvider.class);
+            cachingProviderFactory.invalidate(CategoryProvider.class);
+        }
+    }
+
+    private boolean isStopRequested(final BatchJob job) {
+        return isShuttingDown.get() || (job.getProcessor() != null && job.getProcessor().isStopRequested());
+    }
+
+    private int getThreads(final BatchProcessingStage stage) {
+        final int threads;
+        switch (stage) {
+            case PARSE:
+                threads = batchOptions.getParseThreads();
+                break;
+            case PRE_VALIDATION:
+                threads = batchOptions.getPreValidationThreads();
+                break;
+            case FETCH:
+                threads = batchOptions.getFetchThreads();
+                break;
+            case POST_VALIDATION:
+                threads = batchOptions.getPostValidationThreads();
+                break;
+            default:
+                threads = batchOptions.getSaveThreads();
+        }
+        return Math.max(1, threads);
+    }
+
+    /**
+     * A content spec as it moves through the stages of the pipeline.
+     */
+    protected static class BatchJob {
+        private final ContentSpecBatchItem item;
+        private final CachingDataProviderFactory cachingProviderFactory;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private ContentSpec contentSpec;
+        private ContentSpecProcessor processor;
+        private ContentSpecProcessor.ProcessorData processorData;
+
+        BatchJob(final ContentSpecBatchItem item, final CachingDataProviderFactory cachingProviderFactory) {
+            this.item = item;
+            this.cachingProviderFactory = cachingProviderFactory;
+        }
+
+        public ContentSpecBatchItem getItem() {
+            return item;
+        }
+
+        /**
+         * @return The factory that caches the entities that are shared by the content specs in the batch.
+         */
+        public CachingDataProviderFactory getCachingProviderFactory() {
+            return cachingProviderFactory;
+        }
+
+        /**
+         * Marks the content spec as completed.
+         *
+         * @return True if the content spec hadn't already been completed, otherwise false.
+         */
+        boolean markCompleted() {
+            return completed.compareAndSet(false, true);
+        }
+
+        public ContentSpec getContentSpec() {
+            return contentSpec;
+        }
+
+        public void setContentSpec(final ContentSpec contentSpec) {
+            this.contentSpec = contentSpec;
+        }
+
+        public ContentSpecProcessor getProcessor() {
+            return processor;
+        }
+
+        public void setProcessor(final ContentSpecProcessor processor) {
+            this.processor = processor;
+        }
+
+        public ContentSpecProcessor.ProcessorData getProcessorData() {
+            return processorData;
+        }
+
+        public void setProcessorData(final ContentSpecProcessor.ProcessorData processorData) {
+            this.processorData = processorData;
+        }
+
+        public List<ProcessingStageEvent> getStageEvents() {
+            return processorData == null ? null : processorData.getStageEvents();
+        }
+    }
+
+    /**
+     * The stage executors and results for a single call to {@link #process(List, ContentSpecBatchListener)}.
+     */
+    private class BatchRun {
+        private final Map<BatchProcessingStage, ThreadPoolExecutor> executors = new ConcurrentHashMap<BatchProcessingStage,
+                ThreadPoolExecutor>();
+        private final List<ContentSpecBatchResult> results = new ArrayList<ContentSpecBatchResult>();
+        private final CountDownLatch remaining;
+        private final ContentSpecBatchListener listener;
+
+        BatchRun(final int itemCount, final ContentSpecBatchListener listener) {
+            remaining = new CountDownLatch(itemCount);
+            this.listener = listener;
+            for (final BatchProcessingStage stage : BatchProcessingStage.values()) {
+                final int threads = getThreads(stage);
+                final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(Math.max(1, batchOptions.getStageQueueSize())),
+                        new DaemonThreadFactory("csprocessor-batch-" + stage.name().toLowerCase().replace('_', '-') + "-"),
+                        new BlockingSubmitPolicy());
+                executors.put(stage, executor);
+            }
+        }
+
+        /**
+         * Submits a content spec to a stage, waiting for space in the stage's queue if it's full.
+         */
+        void submit(final BatchProcessingStage stage, final BatchJob job) {
+            if (isStopRequested(job)) {
+                complete(job, false, stage, null);
+                return;
+            }
+
+            try {
+                executors.get(stage).execute(new StageTask(stage, job));
+            } catch (RejectedExecutionException e) {
+                complete(job, false, stage, e);
+            }
+        }
+
+        /**
+         * Runs a stage for a content spec, and then passes it on to the next stage or completes it.
+         */
+        void runStage(final BatchProcessingStage stage, final BatchJob job) {
+            switch (stage) {
+                case PARSE:
+                    if (!parse(job)) {
+                        complete(job, false, stage, null);
+                    } else {
+                        activeProcessors.add(job.getProcessor());
+                        if (isShuttingDown.get()) {
+                            job.getProcessor().shutdown();
+                        }
+                        if (processingOptions.isValidate()) {
+                            submit(BatchProcessingStage.PRE_VALIDATION, job);
+                        } else if (processingOptions.isValidateOnly()) {
+                            complete(job, true, stage, null);
+                        } else {
+                            submit(BatchProcessingStage.SAVE, job);
+                        }
+                    }
+                    break;
+                case PRE_VALIDATION:
+                    if (job.getProcessor().doPreValidationPass(job.getProcessorData())) {
+                        submit(BatchProcessingStage.FETCH, job);
+                    } else {
+                        complete(job, false, stage, null);
+                    }
+                    break;
+                case FETCH:
+                    fetch(job);
+                    submit(BatchProcessingStage.POST_VALIDATION, job);
+                    break;
+                case POST_VALIDATION:
+                    if (!job.getProcessor().doPostValidationPass(job.getProcessorData())) {
+                        complete(job, false, stage, null);
+                    } else if (processingOptions.isValidateOnly()) {
+                        complete(job, true, stage, null);
+                    } else {
+                        submit(BatchProcessingStage.SAVE, job);
+                    }
+                    break;
+                default:
+                    complete(job, save(job), stage, null);
+            }
+        }
+
+        void complete(final BatchJob job, final boolean successful, final BatchProcessingStage stage, final Exception exception) {
+            // Only report the first result, in case a stage fails after the content spec has already been completed
+            if (!job.markCompleted()) return;
+
+            if (job.getProcessor() != null) {
+                activeProcessors.remove(job.getProcessor());
+            }
+
+            final ContentSpecBatchResult result = new ContentSpecBatchResult(job.getItem(), successful, stage, job.getContentSpec(),
+                    job.getStageEvents(), exception);
+            synchronized (results) {
+                results.add(result);
+            }
+            try {
+                if (listener != null) {
+                    listener.resultCompleted(result);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("The batch listener failed to handle a result", e);
+            } finally {
+                remaining.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            remaining.await();
+        }
+
+        void shutdownNow() {
+            for (final ThreadPoolExecutor executor : executors.values()) {
+                executor.shutdownNow();
+            }
+        }
+
+        List<ContentSpecBatchResult> getResults() {
+            synchronized (results) {
+                return new ArrayList<ContentSpecBatchResult>(results);
+            }
+        }
+
+        /**
+         * Runs a single stage for a content spec, and makes sure the content spec is completed if the stage fails for any reason,
+         * so that the batch isn't left waiting for it.
+         */
+        private class StageTask implements Runnable {
+            private final BatchProcessingStage stage;
+            private final BatchJob job;
+
+            StageTask(final BatchProcessingStage stage, final BatchJob job) {
+                this.stage = stage;
+                this.job = job;
+            }
+
+            @Override
+            public void run() {
+                if (isStopRequested(job)) {
+                    complete(job, false, stage, null);
+                    return;
+                }
+
+                boolean finished = false;
+                try {
+                    LOG.debug("Starting the {} stage for a content spec", stage);
+                    runStage(stage, job);
+                    finished = true;
+                } catch (Exception e) {
+                    LOG.error("Failed to process a content spec in the " + stage + " stage", e);
+                    complete(job, false, stage, e);
+                } finally {
+                    if (!finished) {
+                        complete(job, false, stage, null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks the thread submitting a task until there is space in the stage's queue, so that a slow stage holds back the stages
+     * before it instead of queueing an unbounded number of content specs.
+     */
+    private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The stage has been shutdown");
+            }
+
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for space in the stage", e);
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.PatternSyntaxException;
 
 import com.google.code.regexp.Matcher;
@@ -68,7 +69,10 @@ import org.jboss.pressgang.ccms.contentspec.exceptions.ParsingException;
 import org.jboss.pressgang.ccms.contentspec.processor.constants.ProcessorConstants;
 import org.jboss.pressgang.ccms.contentspec.processor.enums.ParserType;
 import org.jboss.pressgang.ccms.contentspec.processor.exceptions.InvalidKeyValueException;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.MetricsDataProviderFactory;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.ParserResults;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingMetrics;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.VariableSet;
 import org.jboss.pressgang.ccms.contentspec.processor.utils.ProcessorUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.ContentSpecUtilities;
@@ -121,6 +125,8 @@ public class ContentSpecParser {
     private final ServerSettingsProvider serverSettingsProvider;
     private final ErrorLogger log;
     private final ErrorLoggerManager loggerManager;
+    private final ProcessingMetrics metrics;
+    private volatile ProcessingContext processingContext = new ProcessingContext();
 
     /**
      * Constructor
@@ -129,13 +135,37 @@ public class ContentSpecParser {
      * @param loggerManager   The Logging Manager that contains any errors/warnings produced while parsing.
      */
     public ContentSpecParser(final DataProviderFactory providerFactory, final ErrorLoggerManager loggerManager) {
-        this.providerFactory = providerFactory;
-        topicProvider = providerFactory.getProvider(TopicProvider.class);
-        serverSettingsProvider = providerFactory.getProvider(ServerSettingsProvider.class);
+        this(providerFactory, loggerManager, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param providerFactory The Factory to produce various different Entity DataProviders.
+     * @param loggerManager   The Logging Manager that contains any errors/warnings produced while parsing.
+     * @param metrics         The metrics to record the parsing time and provider calls in, or null if not required.
+     */
+    public ContentSpecParser(final DataProviderFactory providerFactory, final ErrorLoggerManager loggerManager,
+            final ProcessingMetrics metrics) {
+        this.providerFactory = metrics == null ? providerFactory : new MetricsDataProviderFactory(providerFactory, metrics);
+        this.metrics = metrics;
+        topicProvider = this.providerFactory.getProvider(TopicProvider.class);
+        serverSettingsProvider = this.providerFactory.getProvider(ServerSettingsProvider.class);
         this.loggerManager = loggerManager;
         log = loggerManager.getLogger(ContentSpecParser.class);
     }
 
+    public ProcessingContext getProcessingContext() {
+        return processingContext;
+    }
+
+    /**
+     * @param processingContext The context to parse in, which can stop parsing once its deadline passes or it's cancelled.
+     */
+    public void setProcessingContext(final ProcessingContext processingContext) {
+        this.processingContext = processingContext == null ? new ProcessingContext() : processingContext;
+    }
+
     /**
      * Parse a Content Specification to put the string into usable objects that can then be validate.
      *
@@ -166,18 +196,25 @@ public class ContentSpecParser {
      * @return True if everything was parsed successfully otherwise false.
      */
     public ParserResults parse(final String contentSpec, final ParsingMode mode, final boolean processProcesses) {
-        final ParserData parserData = new ParserData();
-
-        // Read in the file contents
-        final BufferedReader br = new BufferedReader(new StringReader(contentSpec));
+        final long start = System.currentTimeMillis();
         try {
-            readFileData(parserData, br);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+            final ParserData parserData = new ParserData();
 
-        // Process the spec contents.
-        return processSpec(parserData, mode, processProcesses);
+            // Read in the file contents
+            final BufferedReader br = new BufferedReader(new StringReader(contentSpec));
+            try {
+                readFileData(parserData, br);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            // Process the spec contents.
+            return processSpec(parserData, mode, processProcesses);
+        } finally {
+            if (metrics != null) {
+                metrics.recordTime(ProcessingMetrics.PARSE, System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
+            }
+        }
     }
 
     /**
@@ -376,6 +413,12 @@ public class ContentSpecParser {
         parserData.setCurrentLevel(parserData.getContentSpec().getBaseLevel());
         boolean error = false;
         while (parserData.getLines().peek() != null) {
+            // Check if parsing has been cancelled or has run out of time
+            if (processingContext.isStopRequested()) {
+                log.error(ProcessorConstants.ERROR_PARSING_STOPPED_MSG);
+                return new ParserResults(false, null);
+            }
+
             parserData.setLineCount(parserData.getLineCount() + 1);
             // Process the content specification and print an error message if an error occurs
             try {
@@ -392,6 +435,10 @@ public class ContentSpecParser {
         // relationships and targets are created
         if (processProcesses) {
             for (final Process process : parserData.getProcesses()) {
+                if (processingContext.isStopRequested()) {
+                    log.error(ProcessorConstants.ERROR_PARSING_STOPPED_MSG);
+                    return new ParserResults(false, null);
+                }
                 process.processTopics(parserData.getSpecTopics(), parserData.getTargetTopics(), topicProvider, serverSettingsProvider);
             }
         }
@@ -23,11 +23,22 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jboss.pressgang.ccms.contentspec.Comment;
@@ -56,12 +67,31 @@ import org.jboss.pressgang.ccms.contentspec.enums.RelationshipType;
 import org.jboss.pressgang.ccms.contentspec.enums.TopicType;
 import org.jboss.pressgang.ccms.contentspec.interfaces.ShutdownAbleApp;
 import org.jboss.pressgang.ccms.contentspec.processor.constants.ProcessorConstants;
+import org.jboss.pressgang.ccms.contentspec.processor.enums.ProcessingStage;
 import org.jboss.pressgang.ccms.contentspec.processor.exceptions.ProcessingException;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.MetricsDataProviderFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.SingleSaveContentSpecProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CSNodeMatchIndex;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CSRelatedNodeMatchIndex;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CloneSourceCache;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.NodeChangeSet;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingMetrics;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingResult;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingStageEvent;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingStageListener;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ServerSettingsSnapshot;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ThreadBufferedErrorLogger;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicNodeIndex;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicSaveJournal;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicSaveProgressListener;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.DaemonThreadFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.FuzzyMatchUtilities;
 import org.jboss.pressgang.ccms.contentspec.processor.utils.ProcessorUtilities;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.TaskUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.TopicPool;
-import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLogger;
 import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLoggerManager;
 import org.jboss.pressgang.ccms.provider.CSInfoNodeProvider;
 import org.jboss.pressgang.ccms.provider.CSNodeProvider;
@@ -98,6 +128,10 @@ import org.slf4j.LoggerFactory;
  * A class to fully process a Content Specification. It first parses the data using a ContentSpecParser,
  * then validates the Content Specification using a ContentSpecValidator and lastly saves the data to the database.
  * It can also be configured to only validate the data and not save it.
+ * <p/>
+ * A processor holds the state of the run in progress (eg the topic pool and processing context), so it can only process one
+ * content spec at a time. Starting another run while one is in progress throws an {@link IllegalStateException}, so a
+ * separate processor should be used for each content spec that is processed at the same time.
  *
  * @author lnewson
  */
@@ -107,7 +141,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
     private static final long WEEK_MILLI_SECS = 7 * 24 * 60 * 60 * 1000;
     private static final List<String> IGNORE_META_DATA = Arrays.asList(CommonConstants.CS_CHECKSUM_TITLE, CommonConstants.CS_ID_TITLE);
 
-    private final ErrorLogger log;
+    private final ThreadBufferedErrorLogger log;
     private final DataProviderFactory providerFactory;
     private final ServerSettingsWrapper serverSettings;
     private final ServerEntitiesWrapper serverEntities;
@@ -117,6 +151,21 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
     private final TopicPool topics;
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    /**
+     * Whether a content spec is being processed, since the state of a run is held by the processor.
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ProcessingContext processingContext = new ProcessingContext();
+    private final TaskUtilities.StopCondition stopCondition = new TaskUtilities.StopCondition() {
+        @Override
+        public boolean isStopRequested() {
+            return ContentSpecProcessor.this.isStopRequested();
+        }
+    };
+    /**
+     * The topics and property tags used to clone topics, which are filled by the validator and only kept for a single run.
+     */
+    private final CloneSourceCache cloneSourceCache = new CloneSourceCache();
 
     /**
      * Constructor
@@ -127,15 +176,57 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      */
     public ContentSpecProcessor(final DataProviderFactory factory, final ErrorLoggerManager loggerManager,
             final ProcessingOptions processingOptions) {
+        this(factory, factory, loggerManager, processingOptions, null);
+    }
+
+    /**
+     * Creates a processor that gets the server settings from a shared snapshot, so that the settings don't have to be fetched
+     * each time a processor is created.
+     *
+     * @param factory                The factory to get the providers from.
+     * @param loggerManager
+     * @param processingOptions      The set of options to use when processing.
+     * @param serverSettingsSnapshot The snapshot of the server settings to use.
+     */
+    public ContentSpecProcessor(final DataProviderFactory factory, final ErrorLoggerManager loggerManager,
+            final ProcessingOptions processingOptions, final ServerSettingsSnapshot serverSettingsSnapshot) {
+        this(factory, factory, loggerManager, processingOptions, serverSettingsSnapshot);
+    }
 
-        providerFactory = factory;
-        serverSettings = providerFactory.getProvider(ServerSettingsProvider.class).getServerSettings();
+    /**
+     * Creates a processor that validates using a different factory to the one that is used to save, so that the entities that
+     * are only read during validation can come from a cache.
+     *
+     * @param factory                The factory to use to save the content spec and the topics.
+     * @param validationFactory      The factory to use to validate the content spec.
+     * @param loggerManager
+     * @param processingOptions      The set of options to use when processing.
+     * @param serverSettingsSnapshot The snapshot of the server settings to use, or null if the settings should be fetched.
+     */
+    protected ContentSpecProcessor(final DataProviderFactory factory, final DataProviderFactory validationFactory,
+            final ErrorLoggerManager loggerManager, final ProcessingOptions processingOptions,
+            final ServerSettingsSnapshot serverSettingsSnapshot) {
+
+        // Wrap the factory so that the provider calls can be recorded, if metrics are being collected
+        providerFactory = processingOptions.getMetrics() == null ? factory : new MetricsDataProviderFactory(factory,
+                processingOptions.getMetrics());
+        serverSettings = serverSettingsSnapshot == null ? providerFactory.getProvider(ServerSettingsProvider.class)
+                .getServerSettings() : serverSettingsSnapshot.getServerSettings();
         serverEntities = serverSettings.getEntities();
 
-        log = loggerManager.getLogger(ContentSpecProcessor.class);
-        topics = new TopicPool(factory);
+        log = new ThreadBufferedErrorLogger(ContentSpecProcessor.class.getName(), loggerManager.getLogger(ContentSpecProcessor.class));
+        topics = new TopicPool(providerFactory);
         this.processingOptions = processingOptions;
-        validator = new ContentSpecValidator(factory, loggerManager, processingOptions);
+        final DataProviderFactory validatorFactory;
+        if (validationFactory == factory) {
+            validatorFactory = providerFactory;
+        } else {
+            validatorFactory = processingOptions.getMetrics() == null ? validationFactory : new MetricsDataProviderFactory(
+                    validationFactory, processingOptions.getMetrics());
+        }
+        // Share the server settings with the validator, so that they are only fetched once
+        validator = new ContentSpecValidator(validatorFactory, loggerManager, processingOptions, serverSettings);
+        validator.setCloneSourceCache(cloneSourceCache);
     }
 
     /**
@@ -161,52 +252,310 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      */
     public boolean processContentSpec(final ContentSpec contentSpec, final String username, final ContentSpecParser.ParsingMode mode,
             final LogMessageWrapper logMessage) {
-        boolean editing = false;
+        return processContentSpecWithResult(contentSpec, username, mode, logMessage, null).processedSuccessfully();
+    }
+
+    /**
+     * Process a content specification asynchronously, so that it is parsed, validated and saved on a thread provided by an
+     * executor. Cancelling the returned future will only stop this run, so the processor can still be used afterwards. The
+     * processor is busy from when the run is submitted until the run completes or is cancelled.
+     *
+     * @param contentSpec   The Content Specification that is to be processed.
+     * @param username      The user who requested the process operation.
+     * @param mode          The mode to parse the content specification in.
+     * @param logMessage
+     * @param executor      The executor to process the content specification with.
+     * @param stageListener A listener to notify as each processing stage starts and completes, or null if not required.
+     * @return A future that will hold the result of the processing.
+     * @throws IllegalStateException Thrown if the processor is already processing a content spec.
+     */
+    public Future<ProcessingResult> processContentSpecAsync(final ContentSpec contentSpec, final String username,
+            final ContentSpecParser.ParsingMode mode, final LogMessageWrapper logMessage, final Executor executor,
+            final ProcessingStageListener stageListener) {
+        startRun();
+
+        // Run in a context of its own, so that cancelling the run doesn't cancel the processor's context
+        final ProcessingContext runContext = new ProcessingContext(processingContext);
+        // The run is finished by whichever happens first, the task starting or the future being cancelled before it starts
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        final FutureTask<ProcessingResult> future = new FutureTask<ProcessingResult>(new Callable<ProcessingResult>() {
+            @Override
+            public ProcessingResult call() {
+                if (!claimed.compareAndSet(false, true)) {
+                    // The future was cancelled before the task started, so the result will never be used
+                    return null;
+                }
+
+                final ProcessingContext previousContext = getProcessingContext();
+                setProcessingContext(runContext);
+                try {
+                    return doProcessContentSpec(contentSpec, username, mode, logMessage, stageListener);
+                } finally {
+                    setProcessingContext(previousContext);
+                    running.set(false);
+                }
+            }
+        }) {
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                // Stop the run at the next stop check
+                if (!isDone()) {
+                    runContext.cancel();
+                }
+                return super.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            protected void done() {
+                if (claimed.compareAndSet(false, true)) {
+                    running.set(false);
+                }
+            }
+        };
+
+        try {
+            executor.execute(future);
+        } catch (RuntimeException e) {
+            if (claimed.compareAndSet(false, true)) {
+                running.set(false);
+            }
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Marks the processor as processing a content spec.
+     *
+     * @throws IllegalStateException Thrown if the processor is already processing a content spec.
+     */
+    private void startRun() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("The processor is already processing a content spec. Use a separate processor for "
+                    + "each content spec that is processed at the same time.");
+        }
+    }
+
+    /**
+     * Process a content specification so that it is parsed, validated and saved.
+     *
+     * @param contentSpec   The Content Specification that is to be processed.
+     * @param username      The user who requested the process operation.
+     * @param mode          The mode to parse the content specification in.
+     * @param logMessage
+     * @param stageListener A listener to notify as each processing stage starts and completes, or null if not required.
+     * @return The result of processing the content spec, including the details about each processing stage that completed.
+     * @throws IllegalStateException Thrown if the processor is already processing a content spec.
+     */
+    public ProcessingResult processContentSpecWithResult(final ContentSpec contentSpec, final String username,
+            final ContentSpecParser.ParsingMode mode, final LogMessageWrapper logMessage, final ProcessingStageListener stageListener) {
+        startRun();
+        try {
+            return doProcessContentSpec(contentSpec, username, mode, logMessage, stageListener);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ProcessingResult doProcessContentSpec(final ContentSpec contentSpec, final String username,
+            final ContentSpecParser.ParsingMode mode, final LogMessageWrapper logMessage, final ProcessingStageListener stageListener) {
+        final boolean editing = isEditing(contentSpec, mode);
+        final ProcessorData processorData = createProcessorData(contentSpec, username, logMessage, stageListener);
+
+        // The clone sources are only cached for a single run, since they may have changed by the next run
+        cloneSourceCache.clear();
+        try {
+            // Check if the app should be shutdown
+            if (isStopRequested()) {
+                shutdown.set(true);
+                return new ProcessingResult(false, contentSpec, processorData.getStageEvents());
+            }
+
+            // Check that the content spec is valid and if it is then continue to processing the content spec.
+            if (processingOptions.isValidate() && !doValidationPass(processorData)) {
+                return new ProcessingResult(false, contentSpec, processorData.getStageEvents());
+            }
+
+            // Check if the app should be shutdown, as the save should never be started once the deadline has passed
+            if (isStopRequested()) {
+                if (processingContext.isDeadlineExceeded()) {
+                    log.error(ProcessorConstants.ERROR_PROCESSING_DEADLINE_EXCEEDED_MSG);
+                }
+                shutdown.set(true);
+                return new ProcessingResult(false, contentSpec, processorData.getStageEvents());
+            }
+
+            // If we aren't validating then save the content specification
+            if (!processingOptions.isValidateOnly() && !doSavePass(processorData, editing)) {
+                return new ProcessingResult(false, contentSpec, processorData.getStageEvents());
+            }
+
+            return new ProcessingResult(true, contentSpec, processorData.getStageEvents());
+        } finally {
+            cloneSourceCache.clear();
+            // The checked nodes are only used while validating, so don't keep the content spec around once the run is finished
+            processingContext.clearChecked();
+        }
+    }
+
+    /**
+     * @param contentSpec The Content Specification that is to be processed.
+     * @param mode        The mode the content specification was parsed in.
+     * @return True if an existing content specification is being edited, otherwise false.
+     */
+    protected static boolean isEditing(final ContentSpec contentSpec, final ContentSpecParser.ParsingMode mode) {
         if (mode == ContentSpecParser.ParsingMode.EDITED) {
-            editing = true;
-        } else if (mode == ContentSpecParser.ParsingMode.EITHER && contentSpec.getId() != null) {
-            editing = true;
+            return true;
+        } else {
+            return mode == ContentSpecParser.ParsingMode.EITHER && contentSpec.getId() != null;
         }
+    }
 
+    /**
+     * Creates the data that is used while processing a content specification.
+     *
+     * @param contentSpec   The Content Specification that is to be processed.
+     * @param username      The user who requested the process operation.
+     * @param logMessage
+     * @param stageListener A listener to notify as each processing stage starts and completes, or null if not required.
+     * @return The data to be used during processing.
+     */
+    protected ProcessorData createProcessorData(final ContentSpec contentSpec, final String username, final LogMessageWrapper logMessage,
+            final ProcessingStageListener stageListener) {
         final ProcessorData processorData = new ProcessorData();
         processorData.setContentSpec(contentSpec);
         processorData.setUsername(username);
         processorData.setLogMessage(logMessage);
+        processorData.setStageListener(stageListener);
+        recordContentSpecCounts(processorData);
 
         // Set the log details user if one isn't set
         if (logMessage != null && username != null && logMessage.getUser() == null) {
             logMessage.setUser(serverEntities.getUnknownUserId().toString());
         }
 
-        // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
-            shutdown.set(true);
+        return processorData;
+    }
+
+    /**
+     * Saves the content specification and logs if it was saved successfully.
+     *
+     * @param processorData The data to be processed.
+     * @param edit          Whether the content specification is being edited or created.
+     * @return True if the content specification saved successfully, otherwise false.
+     */
+    protected boolean doSavePass(final ProcessorData processorData, final boolean edit) {
+        LOG.info("Saving the Content Specification to the server...");
+        if (saveContentSpec(providerFactory, processorData, edit)) {
+            log.info(ProcessorConstants.INFO_SUCCESSFUL_SAVE_MSG);
+            return true;
+        } else {
+            log.error(ProcessorConstants.ERROR_PROCESSING_ERROR_MSG);
             return false;
         }
+    }
 
-        // Check that the content spec is valid and if it is then continue to processing the content spec.
-        if (processingOptions.isValidate() && !doValidationPass(processorData)) {
-            return false;
+    /**
+     * Notifies the stage listener, if one exists, that a processing stage has started.
+     *
+     * @param processorData The data to be used during processing.
+     * @param stage         The stage that is starting.
+     * @return The time the stage started.
+     */
+    protected long startStage(final ProcessorData processorData, final ProcessingStage stage) {
+        if (processorData != null && processorData.getStageListener() != null) {
+            processorData.getStageListener().stageStarted(stage);
         }
+        return System.currentTimeMillis();
+    }
 
-        // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
-            shutdown.set(true);
-            return false;
+    /**
+     * Records that a processing stage has completed and notifies the stage listener, if one exists.
+     *
+     * @param processorData The data to be used during processing.
+     * @param stage         The stage that completed.
+     * @param startTime     The time the stage started.
+     * @param itemCount     The number of items that the stage processed.
+     * @param successful    If the stage completed successfully.
+     */
+    protected void completeStage(final ProcessorData processorData, final ProcessingStage stage, final long startTime,
+            final int itemCount, final boolean successful) {
+        if (processorData == null) return;
+
+        final ProcessingStageEvent event = new ProcessingStageEvent(stage, System.currentTimeMillis() - startTime, itemCount,
+                successful);
+        LOG.debug("Completed processing stage: {}", event);
+        processorData.addStageEvent(event);
+        if (processorData.getStageListener() != null) {
+            processorData.getStageListener().stageCompleted(event);
+        }
+
+        // Record the stage timings that match up with a processing metric
+        final String metricName;
+        switch (stage) {
+            case FIRST_VALIDATION_PASS:
+                metricName = ProcessingMetrics.FIRST_VALIDATION_PASS;
+                break;
+            case BUG_LINK_VALIDATION_PASS:
+                metricName = ProcessingMetrics.BUG_LINK_VALIDATION_PASS;
+                break;
+            case SECOND_VALIDATION_PASS:
+                metricName = ProcessingMetrics.SECOND_VALIDATION_PASS;
+                break;
+            case CONTENT_SPEC_MERGE:
+                metricName = ProcessingMetrics.MERGE_CHILDREN;
+                break;
+            case RELATIONSHIP_MERGE:
+                metricName = ProcessingMetrics.MERGE_RELATIONSHIPS;
+                break;
+            default:
+                metricName = null;
+        }
+        recordTime(metricName, event.getDuration());
+    }
+
+    /**
+     * Records how long a part of the processing took, if metrics are being collected.
+     *
+     * @param metricName The name of the processing metric.
+     * @param duration   How long, in milliseconds, the part of the processing took.
+     */
+    protected void recordTime(final String metricName, final long duration) {
+        final ProcessingMetrics metrics = processingOptions.getMetrics();
+        if (metrics != null && metricName != null) {
+            metrics.recordTime(metricName, duration, TimeUnit.MILLISECONDS);
         }
+    }
 
-        // If we aren't validating then save the content specification
-        if (!processingOptions.isValidateOnly()) {
-            LOG.info("Saving the Content Specification to the server...");
-            if (saveContentSpec(providerFactory, processorData, editing)) {
-                log.info(ProcessorConstants.INFO_SUCCESSFUL_SAVE_MSG);
-            } else {
-                log.error(ProcessorConstants.ERROR_PROCESSING_ERROR_MSG);
-                return false;
+    /**
+     * Records the number of nodes, topics and relationships in the content spec being processed, if metrics are being collected.
+     *
+     * @param processorData The data to be used during processing.
+     */
+    protected void recordContentSpecCounts(final ProcessorData processorData) {
+        final ProcessingMetrics metrics = processingOptions.getMetrics();
+        if (metrics == null) return;
+
+        final ContentSpec contentSpec = processorData.getContentSpec();
+        final List<Node> nodes = new ArrayList<Node>(contentSpec.getNodes());
+        nodes.addAll(contentSpec.getBaseLevel().getChildNodes());
+
+        int nodeCount = 0;
+        int relationshipCount = 0;
+        while (!nodes.isEmpty()) {
+            final Node node = nodes.remove(nodes.size() - 1);
+            nodeCount++;
+            if (node instanceof SpecNodeWithRelationships) {
+                relationshipCount += ((SpecNodeWithRelationships) node).getRelationships().size();
+            }
+            if (node instanceof Level) {
+                nodes.addAll(((Level) node).getChildNodes());
             }
         }
 
-        return true;
+        metrics.setNodeCount(nodeCount);
+        metrics.setTopicCount(processorData.getTopicNodeIndex().getTopicNodes().size());
+        metrics.setRelationshipCount(relationshipCount);
     }
 
     /**
@@ -216,33 +565,100 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      * @return True if the content spec is valid, otherwise false.
      */
     protected boolean doValidationPass(final ProcessorData processorData) {
+        return doPreValidationPass(processorData) && doPostValidationPass(processorData);
+    }
+
+    /**
+     * Does the validation that doesn't need any rest calls, as the first processing stage.
+     *
+     * @param processorData The data to be used during processing.
+     * @return True if the content spec is valid without doing any rest calls, otherwise false.
+     */
+    protected boolean doPreValidationPass(final ProcessorData processorData) {
+        final int topicCount = processorData.getTopicNodeIndex().getTopicNodes().size();
+
         // Validate the content specification before doing any rest calls
-        if (!doFirstValidationPass(processorData)) {
-            return false;
-        }
+        final long firstPassStart = startStage(processorData, ProcessingStage.FIRST_VALIDATION_PASS);
+        final boolean firstPassValid = doFirstValidationPass(processorData);
+        completeStage(processorData, ProcessingStage.FIRST_VALIDATION_PASS, firstPassStart, topicCount, firstPassValid);
+        return firstPassValid;
+    }
+
+    /**
+     * Does the bug link validation and the second validation pass, once the first validation pass has passed.
+     *
+     * @param processorData The data to be used during processing.
+     * @return True if the content spec is valid, otherwise false.
+     */
+    protected boolean doPostValidationPass(final ProcessorData processorData) {
+        final int topicCount = processorData.getTopicNodeIndex().getTopicNodes().size();
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
 
-        // Validate the content specification bug links before doing the post validation as it is a costly operation
-        if (!doBugLinkValidationPass(processorData)) {
-            log.error(ProcessorConstants.ERROR_INVALID_CS_MSG);
-            return false;
-        }
+        /*
+         * The bug link validation and the second validation pass are both costly operations that don't depend on each other, so
+         * run the second validation pass in the background while the bug links are validated. The second pass messages are
+         * buffered, so that they are logged after the bug link messages.
+         */
+        final ExecutorService executorService = Executors.newSingleThreadExecutor(
+                new DaemonThreadFactory("csprocessor-second-validation-pass-"));
+        try {
+            final Future<ValidationPassResult> secondPassFuture = executorService.submit(new Callable<ValidationPassResult>() {
+                @Override
+                public ValidationPassResult call() {
+                    ThreadBufferedErrorLogger.startBuffering();
+                    boolean secondPassValid = false;
+                    RuntimeException exception = null;
+                    try {
+                        // Validate the content specification now that we have most of the data from the REST API
+                        final long secondPassStart = startStage(processorData, ProcessingStage.SECOND_VALIDATION_PASS);
+                        secondPassValid = doSecondValidationPass(processorData);
+                        completeStage(processorData, ProcessingStage.SECOND_VALIDATION_PASS, secondPassStart, topicCount, secondPassValid);
+                    } catch (RuntimeException e) {
+                        // Keep the exception, so it can be rethrown after the buffered messages have been logged
+                        exception = e;
+                    } catch (Error e) {
+                        ThreadBufferedErrorLogger.stopBuffering();
+                        throw e;
+                    }
 
-        // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
-            shutdown.set(true);
-            return false;
-        }
+                    return new ValidationPassResult(secondPassValid, exception, ThreadBufferedErrorLogger.stopBuffering());
+                }
+            });
+
+            // Validate the content specification bug links
+            final long bugLinkPassStart = startStage(processorData, ProcessingStage.BUG_LINK_VALIDATION_PASS);
+            final boolean bugLinkPassValid = doBugLinkValidationPass(processorData);
+            completeStage(processorData, ProcessingStage.BUG_LINK_VALIDATION_PASS, bugLinkPassStart,
+                    processorData.isBugLinksReValidated() ? 1 : 0, bugLinkPassValid);
+
+            // Wait for the second validation pass and then log its messages
+            final ValidationPassResult secondPassResult;
+            try {
+                secondPassResult = TaskUtilities.waitForTask(secondPassFuture, stopCondition);
+            } catch (ExecutionException e) {
+                throw TaskUtilities.propagateCause(e);
+            }
+            if (secondPassResult == null) {
+                shutdown.set(true);
+                return false;
+            }
+            ThreadBufferedErrorLogger.flush(secondPassResult.getMessages());
+            if (secondPassResult.getException() != null) {
+                throw secondPassResult.getException();
+            }
 
-        // Validate the content specification now that we have most of the data from the REST API
-        if (!doSecondValidationPass(processorData)) {
-            log.error(ProcessorConstants.ERROR_INVALID_CS_MSG);
-            return false;
+            if (!bugLinkPassValid || !secondPassResult.isValid()) {
+                log.error(ProcessorConstants.ERROR_INVALID_CS_MSG);
+                return false;
+            }
+        } finally {
+            // Cancel the second pass if it's still running, in case the app is shutting down
+            executorService.shutdownNow();
         }
 
         // Log that the spec is valid
@@ -263,7 +679,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         LOG.info("Starting first validation pass...");
 
         // Validate the content spec syntax
-        if (!validator.preValidateContentSpec(contentSpec)) {
+        if (!validator.preValidateContentSpec(contentSpec, processorData.getTopicNodeIndex())) {
             log.error(ProcessorConstants.ERROR_INVALID_CS_MSG);
             return false;
         }
@@ -383,49 +799,84 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      */
     protected boolean saveContentSpec(final DataProviderFactory providerFactory, final ProcessorData processorData, final boolean edit) {
         final ContentSpecProvider contentSpecProvider = providerFactory.getProvider(ContentSpecProvider.class);
+        final boolean saveInChunks = processingOptions.getTopicSaveBatchSize() > 0;
+        final List<TopicPool> chunkPoolsToRollback = new ArrayList<TopicPool>();
 
         try {
             final ContentSpec contentSpec = processorData.contentSpec;
             final LocaleWrapper locale = contentSpec.getLocale() != null ?
                     EntityUtilities.findLocaleFromString(serverSettings.getLocales(), contentSpec.getLocale())
                     : serverSettings.getDefaultLocale();
-            final List<ITopicNode> topicNodes = contentSpec.getAllTopicNodes();
-
-            // Create the duplicate topic map
-            final Map<ITopicNode, ITopicNode> duplicatedTopicMap = createDuplicatedTopicMap(topicNodes);
-
-            // Create the new topic entities
-            createOrUpdateTopics(topicNodes, topics, processorData, locale);
-
-            // Check if the app should be shutdown
-            if (isShuttingDown.get()) {
-                shutdown.set(true);
-                throw new ProcessingException("Shutdown Requested");
-            }
+            // Rebuild the topic node index, as the topic ids may have changed since the content spec was validated
+            processorData.invalidateTopicNodeIndex();
+            final TopicNodeIndex topicNodeIndex = processorData.getTopicNodeIndex();
+            final List<ITopicNode> topicNodes = topicNodeIndex.getTopicNodes();
+
+            // Create the duplicate topic map. This has to be done before any topics are resumed from the topic save journal, since
+            // the duplicates are found using the ids from the content spec.
+            final Map<ITopicNode, ITopicNode> duplicatedTopicMap = createDuplicatedTopicMap(topicNodeIndex);
+
+            final long topicSaveStart = startStage(processorData, ProcessingStage.TOPIC_SAVE);
+            boolean topicsSaved = false;
+            try {
+                if (saveInChunks) {
+                    // Save the topics in a number of smaller requests, which are recorded in the journal as they complete
+                    final long savePoolStart = System.currentTimeMillis();
+                    saveTopicsInChunks(topicNodes, processorData, locale, chunkPoolsToRollback);
+                    recordTime(ProcessingMetrics.SAVE_TOPIC_POOL, System.currentTimeMillis() - savePoolStart);
+                } else {
+                    // Create the new topic entities
+                    final long createOrUpdateStart = System.currentTimeMillis();
+                    createOrUpdateTopics(topicNodes, topics, processorData, locale);
+                    recordTime(ProcessingMetrics.CREATE_OR_UPDATE_TOPICS, System.currentTimeMillis() - createOrUpdateStart);
+
+                    // Check if the app should be shutdown
+                    if (isStopRequested()) {
+                        shutdown.set(true);
+                        throw new ProcessingException("Shutdown Requested");
+                    }
 
-            // From here on the main saving happens so this shouldn't be interrupted
+                    // From here on the main saving happens so this shouldn't be interrupted
 
-            // Save the new topic entities
-            if (!topics.savePool()) {
-                log.error(ProcessorConstants.ERROR_DATABASE_ERROR_MSG);
-                throw new ProcessingException("Failed to save the pool of topics.");
+                    // Save the new topic entities
+                    final long savePoolStart = System.currentTimeMillis();
+                    final boolean poolSaved = topics.savePool();
+                    recordTime(ProcessingMetrics.SAVE_TOPIC_POOL, System.currentTimeMillis() - savePoolStart);
+                    if (!poolSaved) {
+                        log.error(ProcessorConstants.ERROR_DATABASE_ERROR_MSG);
+                        throw new ProcessingException("Failed to save the pool of topics.");
+                    }
+                }
+                topicsSaved = true;
+            } finally {
+                completeStage(processorData, ProcessingStage.TOPIC_SAVE, topicSaveStart, topicNodes.size(), topicsSaved);
             }
 
             // Initialise the new and cloned topics using the populated topic pool
             for (final ITopicNode topicNode : topicNodes) {
-                topics.initialiseFromPool(topicNode);
+                // Topics saved in chunks have already been initialised from their chunk's topic pool
+                if (!saveInChunks) {
+                    topics.initialiseFromPool(topicNode);
+                }
                 cleanSpecTopicWhenCreatedOrUpdated(topicNode);
             }
 
             // Sync the Duplicated Topics (ID = X<Number>)
             syncDuplicatedTopics(duplicatedTopicMap);
 
+            // The topic ids have been updated from the saved topics, so the index is now out of date
+            processorData.invalidateTopicNodeIndex();
+
             // Save the content spec
             mergeAndSaveContentSpec(providerFactory, processorData, !edit);
+
+            // Everything has been saved, so there is nothing left to resume
+            clearTopicSaveJournal();
         } catch (ProcessingException e) {
             LOG.debug("", e);
             if (providerFactory.isTransactionsSupported()) {
                 providerFactory.rollback();
+                clearTopicSaveJournal();
             } else {
                 // Clean up the data that was created
                 if (processorData.getContentSpec().getId() != null && !edit) {
@@ -435,13 +886,14 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                         log.error("Unable to clean up the Content Specification from the database.", e);
                     }
                 }
-                if (topics.isInitialised()) topics.rollbackPool();
+                rollbackTopicPools(chunkPoolsToRollback);
             }
             return false;
         } catch (Exception e) {
             LOG.error("", e);
             if (providerFactory.isTransactionsSupported()) {
                 providerFactory.rollback();
+                clearTopicSaveJournal();
             } else {
                 // Clean up the data that was created
                 if (processorData.getContentSpec().getId() != null && !edit) {
@@ -451,7 +903,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                         log.error("Unable to clean up the Content Specification from the database.", e);
                     }
                 }
-                if (topics.isInitialised()) topics.rollbackPool();
+                rollbackTopicPools(chunkPoolsToRollback);
             }
             log.debug("", e);
             return false;
@@ -459,40 +911,380 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         return true;
     }
 
+    /**
+     * Rolls back the topics that were saved. Any chunks of topics that were recorded in the topic save journal aren't included in
+     * the chunk pools, since they are kept so that a retry can resume from them.
+     *
+     * @param chunkPools The topic pools for the chunks of topics that should be rolled back.
+     */
+    private void rollbackTopicPools(final List<TopicPool> chunkPools) {
+        if (topics.isInitialised()) topics.rollbackPool();
+        for (final TopicPool chunkPool : chunkPools) {
+            if (chunkPool.isInitialised()) chunkPool.rollbackPool();
+        }
+    }
+
+    private void clearTopicSaveJournal() {
+        final TopicSaveJournal journal = processingOptions.getTopicSaveJournal();
+        if (journal != null) {
+            journal.clear();
+            journal.save();
+        }
+    }
+
+    /**
+     * Creates and saves the topic entities for new, cloned and updated topics in chunks of
+     * {@link ProcessingOptions#getTopicSaveBatchSize()} topics, saving up to {@link ProcessingOptions#getTopicSaveThreads()}
+     * chunks at the same time. Each chunk is saved in its own topic pool, and once a chunk is saved its topic nodes are
+     * initialised from the pool and recorded in the topic save journal. If a journal is used, then any topics that were saved by
+     * a previous attempt are reused instead of being created again.
+     *
+     * @param topicNodes           The topic nodes in the content spec.
+     * @param processorData        The data to be processed.
+     * @param contentSpecLocale    The locale of the content spec.
+     * @param chunkPoolsToRollback The list to add the topic pools to, that should be rolled back if processing fails.
+     * @throws ProcessingException Thrown if a chunk of topics failed to be saved, or the app is shutting down.
+     */
+    protected void saveTopicsInChunks(final List<ITopicNode> topicNodes, final ProcessorData processorData,
+            final LocaleWrapper contentSpecLocale, final List<TopicPool> chunkPoolsToRollback) throws ProcessingException {
+        final TopicSaveJournal journal = processingOptions.getTopicSaveJournal();
+        final Map<ITopicNode, String> journalKeys;
+        if (journal == null) {
+            journalKeys = Collections.emptyMap();
+        } else {
+            // Get the journal keys before any topics are resumed or saved, since that changes the topic ids
+            journalKeys = getTopicSaveJournalKeys(topicNodes);
+            if (journal.bindToContentSpec(getTopicSaveJournalContentSpecKey(processorData.getContentSpec()))) {
+                LOG.info("Discarded the topic save journal, as it was for a different content spec");
+            }
+            resumeFromTopicSaveJournal(topicNodes, processorData, journal, journalKeys);
+        }
+
+        // Find the topics that need to be added or updated, and split them into chunks
+        final List<ITopicNode> saveTopicNodes = new ArrayList<ITopicNode>();
+        for (final ITopicNode topicNode : topicNodes) {
+            if (isTopicToBeSaved(topicNode)) {
+                saveTopicNodes.add(topicNode);
+            }
+        }
+        final int batchSize = processingOptions.getTopicSaveBatchSize();
+        final List<List<ITopicNode>> chunks = new ArrayList<List<ITopicNode>>();
+        for (int i = 0; i < saveTopicNodes.size(); i += batchSize) {
+            chunks.add(saveTopicNodes.subList(i, Math.min(i + batchSize, saveTopicNodes.size())));
+        }
+
+        // Check if the app should be shutdown
+        if (isStopRequested()) {
+            shutdown.set(true);
+            throw new ProcessingException("Shutdown Requested");
+        }
+
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        final TopicSaveProgressListener progressListener = processingOptions.getTopicSaveProgressListener();
+        final AtomicBoolean stopSaving = new AtomicBoolean(false);
+        final int threads = Math.max(1, Math.min(processingOptions.getTopicSaveThreads(), chunks.size()));
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("csprocessor-topic-save-"));
+        try {
+            final List<Future<TopicChunkResult>> futures = new ArrayList<Future<TopicChunkResult>>();
+            for (final List<ITopicNode> chunk : chunks) {
+                futures.add(executorService.submit(new TopicChunkSaveTask(chunk, processorData, contentSpecLocale, stopSaving)));
+            }
+
+            // Wait for every chunk that was started, so that any topics that were saved can be rolled back or journaled
+            Exception failure = null;
+            int savedTopicCount = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                final List<ITopicNode> chunk = chunks.get(i);
+                final TopicChunkResult result = waitForTopicChunkSaveTask(futures.get(i));
+                ThreadBufferedErrorLogger.flush(result.getMessages());
+
+                if (!result.isSaved()) {
+                    // Don't start saving any more chunks
+                    stopSaving.set(true);
+                    if (result.getTopicPool() != null) {
+                        chunkPoolsToRollback.add(result.getTopicPool());
+                    }
+                    if (failure == null && result.isStarted()) {
+                        failure = result.getException() == null ? new ProcessingException("Failed to save a chunk of topics.") :
+                                result.getException();
+                    }
+                    continue;
+                }
+
+                for (final ITopicNode topicNode : chunk) {
+                    result.getTopicPool().initialiseFromPool(topicNode);
+                }
+
+                if (journal == null) {
+                    chunkPoolsToRollback.add(result.getTopicPool());
+                } else {
+                    for (final ITopicNode topicNode : chunk) {
+                        final String key = journalKeys.get(topicNode);
+                        if (key != null) {
+                            journal.recordSaved(key, topicNode.getDBId());
+                        }
+                    }
+                    journal.save();
+                }
+
+                savedTopicCount += chunk.size();
+                LOG.debug("Saved chunk {} of {} ({} of {} topics)", new Object[]{i + 1, chunks.size(), savedTopicCount,
+                        saveTopicNodes.size()});
+                if (progressListener != null) {
+                    progressListener.chunkSaved(i + 1, chunks.size(), savedTopicCount, saveTopicNodes.size());
+                }
+            }
+
+            if (failure != null) {
+                log.error(ProcessorConstants.ERROR_DATABASE_ERROR_MSG);
+                throw failure instanceof ProcessingException ? (ProcessingException) failure : new ProcessingException(
+                        "Failed to save a chunk of topics.", failure);
+            } else if (savedTopicCount < saveTopicNodes.size()) {
+                // Some chunks weren't started because the app is shutting down
+                shutdown.set(true);
+                throw new ProcessingException("Shutdown Requested");
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Changes the new and cloned topic nodes that were saved by a previous attempt to use the topics that were saved, so that
+     * they aren't created again. Any duplicates of the resumed topics are still mapped to them, since the duplicated topic map
+     * holds the topic nodes themselves, and are synced once all the topics have been saved.
+     *
+     * @param topicNodes    The topic nodes in the content spec.
+     * @param processorData The data to be processed, which holds the index of the topic nodes.
+     * @param journal       The journal of the topics that were saved by a previous attempt.
+     * @param journalKeys   The journal keys of the new and cloned topic nodes.
+     */
+    protected void resumeFromTopicSaveJournal(final List<ITopicNode> topicNodes, final ProcessorData processorData,
+            final TopicSaveJournal journal, final Map<ITopicNode, String> journalKeys) {
+        int resumedCount = 0;
+        for (final ITopicNode topicNode : topicNodes) {
+            final String key = journalKeys.get(topicNode);
+            if (key != null) {
+                final Integer topicId = journal.getTopicId(key);
+                if (topicId != null) {
+                    topicNode.setId(topicId.toString());
+                    resumedCount++;
+                }
+            }
+        }
+
+        if (resumedCount > 0) {
+            LOG.info("Resuming the topic save, as {} topics were already saved", resumedCount);
+
+            // The resumed topics now use the ids of the saved topics, so the index is out of date
+            processorData.invalidateTopicNodeIndex();
+        }
+    }
+
+    /**
+     * Gets the keys to record the new and cloned topic nodes under in the topic save journal. The keys are built from the topic
+     * id (eg N1, N or C123), type, title and tags, and not the line number, so that they still match if lines are added or
+     * removed before a retry. Topic nodes that would get the same key are numbered in the order they appear in the spec.
+     *
+     * @param topicNodes The topic nodes in the content spec.
+     * @return A map of the new and cloned topic nodes to their journal keys.
+     */
+    protected Map<ITopicNode, String> getTopicSaveJournalKeys(final List<ITopicNode> topicNodes) {
+        final Map<ITopicNode, String> journalKeys = new IdentityHashMap<ITopicNode, String>();
+        final Map<String, Integer> keyCounts = new HashMap<String, Integer>();
+        for (final ITopicNode topicNode : topicNodes) {
+            if (!(topicNode.isTopicANewTopic() || topicNode.isTopicAClonedTopic()) || topicNode.getId() == null) continue;
+
+            final StringBuilder key = new StringBuilder(topicNode.getId()).append("|").append(topicNode.getTopicType());
+            if (topicNode instanceof SpecTopic) {
+                final SpecTopic specTopic = (SpecTopic) topicNode;
+                key.append("|").append(specTopic.getType()).append("|").append(specTopic.getTitle());
+            }
+            final List<String> tags = new ArrayList<String>(topicNode.getTags(false));
+            Collections.sort(tags);
+            key.append("|").append(tags);
+
+            final String baseKey = key.toString();
+            final Integer count = keyCounts.get(baseKey);
+            keyCounts.put(baseKey, count == null ? 1 : count + 1);
+            journalKeys.put(topicNode, count == null ? baseKey : baseKey + "#" + (count + 1));
+        }
+        return journalKeys;
+    }
+
+    /**
+     * @param contentSpec The content spec being processed.
+     * @return The key that identifies the content spec in the topic save journal.
+     */
+    protected String getTopicSaveJournalContentSpecKey(final ContentSpec contentSpec) {
+        if (contentSpec.getId() != null) {
+            return "ID:" + contentSpec.getId();
+        } else {
+            return "NEW:" + contentSpec.getTitle() + "|" + contentSpec.getProduct() + "|" + contentSpec.getVersion();
+        }
+    }
+
+    /**
+     * @param topicNode The topic node to check.
+     * @return True if a topic entity may need to be created or updated for the topic node.
+     */
+    private boolean isTopicToBeSaved(final ITopicNode topicNode) {
+        if (topicNode.isTopicAClonedDuplicateTopic() || topicNode.isTopicADuplicateTopic()) {
+            return false;
+        }
+        return topicNode.isTopicAClonedTopic() || topicNode.isTopicANewTopic() || (topicNode.isTopicAnExistingTopic() && !topicNode
+                .getTags(true).isEmpty() && topicNode.getRevision() == null);
+    }
+
+    /**
+     * Waits for a chunk of topics to be saved. The app isn't checked for shutting down while waiting, since the chunk may
+     * already be part way through being saved.
+     *
+     * @param future The future for the task to wait on.
+     * @return The result of the task.
+     * @throws ProcessingException Thrown if the thread was interrupted.
+     */
+    private TopicChunkResult waitForTopicChunkSaveTask(final Future<TopicChunkResult> future) throws ProcessingException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while saving topics", e);
+        } catch (ExecutionException e) {
+            // The task catches any exceptions itself, so this should only happen for errors
+            throw new ProcessingException("Failed to save topics", e.getCause());
+        }
+    }
+
+    /**
+     * @return A new topic pool to save topics with.
+     */
+    protected TopicPool createTopicPool() {
+        return new TopicPool(providerFactory);
+    }
+
     protected void createOrUpdateTopics(final List<? extends ITopicNode> specTopics, final TopicPool topics,
             final ProcessorData processorData, final LocaleWrapper contentSpecLocale) throws ProcessingException {
+        final int threads = processingOptions.getTopicPreparationThreads();
+        if (threads > 1) {
+            createOrUpdateTopicsInParallel(specTopics, topics, processorData, contentSpecLocale, threads);
+            return;
+        }
+
         // Create the new topic entities
         for (final ITopicNode specTopic : specTopics) {
 
             // Check if the app should be shutdown
-            if (isShuttingDown.get()) {
+            if (isStopRequested()) {
                 shutdown.set(true);
                 throw new ProcessingException("Shutdown Requested");
             }
 
             // Add topics to the TopicPool that need to be added or updated
-            if (specTopic.isTopicAClonedTopic() || specTopic.isTopicANewTopic()) {
+            if (isTopicToBeSaved(specTopic)) {
                 try {
                     final TopicWrapper topic = createTopicEntity(providerFactory, specTopic, processorData.getContentSpec().getFormat(),
                             contentSpecLocale);
                     if (topic != null) {
-                        topics.addNewTopic(topic);
+                        if (specTopic.isTopicAnExistingTopic()) {
+                            topics.addUpdatedTopic(topic);
+                        } else {
+                            topics.addNewTopic(topic);
+                        }
                     }
                 } catch (Exception e) {
                     throw new ProcessingException("Failed to create topic: " + specTopic.getId(), e);
                 }
-            } else if (specTopic.isTopicAnExistingTopic() && !specTopic.getTags(true).isEmpty() && specTopic.getRevision() == null) {
-                try {
-                    final TopicWrapper topic = createTopicEntity(providerFactory, specTopic, processorData.getContentSpec().getFormat(),
-                            contentSpecLocale);
-                    if (topic != null) {
-                        topics.addUpdatedTopic(topic);
+            }
+        }
+    }
+
+    /**
+     * Creates the topic entities for new, cloned and updated topics on a pool of threads, and then adds them to the topic pool in
+     * the same order as {@link #createOrUpdateTopics(List, TopicPool, ProcessorData, LocaleWrapper)} would. If any topic fails to
+     * be created, then the remaining tasks are cancelled.
+     *
+     * @param specTopics        The topic nodes to create or update topic entities for.
+     * @param topics            The topic pool to add the new or updated topic entities to.
+     * @param processorData     The data to be processed.
+     * @param contentSpecLocale The locale of the content spec.
+     * @param threads           The maximum number of topic entities to create at the same time.
+     * @throws ProcessingException Thrown if a topic entity failed to be created, or the app is shutting down.
+     */
+    protected void createOrUpdateTopicsInParallel(final List<? extends ITopicNode> specTopics, final TopicPool topics,
+            final ProcessorData processorData, final LocaleWrapper contentSpecLocale, final int threads) throws ProcessingException {
+        // Find the topics that need to be added or updated, keeping them in the same order
+        final List<TopicEntityTask> tasks = new ArrayList<TopicEntityTask>();
+        for (final ITopicNode specTopic : specTopics) {
+            if (isTopicToBeSaved(specTopic)) {
+                tasks.add(new TopicEntityTask(specTopic, processorData.getContentSpec().getFormat(), contentSpecLocale));
+            }
+        }
+
+        // Check if the app should be shutdown
+        if (isStopRequested()) {
+            shutdown.set(true);
+            throw new ProcessingException("Shutdown Requested");
+        }
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, tasks.size()),
+                new DaemonThreadFactory("csprocessor-topic-preparation-"));
+        try {
+            final List<Future<TopicEntityResult>> futures = new ArrayList<Future<TopicEntityResult>>();
+            for (final TopicEntityTask task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+
+            // Add the topics to the pool in order, so that the pool is the same as when the topics are created sequentially
+            for (int i = 0; i < tasks.size(); i++) {
+                final ITopicNode specTopic = tasks.get(i).getTopicNode();
+                final TopicEntityResult result = waitForTopicEntityTask(futures.get(i));
+                ThreadBufferedErrorLogger.flush(result.getMessages());
+
+                if (result.getException() != null) {
+                    throw new ProcessingException("Failed to create topic: " + specTopic.getId(), result.getException());
+                } else if (result.getTopic() != null) {
+                    if (specTopic.isTopicAnExistingTopic()) {
+                        topics.addUpdatedTopic(result.getTopic());
+                    } else {
+                        topics.addNewTopic(result.getTopic());
                     }
-                } catch (Exception e) {
-                    throw new ProcessingException("Failed to create topic: " + specTopic.getId(), e);
                 }
             }
+        } finally {
+            // Cancel anything that is still running, in case a topic failed or the app is shutting down
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a topic entity task to complete, while periodically checking if the app is shutting down.
+     *
+     * @param future The future for the task to wait on.
+     * @return The result of the task.
+     * @throws ProcessingException Thrown if the app is shutting down.
+     */
+    private TopicEntityResult waitForTopicEntityTask(final Future<TopicEntityResult> future) throws ProcessingException {
+        final TopicEntityResult result;
+        try {
+            result = TaskUtilities.waitForTask(future, stopCondition);
+        } catch (ExecutionException e) {
+            // The task catches any exceptions itself, so this should only happen for errors
+            throw new ProcessingException("Failed to create topics", e.getCause());
+        }
+
+        if (result == null) {
+            shutdown.set(true);
+            throw new ProcessingException("Shutdown Requested");
         }
+        return result;
     }
 
     /**
@@ -531,7 +1323,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         final TagProvider tagProvider = providerFactory.getProvider(TagProvider.class);
         final TopicSourceURLProvider topicSourceURLProvider = providerFactory.getProvider(TopicSourceURLProvider.class);
 
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -545,7 +1337,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -555,7 +1347,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -566,7 +1358,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -576,7 +1368,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -602,7 +1394,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return null;
         }
 
@@ -631,7 +1423,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         if (topicNode.isTopicANewTopic()) {
             topic = getTopicForNewTopicNode(providerFactory, topicNode);
         } else if (topicNode.isTopicAClonedTopic()) {
-            topic = ProcessorUtilities.cloneTopic(providerFactory, topicNode, serverEntities);
+            topic = ProcessorUtilities.cloneTopic(providerFactory, topicNode, serverEntities, cloneSourceCache);
         } else if (topicNode.isTopicAnExistingTopic()) {
             topic = getTopicForExistingTopicNode(providerFactory, topicNode);
         }
@@ -685,7 +1477,8 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         topic.setProperties(propertyTagProvider.newPropertyTagInTopicCollection(topic));
         final String assignedWriter = topicNode.getAssignedWriter(true);
         if (assignedWriter != null) {
-            final PropertyTagWrapper addedByPropertyTag = propertyTagProvider.getPropertyTag(serverEntities.getAddedByPropertyTagId());
+            final PropertyTagWrapper addedByPropertyTag = ProcessorUtilities.getPropertyTag(propertyTagProvider,
+                    serverEntities.getAddedByPropertyTagId(), cloneSourceCache);
             final PropertyTagInTopicWrapper addedByProperty = propertyTagProvider.newPropertyTagInTopic(addedByPropertyTag, topic);
             addedByProperty.setValue(assignedWriter);
             topic.getProperties().addNewItem(addedByProperty);
@@ -737,7 +1530,8 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         if (!cspPropertyFound) {
-            final PropertyTagWrapper cspPropertyTag = propertyTagProvider.getPropertyTag(serverEntities.getCspIdPropertyTagId());
+            final PropertyTagWrapper cspPropertyTag = ProcessorUtilities.getPropertyTag(propertyTagProvider,
+                    serverEntities.getCspIdPropertyTagId(), cloneSourceCache);
             final PropertyTagInTopicWrapper cspProperty = propertyTagProvider.newPropertyTagInTopic(cspPropertyTag, topic);
             cspProperty.setValue(specTopic.getUniqueId());
             cspProperty.setId(serverEntities.getCspIdPropertyTagId());
@@ -770,7 +1564,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return changed;
         }
 
@@ -821,7 +1615,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return changed;
         }
 
@@ -836,7 +1630,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             return changed;
         }
 
@@ -985,35 +1779,22 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
     }
 
     protected Map<ITopicNode, ITopicNode> createDuplicatedTopicMap(final List<ITopicNode> topicNodes) {
-        final Map<ITopicNode, ITopicNode> mapping = new HashMap<ITopicNode, ITopicNode>();
-        for (final ITopicNode topic : topicNodes) {
-            // Sync the normal duplicates first
-            if (topic.isTopicADuplicateTopic()) {
-                final String id = topic.getId();
-                final String temp = "N" + id.substring(1);
-                ITopicNode cloneTopic = null;
-                for (final ITopicNode specTopic : topicNodes) {
-                    final String key = specTopic.getId();
-                    if (key.equals(temp)) {
-                        cloneTopic = specTopic;
-                        break;
-                    }
-                }
-                mapping.put(topic, cloneTopic);
-            }
-            // Sync the duplicate cloned topics
-            else if (topic.isTopicAClonedDuplicateTopic()) {
-                final String id = topic.getId();
-                final String idType = id.substring(1);
-                ITopicNode cloneTopic = null;
-                for (final ITopicNode specTopic : topicNodes) {
-                    final String key = specTopic.getId();
-                    if (key.endsWith(idType) && !key.endsWith(id)) {
-                        cloneTopic = specTopic;
-                        break;
-                    }
-                }
-                mapping.put(topic, cloneTopic);
+        return createDuplicatedTopicMap(new TopicNodeIndex(topicNodes));
+    }
+
+    /**
+     * Creates a mapping of duplicate topics (ie X1 or XC1) to the topics that they are duplicates of. The topic nodes are mapped
+     * by identity, so that the mapping is still valid once the ids of the topic nodes are changed when they are saved.
+     *
+     * @param topicNodeIndex The index of the topic nodes in the content spec.
+     * @return The mapping of duplicate topics to their source topics.
+     */
+    protected Map<ITopicNode, ITopicNode> createDuplicatedTopicMap(final TopicNodeIndex topicNodeIndex) {
+        final Map<ITopicNode, ITopicNode> mapping = new IdentityHashMap<ITopicNode, ITopicNode>();
+        for (final ITopicNode topic : topicNodeIndex.getTopicNodes()) {
+            // Sync the normal duplicates and the duplicate cloned topics
+            if (topic.isTopicADuplicateTopic() || topic.isTopicAClonedDuplicateTopic()) {
+                mapping.put(topic, topicNodeIndex.getDuplicatedTopicSource(topic));
             }
         }
 
@@ -1143,14 +1924,198 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
 
         // Merge the base level and comments
         final Map<SpecNode, CSNodeWrapper> nodeMapping = new HashMap<SpecNode, CSNodeWrapper>();
-        mergeChildren(nodes, contentSpecNodes, providerFactory, null, contentSpecEntity, nodeMapping);
+        final NodeChangeSet changeSet = processorData.getChangeSet();
+        final long mergeStart = startStage(processorData, ProcessingStage.CONTENT_SPEC_MERGE);
+        boolean merged = false;
+        try {
+            mergeChildren(nodes, contentSpecNodes, providerFactory, null, contentSpecEntity, nodeMapping, changeSet);
+            merged = true;
+        } finally {
+            completeStage(processorData, ProcessingStage.CONTENT_SPEC_MERGE, mergeStart, changeSet.getTotalNodeCount(), merged);
+        }
+
+        // Merge the relationships and save the changes
+        saveMergedContentSpec(providerFactory, contentSpecEntity, nodeMapping, changeSet, processorData.getLogMessage(),
+                processorData);
+    }
+
+    /**
+     * Merges the relationships for the content spec nodes and then saves the merged content spec entity. If the provider supports
+     * temporary node ids, then the content spec is saved in a single request, otherwise the nodes are saved first so that
+     * relationships can reference any new nodes.
+     *
+     * @param providerFactory
+     * @param contentSpecEntity The merged content spec entity to be saved.
+     * @param nodeMapping       The mapping of Spec Nodes to Entity nodes.
+     * @param changeSet         The changes that were made to the content spec nodes.
+     * @param logMessage        The log message to save the changes with.
+     */
+    protected void saveMergedContentSpec(final DataProviderFactory providerFactory, final ContentSpecWrapper contentSpecEntity,
+            final Map<SpecNode, CSNodeWrapper> nodeMapping, final NodeChangeSet changeSet, final LogMessageWrapper logMessage) {
+        saveMergedContentSpec(providerFactory, contentSpecEntity, nodeMapping, changeSet, logMessage, null);
+    }
+
+    /**
+     * Merges the relationships for the content spec nodes and then saves the merged content spec entity. If the provider supports
+     * temporary node ids, then the content spec is saved in a single request, otherwise the nodes are saved first so that
+     * relationships can reference any new nodes.
+     *
+     * @param providerFactory
+     * @param contentSpecEntity The merged content spec entity to be saved.
+     * @param nodeMapping       The mapping of Spec Nodes to Entity nodes.
+     * @param changeSet         The changes that were made to the content spec nodes.
+     * @param logMessage        The log message to save the changes with.
+     * @param processorData     The data used for this processing action, or null if the processing stages aren't being tracked.
+     */
+    protected void saveMergedContentSpec(final DataProviderFactory providerFactory, final ContentSpecWrapper contentSpecEntity,
+            final Map<SpecNode, CSNodeWrapper> nodeMapping, final NodeChangeSet changeSet, final LogMessageWrapper logMessage,
+            final ProcessorData processorData) {
+        final ContentSpecProvider contentSpecProvider = providerFactory.getProvider(ContentSpecProvider.class);
+
+        if (contentSpecProvider instanceof SingleSaveContentSpecProvider) {
+            // Merge the relationships, new nodes will be referenced using temporary ids
+            mergeRelationships(nodeMapping, providerFactory, changeSet, processorData);
+
+            final Map<CSNodeWrapper, Integer> temporaryNodeIds = createTemporaryNodeIds(changeSet);
+            final Map<CSRelatedNodeWrapper, Integer> temporaryRelatedNodeIds = createTemporaryRelatedNodeIds(changeSet, temporaryNodeIds);
+            removeUnchangedNodes(contentSpecEntity.getChildren(), changeSet);
+            LOG.info("Sending {} of {} content spec nodes to the server", changeSet.getChangedNodeCount(), changeSet.getTotalNodeCount());
+            LOG.debug("Content spec changes: {}", changeSet);
+            ((SingleSaveContentSpecProvider) contentSpecProvider).updateContentSpec(contentSpecEntity, logMessage, temporaryNodeIds,
+                    temporaryRelatedNodeIds);
+        } else {
+            final Map<CSNodeWrapper, UpdateableCollectionWrapper<CSNodeWrapper>> removedNodes = new IdentityHashMap<CSNodeWrapper,
+                    UpdateableCollectionWrapper<CSNodeWrapper>>();
+            removeUnchangedNodes(contentSpecEntity.getChildren(), changeSet, removedNodes);
+            contentSpecProvider.updateContentSpec(contentSpecEntity);
+
+            // Put the unchanged nodes back, as merging the relationships can change a node inside an unchanged level
+            restoreUnchangedNodes(removedNodes);
+
+            // Merge the relationships now all nodes have a mapping to a database node
+            mergeRelationships(nodeMapping, providerFactory, changeSet, processorData);
+
+            LOG.info("Sending {} of {} content spec nodes to the server", changeSet.getChangedNodeCount(), changeSet.getTotalNodeCount());
+            LOG.debug("Content spec changes: {}", changeSet);
+            removeUnchangedNodes(contentSpecEntity.getChildren(), changeSet);
+            contentSpecProvider.updateContentSpec(contentSpecEntity, logMessage);
+        }
+    }
+
+    /**
+     * Removes the nodes that haven't changed from the collections that will be sent to the server, so that only the nodes recorded in
+     * the change set (and the levels that contain them) are saved.
+     *
+     * @param children  The collection of nodes to be sent to the server.
+     * @param changeSet The changes that were made to the content spec nodes.
+     * @return True if the collection still contains nodes that need to be sent.
+     */
+    protected boolean removeUnchangedNodes(final UpdateableCollectionWrapper<CSNodeWrapper> children, final NodeChangeSet changeSet) {
+        return removeUnchangedNodes(children, changeSet, null);
+    }
+
+    /**
+     * Removes the nodes that haven't changed from the collections that will be sent to the server, recording each node that was
+     * removed so that it can be put back using {@link #restoreUnchangedNodes(Map)}.
+     *
+     * @param children     The collection of nodes to be sent to the server.
+     * @param changeSet    The changes that were made to the content spec nodes.
+     * @param removedNodes The map to add the removed nodes and the collections they were removed from to, or null if they don't
+     *                     need to be recorded.
+     * @return True if the collection still contains nodes that need to be sent.
+     */
+    protected boolean removeUnchangedNodes(final UpdateableCollectionWrapper<CSNodeWrapper> children, final NodeChangeSet changeSet,
+            final Map<CSNodeWrapper, UpdateableCollectionWrapper<CSNodeWrapper>> removedNodes) {
+        if (children == null) return false;
+
+        final Set<CSNodeWrapper> unchangedNodes = Collections.newSetFromMap(new IdentityHashMap<CSNodeWrapper, Boolean>());
+        unchangedNodes.addAll(children.getUnchangedItems());
+        final Set<CSNodeWrapper> deletedNodes = Collections.newSetFromMap(new IdentityHashMap<CSNodeWrapper, Boolean>());
+        deletedNodes.addAll(children.getRemoveItems());
+
+        boolean hasChanges = false;
+        for (final CSNodeWrapper child : new ArrayList<CSNodeWrapper>(children.getItems())) {
+            if (!unchangedNodes.contains(child)) {
+                // The node is being added, updated or removed, so it has to be sent. Removed nodes don't need their children checked.
+                if (!deletedNodes.contains(child)) {
+                    removeUnchangedNodes(child.getChildren(), changeSet, removedNodes);
+                }
+                hasChanges = true;
+            } else if (removeUnchangedNodes(child.getChildren(), changeSet, removedNodes) || changeSet.hasChanged(child)) {
+                hasChanges = true;
+            } else {
+                children.remove(child);
+                if (removedNodes != null) {
+                    removedNodes.put(child, children);
+                }
+            }
+        }
+
+        return hasChanges;
+    }
+
+    /**
+     * Puts the nodes that were removed by {@link #removeUnchangedNodes(UpdateableCollectionWrapper, NodeChangeSet, Map)} back into
+     * the collections they were removed from, as unchanged items.
+     *
+     * @param removedNodes The removed nodes, mapped to the collections they were removed from.
+     */
+    protected void restoreUnchangedNodes(final Map<CSNodeWrapper, UpdateableCollectionWrapper<CSNodeWrapper>> removedNodes) {
+        for (final Map.Entry<CSNodeWrapper, UpdateableCollectionWrapper<CSNodeWrapper>> entry : removedNodes.entrySet()) {
+            entry.getValue().addItem(entry.getKey());
+        }
+        removedNodes.clear();
+    }
+
+    private void mergeRelationships(final Map<SpecNode, CSNodeWrapper> nodeMapping, final DataProviderFactory providerFactory,
+            final NodeChangeSet changeSet, final ProcessorData processorData) {
+        final long relationshipMergeStart = startStage(processorData, ProcessingStage.RELATIONSHIP_MERGE);
+        boolean merged = false;
+        try {
+            mergeRelationships(nodeMapping, providerFactory, changeSet);
+            merged = true;
+        } finally {
+            completeStage(processorData, ProcessingStage.RELATIONSHIP_MERGE, relationshipMergeStart, nodeMapping.size(), merged);
+        }
+    }
+
+    /**
+     * Creates the temporary client-side ids for any nodes that will be inserted, so that they can be referenced before they have
+     * been saved.
+     *
+     * @param changeSet The changes that were made to the content spec nodes.
+     * @return A mapping of new nodes to their temporary ids.
+     */
+    protected Map<CSNodeWrapper, Integer> createTemporaryNodeIds(final NodeChangeSet changeSet) {
+        final Map<CSNodeWrapper, Integer> temporaryNodeIds = new IdentityHashMap<CSNodeWrapper, Integer>();
+        int temporaryId = -1;
+        for (final CSNodeWrapper node : changeSet.getNodes(NodeChangeSet.ChangeType.INSERT)) {
+            if (node.getId() == null) {
+                temporaryNodeIds.put(node, temporaryId--);
+            }
+        }
 
-        contentSpecProvider.updateContentSpec(contentSpecEntity);
+        return temporaryNodeIds;
+    }
 
-        // Merge the relationships now all nodes have a mapping to a database node
-        mergeRelationships(nodeMapping, providerFactory);
+    /**
+     * Links any new relationships that point to a node that hasn't been saved yet to the temporary id of that node.
+     *
+     * @param changeSet        The changes that were made to the content spec nodes.
+     * @param temporaryNodeIds The temporary ids of the nodes that haven't been saved yet.
+     * @return A mapping of new relationships to the temporary id of the node they point to.
+     */
+    protected Map<CSRelatedNodeWrapper, Integer> createTemporaryRelatedNodeIds(final NodeChangeSet changeSet,
+            final Map<CSNodeWrapper, Integer> temporaryNodeIds) {
+        final Map<CSRelatedNodeWrapper, Integer> temporaryRelatedNodeIds = new IdentityHashMap<CSRelatedNodeWrapper, Integer>();
+        for (final Map.Entry<CSRelatedNodeWrapper, CSNodeWrapper> entry : changeSet.getNewRelationships().entrySet()) {
+            final Integer temporaryId = temporaryNodeIds.get(entry.getValue());
+            if (temporaryId != null) {
+                temporaryRelatedNodeIds.put(entry.getKey(), temporaryId);
+            }
+        }
 
-        contentSpecProvider.updateContentSpec(contentSpecEntity, processorData.getLogMessage());
+        return temporaryRelatedNodeIds;
     }
 
     /**
@@ -1227,6 +2192,25 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
     protected void mergeChildren(final List<Node> childrenNodes, final List<CSNodeWrapper> contentSpecNodes,
             final DataProviderFactory providerFactory, final CSNodeWrapper parentNode, final ContentSpecWrapper contentSpec,
             final Map<SpecNode, CSNodeWrapper> nodeMapping) throws Exception {
+        mergeChildren(childrenNodes, contentSpecNodes, providerFactory, parentNode, contentSpec, nodeMapping, new NodeChangeSet());
+    }
+
+    /**
+     * Merges the children nodes of a Content Spec level into the Content Spec Entity level, recording each change made to an
+     * entity in the change set.
+     *
+     * @param childrenNodes    The child nodes to be merged.
+     * @param contentSpecNodes The list of content spec nodes that can be matched to.
+     * @param providerFactory
+     * @param parentNode       The parent entity node that the nodes should be assigned to.
+     * @param contentSpec      The content spec entity that the nodes belong to.
+     * @param nodeMapping      The mapping of Spec Nodes to Entity nodes.
+     * @param changeSet        The change set to record the entity changes in.
+     * @throws Exception Thrown if an error occurs during saving new nodes.
+     */
+    protected void mergeChildren(final List<Node> childrenNodes, final List<CSNodeWrapper> contentSpecNodes,
+            final DataProviderFactory providerFactory, final CSNodeWrapper parentNode, final ContentSpecWrapper contentSpec,
+            final Map<SpecNode, CSNodeWrapper> nodeMapping, final NodeChangeSet changeSet) throws Exception {
         final CSNodeProvider nodeProvider = providerFactory.getProvider(CSNodeProvider.class);
         final CSInfoNodeProvider nodeInfoProvider = providerFactory.getProvider(CSInfoNodeProvider.class);
 
@@ -1247,6 +2231,9 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
             }
         }
 
+        // Index the existing nodes, so that large levels don't need to be fully scanned for every node
+        final CSNodeMatchIndex nodeIndex = new CSNodeMatchIndex(contentSpecNodes);
+
         // Update or create all of the children nodes that exist in the content spec
         CSNodeWrapper prevNode = null;
         for (final Node childNode : childrenNodes) {
@@ -1255,9 +2242,10 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
             }
 
             LOG.debug("Processing: {}", childNode.getText());
+            changeSet.addProcessedNode();
 
             // Find the Entity Node that matches the Content Spec node, if one exists
-            CSNodeWrapper foundNodeEntity = findExistingNode(parentNode, childNode, contentSpecNodes);
+            CSNodeWrapper foundNodeEntity = findExistingNode(parentNode, childNode, nodeIndex);
 
             // If the node was not found create a new one
             boolean changed = false;
@@ -1301,7 +2289,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                 LOG.debug("Found existing node {}", foundNodeEntity.getId());
 
                 // If the node was found remove it from the list of content spec nodes, so it can no longer be matched
-                contentSpecNodes.remove(foundNodeEntity);
+                nodeIndex.remove(foundNodeEntity);
 
                 if (childNode instanceof SpecTopic) {
                     final SpecTopic specTopic = (SpecTopic) childNode;
@@ -1341,9 +2329,14 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                     }
                 }
 
+                if (changed) {
+                    changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.MODIFY);
+                }
+
                 // Check if the parent node is different, if so then set it as moved
                 if (!doesParentMatch(parentNode, foundNodeEntity.getParent())) {
                     LOG.debug("Setting entity {} as moved", foundNodeEntity.getId());
+                    changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.MOVE);
                     changed = true;
                 }
             }
@@ -1362,16 +2355,19 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                         if (infoEntity == null) {
                             infoEntity = nodeInfoProvider.newCSNodeInfo(foundNodeEntity);
                             foundNodeEntity.setInfoTopicNode(infoEntity);
+                            changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.MODIFY);
                             changed = true;
                         }
                     }
 
                     // Merge the changes
                     if (mergeLevelInfoTopic(infoTopic, infoEntity)) {
+                        changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.MODIFY);
                         changed = true;
                     }
                 } else if (infoEntity != null) {
                     foundNodeEntity.setInfoTopicNode(null);
+                    changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.MODIFY);
                     changed = true;
                 }
 
@@ -1383,7 +2379,8 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                     currentChildren.addAll(foundNodeEntity.getChildren().getItems());
                 }
 
-                mergeChildren(getTransformableNodes(children), currentChildren, providerFactory, foundNodeEntity, contentSpec, nodeMapping);
+                mergeChildren(getTransformableNodes(children), currentChildren, providerFactory, foundNodeEntity, contentSpec, nodeMapping,
+                        changeSet);
             } else if (childNode instanceof FileList) {
                 final FileList fileList = (FileList) childNode;
 
@@ -1398,15 +2395,17 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                     currentChildren.addAll(foundNodeEntity.getChildren().getItems());
                 }
 
-                mergeChildren(getTransformableNodes(children), currentChildren, providerFactory, foundNodeEntity, contentSpec, nodeMapping);
+                mergeChildren(getTransformableNodes(children), currentChildren, providerFactory, foundNodeEntity, contentSpec, nodeMapping,
+                        changeSet);
             }
 
-            // Set up the next node relationship for the previous node
+            // Set up the next node relationship for the previous node. Only the previous node holds the link, so the current node
+            // doesn't need to be sent unless it was changed itself.
             if (prevNode != null && (prevNode.getNextNode() == null || (prevNode.getNextNode() != null && foundNodeEntity.getId() ==
                     null) || (prevNode.getNextNode() != null && !prevNode.getNextNode().getId().equals(
                     foundNodeEntity.getId())))) {
                 prevNode.setNextNode(foundNodeEntity);
-                changed = true;
+                changeSet.addChange(prevNode, NodeChangeSet.ChangeType.RELINK);
 
                 // Add the previous node to the updated collection if it's not already there
                 if (parentNode == null) {
@@ -1417,6 +2416,9 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
             }
 
             // The node has been updated or created so update it's state
+            if (newNode) {
+                changeSet.addChange(foundNodeEntity, NodeChangeSet.ChangeType.INSERT);
+            }
             if (changed || newNode) {
                 if (parentNode == null) {
                     addContentSpecChild(contentSpec, levelChildren, foundNodeEntity);
@@ -1437,6 +2439,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         // If there is a previous node then make sure it's next node id is null as it's the last in the linked list
         if (prevNode != null && prevNode.getNextNode() != null) {
             prevNode.setNextNode(null);
+            changeSet.addChange(prevNode, NodeChangeSet.ChangeType.RELINK);
 
             // Add the previous node to the updated collection if it's not already there
             if (parentNode == null) {
@@ -1446,12 +2449,17 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
             }
         }
 
+        // Only leave the nodes that weren't matched in the list of content spec nodes
+        contentSpecNodes.clear();
+        contentSpecNodes.addAll(nodeIndex.getRemainingItems());
+
         // Set the nodes that are no longer used for removal
         if (!contentSpecNodes.isEmpty()) {
             for (final CSNodeWrapper childNode : contentSpecNodes) {
                 LOG.debug("Removing entity {} - {}", childNode.getId(), childNode.getTitle());
                 levelChildren.remove(childNode);
                 levelChildren.addRemoveItem(childNode);
+                changeSet.addChange(childNode, NodeChangeSet.ChangeType.DELETE);
 
                 // Remove any incoming relationships as well, since this node has been removed
                 if (childNode.getRelatedFromNodes() != null) {
@@ -1508,6 +2516,60 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         }
     }
 
+    /**
+     * Finds the existing Entity Node that matches a ContentSpec node, using the index to narrow down the entity nodes that need
+     * to be checked.
+     *
+     * @param parent    The parent entity node that the matching node should belong to.
+     * @param childNode The ContentSpec node to find a matching Entity node for.
+     * @param nodeIndex The index of the entity child nodes that haven't been matched yet.
+     * @return The matching entity if one exists, otherwise null.
+     */
+    protected CSNodeWrapper findExistingNode(final CSNodeWrapper parent, final Node childNode, final CSNodeMatchIndex nodeIndex) {
+        return findExistingNode(parent, childNode, getMatchCandidates(childNode, nodeIndex));
+    }
+
+    /**
+     * Gets the entity nodes that could possibly match a ContentSpec node. The candidates are returned in the same order as the
+     * original entity nodes, so that the matching rules in {@link #findExistingNode(CSNodeWrapper, Node, List)} give the same
+     * result as when checking every entity node.
+     *
+     * @param childNode The ContentSpec node to find the candidates for.
+     * @param nodeIndex The index of the entity child nodes that haven't been matched yet.
+     * @return The list of entity nodes that could match the ContentSpec node.
+     */
+    protected List<CSNodeWrapper> getMatchCandidates(final Node childNode, final CSNodeMatchIndex nodeIndex) {
+        // If the unique id is not from the parser, in which case it will start with a number, then only the node with that id can match
+        final String uniqueId = childNode.getUniqueId();
+        if (uniqueId != null && uniqueId.matches("^\\d.*")) {
+            return nodeIndex.getNodesById(uniqueId);
+        }
+
+        if (childNode instanceof SpecTopic) {
+            final Integer topicId = ((SpecTopic) childNode).getDBId();
+            if (topicId != null) {
+                return nodeIndex.getNodesByEntityId(topicId);
+            }
+        } else if (childNode instanceof File) {
+            final Integer fileId = ((File) childNode).getId();
+            if (fileId != null) {
+                return nodeIndex.getNodesByEntityId(fileId);
+            }
+        } else if (childNode instanceof KeyValueNode) {
+            final String key = ((KeyValueNode<?>) childNode).getKey();
+            if (CommonConstants.CS_ABSTRACT_TITLE.equals(key)) {
+                return nodeIndex.getNodesByTitle(key, CommonConstants.CS_ABSTRACT_ALTERNATE_TITLE);
+            } else if (CommonConstants.CS_FILE_TITLE.equals(key)) {
+                return nodeIndex.getNodesByTitle(key, CommonConstants.CS_FILE_SHORT_TITLE);
+            } else if (key != null) {
+                return nodeIndex.getNodesByTitle(key);
+            }
+        }
+
+        // Levels, comments and common content can be matched on their content, so they need to be checked against every node
+        return nodeIndex.getRemainingItems();
+    }
+
     /**
      * Finds the existing Entity Node that matches a ContentSpec node.
      *
@@ -1836,6 +2898,19 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      * @param providerFactory
      */
     protected void mergeRelationships(final Map<SpecNode, CSNodeWrapper> nodeMapping, final DataProviderFactory providerFactory) {
+        mergeRelationships(nodeMapping, providerFactory, new NodeChangeSet());
+    }
+
+    /**
+     * Merges the relationships for all Spec Topics into their counterpart Entity nodes, recording each entity that had its
+     * relationships changed in the change set.
+     *
+     * @param nodeMapping     The mapping of Spec Nodes to Entity nodes.
+     * @param providerFactory
+     * @param changeSet       The change set to record the entity changes in.
+     */
+    protected void mergeRelationships(final Map<SpecNode, CSNodeWrapper> nodeMapping, final DataProviderFactory providerFactory,
+            final NodeChangeSet changeSet) {
         final CSNodeProvider nodeProvider = providerFactory.getProvider(CSNodeProvider.class);
 
         for (final Map.Entry<SpecNode, CSNodeWrapper> nodes : nodeMapping.entrySet()) {
@@ -1849,7 +2924,9 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
             // Check if the node or entity have any relationships, if not then the node doesn't need to be merged
             if (!specNode.getRelationships().isEmpty() || entity.getRelatedToNodes() != null && !entity.getRelatedToNodes().isEmpty()) {
                 // merge the relationships from the spec topic to the entity
-                mergeRelationship(nodeMapping, specNode, entity, nodeProvider);
+                if (mergeRelationship(nodeMapping, specNode, entity, nodeProvider, changeSet)) {
+                    changeSet.addChange(entity, NodeChangeSet.ChangeType.MODIFY);
+                }
             }
         }
     }
@@ -1861,12 +2938,28 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
      * @param specNode     The Spec Node to get the relationships from.
      * @param entity       The Entity to merge the relationships into.
      * @param nodeProvider The provider factory for getting new or existing nodes.
+     * @return True if the relationships for the entity were changed, otherwise false.
      */
-    protected void mergeRelationship(final Map<SpecNode, CSNodeWrapper> nodeMapping, final SpecNodeWithRelationships specNode,
+    protected boolean mergeRelationship(final Map<SpecNode, CSNodeWrapper> nodeMapping, final SpecNodeWithRelationships specNode,
             final CSNodeWrapper entity, final CSNodeProvider nodeProvider) {
+        return mergeRelationship(nodeMapping, specNode, entity, nodeProvider, new NodeChangeSet());
+    }
+
+    /**
+     * Merges the relationships from a Spec Node into a Node Entity.
+     *
+     * @param nodeMapping  The mapping of Spec Nodes to Entity nodes.
+     * @param specNode     The Spec Node to get the relationships from.
+     * @param entity       The Entity to merge the relationships into.
+     * @param nodeProvider The provider factory for getting new or existing nodes.
+     * @param changeSet    The change set to record any new relationships in.
+     * @return True if the relationships for the entity were changed, otherwise false.
+     */
+    protected boolean mergeRelationship(final Map<SpecNode, CSNodeWrapper> nodeMapping, final SpecNodeWithRelationships specNode,
+            final CSNodeWrapper entity, final CSNodeProvider nodeProvider, final NodeChangeSet changeSet) {
         final UpdateableCollectionWrapper<CSRelatedNodeWrapper> relatedToNodes = entity.getRelatedToNodes() == null ? nodeProvider
                 .newCSRelatedNodeCollection() : entity.getRelatedToNodes();
-        final List<CSRelatedNodeWrapper> existingRelationships = new ArrayList<CSRelatedNodeWrapper>(relatedToNodes.getItems());
+        final CSRelatedNodeMatchIndex existingRelationships = new CSRelatedNodeMatchIndex(relatedToNodes.getItems());
 
         LOG.debug("Processing relationships for entity: {}", entity.getEntityId());
 
@@ -1931,6 +3024,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                     foundRelatedNode.setRelationshipMode(relationshipMode);
 
                     relatedToNodes.addNewItem(foundRelatedNode);
+                    changeSet.addNewRelationship(foundRelatedNode, relatedNode);
                 }
 
                 // increment the sort counter
@@ -1940,7 +3034,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
 
         // Remove any existing relationships that are no longer valid
         if (!existingRelationships.isEmpty()) {
-            for (final CSRelatedNodeWrapper relatedNode : existingRelationships) {
+            for (final CSRelatedNodeWrapper relatedNode : existingRelationships.getRemainingItems()) {
                 LOG.debug("Removing relationship {}", relatedNode.getRelationshipId());
                 relatedToNodes.remove(relatedNode);
                 relatedToNodes.addRemoveItem(relatedNode);
@@ -1969,7 +3063,66 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
                     parent.getChildren().addUpdateItem(entity);
                 }
             }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds an existing relationship for a topic, using the index to narrow down the relationships that need to be checked.
+     *
+     * @param relationship          The relationship to be found.
+     * @param existingRelationships The index of existing relationships that haven't been matched yet.
+     * @return The related Entity, otherwise null if one can't be found.
+     */
+    protected CSRelatedNodeWrapper findExistingRelatedNode(final Relationship relationship,
+            final CSRelatedNodeMatchIndex existingRelationships) {
+        return findExistingRelatedNode(relationship, getRelatedNodeMatchCandidates(relationship, existingRelationships));
+    }
+
+    /**
+     * Gets the existing relationships that could possibly match a relationship, in their original order.
+     *
+     * @param relationship          The relationship to find the candidates for.
+     * @param existingRelationships The index of existing relationships that haven't been matched yet.
+     * @return The list of existing relationships that could match the relationship.
+     */
+    protected List<CSRelatedNodeWrapper> getRelatedNodeMatchCandidates(final Relationship relationship,
+            final CSRelatedNodeMatchIndex existingRelationships) {
+        final Integer relationshipType = RelationshipType.getRelationshipTypeId(relationship.getType());
+        final SpecNode secondaryNode = relationship instanceof TargetRelationship ? ((TargetRelationship) relationship)
+                .getSecondaryRelationship() : ((TopicRelationship) relationship).getSecondaryRelationship();
+
+        // If the unique id is not from the parser, in which case it will start with a number, then only the node with that id can match
+        final String uniqueId = secondaryNode.getUniqueId();
+        if (uniqueId != null && uniqueId.matches("^\\d.*")) {
+            return existingRelationships.getRelatedNodesById(relationshipType, uniqueId);
+        }
+
+        if (relationship instanceof TargetRelationship) {
+            final String targetId;
+            if (secondaryNode instanceof Level) {
+                targetId = ((Level) secondaryNode).getTargetId();
+            } else if (secondaryNode instanceof SpecTopic) {
+                targetId = ((SpecTopic) secondaryNode).getTargetId();
+            } else {
+                // Only levels and topics can be targets
+                return Collections.emptyList();
+            }
+
+            if (targetId != null) {
+                return existingRelationships.getRelatedNodesByTargetId(relationshipType, targetId);
+            }
+        } else {
+            final Integer topicId = ((TopicRelationship) relationship).getSecondaryRelationship().getDBId();
+            if (topicId != null) {
+                return existingRelationships.getRelatedNodesByEntityId(relationshipType, topicId);
+            }
         }
+
+        return existingRelationships.getRemainingItems();
     }
 
     /**
@@ -2087,8 +3240,7 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
 
                 return level.getTitle().equals(node.getTitle());
             } else {
-                return StringUtilities.similarDamerauLevenshtein(level.getTitle(),
-                        node.getTitle()) >= ProcessorConstants.MIN_MATCH_SIMILARITY;
+                return FuzzyMatchUtilities.isSimilar(level.getTitle(), node.getTitle(), ProcessorConstants.MIN_MATCH_SIMILARITY);
             }
         }
     }
@@ -2309,11 +3461,46 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
         return shutdown.get();
     }
 
+    public ProcessingContext getProcessingContext() {
+        return processingContext;
+    }
+
+    /**
+     * @return The cache of the topics and property tags used to clone topics in the current run.
+     */
+    protected CloneSourceCache getCloneSourceCache() {
+        return cloneSourceCache;
+    }
+
+    /**
+     * Sets the context to process in, which can stop processing once its deadline passes or it's cancelled. The validator uses
+     * the same context.
+     *
+     * @param processingContext The context to process in.
+     */
+    public void setProcessingContext(final ProcessingContext processingContext) {
+        this.processingContext = processingContext == null ? new ProcessingContext() : processingContext;
+        if (validator != null) {
+            validator.setProcessingContext(this.processingContext);
+        }
+    }
+
+    /**
+     * @return True if the app is shutting down, or the processing context has been cancelled or run out of time.
+     */
+    protected boolean isStopRequested() {
+        return isShuttingDown.get() || processingContext.isStopRequested();
+    }
+
     protected static class ProcessorData {
         private ContentSpec contentSpec;
         private String username;
         private boolean bugLinksReValidated = false;
         private LogMessageWrapper logMessage;
+        private final NodeChangeSet changeSet = new NodeChangeSet();
+        private TopicNodeIndex topicNodeIndex;
+        private ProcessingStageListener stageListener;
+        private final List<ProcessingStageEvent> stageEvents = new ArrayList<ProcessingStageEvent>();
 
         public String getUsername() {
             return username;
@@ -2345,6 +3532,205 @@ public class ContentSpecProcessor implements ShutdownAbleApp {
 
         public void setContentSpec(ContentSpec contentSpec) {
             this.contentSpec = contentSpec;
+            topicNodeIndex = null;
+        }
+
+        /**
+         * @return The index of the topic nodes in the content spec, which is built when first needed and then reused until it is
+         *         invalidated.
+         */
+        public TopicNodeIndex getTopicNodeIndex() {
+            if (topicNodeIndex == null && contentSpec != null) {
+                topicNodeIndex = new TopicNodeIndex(contentSpec);
+            }
+            return topicNodeIndex;
+        }
+
+        /**
+         * Discards the index of the topic nodes, so that it is rebuilt the next time it's used. This must be called whenever the
+         * ids of the topic nodes are changed.
+         */
+        public void invalidateTopicNodeIndex() {
+            topicNodeIndex = null;
+        }
+
+        public NodeChangeSet getChangeSet() {
+            return changeSet;
+        }
+
+        public ProcessingStageListener getStageListener() {
+            return stageListener;
+        }
+
+        public void setStageListener(ProcessingStageListener stageListener) {
+            this.stageListener = stageListener;
+        }
+
+        public synchronized List<ProcessingStageEvent> getStageEvents() {
+            return new ArrayList<ProcessingStageEvent>(stageEvents);
+        }
+
+        public synchronized void addStageEvent(final ProcessingStageEvent event) {
+            stageEvents.add(event);
+        }
+    }
+
+    /**
+     * A task that creates the topic entity for a single topic node, and buffers any messages that are logged.
+     */
+    private class TopicEntityTask implements Callable<TopicEntityResult> {
+        private final ITopicNode topicNode;
+        private final String docBookVersion;
+        private final LocaleWrapper locale;
+
+        TopicEntityTask(final ITopicNode topicNode, final String docBookVersion, final LocaleWrapper locale) {
+            this.topicNode = topicNode;
+            this.docBookVersion = docBookVersion;
+            this.locale = locale;
+        }
+
+        public ITopicNode getTopicNode() {
+            return topicNode;
+        }
+
+        @Override
+        public TopicEntityResult call() {
+            ThreadBufferedErrorLogger.startBuffering();
+            try {
+                final TopicWrapper topic = createTopicEntity(providerFactory, topicNode, docBookVersion, locale);
+                return new TopicEntityResult(topic, null, ThreadBufferedErrorLogger.stopBuffering());
+            } catch (Exception e) {
+                return new TopicEntityResult(null, e, ThreadBufferedErrorLogger.stopBuffering());
+            } finally {
+                ThreadBufferedErrorLogger.stopBuffering();
+            }
+        }
+    }
+
+    private static class TopicEntityResult {
+        private final TopicWrapper topic;
+        private final Exception exception;
+        private final List<ThreadBufferedErrorLogger.BufferedMessage> messages;
+
+        TopicEntityResult(final TopicWrapper topic, final Exception exception,
+                final List<ThreadBufferedErrorLogger.BufferedMessage> messages) {
+            this.topic = topic;
+            this.exception = exception;
+            this.messages = messages;
+        }
+
+        public TopicWrapper getTopic() {
+            return topic;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public List<ThreadBufferedErrorLogger.BufferedMessage> getMessages() {
+            return messages;
+        }
+    }
+
+    /**
+     * A task that creates and saves the topic entities for a chunk of topic nodes in its own topic pool, and buffers any messages
+     * that are logged.
+     */
+    private class TopicChunkSaveTask implements Callable<TopicChunkResult> {
+        private final List<ITopicNode> topicNodes;
+        private final ProcessorData processorData;
+        private final LocaleWrapper locale;
+        private final AtomicBoolean stopSaving;
+
+        TopicChunkSaveTask(final List<ITopicNode> topicNodes, final ProcessorData processorData, final LocaleWrapper locale,
+                final AtomicBoolean stopSaving) {
+            this.topicNodes = topicNodes;
+            this.processorData = processorData;
+            this.locale = locale;
+            this.stopSaving = stopSaving;
+        }
+
+        @Override
+        public TopicChunkResult call() {
+            // Don't start saving the chunk if another chunk failed or the app is shutting down
+            if (stopSaving.get() || isStopRequested()) {
+                return new TopicChunkResult(false, null, false, null, Collections.<ThreadBufferedErrorLogger.BufferedMessage>emptyList());
+            }
+
+            ThreadBufferedErrorLogger.startBuffering();
+            TopicPool topicPool = null;
+            try {
+                topicPool = createTopicPool();
+                createOrUpdateTopics(topicNodes, topicPool, processorData, locale);
+                final boolean saved = topicPool.savePool();
+                return new TopicChunkResult(true, topicPool, saved, null, ThreadBufferedErrorLogger.stopBuffering());
+            } catch (Exception e) {
+                return new TopicChunkResult(true, topicPool, false, e, ThreadBufferedErrorLogger.stopBuffering());
+            } finally {
+                ThreadBufferedErrorLogger.stopBuffering();
+            }
+        }
+    }
+
+    private static class TopicChunkResult {
+        private final boolean started;
+        private final TopicPool topicPool;
+        private final boolean saved;
+        private final Exception exception;
+        private final List<ThreadBufferedErrorLogger.BufferedMessage> messages;
+
+        TopicChunkResult(final boolean started, final TopicPool topicPool, final boolean saved, final Exception exception,
+                final List<ThreadBufferedErrorLogger.BufferedMessage> messages) {
+            this.started = started;
+            this.topicPool = topicPool;
+            this.saved = saved;
+            this.exception = exception;
+            this.messages = messages;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public TopicPool getTopicPool() {
+            return topicPool;
+        }
+
+        public boolean isSaved() {
+            return saved;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public List<ThreadBufferedErrorLogger.BufferedMessage> getMessages() {
+            return messages;
+        }
+    }
+
+    private static class ValidationPassResult {
+        private final boolean valid;
+        private final RuntimeException exception;
+        private final List<ThreadBufferedErrorLogger.BufferedMessage> messages;
+
+        ValidationPassResult(final boolean valid, final RuntimeException exception,
+                final List<ThreadBufferedErrorLogger.BufferedMessage> messages) {
+            this.valid = valid;
+            this.exception = exception;
+            this.messages = messages;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public RuntimeException getException() {
+            return exception;
+        }
+
+        public List<ThreadBufferedErrorLogger.BufferedMessage> getMessages() {
+            return messages;
         }
     }
 }
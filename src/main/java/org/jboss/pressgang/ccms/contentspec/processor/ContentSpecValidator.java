@@ -22,17 +22,28 @@ package org.jboss.pressgang.ccms.contentspec.processor;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
 
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.code.regexp.Matcher;
@@ -67,19 +78,35 @@ import org.jboss.pressgang.ccms.contentspec.enums.TopicType;
 import org.jboss.pressgang.ccms.contentspec.exceptions.ValidationException;
 import org.jboss.pressgang.ccms.contentspec.interfaces.ShutdownAbleApp;
 import org.jboss.pressgang.ccms.contentspec.processor.constants.ProcessorConstants;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TranslatedTopicResolver;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.BugLinkValidationCache;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CircuitBreaker;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CloneSourceCache;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecChecksumCache;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ServerSettingsSnapshot;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ThreadBufferedErrorLogger;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicNodeIndex;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicValidationMemo;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TranslationValidationReport;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ValidationReport;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.ChecksumUtilities;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.DaemonThreadFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.ProcessorUtilities;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.TaskUtilities;
 import org.jboss.pressgang.ccms.contentspec.sort.NullNumberSort;
 import org.jboss.pressgang.ccms.contentspec.sort.TopicNodeLineNumberComparator;
 import org.jboss.pressgang.ccms.contentspec.utils.ContentSpecUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.CustomTopicXMLValidator;
 import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
-import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLogger;
 import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLoggerManager;
 import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
 import org.jboss.pressgang.ccms.provider.CategoryProvider;
 import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
 import org.jboss.pressgang.ccms.provider.DataProviderFactory;
 import org.jboss.pressgang.ccms.provider.FileProvider;
+import org.jboss.pressgang.ccms.provider.PropertyTagProvider;
 import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
 import org.jboss.pressgang.ccms.provider.TagProvider;
 import org.jboss.pressgang.ccms.provider.TextContentSpecProvider;
@@ -87,7 +114,6 @@ import org.jboss.pressgang.ccms.provider.TopicProvider;
 import org.jboss.pressgang.ccms.provider.exception.NotFoundException;
 import org.jboss.pressgang.ccms.utils.common.DocBookUtilities;
 import org.jboss.pressgang.ccms.utils.common.ExceptionUtilities;
-import org.jboss.pressgang.ccms.utils.common.HashUtilities;
 import org.jboss.pressgang.ccms.utils.common.XMLUtilities;
 import org.jboss.pressgang.ccms.utils.common.XMLValidator;
 import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
@@ -100,6 +126,7 @@ import org.jboss.pressgang.ccms.wrapper.ServerEntitiesWrapper;
 import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
 import org.jboss.pressgang.ccms.wrapper.TagWrapper;
 import org.jboss.pressgang.ccms.wrapper.TextContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.PropertyTagInTopicWrapper;
 import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
 import org.jboss.pressgang.ccms.wrapper.base.BaseTopicWrapper;
 import org.w3c.dom.Document;
@@ -115,6 +142,16 @@ import org.w3c.dom.NamedNodeMap;
  * @author lnewson
  */
 public class ContentSpecValidator implements ShutdownAbleApp {
+    /**
+     * The settings for the circuit breakers around the external bug trackers. The circuit opens once half of the last 10
+     * validation calls to a bug tracker have failed, and stays open for a minute before another call is attempted.
+     */
+    private static final int BUG_LINK_CIRCUIT_WINDOW_SIZE = 10;
+    private static final int BUG_LINK_CIRCUIT_MINIMUM_CALLS = 4;
+    private static final double BUG_LINK_CIRCUIT_FAILURE_RATE = 0.5;
+    private static final long BUG_LINK_CIRCUIT_OPEN_DURATION = 60 * 1000;
+    private static final ConcurrentMap<String, CircuitBreaker> BUG_LINK_CIRCUIT_BREAKERS = new ConcurrentHashMap<String,
+            CircuitBreaker>();
 
     private final DataProviderFactory factory;
     private final ServerSettingsWrapper serverSettings;
@@ -126,11 +163,27 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     private final CategoryProvider categoryProvider;
     private final FileProvider fileProvider;
     private final BlobConstantProvider blobConstantProvider;
-    private final ErrorLogger log;
+    private final ThreadBufferedErrorLogger log;
     private final ProcessingOptions processingOptions;
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
     private final String defaultLocale;
+    private volatile ProcessingContext processingContext = new ProcessingContext();
+    private final TaskUtilities.StopCondition stopCondition = new TaskUtilities.StopCondition() {
+        @Override
+        public boolean isStopRequested() {
+            return ContentSpecValidator.this.isStopRequested();
+        }
+    };
+    private final TopicValidationMemo validationMemo;
+    private volatile TranslatedTopicResolver translatedTopicResolver;
+    private volatile CloneSourceCache cloneSourceCache;
+    private volatile ContentSpecChecksumCache checksumCache;
+    /**
+     * The validator that created this validator to validate a single translation locale, or null if this isn't a translation
+     * locale validator.
+     */
+    private final ContentSpecValidator parent;
 
     @Override
     public void shutdown() {
@@ -142,6 +195,47 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         return shutdown.get();
     }
 
+    public ProcessingContext getProcessingContext() {
+        return processingContext;
+    }
+
+    /**
+     * @param processingContext The context to validate in, which can stop validation once its deadline passes or it's cancelled.
+     */
+    public void setProcessingContext(final ProcessingContext processingContext) {
+        this.processingContext = processingContext == null ? new ProcessingContext() : processingContext;
+    }
+
+    /**
+     * @return True if the app is shutting down, or the processing context has been cancelled or run out of time.
+     */
+    protected boolean isStopRequested() {
+        return isShuttingDown.get() || processingContext.isStopRequested() || (parent != null && parent.isStopRequested());
+    }
+
+    public CloneSourceCache getCloneSourceCache() {
+        return cloneSourceCache;
+    }
+
+    /**
+     * @param cloneSourceCache The cache to add the topics that cloned topics are cloned from to, or null if they shouldn't be cached.
+     */
+    public void setCloneSourceCache(final CloneSourceCache cloneSourceCache) {
+        this.cloneSourceCache = cloneSourceCache;
+    }
+
+    public ContentSpecChecksumCache getChecksumCache() {
+        return checksumCache;
+    }
+
+    /**
+     * @param checksumCache The cache of the checksums for the content spec revisions on the server, or null if the checksums
+     *                      shouldn't be cached.
+     */
+    public void setChecksumCache(final ContentSpecChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /**
      * Constructor.
      *
@@ -151,6 +245,32 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      */
     public ContentSpecValidator(final DataProviderFactory factory, final ErrorLoggerManager loggerManager,
             final ProcessingOptions processingOptions) {
+        this(factory, loggerManager, processingOptions, factory.getProvider(ServerSettingsProvider.class).getServerSettings());
+    }
+
+    /**
+     * Creates a validator that gets the server settings from a shared snapshot, instead of fetching them from the server.
+     *
+     * @param factory                The factory to get the providers from.
+     * @param loggerManager          The manager to get the loggers from.
+     * @param processingOptions      The set of processing options to be used when validating.
+     * @param serverSettingsSnapshot The snapshot of the server settings to use.
+     */
+    public ContentSpecValidator(final DataProviderFactory factory, final ErrorLoggerManager loggerManager,
+            final ProcessingOptions processingOptions, final ServerSettingsSnapshot serverSettingsSnapshot) {
+        this(factory, loggerManager, processingOptions, serverSettingsSnapshot.getServerSettings());
+    }
+
+    /**
+     * Creates a validator that uses server settings that have already been loaded.
+     *
+     * @param factory           The factory to get the providers from.
+     * @param loggerManager     The manager to get the loggers from.
+     * @param processingOptions The set of processing options to be used when validating.
+     * @param serverSettings    The server settings to use.
+     */
+    protected ContentSpecValidator(final DataProviderFactory factory, final ErrorLoggerManager loggerManager,
+            final ProcessingOptions processingOptions, final ServerSettingsWrapper serverSettings) {
         this.factory = factory;
         topicProvider = factory.getProvider(TopicProvider.class);
         tagProvider = factory.getProvider(TagProvider.class);
@@ -159,12 +279,58 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         textContentSpecProvider = factory.getProvider(TextContentSpecProvider.class);
         fileProvider = factory.getProvider(FileProvider.class);
         blobConstantProvider = factory.getProvider(BlobConstantProvider.class);
-        log = loggerManager.getLogger(ContentSpecValidator.class);
+        log = new ThreadBufferedErrorLogger(ContentSpecValidator.class.getName(), loggerManager.getLogger(ContentSpecValidator.class));
         this.processingOptions = processingOptions;
+        checksumCache = ContentSpecChecksumCache.getInstance(factory);
 
-        serverSettings = factory.getProvider(ServerSettingsProvider.class).getServerSettings();
+        // Set up the memo of previously validated topics, if one should be used. The memo file is only read once a topic is checked.
+        if (processingOptions.getValidationMemoDirectory() != null) {
+            validationMemo = new TopicValidationMemo(processingOptions.getValidationMemoDirectory(),
+                    TopicValidationMemo.DEFAULT_MAX_ENTRIES);
+            if (processingOptions.isRebuildValidationMemo()) {
+                validationMemo.clear();
+            }
+        } else {
+            validationMemo = null;
+        }
+
+        this.serverSettings = serverSettings;
         serverEntities = serverSettings.getEntities();
         defaultLocale = serverSettings.getDefaultLocale().getValue();
+        parent = null;
+    }
+
+    /**
+     * Creates a validator that validates the existing topics in a content spec against a single translation locale, using the
+     * providers and server settings that have already been loaded by another validator.
+     *
+     * @param parent            The validator that is validating the locale independent parts of the content spec.
+     * @param translationLocale The locale to validate the translated topics for.
+     */
+    private ContentSpecValidator(final ContentSpecValidator parent, final String translationLocale) {
+        factory = parent.factory;
+        topicProvider = parent.topicProvider;
+        tagProvider = parent.tagProvider;
+        categoryProvider = parent.categoryProvider;
+        contentSpecProvider = parent.contentSpecProvider;
+        textContentSpecProvider = parent.textContentSpecProvider;
+        fileProvider = parent.fileProvider;
+        blobConstantProvider = parent.blobConstantProvider;
+        log = parent.log;
+        checksumCache = parent.checksumCache;
+
+        // Each locale is validated on a single thread. The memo is synchronized, so it's shared by the validators for each locale
+        // and is saved by the parent once they have all finished.
+        processingOptions = new ProcessingOptions(parent.processingOptions);
+        processingOptions.setTranslation(true);
+        processingOptions.setTranslationLocale(translationLocale);
+        processingOptions.setValidationThreads(1);
+        validationMemo = parent.validationMemo;
+
+        serverSettings = parent.serverSettings;
+        serverEntities = parent.serverEntities;
+        defaultLocale = parent.defaultLocale;
+        this.parent = parent;
     }
 
     /**
@@ -186,6 +352,161 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         return valid;
     }
 
+    /**
+     * Validates a Content Specification within a processing context, so that validation stops once the context's deadline passes
+     * or it's cancelled. In that case the report will be partial and list the levels and topics that weren't checked.
+     *
+     * @param contentSpec       The content specification to be validated.
+     * @param username          The user who requested the content spec validation.
+     * @param processingContext The context to validate in.
+     * @return The validation report.
+     */
+    public ValidationReport validateContentSpec(final ContentSpec contentSpec, final String username,
+            final ProcessingContext processingContext) {
+        setProcessingContext(processingContext);
+        final boolean valid = validateContentSpec(contentSpec, username);
+        return new ValidationReport(valid, getUncheckedNodes(contentSpec.getBaseLevel()));
+    }
+
+    /**
+     * Validates a Content Specification against a number of translation locales. The checks that don't depend on the locale are
+     * only done once, and then the existing topics are validated against their translated topics for each locale in parallel.
+     *
+     * @param contentSpec The content specification to be validated.
+     * @param locales     The translation locales to validate the content specification against.
+     * @return The validation report for each locale, in the order the locales were given.
+     * @see #validateTranslations(ContentSpec, String, Collection)
+     */
+    public Map<String, TranslationValidationReport> validateTranslations(final ContentSpec contentSpec,
+            final Collection<String> locales) {
+        return validateTranslations(contentSpec, null, locales);
+    }
+
+    /**
+     * Validates a Content Specification against a number of translation locales. The checks that don't depend on the locale are
+     * only done once and their messages are logged as normal, and then the existing topics are validated against their translated
+     * topics for each locale in parallel, using up to {@link ProcessingOptions#getValidationThreads()} threads. The messages for
+     * each locale are held in the locale's report, instead of being logged.
+     *
+     * @param contentSpec The content specification to be validated.
+     * @param username    The user who requested the content spec validation.
+     * @param locales     The translation locales to validate the content specification against.
+     * @return The validation report for each locale, in the order the locales were given.
+     */
+    public Map<String, TranslationValidationReport> validateTranslations(final ContentSpec contentSpec, final String username,
+            final Collection<String> locales) {
+        // Validate everything that doesn't depend on the locale
+        boolean valid = preValidateContentSpec(contentSpec);
+        if (!postValidateContentSpec(contentSpec, username, false)) {
+            valid = false;
+        }
+
+        final Set<String> uniqueLocales = new LinkedHashSet<String>(locales);
+        final Map<String, TranslationValidationReport> reports = new LinkedHashMap<String, TranslationValidationReport>();
+        if (uniqueLocales.isEmpty()) {
+            return reports;
+        }
+
+        // Validate the existing topics for each locale at the same time
+        final Map<String, ContentSpecValidator> validators = new LinkedHashMap<String, ContentSpecValidator>();
+        final ExecutorService executorService = Executors.newFixedThreadPool(getTranslationValidationThreads(uniqueLocales.size()),
+                new DaemonThreadFactory("csprocessor-translation-validation-"));
+        try {
+            final Map<String, Future<PostValidationResult>> futures = new LinkedHashMap<String, Future<PostValidationResult>>();
+            for (final String locale : uniqueLocales) {
+                final ContentSpecValidator validator = new ContentSpecValidator(this, locale);
+                validators.put(locale, validator);
+                futures.put(locale, executorService.submit(new TranslationValidationTask(validator, contentSpec)));
+            }
+
+            for (final Entry<String, Future<PostValidationResult>> entry : futures.entrySet()) {
+                final String locale = entry.getKey();
+                final ContentSpecValidator validator = validators.get(locale);
+                final PostValidationResult result = isStopRequested() ? null : waitForPostValidationTask(entry.getValue());
+                if (result == null) {
+                    shutdown.set(true);
+                    reports.put(locale, new TranslationValidationReport(locale, false,
+                            getUncheckedTranslationNodes(contentSpec.getBaseLevel(), validator.getProcessingContext()),
+                            Collections.<ThreadBufferedErrorLogger.BufferedMessage>emptyList()));
+                } else {
+                    reports.put(locale, new TranslationValidationReport(locale, valid && result.isValid(),
+                            getUncheckedTranslationNodes(contentSpec.getBaseLevel(), validator.getProcessingContext()),
+                            result.getMessages()));
+                }
+            }
+        } finally {
+            // Cancel anything that is still running, in case the app is shutting down or a task failed
+            executorService.shutdownNow();
+
+            // Store the translated topics that passed validation
+            if (validationMemo != null) {
+                validationMemo.save();
+            }
+        }
+
+        return reports;
+    }
+
+    /**
+     * @param localeCount The number of locales being validated.
+     * @return The number of locales to validate at the same time, which is limited by the number of validation threads.
+     */
+    protected int getTranslationValidationThreads(final int localeCount) {
+        return Math.max(1, Math.min(localeCount, processingOptions.getValidationThreads()));
+    }
+
+    /**
+     * Gets the levels and topics that haven't been checked when validating translations, where existing topics are checked in a
+     * translation locale's processing context and everything else is checked in this validator's processing context.
+     *
+     * @param level              The level to start looking from.
+     * @param translationContext The processing context the existing topics were checked in.
+     * @return The levels and topics that haven't been checked, in the order they appear.
+     */
+    private List<SpecNode> getUncheckedTranslationNodes(final Level level, final ProcessingContext translationContext) {
+        final List<SpecNode> uncheckedNodes = new ArrayList<SpecNode>();
+        if (!processingContext.isChecked(level)) {
+            uncheckedNodes.add(level);
+        }
+
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                uncheckedNodes.addAll(getUncheckedTranslationNodes((Level) childNode, translationContext));
+            } else if (childNode instanceof SpecTopic) {
+                final SpecTopic specTopic = (SpecTopic) childNode;
+                final ProcessingContext context = specTopic.isTopicAnExistingTopic() ? translationContext : processingContext;
+                if (!context.isChecked(specTopic)) {
+                    uncheckedNodes.add(specTopic);
+                }
+            }
+        }
+
+        return uncheckedNodes;
+    }
+
+    /**
+     * Gets the levels and topics that haven't been checked by the post validation in the current processing context.
+     *
+     * @param level The level to start looking from.
+     * @return The levels and topics that haven't been checked, in the order they appear.
+     */
+    protected List<SpecNode> getUncheckedNodes(final Level level) {
+        final List<SpecNode> uncheckedNodes = new ArrayList<SpecNode>();
+        if (!processingContext.isChecked(level)) {
+            uncheckedNodes.add(level);
+        }
+
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                uncheckedNodes.addAll(getUncheckedNodes((Level) childNode));
+            } else if (childNode instanceof SpecTopic && !processingContext.isChecked((SpecTopic) childNode)) {
+                uncheckedNodes.add((SpecTopic) childNode);
+            }
+        }
+
+        return uncheckedNodes;
+    }
+
     /**
      * Validates that a Content Specification is valid by checking the META data, child levels and topics.
      *
@@ -193,6 +514,20 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      * @return True if the content specification is valid, otherwise false.
      */
     public boolean preValidateContentSpec(final ContentSpec contentSpec) {
+        return preValidateContentSpec(contentSpec, new TopicNodeIndex(contentSpec));
+    }
+
+    /**
+     * Validates that a Content Specification is valid by checking the META data, child levels and topics.
+     *
+     * @param contentSpec    The content specification to be validated.
+     * @param topicNodeIndex The index of the topic nodes in the content specification.
+     * @return True if the content specification is valid, otherwise false.
+     */
+    public boolean preValidateContentSpec(final ContentSpec contentSpec, final TopicNodeIndex topicNodeIndex) {
+        // Validation is starting again, so forget the nodes that were checked by any previous validation
+        processingContext.clearChecked();
+
         // Create the map of unique ids to spec topics
         final Map<String, SpecTopic> specTopicMap = ContentSpecUtilities.getUniqueIdSpecTopicMap(contentSpec);
         final Map<String, InfoTopic> infoTopicMap = ContentSpecUtilities.getUniqueIdInfoTopicMap(contentSpec);
@@ -201,7 +536,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         final Set<String> processedFixedUrls = new HashSet<String>();
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -402,7 +737,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         }
 
         // Check that the relationships are valid
-        if (!preValidateRelationships(contentSpec)) {
+        if (!preValidateRelationships(contentSpec, topicNodeIndex)) {
             valid = false;
         }
 
@@ -411,7 +746,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
          * level rather than the Topic level as it isn't the topic that would be invalid but rather the set of topics
           * in the content specification.
          */
-        if (!checkTopicsForInvalidDuplicates(contentSpec)) {
+        if (!checkTopicsForInvalidDuplicates(contentSpec, topicNodeIndex)) {
             valid = false;
         }
 
@@ -573,38 +908,34 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      * @return True if no duplicates were found, otherwise false.
      */
     protected boolean checkTopicsForInvalidDuplicates(final ContentSpec contentSpec) {
+        return checkTopicsForInvalidDuplicates(contentSpec, new TopicNodeIndex(contentSpec));
+    }
+
+    /**
+     * Checks a Content Specification to see if it contains existing topics that have the same ID but different
+     * revisions.
+     *
+     * @param contentSpec    The content specification to be validated.
+     * @param topicNodeIndex The index of the topic nodes in the content specification.
+     * @return True if no duplicates were found, otherwise false.
+     */
+    protected boolean checkTopicsForInvalidDuplicates(final ContentSpec contentSpec, final TopicNodeIndex topicNodeIndex) {
         boolean valid = true;
 
         // Find all Topics that have two or more different revisions
-        final List<ITopicNode> allTopicNodes = contentSpec.getAllTopicNodes();
         final Map<Integer, Map<Integer, Set<ITopicNode>>> invalidTopicNodes = new HashMap<Integer, Map<Integer, Set<ITopicNode>>>();
 
-        for (final ITopicNode topicNode1 : allTopicNodes) {
-            if (!topicNode1.isTopicAnExistingTopic()) continue;
-
-            for (final ITopicNode topicNode2 : allTopicNodes) {
-                // If the Topic isn't an existing topic and doesn't match the first spec topic's id, then continue
-                if (topicNode1 == topicNode2 || !topicNode2.isTopicAnExistingTopic() || !topicNode1.getDBId().equals(topicNode2.getDBId()))
-                    continue;
+        for (final Entry<Integer, Map<Integer, List<ITopicNode>>> entry : topicNodeIndex.getExistingTopicRevisions().entrySet()) {
+            // If only one revision is used then the topics are valid
+            if (entry.getValue().size() < 2) continue;
 
-                // Check if the revisions between the two topics are the same
-                if (topicNode1.getRevision() == null && topicNode2.getRevision() != null || topicNode1.getRevision() != null &&
-                        topicNode2.getRevision() == null || topicNode1.getRevision() != null && !topicNode1.getRevision().equals(
-                        topicNode2.getRevision())) {
-                    if (!invalidTopicNodes.containsKey(topicNode1.getDBId())) {
-                        invalidTopicNodes.put(topicNode1.getDBId(), new HashMap<Integer, Set<ITopicNode>>());
-                    }
-
-                    final Map<Integer, Set<ITopicNode>> revisionsToTopicNode = invalidTopicNodes.get(topicNode1.getDBId());
-                    if (!revisionsToTopicNode.containsKey(topicNode1.getRevision())) {
-                        revisionsToTopicNode.put(topicNode1.getRevision(), new HashSet<ITopicNode>());
-                    }
-
-                    revisionsToTopicNode.get(topicNode1.getRevision()).add(topicNode1);
-
-                    valid = false;
-                }
+            final Map<Integer, Set<ITopicNode>> revisionsToTopicNode = new HashMap<Integer, Set<ITopicNode>>();
+            for (final Entry<Integer, List<ITopicNode>> revisionEntry : entry.getValue().entrySet()) {
+                revisionsToTopicNode.put(revisionEntry.getKey(), new HashSet<ITopicNode>(revisionEntry.getValue()));
             }
+            invalidTopicNodes.put(entry.getKey(), revisionsToTopicNode);
+
+            valid = false;
         }
 
         // Loop through and generate an error message for each invalid topic
@@ -662,11 +993,25 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      * @param username    The user who requested the content spec validation.
      * @return True if the content specification is valid, otherwise false.
      */
-    @SuppressWarnings("deprecation")
     public boolean postValidateContentSpec(final ContentSpec contentSpec, final String username) {
+        return postValidateContentSpec(contentSpec, username, true);
+    }
+
+    /**
+     * Validates that a Content Specification is valid by checking the META data, child levels and topics.
+     *
+     * @param contentSpec            The content specification to be validated.
+     * @param username               The user who requested the content spec validation.
+     * @param validateExistingTopics Whether existing topics should be validated, or left to be validated separately for each
+     *                               translation locale.
+     * @return True if the content specification is valid, otherwise false.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean postValidateContentSpec(final ContentSpec contentSpec, final String username,
+            final boolean validateExistingTopics) {
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -675,25 +1020,42 @@ public class ContentSpecValidator implements ShutdownAbleApp {
 
         // If editing then check that the ID exists & the CHECKSUM/SpecRevision match
         if (contentSpec.getId() != null) {
+            final ContentSpecChecksumCache checksumCache = this.checksumCache;
             ContentSpecWrapper contentSpecEntity = null;
             String serverContentSpec = null;
+            String currentChecksum = null;
             try {
                 contentSpecEntity = contentSpecProvider.getContentSpec(contentSpec.getId(), contentSpec.getRevision());
-                final TextContentSpecWrapper textContentSpecEntity = textContentSpecProvider.getTextContentSpec(contentSpec.getId(),
-                        contentSpec.getRevision());
-                if (textContentSpecEntity != null) {
-                    serverContentSpec = textContentSpecEntity.getText();
+
+                // Only download the server text if the checksum for the revision isn't already known
+                final Integer revision = contentSpecEntity == null ? null : contentSpecEntity.getRevision();
+                if (revision != null && checksumCache != null) {
+                    currentChecksum = checksumCache.get(contentSpec.getId(), revision);
+                }
+                if (currentChecksum == null) {
+                    final TextContentSpecWrapper textContentSpecEntity = textContentSpecProvider.getTextContentSpec(
+                            contentSpec.getId(), contentSpec.getRevision());
+                    if (textContentSpecEntity != null) {
+                        serverContentSpec = textContentSpecEntity.getText();
+                        if (serverContentSpec != null && !processingOptions.isIgnoreChecksum()) {
+                            currentChecksum = ChecksumUtilities.generateChecksum(serverContentSpec);
+
+                            // Only cache the checksum if the text is from the same revision that the cache was checked for
+                            if (revision != null && checksumCache != null && revision.equals(textContentSpecEntity.getRevision())) {
+                                checksumCache.put(contentSpec.getId(), revision, currentChecksum);
+                            }
+                        }
+                    }
                 }
             } catch (NotFoundException e) {
 
             }
-            if (contentSpecEntity == null || serverContentSpec == null) {
+            if (contentSpecEntity == null || (currentChecksum == null && serverContentSpec == null)) {
                 log.error(String.format(ProcessorConstants.ERROR_INVALID_CS_ID_MSG, "ID = " + contentSpec.getId()));
                 valid = false;
             } else {
                 // Check that the checksum is valid
                 if (!processingOptions.isIgnoreChecksum()) {
-                    final String currentChecksum = HashUtilities.generateMD5(ContentSpecUtilities.removeChecksum(serverContentSpec));
                     if (contentSpec.getChecksum() != null) {
                         if (!contentSpec.getChecksum().equals(currentChecksum)) {
                             log.error(String.format(ProcessorConstants.ERROR_CS_NONMATCH_CHECKSUM_MSG, contentSpec.getChecksum(),
@@ -747,21 +1109,16 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             }
         }
 
-        // Check that any metadata topics are valid
-        if (contentSpec.getRevisionHistory() != null && !postValidateTopic(contentSpec.getRevisionHistory(), contentSpec)) {
-            valid = false;
+        // Resolve all the translated topics up front, so they can be looked up together instead of one at a time
+        if (validateExistingTopics && processingOptions.isTranslation()) {
+            translatedTopicResolver = createTranslatedTopicResolver(contentSpec);
         }
-        if (contentSpec.getFeedback() != null && !postValidateTopic(contentSpec.getFeedback(), contentSpec)) {
-            valid = false;
-        }
-        if (contentSpec.getLegalNotice() != null && !postValidateTopic(contentSpec.getLegalNotice(), contentSpec)) {
-            valid = false;
-        }
-        if (contentSpec.getAuthorGroup() != null && !postValidateTopic(contentSpec.getAuthorGroup(), contentSpec)) {
-            valid = false;
-        }
-        if (contentSpec.getAbstractTopic() != null && !postValidateTopic(contentSpec.getAbstractTopic(), contentSpec)) {
-            valid = false;
+
+        // Check that any metadata topics are valid
+        for (final SpecTopic metadataTopic : getMetadataTopics(contentSpec)) {
+            if ((validateExistingTopics || !metadataTopic.isTopicAnExistingTopic()) && !postValidateTopic(metadataTopic, contentSpec)) {
+                valid = false;
+            }
         }
 
         // Validate that the files exist
@@ -812,13 +1169,129 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         }
 
         // Check that each level is valid
-        if (!postValidateLevel(contentSpec.getBaseLevel(), contentSpec)) {
+        final int validationThreads = processingOptions.getValidationThreads();
+        if (!validateExistingTopics) {
+            if (!postValidateLevelWithoutExistingTopics(contentSpec.getBaseLevel(), contentSpec)) {
+                valid = false;
+            }
+        } else if (validationThreads > 1) {
+            if (!postValidateLevelInParallel(contentSpec.getBaseLevel(), contentSpec, validationThreads)) {
+                valid = false;
+            }
+        } else if (!postValidateLevel(contentSpec.getBaseLevel(), contentSpec)) {
             valid = false;
         }
 
+        // Store the topics that passed validation, so they can be skipped next time
+        if (validationMemo != null) {
+            validationMemo.save();
+        }
+
+        // Release the translated topics, now that they are set on the topic nodes
+        translatedTopicResolver = null;
+
         return valid;
     }
 
+    /**
+     * Gets the metadata topics (ie Revision History, Feedback, etc...) that are used by a content spec.
+     *
+     * @param contentSpec The content spec to get the metadata topics from.
+     * @return The metadata topics, in the order they should be validated.
+     */
+    private List<SpecTopic> getMetadataTopics(final ContentSpec contentSpec) {
+        final List<SpecTopic> metadataTopics = new ArrayList<SpecTopic>();
+        for (final SpecTopic metadataTopic : new SpecTopic[]{contentSpec.getRevisionHistory(), contentSpec.getFeedback(),
+                contentSpec.getLegalNotice(), contentSpec.getAuthorGroup(), contentSpec.getAbstractTopic()}) {
+            if (metadataTopic != null) {
+                metadataTopics.add(metadataTopic);
+            }
+        }
+        return metadataTopics;
+    }
+
+    /**
+     * Validates the existing topics in a content spec against the translation locale of this validator.
+     *
+     * @param contentSpec The content spec to be validated.
+     * @return True if the existing topics are valid, otherwise false.
+     */
+    private boolean postValidateExistingTopics(final ContentSpec contentSpec) {
+        translatedTopicResolver = createTranslatedTopicResolver(contentSpec);
+        try {
+            boolean valid = true;
+            for (final SpecTopic metadataTopic : getMetadataTopics(contentSpec)) {
+                if (metadataTopic.isTopicAnExistingTopic() && !postValidateTopic(metadataTopic, contentSpec)) {
+                    valid = false;
+                }
+            }
+
+            if (!postValidateLevelExistingTopics(contentSpec.getBaseLevel(), contentSpec)) {
+                valid = false;
+            }
+
+            return valid;
+        } finally {
+            translatedTopicResolver = null;
+        }
+    }
+
+    /**
+     * @return True if the topic nodes can be updated with the details from their topic entities. This isn't allowed when
+     *         validating a translation locale, since the topic nodes are shared with the validators for the other locales.
+     */
+    private boolean isUpdatingTopicNodes() {
+        return parent == null;
+    }
+
+    /**
+     * Creates a resolver for the translated topics used by a content spec, and resolves the translated topics for all of the
+     * existing topics in the content spec.
+     *
+     * @param contentSpec The content spec to resolve the translated topics for.
+     * @return The resolver holding the translated topics.
+     */
+    protected TranslatedTopicResolver createTranslatedTopicResolver(final ContentSpec contentSpec) {
+        final TranslatedTopicResolver resolver = new TranslatedTopicResolver(factory, getTranslationLocale());
+        for (final ITopicNode topicNode : contentSpec.getAllTopicNodes()) {
+            if (topicNode.isTopicAnExistingTopic()) {
+                resolver.addTopic(Integer.parseInt(topicNode.getId()), getTopicRevision(topicNode));
+            }
+        }
+        resolver.resolve();
+        return resolver;
+    }
+
+    /**
+     * Gets the translated topic for a topic, using the translated topics that were resolved for the content spec if possible.
+     *
+     * @param topicId  The id of the topic.
+     * @param revision The revision of the topic.
+     * @return The translated topic, or null if the topic has no translation.
+     */
+    protected BaseTopicWrapper<?> getTranslatedTopic(final Integer topicId, final Integer revision) {
+        final TranslatedTopicResolver resolver = translatedTopicResolver;
+        if (resolver != null && resolver.getLocale().equals(getTranslationLocale())) {
+            return resolver.getTranslatedTopic(topicId, revision);
+        } else {
+            return EntityUtilities.getTranslatedTopicByTopicId(factory, topicId, revision, getTranslationLocale());
+        }
+    }
+
+    private String getTranslationLocale() {
+        return processingOptions.getTranslationLocale() == null ? defaultLocale : processingOptions.getTranslationLocale();
+    }
+
+    /**
+     * Calculates the revision that should be used to look up an existing topic.
+     *
+     * @param topicNode The topic node to get the revision for.
+     * @return The revision to use, or null if the latest revision should be used.
+     */
+    private Integer getTopicRevision(final ITopicNode topicNode) {
+        return ProcessorUtilities.getTopicRevision(topicNode, processingOptions.getMaxRevision());
+    }
+
     /**
      * Checks that the XML for a keyvalue node is valid DocBook XML.
      *
@@ -927,24 +1400,44 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      * @return True if the relationships are valid, otherwise false.
      */
     public boolean preValidateRelationships(final ContentSpec contentSpec) {
-        boolean error = false;
-
         // Create the map of unique ids to spec topics
-        final Map<String, List<ITopicNode>> specTopicMap = ContentSpecUtilities.getIdTopicNodeMap(contentSpec);
+        return preValidateRelationships(contentSpec, ContentSpecUtilities.getIdTopicNodeMap(contentSpec));
+    }
+
+    /**
+     * Validate a set of relationships created when parsing.
+     *
+     * @param contentSpec    The content spec to be validated.
+     * @param topicNodeIndex The index of the topic nodes in the content spec.
+     * @return True if the relationships are valid, otherwise false.
+     */
+    public boolean preValidateRelationships(final ContentSpec contentSpec, final TopicNodeIndex topicNodeIndex) {
+        return preValidateRelationships(contentSpec, topicNodeIndex.getIdTopicNodeMap());
+    }
+
+    /**
+     * Validate a set of relationships created when parsing.
+     *
+     * @param contentSpec  The content spec to be validated.
+     * @param specTopicMap The mapping of topic ids to the topic nodes that use the id.
+     * @return True if the relationships are valid, otherwise false.
+     */
+    protected boolean preValidateRelationships(final ContentSpec contentSpec, final Map<String, List<ITopicNode>> specTopicMap) {
+        boolean error = false;
 
         final Map<SpecNodeWithRelationships, List<Relationship>> relationships = contentSpec.getRelationships();
         for (final Entry<SpecNodeWithRelationships, List<Relationship>> relationshipEntry : relationships.entrySet()) {
             final SpecNodeWithRelationships specNode = relationshipEntry.getKey();
 
             // Check if the app should be shutdown
-            if (isShuttingDown.get()) {
+            if (isStopRequested()) {
                 shutdown.set(true);
                 return false;
             }
 
             for (final Relationship relationship : relationshipEntry.getValue()) {
                 // Check if the app should be shutdown
-                if (isShuttingDown.get()) {
+                if (isStopRequested()) {
                     shutdown.set(true);
                     return false;
                 }
@@ -1100,7 +1593,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     public boolean preValidateLevel(final Level level, final Map<String, SpecTopic> specTopics, final Map<String, InfoTopic> infoTopics,
             final Set<String> processedFixedUrls, final BookType bookType, final ContentSpec contentSpec) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -1325,11 +1818,38 @@ public class ContentSpecValidator implements ShutdownAbleApp {
      */
     public boolean postValidateLevel(final Level level, final ContentSpec contentSpec) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
 
+        boolean valid = postValidateLevelWithoutChildren(level, contentSpec);
+
+        // Validate the sub levels and topics
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                if (!postValidateLevel((Level) childNode, contentSpec)) {
+                    valid = false;
+                }
+            } else if (childNode instanceof SpecTopic) {
+                if (!postValidateTopic((SpecTopic) childNode, contentSpec)) {
+                    valid = false;
+                }
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Validates a level's tags and info topic, without validating any of the levels children.
+     *
+     * @param level       The level to be validated.
+     * @param contentSpec The content spec the level belongs to.
+     * @return True if the level is valid otherwise false.
+     */
+    private boolean postValidateLevelWithoutChildren(final Level level, final ContentSpec contentSpec) {
+        processingContext.markChecked(level);
         boolean valid = true;
 
         // Validate the tags
@@ -1342,13 +1862,43 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             postValidateInfoTopic(level.getInfoTopic(), contentSpec);
         }
 
+        return valid;
+    }
+
+    /**
+     * Validates a level and its child levels/topics, except for any existing topics since they depend on the translation locale.
+     *
+     * @param level       The level to be validated.
+     * @param contentSpec The content spec the level belongs to.
+     * @return True if the level is valid otherwise false.
+     */
+    private boolean postValidateLevelWithoutExistingTopics(final Level level, final ContentSpec contentSpec) {
+        // Check if the app should be shutdown
+        if (isStopRequested()) {
+            shutdown.set(true);
+            return false;
+        }
+
+        processingContext.markChecked(level);
+        boolean valid = true;
+
+        // Validate the tags
+        if (!validateTopicTags(level, level.getTags(false))) {
+            valid = false;
+        }
+
+        // Validate the info topic
+        if (level.getInfoTopic() != null && !level.getInfoTopic().isTopicAnExistingTopic()) {
+            postValidateInfoTopic(level.getInfoTopic(), contentSpec);
+        }
+
         // Validate the sub levels and topics
         for (final Node childNode : level.getChildNodes()) {
             if (childNode instanceof Level) {
-                if (!postValidateLevel((Level) childNode, contentSpec)) {
+                if (!postValidateLevelWithoutExistingTopics((Level) childNode, contentSpec)) {
                     valid = false;
                 }
-            } else if (childNode instanceof SpecTopic) {
+            } else if (childNode instanceof SpecTopic && !((SpecTopic) childNode).isTopicAnExistingTopic()) {
                 if (!postValidateTopic((SpecTopic) childNode, contentSpec)) {
                     valid = false;
                 }
@@ -1358,6 +1908,118 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         return valid;
     }
 
+    /**
+     * Validates the existing topics in a level and its child levels.
+     *
+     * @param level       The level to validate the existing topics for.
+     * @param contentSpec The content spec the level belongs to.
+     * @return True if the existing topics are valid otherwise false.
+     */
+    private boolean postValidateLevelExistingTopics(final Level level, final ContentSpec contentSpec) {
+        // Check if the app should be shutdown
+        if (isStopRequested()) {
+            shutdown.set(true);
+            return false;
+        }
+
+        boolean valid = true;
+
+        // Validate the info topic
+        if (level.getInfoTopic() != null && level.getInfoTopic().isTopicAnExistingTopic()) {
+            postValidateInfoTopic(level.getInfoTopic(), contentSpec);
+        }
+
+        // Validate the sub levels and topics
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                if (!postValidateLevelExistingTopics((Level) childNode, contentSpec)) {
+                    valid = false;
+                }
+            } else if (childNode instanceof SpecTopic && ((SpecTopic) childNode).isTopicAnExistingTopic()) {
+                if (!postValidateTopic((SpecTopic) childNode, contentSpec)) {
+                    valid = false;
+                }
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Validates a level to ensure its format and child levels/topics are valid, by validating each level and topic on a pool of
+     * threads. Any messages are logged in the same order as {@link #postValidateLevel(Level, ContentSpec)} would log them.
+     *
+     * @param level       The level to be validated.
+     * @param contentSpec The content spec the level belongs to.
+     * @param threads     The maximum number of levels/topics to validate at the same time.
+     * @return True if the level is valid otherwise false.
+     */
+    protected boolean postValidateLevelInParallel(final Level level, final ContentSpec contentSpec, final int threads) {
+        // Check if the app should be shutdown
+        if (isStopRequested()) {
+            shutdown.set(true);
+            return false;
+        }
+
+        // Create the tasks in the same order that the levels and topics would be validated sequentially
+        final List<PostValidationTask> tasks = new ArrayList<PostValidationTask>();
+        addPostValidationTasks(level, contentSpec, tasks);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, tasks.size()),
+                new DaemonThreadFactory("csprocessor-post-validation-"));
+        try {
+            final List<Future<PostValidationResult>> futures = new ArrayList<Future<PostValidationResult>>();
+            for (final PostValidationTask task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+
+            // Log the results in order, so the messages come out the same as they would sequentially
+            boolean valid = true;
+            for (final Future<PostValidationResult> future : futures) {
+                final PostValidationResult result = waitForPostValidationTask(future);
+                if (result == null) {
+                    shutdown.set(true);
+                    return false;
+                }
+
+                ThreadBufferedErrorLogger.flush(result.getMessages());
+                if (!result.isValid()) {
+                    valid = false;
+                }
+            }
+
+            return valid;
+        } finally {
+            // Cancel anything that is still running, in case the app is shutting down or a task failed
+            executorService.shutdownNow();
+        }
+    }
+
+    private void addPostValidationTasks(final Level level, final ContentSpec contentSpec, final List<PostValidationTask> tasks) {
+        tasks.add(new PostValidationTask(level, contentSpec));
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                addPostValidationTasks((Level) childNode, contentSpec, tasks);
+            } else if (childNode instanceof SpecTopic) {
+                tasks.add(new PostValidationTask((SpecTopic) childNode, contentSpec));
+            }
+        }
+    }
+
+    /**
+     * Waits for a post validation task to complete, while periodically checking if the app is shutting down.
+     *
+     * @param future The future for the task to wait on.
+     * @return The result of the task, or null if the app is shutting down.
+     */
+    private PostValidationResult waitForPostValidationTask(final Future<PostValidationResult> future) {
+        try {
+            return TaskUtilities.waitForTask(future, stopCondition);
+        } catch (ExecutionException e) {
+            throw TaskUtilities.propagateCause(e);
+        }
+    }
+
     /**
      * Validates a topic against the database and for formatting issues.
      *
@@ -1386,7 +2048,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     public boolean preValidateTopic(final SpecTopic specTopic, final Map<String, SpecTopic> specTopics,
             final Set<String> processedFixedUrls, final BookType bookType, boolean allowRelationships, final ContentSpec contentSpec) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -1609,7 +2271,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     public boolean preValidateInfoTopic(final InfoTopic infoTopic, final ContentSpec contentSpec, final Map<String,
             InfoTopic> infoTopics) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -1726,7 +2388,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         boolean valid = true;
 
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -1789,10 +2451,11 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     @SuppressWarnings("unchecked")
     public boolean postValidateTopic(final SpecTopic specTopic, final ContentSpec contentSpec) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
+        processingContext.markChecked(specTopic);
 
         boolean valid = true;
 
@@ -1837,19 +2500,13 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         // Existing Topics
         else if (specTopic.isTopicAnExistingTopic()) {
             // Calculate the revision for the topic
-            final Integer revision;
-            if (specTopic.getRevision() == null && processingOptions.getMaxRevision() != null) {
-                revision = processingOptions.getMaxRevision();
-            } else {
-                revision = specTopic.getRevision();
-            }
+            final Integer revision = getTopicRevision(specTopic);
 
             // Check that the id actually exists
             BaseTopicWrapper<?> topic = null;
             try {
                 if (processingOptions.isTranslation()) {
-                    topic = EntityUtilities.getTranslatedTopicByTopicId(factory, Integer.parseInt(specTopic.getId()), revision,
-                            processingOptions.getTranslationLocale() == null ? defaultLocale : processingOptions.getTranslationLocale());
+                    topic = getTranslatedTopic(Integer.parseInt(specTopic.getId()), revision);
                 } else {
                     topic = topicProvider.getTopic(Integer.parseInt(specTopic.getId()), revision);
                 }
@@ -1862,14 +2519,16 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                 log.error(String.format(ProcessorConstants.ERROR_TOPIC_NONEXIST_MSG, specTopic.getLineNumber(), specTopic.getText()));
                 valid = false;
             } else {
-                specTopic.setTopic(topic);
+                if (isUpdatingTopicNodes()) {
+                    specTopic.setTopic(topic);
+                }
 
                 // Check to see if the topic contains the "Internal-Only" tag
                 if (serverEntities.getInternalOnlyTagId() != null && topic.hasTag(serverEntities.getInternalOnlyTagId())) {
                     log.warn(String.format(ProcessorConstants.WARN_INTERNAL_TOPIC_MSG, specTopic.getLineNumber(), specTopic.getText()));
                 }
 
-                if (!postValidateExistingTopic(specTopic, topic, contentSpec)) {
+                if (!postValidateExistingTopic(specTopic, topic, contentSpec, revision)) {
                     valid = false;
                 }
             }
@@ -1879,7 +2538,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             int topicId = Integer.parseInt(specTopic.getId().substring(1));
             TopicWrapper topic = null;
             try {
-                topic = topicProvider.getTopic(topicId, specTopic.getRevision());
+                topic = getCloneSourceTopic(topicId, specTopic.getRevision());
             } catch (NotFoundException e) {
                 log.debug("Could not find topic for id " + topicId);
             }
@@ -1914,7 +2573,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
     @SuppressWarnings("unchecked")
     public boolean postValidateInfoTopic(final InfoTopic infoTopic, final ContentSpec contentSpec) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return false;
         }
@@ -1936,19 +2595,13 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         // Existing Topics
         else if (infoTopic.isTopicAnExistingTopic()) {
             // Calculate the revision for the topic
-            final Integer revision;
-            if (infoTopic.getRevision() == null && processingOptions.getMaxRevision() != null) {
-                revision = processingOptions.getMaxRevision();
-            } else {
-                revision = infoTopic.getRevision();
-            }
+            final Integer revision = getTopicRevision(infoTopic);
 
             // Check that the id actually exists
             BaseTopicWrapper<?> topic = null;
             try {
                 if (processingOptions.isTranslation()) {
-                    topic = EntityUtilities.getTranslatedTopicByTopicId(factory, Integer.parseInt(infoTopic.getId()), revision,
-                            processingOptions.getTranslationLocale() == null ? defaultLocale : processingOptions.getTranslationLocale());
+                    topic = getTranslatedTopic(Integer.parseInt(infoTopic.getId()), revision);
                 } else {
                     topic = topicProvider.getTopic(Integer.parseInt(infoTopic.getId()), revision);
                 }
@@ -1961,7 +2614,9 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                 log.error(String.format(ProcessorConstants.ERROR_TOPIC_NONEXIST_MSG, infoTopic.getLineNumber(), infoTopic.getText()));
                 valid = false;
             } else {
-                infoTopic.setTopic(topic);
+                if (isUpdatingTopicNodes()) {
+                    infoTopic.setTopic(topic);
+                }
 
                 // Check to see if the topic contains the "Internal-Only" tag
                 if (serverEntities.getInternalOnlyTagId() != null && topic.hasTag(serverEntities.getInternalOnlyTagId())) {
@@ -1978,7 +2633,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             int topicId = Integer.parseInt(infoTopic.getId().substring(1));
             TopicWrapper topic = null;
             try {
-                topic = topicProvider.getTopic(topicId, infoTopic.getRevision());
+                topic = getCloneSourceTopic(topicId, infoTopic.getRevision());
             } catch (NotFoundException e) {
                 log.debug("Could not find topic for id " + topicId);
             }
@@ -2002,6 +2657,105 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         return valid;
     }
 
+    /**
+     * Gets the topic that a cloned topic is cloned from. If a clone source cache is being used, then the topic and the property
+     * tags needed to clone it are added to the cache, so that they don't have to be fetched again when the topic is cloned.
+     *
+     * @param topicId  The id of the topic being cloned.
+     * @param revision The revision of the topic being cloned, or null for the latest revision.
+     * @return The topic being cloned, or null if it couldn't be found.
+     */
+    private TopicWrapper getCloneSourceTopic(final int topicId, final Integer revision) {
+        final CloneSourceCache cache = cloneSourceCache;
+        if (cache == null) {
+            return topicProvider.getTopic(topicId, revision);
+        }
+
+        TopicWrapper topic = cache.getTopic(topicId, revision);
+        if (topic == null) {
+            topic = topicProvider.getTopic(topicId, revision);
+            if (topic != null) {
+                cache.putTopic(topicId, revision, topic);
+                if (!processingOptions.isValidateOnly()) {
+                    cacheClonePropertyTags(cache, topic);
+                }
+            }
+        }
+
+        return topic;
+    }
+
+    /**
+     * Adds the property tags that are used when cloning a topic to the clone source cache, if they haven't already been cached.
+     *
+     * @param cache The cache to add the property tags to.
+     * @param topic The topic that will be cloned.
+     */
+    private void cacheClonePropertyTags(final CloneSourceCache cache, final TopicWrapper topic) {
+        final PropertyTagProvider propertyTagProvider = factory.getProvider(PropertyTagProvider.class);
+        if (propertyTagProvider == null) return;
+
+        final Set<Integer> propertyTagIds = new LinkedHashSet<Integer>();
+        if (topic.getProperties() != null && topic.getProperties().getItems() != null) {
+            for (final PropertyTagInTopicWrapper property : topic.getProperties().getItems()) {
+                propertyTagIds.add(property.getId());
+            }
+        }
+        propertyTagIds.add(serverEntities.getAddedByPropertyTagId());
+        propertyTagIds.add(serverEntities.getCspIdPropertyTagId());
+
+        for (final Integer propertyTagId : propertyTagIds) {
+            if (propertyTagId != null && cache.getPropertyTag(propertyTagId) == null) {
+                try {
+                    cache.putPropertyTag(propertyTagId, propertyTagProvider.getPropertyTag(propertyTagId));
+                } catch (NotFoundException e) {
+                    log.debug("Could not find property tag for id " + propertyTagId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates an existing spec topic against its topic entity, unless the memo shows it already passed validation and neither the
+     * spec topic or the topic entity has changed since. If the topic passes validation without any warnings or changes, then
+     * it's recorded in the memo.
+     *
+     * @param specTopic   The spec topic to be validated.
+     * @param topic       The topic entity for the spec topic.
+     * @param contentSpec The content spec the topic belongs to.
+     * @param revision    The revision of the topic that was asked for, or null if the latest revision was used.
+     * @return True if the topic is valid, otherwise false.
+     */
+    private boolean postValidateExistingTopic(final SpecTopic specTopic, final BaseTopicWrapper<?> topic, final ContentSpec contentSpec,
+            final Integer revision) {
+        if (validationMemo == null) {
+            return postValidateExistingTopic(specTopic, topic, contentSpec);
+        }
+
+        final String locale;
+        if (processingOptions.isTranslation()) {
+            locale = "translation:" + getTranslationLocale();
+        } else {
+            locale = contentSpec.getLocale() == null ? defaultLocale : contentSpec.getLocale();
+        }
+        final String memoKey = TopicValidationMemo.createKey(specTopic.getDBId(), revision, specTopic.getText(),
+                contentSpec.getFormat(), locale, processingOptions.isStrictTitles());
+        if (validationMemo.isValidated(memoKey, topic.getRevision())) {
+            return true;
+        }
+
+        // Only record topics that passed without any messages or changes, since they wouldn't be repeated if the topic was skipped
+        final int problemCount = ThreadBufferedErrorLogger.getProblemCount();
+        final String title = specTopic.getTitle();
+        final boolean valid = postValidateExistingTopic(specTopic, topic, contentSpec);
+        if (valid && problemCount == ThreadBufferedErrorLogger.getProblemCount() && (title == null ? specTopic.getTitle() == null :
+                title.equals(specTopic.getTitle()))) {
+            validationMemo.recordValidated(memoKey, topic.getRevision());
+        }
+
+        return valid;
+    }
+
     private boolean postValidateExistingTopic(final ITopicNode topicNode, final BaseTopicWrapper<?> topic, final ContentSpec contentSpec) {
         boolean valid = true;
 
@@ -2023,7 +2777,9 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                         log.warn(format(ProcessorConstants.WARN_TOPIC_TITLES_NONMATCH_MSG, specTopic.getLineNumber(),
                                 "Specified: " + specTopic.getTitle(), topicTitleMsg));
                     }
-                    specTopic.setTitle(topicTitle);
+                    if (isUpdatingTopicNodes()) {
+                        specTopic.setTitle(topicTitle);
+                    }
                 }
             }
 
@@ -2097,7 +2853,12 @@ public class ContentSpecValidator implements ShutdownAbleApp {
         }
 
         // Check the languages match
-        final String locale = contentSpec.getLocale() == null ? defaultLocale : contentSpec.getLocale();
+        final String locale;
+        if (parent != null) {
+            locale = getTranslationLocale();
+        } else {
+            locale = contentSpec.getLocale() == null ? defaultLocale : contentSpec.getLocale();
+        }
         if (locale != null && topic.getLocale() != null && !locale.equals(topic.getLocale().getValue())) {
             log.error(format(ProcessorConstants.ERROR_TOPIC_DOESNT_MATCH_LOCALE_MSG, topicNode.getLineNumber(), topicNode.getText()));
             valid = false;
@@ -2174,7 +2935,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             final List<TagWrapper> tags = new ArrayList<TagWrapper>();
             for (final String tagName : tagNames) {
                 // Check if the app should be shutdown
-                if (isShuttingDown.get()) {
+                if (isStopRequested()) {
                     shutdown.set(true);
                     return false;
                 }
@@ -2203,7 +2964,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                 final List<TagWrapper> catTags = catEntry.getValue();
 
                 // Check if the app should be shutdown
-                if (isShuttingDown.get()) {
+                if (isStopRequested()) {
                     shutdown.set(true);
                     return false;
                 }
@@ -2287,7 +3048,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
             final Set<TagWrapper> tags = new HashSet<TagWrapper>();
             for (final String tagName : tagNames) {
                 // Check if the app should be shutdown
-                if (isShuttingDown.get()) {
+                if (isStopRequested()) {
                     shutdown.set(true);
                     return false;
                 }
@@ -2317,7 +3078,7 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                 final List<TagWrapper> catTags = catEntry.getValue();
 
                 // Check if the app should be shutdown
-                if (isShuttingDown.get()) {
+                if (isStopRequested()) {
                     shutdown.set(true);
                     return false;
                 }
@@ -2400,16 +3161,45 @@ public class ContentSpecValidator implements ShutdownAbleApp {
                 return false;
             }
 
-            // Validate the content in the bug options against the external service using the appropriate bug link strategy
-            try {
-                bugLinkStrategy.validate(bugOptions);
-            } catch (ValidationException e) {
-                final Throwable cause = ExceptionUtilities.getRootCause(e);
+            // Check if the same bug options have already been validated recently
+            final BugLinkValidationCache validationCache = BugLinkValidationCache.getInstance();
+            final String cacheKey = BugLinkValidationCache.createKey(type, bugOptions.getBaseUrl(), contentSpec);
+            BugLinkValidationCache.CachedValidation cachedValidation = validationCache.get(cacheKey);
+
+            if (cachedValidation == null) {
+                // Fail fast if the bug tracker has been failing recently, instead of waiting on another connection to fail
+                final CircuitBreaker circuitBreaker = getBugLinkCircuitBreaker(type, bugOptions.getBaseUrl());
+                if (!circuitBreaker.allowRequest()) {
+                    throw new ConnectException("The circuit breaker for " + bugOptions.getBaseUrl() + " is open");
+                }
+
+                // Validate the content in the bug options against the external service using the appropriate bug link strategy
+                String validationError = null;
+                try {
+                    bugLinkStrategy.validate(bugOptions);
+                } catch (ValidationException e) {
+                    validationError = ExceptionUtilities.getRootCause(e).getMessage();
+                } catch (Exception e) {
+                    // Only connection failures count against the bug tracker, not bugs in the processor or bug link strategy
+                    if (isBugTrackerConnectionFailure(e)) {
+                        circuitBreaker.recordFailure();
+                    } else {
+                        circuitBreaker.recordIgnored();
+                    }
+                    throw e;
+                }
+                circuitBreaker.recordSuccess();
+
+                validationCache.put(cacheKey, validationError);
+                cachedValidation = new BugLinkValidationCache.CachedValidation(validationError, 0L);
+            }
+
+            if (!cachedValidation.isValid()) {
                 if (strict) {
-                    log.error(cause.getMessage());
+                    log.error(cachedValidation.getValidationError());
                     return false;
                 } else {
-                    log.warn(cause.getMessage());
+                    log.warn(cachedValidation.getValidationError());
                 }
             }
 
@@ -2443,4 +3233,132 @@ public class ContentSpecValidator implements ShutdownAbleApp {
 
         return true;
     }
+
+    /**
+     * Checks if an exception thrown while validating bug links was caused by being unable to talk to the bug tracker.
+     *
+     * @param e The exception that was thrown.
+     * @return True if the exception, or one of its causes, is a connection or transport error.
+     */
+    protected static boolean isBugTrackerConnectionFailure(final Throwable e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof MalformedURLException) {
+                // The url is wrong, which is a problem with the content spec rather than the bug tracker
+                return false;
+            } else if (cause instanceof IOException || cause instanceof ConnectionException) {
+                return true;
+            }
+            cause = cause.getCause() == cause ? null : cause.getCause();
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the circuit breaker for a bug tracker, which is shared by every validator in the process.
+     *
+     * @param type    The type of bug tracker.
+     * @param baseUrl The base url of the bug tracker.
+     * @return The circuit breaker for the bug tracker.
+     */
+    protected CircuitBreaker getBugLinkCircuitBreaker(final BugLinkType type, final String baseUrl) {
+        final String key = type + " " + baseUrl;
+        CircuitBreaker circuitBreaker = BUG_LINK_CIRCUIT_BREAKERS.get(key);
+        if (circuitBreaker == null) {
+            final CircuitBreaker newCircuitBreaker = new CircuitBreaker(BUG_LINK_CIRCUIT_WINDOW_SIZE, BUG_LINK_CIRCUIT_MINIMUM_CALLS,
+                    BUG_LINK_CIRCUIT_FAILURE_RATE, BUG_LINK_CIRCUIT_OPEN_DURATION);
+            circuitBreaker = BUG_LINK_CIRCUIT_BREAKERS.putIfAbsent(key, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+
+        return circuitBreaker;
+    }
+
+    /**
+     * A task that validates a single level (excluding its children) or topic, and buffers any messages that are logged.
+     */
+    private class PostValidationTask implements Callable<PostValidationResult> {
+        private final Level level;
+        private final SpecTopic specTopic;
+        private final ContentSpec contentSpec;
+
+        PostValidationTask(final Level level, final ContentSpec contentSpec) {
+            this.level = level;
+            specTopic = null;
+            this.contentSpec = contentSpec;
+        }
+
+        PostValidationTask(final SpecTopic specTopic, final ContentSpec contentSpec) {
+            level = null;
+            this.specTopic = specTopic;
+            this.contentSpec = contentSpec;
+        }
+
+        @Override
+        public PostValidationResult call() throws Exception {
+            ThreadBufferedErrorLogger.startBuffering();
+            try {
+                final boolean valid;
+                if (isStopRequested()) {
+                    shutdown.set(true);
+                    valid = false;
+                } else if (level != null) {
+                    valid = postValidateLevelWithoutChildren(level, contentSpec);
+                } else {
+                    valid = postValidateTopic(specTopic, contentSpec);
+                }
+                return new PostValidationResult(valid, ThreadBufferedErrorLogger.stopBuffering());
+            } finally {
+                // Make sure the buffer is cleared if the validation failed, so the thread can be reused
+                ThreadBufferedErrorLogger.stopBuffering();
+            }
+        }
+    }
+
+    /**
+     * A task that validates the existing topics in a content spec against a single translation locale, and buffers any messages
+     * that are logged.
+     */
+    private static class TranslationValidationTask implements Callable<PostValidationResult> {
+        private final ContentSpecValidator validator;
+        private final ContentSpec contentSpec;
+
+        TranslationValidationTask(final ContentSpecValidator validator, final ContentSpec contentSpec) {
+            this.validator = validator;
+            this.contentSpec = contentSpec;
+        }
+
+        @Override
+        public PostValidationResult call() throws Exception {
+            ThreadBufferedErrorLogger.startBuffering();
+            try {
+                final boolean valid = validator.postValidateExistingTopics(contentSpec);
+                return new PostValidationResult(valid, ThreadBufferedErrorLogger.stopBuffering());
+            } finally {
+                // Make sure the buffer is cleared if the validation failed, so the thread can be reused
+                ThreadBufferedErrorLogger.stopBuffering();
+            }
+        }
+    }
+
+    private static class PostValidationResult {
+        private final boolean valid;
+        private final List<ThreadBufferedErrorLogger.BufferedMessage> messages;
+
+        PostValidationResult(final boolean valid, final List<ThreadBufferedErrorLogger.BufferedMessage> messages) {
+            this.valid = valid;
+            this.messages = messages;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public List<ThreadBufferedErrorLogger.BufferedMessage> getMessages() {
+            return messages;
+        }
+    }
 }
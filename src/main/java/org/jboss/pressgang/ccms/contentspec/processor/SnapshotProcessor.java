@@ -19,6 +19,20 @@
 
 package org.jboss.pressgang.ccms.contentspec.processor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jboss.pressgang.ccms.contentspec.ContentSpec;
@@ -28,7 +42,15 @@ import org.jboss.pressgang.ccms.contentspec.Level;
 import org.jboss.pressgang.ccms.contentspec.Node;
 import org.jboss.pressgang.ccms.contentspec.SpecTopic;
 import org.jboss.pressgang.ccms.contentspec.interfaces.ShutdownAbleApp;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicChangeProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicRevisionProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TranslatedTopicResolver;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ServerSettingsSnapshot;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.SnapshotOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.SnapshotStatistics;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.DaemonThreadFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.utils.TaskUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.contentspec.utils.FixedURLGenerator;
 import org.jboss.pressgang.ccms.provider.DataProviderFactory;
@@ -49,6 +71,15 @@ public class SnapshotProcessor implements ShutdownAbleApp {
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
     private final String defaultLocale;
+    private volatile ProcessingContext processingContext = new ProcessingContext();
+    private volatile SnapshotStatistics statistics = new SnapshotStatistics();
+    private volatile TranslatedTopicResolver translatedTopicResolver;
+    private final TaskUtilities.StopCondition stopCondition = new TaskUtilities.StopCondition() {
+        @Override
+        public boolean isStopRequested() {
+            return SnapshotProcessor.this.isStopRequested();
+        }
+    };
 
     @Override
     public void shutdown() {
@@ -60,16 +91,55 @@ public class SnapshotProcessor implements ShutdownAbleApp {
         return shutdown.get();
     }
 
+    public ProcessingContext getProcessingContext() {
+        return processingContext;
+    }
+
+    /**
+     * @param processingContext The context to process in, which can stop processing once its deadline passes or it's cancelled.
+     */
+    public void setProcessingContext(final ProcessingContext processingContext) {
+        this.processingContext = processingContext == null ? new ProcessingContext() : processingContext;
+    }
+
+    /**
+     * @return The statistics for the last snapshot that was created.
+     */
+    public SnapshotStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return True if the app is shutting down, or the processing context has been cancelled or run out of time.
+     */
+    protected boolean isStopRequested() {
+        return isShuttingDown.get() || processingContext.isStopRequested();
+    }
+
     /**
      * Constructor.
      *
      * @param factory           TODO
      */
     public SnapshotProcessor(final DataProviderFactory factory) {
+        this(factory, factory.getProvider(ServerSettingsProvider.class).getServerSettings());
+    }
+
+    /**
+     * Creates a snapshot processor that gets the server settings from a shared snapshot, instead of fetching them from the server.
+     *
+     * @param factory                The factory to get the providers from.
+     * @param serverSettingsSnapshot The snapshot of the server settings to use.
+     */
+    public SnapshotProcessor(final DataProviderFactory factory, final ServerSettingsSnapshot serverSettingsSnapshot) {
+        this(factory, serverSettingsSnapshot.getServerSettings());
+    }
+
+    private SnapshotProcessor(final DataProviderFactory factory, final ServerSettingsWrapper serverSettings) {
         this.factory = factory;
         topicProvider = factory.getProvider(TopicProvider.class);
 
-        serverSettings = factory.getProvider(ServerSettingsProvider.class).getServerSettings();
+        this.serverSettings = serverSettings;
         defaultLocale = serverSettings.getDefaultLocale().getValue();
     }
 
@@ -79,18 +149,27 @@ public class SnapshotProcessor implements ShutdownAbleApp {
      * @param processingOptions The set of processing options to be used when creating the snapshot.
      */
     public void processContentSpec(final ContentSpec contentSpec, final SnapshotOptions processingOptions) {
-        // Process the metadata for any spec topic metadata
+        statistics = new SnapshotStatistics();
+
+        // Collect the topics used in the spec topic metadata
+        final List<ITopicNode> topicNodes = new ArrayList<ITopicNode>();
         for (final Node node : contentSpec.getNodes()) {
             if (node instanceof KeyValueNode) {
                 final KeyValueNode keyValueNode = ((KeyValueNode) node);
                 if (keyValueNode.getValue() != null && keyValueNode.getValue() instanceof ITopicNode) {
-                    processTopic((ITopicNode) keyValueNode.getValue(), processingOptions);
+                    topicNodes.add((ITopicNode) keyValueNode.getValue());
                 }
             }
         }
 
-        // Process the levels
-        processLevel(contentSpec.getBaseLevel(), processingOptions);
+        // Collect the topics in the levels
+        collectTopicNodes(contentSpec.getBaseLevel(), topicNodes);
+
+        // Look up all the topics and set their revisions
+        processTopics(topicNodes, processingOptions);
+        if (isShutdown()) {
+            return;
+        }
 
         // Set the fixed urls for the content spec
         if (processingOptions.isAddFixedUrls()) {
@@ -99,32 +178,241 @@ public class SnapshotProcessor implements ShutdownAbleApp {
     }
 
     /**
+     * Collects the info topic and topics in a level and its sub levels, in the order they appear in the level.
+     *
+     * @param level      The level to collect the topics from.
+     * @param topicNodes The list to add the topic nodes to.
+     */
+    protected void collectTopicNodes(final Level level, final List<ITopicNode> topicNodes) {
+        if (level.getInfoTopic() != null) {
+            topicNodes.add(level.getInfoTopic());
+        }
+
+        for (final Node childNode : level.getChildNodes()) {
+            if (childNode instanceof Level) {
+                collectTopicNodes((Level) childNode, topicNodes);
+            } else if (childNode instanceof SpecTopic) {
+                topicNodes.add((SpecTopic) childNode);
+            }
+        }
+    }
+
+    /**
+     * Looks up the topics for a set of topic nodes and then sets the topic and revision for each node. Each topic, revision and
+     * locale is only looked up once, no matter how many nodes use it, and the lookups are done on a pool of threads when
+     * {@link SnapshotOptions#getTopicFetchThreads()} is greater than one.
      *
-     * @param level
+     * @param topicNodes        The topic nodes to look up the topics for.
      * @param processingOptions The set of processing options to be used when creating the snapshot.
+     * @throws NotFoundException Thrown if a topic couldn't be found.
      */
-    protected void processLevel(final Level level, final SnapshotOptions processingOptions) {
+    protected void processTopics(final List<ITopicNode> topicNodes, final SnapshotOptions processingOptions) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return;
         }
 
-        // Process the info topic
-        if (level.getInfoTopic() != null) {
-            processTopic(level.getInfoTopic(), processingOptions);
+        // Group the nodes by the topic they use, so that each topic is only looked up once
+        final Map<TopicKey, List<ITopicNode>> keyTopicNodes = new LinkedHashMap<TopicKey, List<ITopicNode>>();
+        for (final ITopicNode topicNode : topicNodes) {
+            // When only creating a revision list, topics that keep their current revision don't need to be looked up
+            if (processingOptions.isRevisionsOnly() && !isRevisionRequired(topicNode, processingOptions)) {
+                continue;
+            }
+
+            final TopicKey key = createTopicKey(topicNode, processingOptions);
+            List<ITopicNode> nodes = keyTopicNodes.get(key);
+            if (nodes == null) {
+                nodes = new ArrayList<ITopicNode>();
+                keyTopicNodes.put(key, nodes);
+            }
+            nodes.add(topicNode);
         }
 
-        // Validate the sub levels and topics
-        for (final Node childNode : level.getChildNodes()) {
-            if (childNode instanceof Level) {
-                processLevel((Level) childNode, processingOptions);
-            } else if (childNode instanceof SpecTopic) {
-                processTopic((SpecTopic) childNode, processingOptions);
+        // Resolve all the translated topics together, instead of one at a time
+        if (processingOptions.isTranslation()) {
+            translatedTopicResolver = createTranslatedTopicResolver(keyTopicNodes.keySet());
+        }
+
+        try {
+            if (processingOptions.isRevisionsOnly()) {
+                processTopicRevisions(keyTopicNodes, processingOptions);
+                return;
+            }
+
+            // Look up the topics
+            final Map<TopicKey, BaseTopicWrapper<?>> topics = findTopics(new ArrayList<TopicKey>(keyTopicNodes.keySet()),
+                    processingOptions.getTopicFetchThreads());
+            if (topics == null) {
+                shutdown.set(true);
+                return;
             }
+            statistics.addRefreshedTopics(topics.size());
+
+            // Set the topics and revisions for the nodes
+            for (final Map.Entry<TopicKey, List<ITopicNode>> entry : keyTopicNodes.entrySet()) {
+                final BaseTopicWrapper<?> topic = topics.get(entry.getKey());
+                for (final ITopicNode topicNode : entry.getValue()) {
+                    setTopic(topicNode, topic, processingOptions);
+                }
+            }
+        } finally {
+            translatedTopicResolver = null;
         }
     }
 
+    /**
+     * Looks up the revisions for a set of topic nodes and sets them on the nodes, without setting or holding onto the topics
+     * themselves. If the topic provider implements {@link TopicRevisionProvider} then the revisions are looked up in a single
+     * request, otherwise each topic is looked up and only its revision is kept.
+     * <p/>
+     * If the revisions from a previous snapshot are available, then topics that haven't changed since the previous snapshot
+     * keep their previous revision and only the changed topics are looked up. See {@link #findChangedTopicIds(List,
+     * SnapshotOptions)} for where the changes come from.
+     *
+     * @param keyTopicNodes     A mapping of topic keys to the topic nodes that use them.
+     * @param processingOptions The set of processing options to be used when creating the snapshot.
+     * @throws NotFoundException Thrown if a topic couldn't be found.
+     */
+    protected void processTopicRevisions(final Map<TopicKey, List<ITopicNode>> keyTopicNodes,
+            final SnapshotOptions processingOptions) {
+        final List<TopicKey> keys = new ArrayList<TopicKey>(keyTopicNodes.keySet());
+        final Map<TopicKey, Integer> revisions = new HashMap<TopicKey, Integer>();
+
+        // Reuse the previous revisions for any topics that haven't changed
+        final List<TopicKey> refreshKeys;
+        final Set<Integer> changedTopicIds = findChangedTopicIds(keys, processingOptions);
+        if (changedTopicIds == null) {
+            refreshKeys = keys;
+        } else {
+            refreshKeys = new ArrayList<TopicKey>();
+            for (final TopicKey key : keys) {
+                final Integer previousRevision = processingOptions.getPreviousRevisions().get(key.getId());
+                if (previousRevision != null && !changedTopicIds.contains(key.getId())) {
+                    revisions.put(key, previousRevision);
+                } else {
+                    refreshKeys.add(key);
+                }
+            }
+            statistics.addReusedTopics(keys.size() - refreshKeys.size());
+        }
+
+        // Look up the revisions for the remaining topics
+        final Map<TopicKey, Integer> refreshedRevisions;
+        if (refreshKeys.isEmpty()) {
+            refreshedRevisions = new HashMap<TopicKey, Integer>();
+        } else if (topicProvider instanceof TopicRevisionProvider && !processingOptions.isTranslation()) {
+            refreshedRevisions = findTopicRevisions((TopicRevisionProvider) topicProvider, refreshKeys,
+                    processingOptions.getRevision());
+        } else {
+            refreshedRevisions = lookUpTopics(refreshKeys, processingOptions.getTopicFetchThreads(), new TopicLookup<Integer>() {
+                @Override
+                public Integer lookUp(final TopicKey key) {
+                    return findTopic(key).getTopicRevision();
+                }
+            });
+        }
+        if (refreshedRevisions == null) {
+            shutdown.set(true);
+            return;
+        }
+        revisions.putAll(refreshedRevisions);
+        statistics.addRefreshedTopics(refreshedRevisions.size());
+        if (changedTopicIds != null) {
+            log.debug("Refreshed " + refreshedRevisions.size() + " topic(s) and reused " + (keys.size() - refreshKeys.size())
+                    + " topic revision(s) from the previous snapshot");
+        }
+
+        // Set the revisions for the nodes
+        for (final Map.Entry<TopicKey, List<ITopicNode>> entry : keyTopicNodes.entrySet()) {
+            final Integer revision = revisions.get(entry.getKey());
+            for (final ITopicNode topicNode : entry.getValue()) {
+                topicNode.setRevision(revision);
+            }
+        }
+    }
+
+    /**
+     * Finds the topics that have changed since the previous snapshot was created. The changes are taken from the
+     * {@link SnapshotOptions#getTopicChangeProvider()} if one is set, or otherwise from the topic provider if it implements
+     * {@link TopicChangeProvider}.
+     * <p/>
+     * Changes can only be used when the previous revisions and the revision they were created at are known, the topics are
+     * being updated to their latest revisions and the snapshot isn't for a translation.
+     *
+     * @param keys              The keys of the topics that need a revision.
+     * @param processingOptions The set of processing options to be used when creating the snapshot.
+     * @return The ids of the topics that have changed, or null if the changes can't be determined and every topic should be
+     *         looked up.
+     */
+    protected Set<Integer> findChangedTopicIds(final List<TopicKey> keys, final SnapshotOptions processingOptions) {
+        if (processingOptions.getPreviousRevisions() == null || processingOptions.getPreviousSnapshotRevision() == null
+                || processingOptions.getRevision() != null || processingOptions.isTranslation()) {
+            return null;
+        }
+
+        final TopicChangeProvider changeProvider;
+        if (processingOptions.getTopicChangeProvider() != null) {
+            changeProvider = processingOptions.getTopicChangeProvider();
+        } else if (topicProvider instanceof TopicChangeProvider) {
+            changeProvider = (TopicChangeProvider) topicProvider;
+        } else {
+            return null;
+        }
+
+        final Set<Integer> ids = new LinkedHashSet<Integer>();
+        for (final TopicKey key : keys) {
+            ids.add(key.getId());
+        }
+
+        final Collection<Integer> changedIds = changeProvider.getChangedTopicIds(new ArrayList<Integer>(ids),
+                processingOptions.getPreviousSnapshotRevision());
+        return changedIds == null ? null : new HashSet<Integer>(changedIds);
+    }
+
+    /**
+     * Looks up the revisions for a list of topics in a single request.
+     *
+     * @param revisionProvider The provider to look up the revisions from.
+     * @param keys             The keys of the topics to look up.
+     * @param revision         The revision to look up the topics at, or null to look up the latest revisions.
+     * @return A mapping of the keys to the topic revisions.
+     * @throws NotFoundException Thrown if a topic couldn't be found.
+     */
+    private Map<TopicKey, Integer> findTopicRevisions(final TopicRevisionProvider revisionProvider, final List<TopicKey> keys,
+            final Integer revision) {
+        final Set<Integer> ids = new LinkedHashSet<Integer>();
+        for (final TopicKey key : keys) {
+            ids.add(key.getId());
+        }
+
+        final Map<Integer, Integer> topicRevisions = revisionProvider.getTopicRevisions(new ArrayList<Integer>(ids), revision);
+        final Map<TopicKey, Integer> revisions = new HashMap<TopicKey, Integer>();
+        for (final TopicKey key : keys) {
+            final Integer topicRevision = topicRevisions == null ? null : topicRevisions.get(key.getId());
+            if (topicRevision == null) {
+                log.debug("Could not find topic for id " + key.getId());
+                throw new NotFoundException("Could not find topic for id " + key.getId());
+            }
+            revisions.put(key, topicRevision);
+        }
+
+        return revisions;
+    }
+
+    /**
+     * Checks if a topic node will have its revision set by the snapshot.
+     *
+     * @param topicNode         The topic node to check.
+     * @param processingOptions The set of processing options to be used when creating the snapshot.
+     * @return True if the revision of the node should be set, otherwise false.
+     */
+    protected boolean isRevisionRequired(final ITopicNode topicNode, final SnapshotOptions processingOptions) {
+        return processingOptions.isAddRevisions() && (topicNode.getRevision() == null || processingOptions.isUpdateRevisions())
+                && topicNode.isTopicAnExistingTopic();
+    }
+
     /**
      *
      * @param topicNode
@@ -132,11 +420,23 @@ public class SnapshotProcessor implements ShutdownAbleApp {
      */
     protected void processTopic(final ITopicNode topicNode, final SnapshotOptions processingOptions) {
         // Check if the app should be shutdown
-        if (isShuttingDown.get()) {
+        if (isStopRequested()) {
             shutdown.set(true);
             return;
         }
 
+        final BaseTopicWrapper<?> topic = findTopic(createTopicKey(topicNode, processingOptions));
+        setTopic(topicNode, topic, processingOptions);
+    }
+
+    /**
+     * Creates the key for the topic, revision and locale that should be looked up for a topic node.
+     *
+     * @param topicNode         The topic node to create the key for.
+     * @param processingOptions The set of processing options to be used when creating the snapshot.
+     * @return The key for the topic that should be looked up.
+     */
+    protected TopicKey createTopicKey(final ITopicNode topicNode, final SnapshotOptions processingOptions) {
         // Find the revision to use
         final Integer revision;
         if (topicNode.getRevision() == null || processingOptions.isUpdateRevisions()) {
@@ -145,20 +445,139 @@ public class SnapshotProcessor implements ShutdownAbleApp {
             revision = topicNode.getRevision();
         }
 
-        // Look up the topic
-        BaseTopicWrapper<?> topic = null;
+        final String locale;
+        if (processingOptions.isTranslation()) {
+            locale = processingOptions.getTranslationLocale() == null ? defaultLocale : processingOptions.getTranslationLocale();
+        } else {
+            locale = null;
+        }
+
+        return new TopicKey(Integer.parseInt(topicNode.getId()), revision, locale);
+    }
+
+    /**
+     * Looks up the topics for a list of keys, either on the current thread or on a pool of threads.
+     *
+     * @param keys    The keys of the topics to look up.
+     * @param threads The maximum number of topics to look up at the same time.
+     * @return A mapping of the keys to their topics, or null if the app is shutting down.
+     * @throws NotFoundException Thrown if a topic couldn't be found.
+     */
+    protected Map<TopicKey, BaseTopicWrapper<?>> findTopics(final List<TopicKey> keys, final int threads) {
+        return lookUpTopics(keys, threads, new TopicLookup<BaseTopicWrapper<?>>() {
+            @Override
+            public BaseTopicWrapper<?> lookUp(final TopicKey key) {
+                return findTopic(key);
+            }
+        });
+    }
+
+    /**
+     * Looks up something for each topic key, either on the current thread or on a pool of threads.
+     *
+     * @param keys    The keys of the topics to look up.
+     * @param threads The maximum number of topics to look up at the same time.
+     * @param lookup  The lookup to run for each key.
+     * @return A mapping of the keys to the lookup results, or null if the app is shutting down.
+     */
+    private <T> Map<TopicKey, T> lookUpTopics(final List<TopicKey> keys, final int threads, final TopicLookup<T> lookup) {
+        final Map<TopicKey, T> results = new HashMap<TopicKey, T>();
+        if (threads <= 1 || keys.size() <= 1) {
+            for (final TopicKey key : keys) {
+                // Check if the app should be shutdown
+                if (isStopRequested()) {
+                    return null;
+                }
+
+                results.put(key, lookup.lookUp(key));
+            }
+            return results;
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, keys.size()),
+                new DaemonThreadFactory("csprocessor-snapshot-"));
         try {
-            if (processingOptions.isTranslation()) {
-                topic = EntityUtilities.getTranslatedTopicByTopicId(factory, Integer.parseInt(topicNode.getId()), revision,
-                        processingOptions.getTranslationLocale() == null ? defaultLocale : processingOptions.getTranslationLocale());
+            final List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (final TopicKey key : keys) {
+                futures.add(executorService.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        return lookup.lookUp(key);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < keys.size(); i++) {
+                final Future<T> future = futures.get(i);
+                final T result;
+                try {
+                    result = TaskUtilities.waitForTask(future, stopCondition);
+                } catch (ExecutionException e) {
+                    throw TaskUtilities.propagateCause(e);
+                }
+
+                // Stop waiting on the remaining lookups if the app is shutting down
+                if (isStopRequested() || !future.isDone()) {
+                    return null;
+                }
+                results.put(keys.get(i), result);
+            }
+
+            return results;
+        } finally {
+            // Cancel anything that is still running, in case the app is shutting down or a lookup failed
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a resolver for the translated topics of a set of topic keys, and resolves the translated topics for them.
+     *
+     * @param keys The keys of the topics to be looked up.
+     * @return The resolver holding the translated topics.
+     */
+    protected TranslatedTopicResolver createTranslatedTopicResolver(final Collection<TopicKey> keys) {
+        final String locale = keys.isEmpty() ? defaultLocale : keys.iterator().next().getLocale();
+        final TranslatedTopicResolver resolver = new TranslatedTopicResolver(factory, locale);
+        for (final TopicKey key : keys) {
+            resolver.addTopic(key.getId(), key.getRevision());
+        }
+        resolver.resolve();
+        return resolver;
+    }
+
+    /**
+     * Looks up a single topic.
+     *
+     * @param key The key of the topic to look up.
+     * @return The topic for the key.
+     * @throws NotFoundException Thrown if the topic couldn't be found.
+     */
+    protected BaseTopicWrapper<?> findTopic(final TopicKey key) {
+        try {
+            final TranslatedTopicResolver resolver = translatedTopicResolver;
+            if (key.getLocale() != null && resolver != null && key.getLocale().equals(resolver.getLocale())) {
+                return resolver.getTranslatedTopic(key.getId(), key.getRevision());
+            } else if (key.getLocale() != null) {
+                return EntityUtilities.getTranslatedTopicByTopicId(factory, key.getId(), key.getRevision(), key.getLocale());
             } else {
-                topic = topicProvider.getTopic(Integer.parseInt(topicNode.getId()), revision);
+                return topicProvider.getTopic(key.getId(), key.getRevision());
             }
-            topicNode.setTopic(topic);
         } catch (NotFoundException e) {
-            log.debug("Could not find topic for id " + topicNode.getDBId());
+            log.debug("Could not find topic for id " + key.getId());
             throw e;
         }
+    }
+
+    /**
+     * Sets the topic for a topic node and then updates the nodes revision, if required by the snapshot options.
+     *
+     * @param topicNode         The topic node to set the topic for.
+     * @param topic             The topic that was looked up for the node.
+     * @param processingOptions The set of processing options to be used when creating the snapshot.
+     */
+    protected void setTopic(final ITopicNode topicNode, final BaseTopicWrapper<?> topic, final SnapshotOptions processingOptions) {
+        topicNode.setTopic(topic);
 
         if (!processingOptions.isAddRevisions()) {
             // If we aren't adding revisions then we have nothing to do here, so just return
@@ -170,4 +589,59 @@ public class SnapshotProcessor implements ShutdownAbleApp {
             topicNode.setRevision(topic.getTopicRevision());
         }
     }
+
+    /**
+     * Something to look up for a topic, such as the topic itself or just its revision.
+     */
+    private static interface TopicLookup<T> {
+        T lookUp(TopicKey key);
+    }
+
+    /**
+     * The topic id, revision and locale that identify a topic to be looked up.
+     */
+    protected static class TopicKey {
+        private final Integer id;
+        private final Integer revision;
+        private final String locale;
+
+        public TopicKey(final Integer id, final Integer revision, final String locale) {
+            this.id = id;
+            this.revision = revision;
+            this.locale = locale;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public Integer getRevision() {
+            return revision;
+        }
+
+        public String getLocale() {
+            return locale;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TopicKey)) return false;
+
+            final TopicKey topicKey = (TopicKey) o;
+            return equal(id, topicKey.id) && equal(revision, topicKey.revision) && equal(locale, topicKey.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = id == null ? 0 : id.hashCode();
+            result = 31 * result + (revision == null ? 0 : revision.hashCode());
+            result = 31 * result + (locale == null ? 0 : locale.hashCode());
+            return result;
+        }
+
+        private static boolean equal(final Object a, final Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
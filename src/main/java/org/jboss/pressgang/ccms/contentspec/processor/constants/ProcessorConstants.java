@@ -94,6 +94,10 @@ public class ProcessorConstants {
     public static final String ERROR_DATABASE_ERROR_MSG = "An error occurred when inserting into the database please try again.";
     public static final String ERROR_PROCESSING_ERROR_MSG = "An error occurred during processing please try again and if another failure " +
             "" + "occurs please log a bug.";
+    public static final String ERROR_PROCESSING_DEADLINE_EXCEEDED_MSG = "The time allowed for processing ran out before the Content " +
+            "Specification could be saved.";
+    public static final String ERROR_PARSING_STOPPED_MSG = "Parsing was stopped before the Content Specification could be fully " +
+            "parsed.";
     public static final String WARN_EDIT_INFO_MSG = "Note: All descriptions, tags, source urls and writers will be ignored for existing "
             + "Topics.";
 
@@ -0,0 +1,47 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.enums;
+
+/**
+ * The stages that each content spec goes through when content specs are processed by the ContentSpecBatchProcessor. Each stage
+ * has its own pool of threads, so different content specs can be in different stages at the same time.
+ */
+public enum BatchProcessingStage {
+    /**
+     * Parsing the content spec text.
+     */
+    PARSE,
+    /**
+     * Validating the content spec without any REST calls.
+     */
+    PRE_VALIDATION,
+    /**
+     * Fetching the topics, tags and schemas that the content spec uses into the caches that are shared by the batch.
+     */
+    FETCH,
+    /**
+     * Validating the bug links and validating the content spec against the server.
+     */
+    POST_VALIDATION,
+    /**
+     * Saving the topics and the content spec.
+     */
+    SAVE
+}
@@ -0,0 +1,52 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.enums;
+
+/**
+ * The stages that a content spec goes through when it is processed by the ContentSpecProcessor.
+ */
+public enum ProcessingStage {
+    /**
+     * Validating the content spec without any REST calls. The item count is the number of topics.
+     */
+    FIRST_VALIDATION_PASS,
+    /**
+     * Validating the bug link options against the bug tracker. The item count is 1 if the bug links were validated, or 0 if they
+     * didn't need to be.
+     */
+    BUG_LINK_VALIDATION_PASS,
+    /**
+     * Validating the content spec against the server. The item count is the number of topics.
+     */
+    SECOND_VALIDATION_PASS,
+    /**
+     * Creating the topic entities and saving the topic pool. The item count is the number of topics.
+     */
+    TOPIC_SAVE,
+    /**
+     * Merging the content spec nodes with the existing content spec entity. The item count is the number of nodes.
+     */
+    CONTENT_SPEC_MERGE,
+    /**
+     * Merging the relationships for the content spec nodes. The item count is the number of nodes that were checked for
+     * relationships.
+     */
+    RELATIONSHIP_MERGE
+}
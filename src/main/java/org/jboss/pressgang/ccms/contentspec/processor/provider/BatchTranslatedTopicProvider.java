@@ -0,0 +1,42 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+
+/**
+ * A Translated Topic provider that can look up the translations for many topics in a single request.
+ * <p/>
+ * Providers that don't implement this interface have each translated topic looked up individually.
+ */
+public interface BatchTranslatedTopicProvider {
+    /**
+     * Gets the translated topics for a set of topics in a locale. The translation used for each topic is the same one that
+     * {@link org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities#getTranslatedTopicByTopicId} would return.
+     *
+     * @param topicRevisions A mapping of topic ids to the topic revision to get the translation for, or null for the latest
+     *                       revision.
+     * @param locale         The locale of the translations.
+     * @return A mapping of topic ids to their translated topics. Topics that couldn't be found aren't included.
+     */
+    Map<Integer, TranslatedTopicWrapper> getTranslatedTopics(Map<Integer, Integer> topicRevisions, String locale);
+}
@@ -0,0 +1,306 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
+import org.jboss.pressgang.ccms.provider.CategoryProvider;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+
+/**
+ * A DataProviderFactory that wraps another factory, and caches the results of the provider methods that look up topics, tags,
+ * categories and blob constants (ie the DocBook schemas), so that they can be shared between content specs that are processed
+ * together. The cached entities are shared by everything that uses the factory, so it should only be used where the entities are
+ * only read, such as when validating. Once the cache is full the least recently used entities are removed.
+ */
+public class CachingDataProviderFactory extends DataProviderFactory {
+    /**
+     * The default maximum number of entities to cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final DataProviderFactory factory;
+    private final Map<Class<?>, Set<String>> cachedMethods;
+    private final Map<Class<?>, Object> providers = new ConcurrentHashMap<Class<?>, Object>();
+    private final Map<CacheKey, Object> cache;
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * Creates a factory that caches up to {@link #DEFAULT_MAX_ENTRIES} topic, tag, category and blob constant lookups.
+     *
+     * @param factory The factory to get the actual providers from.
+     */
+    public CachingDataProviderFactory(final DataProviderFactory factory) {
+        this(factory, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a factory that caches the topic, tag, category and blob constant lookups.
+     *
+     * @param factory    The factory to get the actual providers from.
+     * @param maxEntries The maximum number of entities to cache.
+     */
+    public CachingDataProviderFactory(final DataProviderFactory factory, final int maxEntries) {
+        this(factory, createDefaultCachedMethods(), maxEntries);
+    }
+
+    /**
+     * @param factory       The factory to get the actual providers from.
+     * @param cachedMethods The names of the provider methods that should have their results cached, for each provider interface.
+     * @param maxEntries    The maximum number of entities to cache.
+     */
+    public CachingDataProviderFactory(final DataProviderFactory factory, final Map<Class<?>, ? extends Collection<String>> cachedMethods,
+            final int maxEntries) {
+        this.factory = factory;
+        cache = new LinkedHashMap<CacheKey, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<CacheKey, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.cachedMethods = new HashMap<Class<?>, Set<String>>();
+        for (final Map.Entry<Class<?>, ? extends Collection<String>> entry : cachedMethods.entrySet()) {
+            this.cachedMethods.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<String>(entry.getValue())));
+        }
+    }
+
+    private static Map<Class<?>, Collection<String>> createDefaultCachedMethods() {
+        final Map<Class<?>, Collection<String>> cachedMethods = new HashMap<Class<?>, Collection<String>>();
+        cachedMethods.put(TopicProvider.class, Arrays.asList("getTopic"));
+        cachedMethods.put(TagProvider.class, Arrays.asList("getTag", "getTagByName"));
+        cachedMethods.put(CategoryProvider.class, Arrays.asList("getCategory"));
+        cachedMethods.put(BlobConstantProvider.class, Arrays.asList("getBlobConstant"));
+        return cachedMethods;
+    }
+
+    /**
+     * @return The factory that the actual providers are created from.
+     */
+    public DataProviderFactory getWrappedFactory() {
+        return factory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProvider(final Class<T> clazz) {
+        Object provider = providers.get(clazz);
+        if (provider == null) {
+            final T wrappedProvider = factory.getProvider(clazz);
+
+            // Only interfaces can be wrapped, and there's no need to wrap providers that don't have any methods cached
+            if (wrappedProvider == null || !clazz.isInterface() || !cachedMethods.containsKey(clazz)) {
+                return wrappedProvider;
+            }
+
+            provider = Proxy.newProxyInstance(clazz.getClassLoader(), MetricsDataProviderFactory.getProxyInterfaces(clazz,
+                    wrappedProvider), new CachingInvocationHandler(clazz, wrappedProvider, cachedMethods.get(clazz)));
+            providers.put(clazz, provider);
+        }
+
+        return (T) provider;
+    }
+
+    @Override
+    public boolean isTransactionsSupported() {
+        return factory.isTransactionsSupported();
+    }
+
+    @Override
+    public void rollback() {
+        factory.rollback();
+    }
+
+    /**
+     * Removes the cached topics for a set of topic ids, so that they are looked up again the next time they are used. This
+     * should be used once topics have been saved.
+     *
+     * @param topicIds The ids of the topics to remove from the cache.
+     */
+    public void invalidateTopics(final Collection<Integer> topicIds) {
+        if (topicIds.isEmpty()) return;
+
+        synchronized (cache) {
+            final Iterator<CacheKey> keys = cache.keySet().iterator();
+            while (keys.hasNext()) {
+                final CacheKey key = keys.next();
+                if (key.provider == TopicProvider.class && !key.args.isEmpty() && topicIds.contains(key.args.get(0))) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached entities that were looked up from a provider, so that they are looked up again the next time they
+     * are used.
+     *
+     * @param providerClass The provider interface that the entities were looked up from.
+     */
+    public void invalidate(final Class<?> providerClass) {
+        synchronized (cache) {
+            final Iterator<CacheKey> keys = cache.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().provider == providerClass) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached entities.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return The number of entities that are cached.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return The number of calls that were answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of calls that had to be passed through to the actual providers.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Answers the cached method calls from the cache if possible, and passes every other call through to the actual provider.
+     */
+    private class CachingInvocationHandler implements InvocationHandler {
+        private final Class<?> providerClass;
+        private final Object provider;
+        private final Set<String> methodNames;
+
+        CachingInvocationHandler(final Class<?> providerClass, final Object provider, final Set<String> methodNames) {
+            this.providerClass = providerClass;
+            this.provider = provider;
+            this.methodNames = methodNames;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || !methodNames.contains(method.getName())) {
+                return invokeProvider(method, args);
+            }
+
+            final CacheKey key = new CacheKey(providerClass, method, args);
+            final Object cachedValue;
+            synchronized (cache) {
+                cachedValue = cache.get(key);
+            }
+            if (cachedValue != null) {
+                hitCount.incrementAndGet();
+                return cachedValue;
+            }
+
+            // Missing entities aren't cached, so that the provider can report them in the usual way
+            missCount.incrementAndGet();
+            final Object value = invokeProvider(method, args);
+            if (value != null) {
+                synchronized (cache) {
+                    final Object existingValue = cache.get(key);
+                    if (existingValue != null) {
+                        return existingValue;
+                    }
+                    cache.put(key, value);
+                }
+            }
+            return value;
+        }
+
+        private Object invokeProvider(final Method method, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(provider, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class CacheKey {
+        private final Class<?> provider;
+        private final String methodName;
+        private final List<Class<?>> parameterTypes;
+        private final List<Object> args;
+
+        CacheKey(final Class<?> provider, final Method method, final Object[] args) {
+            this.provider = provider;
+            methodName = method.getName();
+            parameterTypes = Arrays.<Class<?>>asList(method.getParameterTypes());
+            this.args = args == null ? Collections.<Object>emptyList() : Arrays.asList(args);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+
+            final CacheKey cacheKey = (CacheKey) o;
+            return provider.equals(cacheKey.provider) && methodName.equals(cacheKey.methodName) && parameterTypes.equals(
+                    cacheKey.parameterTypes) && args.equals(cacheKey.args);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = provider.hashCode();
+            result = 31 * result + methodName.hashCode();
+            result = 31 * result + parameterTypes.hashCode();
+            result = 31 * result + args.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingMetrics;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+
+/**
+ * A DataProviderFactory that wraps another factory, and counts and times every call made to the providers that it creates.
+ */
+public class MetricsDataProviderFactory extends DataProviderFactory {
+    private final DataProviderFactory factory;
+    private final ProcessingMetrics metrics;
+    private final Map<Class<?>, Object> providers = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * @param factory The factory to get the actual providers from.
+     * @param metrics The metrics to record the provider calls in.
+     */
+    public MetricsDataProviderFactory(final DataProviderFactory factory, final ProcessingMetrics metrics) {
+        this.factory = factory;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The factory that the actual providers are created from.
+     */
+    public DataProviderFactory getWrappedFactory() {
+        return factory;
+    }
+
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProvider(final Class<T> clazz) {
+        Object provider = providers.get(clazz);
+        if (provider == null) {
+            final T wrappedProvider = factory.getProvider(clazz);
+
+            // Only interfaces can be wrapped, so just use the provider directly for anything else
+            if (wrappedProvider == null || !clazz.isInterface()) {
+                return wrappedProvider;
+            }
+
+            provider = createProxy(clazz, wrappedProvider);
+            providers.put(clazz, provider);
+        }
+
+        return (T) provider;
+    }
+
+    @Override
+    public boolean isTransactionsSupported() {
+        return factory.isTransactionsSupported();
+    }
+
+    @Override
+    public void rollback() {
+        factory.rollback();
+    }
+
+    protected Object createProxy(final Class<?> clazz, final Object provider) {
+        return Proxy.newProxyInstance(clazz.getClassLoader(), getProxyInterfaces(clazz, provider),
+                new MetricsInvocationHandler(clazz.getSimpleName(), provider));
+    }
+
+    /**
+     * Gets the interfaces that a proxy for a provider should implement, so that the proxy implements any optional interfaces that
+     * the provider does, ie SingleSaveContentSpecProvider.
+     *
+     * @param clazz    The provider interface that was asked for.
+     * @param provider The provider that will be proxied.
+     * @return The interfaces for the proxy to implement.
+     */
+    static Class<?>[] getProxyInterfaces(final Class<?> clazz, final Object provider) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        interfaces.add(clazz);
+        Class<?> providerClass = provider.getClass();
+        while (providerClass != null) {
+            for (final Class<?> providerInterface : providerClass.getInterfaces()) {
+                if (isVisible(providerInterface, clazz.getClassLoader())) {
+                    interfaces.add(providerInterface);
+                }
+            }
+            providerClass = providerClass.getSuperclass();
+        }
+
+        return interfaces.toArray(new Class<?>[interfaces.size()]);
+    }
+
+    private static boolean isVisible(final Class<?> clazz, final ClassLoader classLoader) {
+        try {
+            return Class.forName(clazz.getName(), false, classLoader) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Passes each call through to the actual provider and records how long it took.
+     */
+    private class MetricsInvocationHandler implements InvocationHandler {
+        private final String providerName;
+        private final Object provider;
+
+        MetricsInvocationHandler(final String providerName, final Object provider) {
+            this.providerName = providerName;
+            this.provider = provider;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            // Don't record the standard object methods, as they aren't provider calls
+            if (method.getDeclaringClass() == Object.class) {
+                try {
+                    return method.invoke(provider, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            final long start = System.nanoTime();
+            try {
+                return method.invoke(provider, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                metrics.recordProviderCall(providerName + "." + method.getName(), System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.ContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.LogMessageWrapper;
+
+/**
+ * A Content Spec provider that can save a content spec, its nodes and the relationships between them in a single request. Nodes
+ * that haven't been saved yet are given a temporary client-side id, which the provider resolves to the real id of the node when
+ * the content spec is saved.
+ * <p/>
+ * Providers that don't implement this interface are saved in two requests, so that new nodes have an id before any
+ * relationships to them are saved.
+ */
+public interface SingleSaveContentSpecProvider {
+    /**
+     * Updates a content spec, along with any new, updated or removed nodes and relationships.
+     *
+     * @param contentSpec      The content spec entity to be saved.
+     * @param logMessage       The log message to save the changes with.
+     * @param temporaryNodeIds        The temporary ids (always negative) of the nodes that haven't been saved yet.
+     * @param temporaryRelatedNodeIds The new relationships that point to a node that hasn't been saved yet, mapped to the
+     *                                temporary id of that node.
+     * @return The updated content spec entity.
+     */
+    ContentSpecWrapper updateContentSpec(ContentSpecWrapper contentSpec, LogMessageWrapper logMessage,
+            Map<CSNodeWrapper, Integer> temporaryNodeIds, Map<CSRelatedNodeWrapper, Integer> temporaryRelatedNodeIds);
+}
@@ -0,0 +1,40 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.util.Collection;
+
+/**
+ * A source of the topics that have changed since a revision, so that a snapshot can be refreshed by only looking up the topics
+ * that have changed.
+ * <p/>
+ * Topic providers can implement this interface directly, or an implementation can be set on the snapshot options to use a
+ * local stand-in, such as a stored change log.
+ */
+public interface TopicChangeProvider {
+    /**
+     * Gets the topics that have been changed since a revision.
+     *
+     * @param ids      The ids of the topics to check.
+     * @param revision The revision to check for changes since.
+     * @return The ids of the topics that have a revision newer than the revision, or null if the changes aren't known.
+     */
+    Collection<Integer> getChangedTopicIds(Collection<Integer> ids, Integer revision);
+}
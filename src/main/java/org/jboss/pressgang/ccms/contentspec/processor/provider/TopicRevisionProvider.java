@@ -0,0 +1,40 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A Topic provider that can look up the revisions of many topics in a single request, without loading the topics themselves.
+ * <p/>
+ * Providers that don't implement this interface have each topic looked up individually when only the revisions are needed.
+ */
+public interface TopicRevisionProvider {
+    /**
+     * Gets the revisions for a set of topics.
+     *
+     * @param ids      The ids of the topics to get the revisions for.
+     * @param revision The revision to get the topic revisions at, or null to get the latest revisions.
+     * @return A mapping of topic ids to the revision of the topic, at or before the requested revision. Topics that couldn't be
+     *         found aren't included.
+     */
+    Map<Integer, Integer> getTopicRevisions(Collection<Integer> ids, Integer revision);
+}
@@ -0,0 +1,157 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TranslatedTopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.base.BaseTopicWrapper;
+
+/**
+ * Resolves the translated topics for a single locale. Topics can be added up front and then resolved together, which is done
+ * in as few requests as possible when the translated topic provider implements {@link BatchTranslatedTopicProvider}. Any
+ * topic that wasn't resolved up front is looked up individually when it's first needed, and every result is cached so each
+ * translated topic is only looked up once.
+ */
+public class TranslatedTopicResolver {
+    private final DataProviderFactory providerFactory;
+    private final String locale;
+    private final Set<String> pendingKeys = new LinkedHashSet<String>();
+    private final ConcurrentMap<String, BaseTopicWrapper<?>> translatedTopics = new ConcurrentHashMap<String, BaseTopicWrapper<?>>();
+    private final Set<String> missingKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public TranslatedTopicResolver(final DataProviderFactory providerFactory, final String locale) {
+        this.providerFactory = providerFactory;
+        this.locale = locale;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    /**
+     * Adds a topic to be resolved the next time {@link #resolve()} is called.
+     *
+     * @param topicId  The id of the topic.
+     * @param revision The revision of the topic, or null for the latest revision.
+     */
+    public synchronized void addTopic(final Integer topicId, final Integer revision) {
+        final String key = createKey(topicId, revision);
+        if (!translatedTopics.containsKey(key) && !missingKeys.contains(key)) {
+            pendingKeys.add(key);
+        }
+    }
+
+    /**
+     * Resolves all of the topics that have been added. If the translated topic provider doesn't support batch requests, then
+     * the topics are left to be looked up individually when they are needed.
+     */
+    public synchronized void resolve() {
+        final TranslatedTopicProvider translatedTopicProvider = providerFactory.getProvider(TranslatedTopicProvider.class);
+        if (!(translatedTopicProvider instanceof BatchTranslatedTopicProvider) || pendingKeys.isEmpty()) {
+            pendingKeys.clear();
+            return;
+        }
+
+        // Each request can only hold one revision per topic, so split the topics into as few requests as possible
+        final List<Map<Integer, Integer>> batches = new ArrayList<Map<Integer, Integer>>();
+        for (final String key : pendingKeys) {
+            final Integer topicId = getTopicId(key);
+            final Integer revision = getRevision(key);
+
+            Map<Integer, Integer> batch = null;
+            for (final Map<Integer, Integer> existingBatch : batches) {
+                if (!existingBatch.containsKey(topicId)) {
+                    batch = existingBatch;
+                    break;
+                }
+            }
+            if (batch == null) {
+                batch = new HashMap<Integer, Integer>();
+                batches.add(batch);
+            }
+            batch.put(topicId, revision);
+        }
+        pendingKeys.clear();
+
+        for (final Map<Integer, Integer> batch : batches) {
+            final Map<Integer, TranslatedTopicWrapper> results = ((BatchTranslatedTopicProvider) translatedTopicProvider)
+                    .getTranslatedTopics(batch, locale);
+            for (final Map.Entry<Integer, Integer> entry : batch.entrySet()) {
+                final TranslatedTopicWrapper translatedTopic = results == null ? null : results.get(entry.getKey());
+                final String key = createKey(entry.getKey(), entry.getValue());
+                if (translatedTopic == null) {
+                    missingKeys.add(key);
+                } else {
+                    translatedTopics.put(key, translatedTopic);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the translated topic for a topic, looking it up if it hasn't already been resolved.
+     *
+     * @param topicId  The id of the topic.
+     * @param revision The revision of the topic, or null for the latest revision.
+     * @return The translated topic, or null if the topic has no translation.
+     * @throws org.jboss.pressgang.ccms.provider.exception.NotFoundException Thrown if the topic couldn't be found when it was looked
+     *                                                                       up individually.
+     */
+    public BaseTopicWrapper<?> getTranslatedTopic(final Integer topicId, final Integer revision) {
+        final String key = createKey(topicId, revision);
+        final BaseTopicWrapper<?> translatedTopic = translatedTopics.get(key);
+        if (translatedTopic != null || missingKeys.contains(key)) {
+            return translatedTopic;
+        }
+
+        final BaseTopicWrapper<?> result = EntityUtilities.getTranslatedTopicByTopicId(providerFactory, topicId, revision, locale);
+        if (result == null) {
+            missingKeys.add(key);
+        } else {
+            translatedTopics.put(key, result);
+        }
+        return result;
+    }
+
+    private static String createKey(final Integer topicId, final Integer revision) {
+        return topicId + ":" + (revision == null ? "" : revision);
+    }
+
+    private static Integer getTopicId(final String key) {
+        return Integer.parseInt(key.substring(0, key.indexOf(':')));
+    }
+
+    private static Integer getRevision(final String key) {
+        final String revision = key.substring(key.indexOf(':') + 1);
+        return revision.isEmpty() ? null : Integer.parseInt(revision);
+    }
+}
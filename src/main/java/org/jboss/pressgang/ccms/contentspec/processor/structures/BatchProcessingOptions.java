@@ -0,0 +1,102 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import org.jboss.pressgang.ccms.contentspec.processor.provider.CachingDataProviderFactory;
+
+/**
+ * The options that control how many content specs are processed at the same time by the ContentSpecBatchProcessor. Each stage has
+ * its own pool of threads and its own bounded queue, so that a slow stage holds back the stages before it.
+ */
+public class BatchProcessingOptions {
+    private int parseThreads = 2;
+    private int preValidationThreads = 2;
+    private int fetchThreads = 4;
+    private int postValidationThreads = 4;
+    private int saveThreads = 1;
+    private int stageQueueSize = 8;
+    private int cacheSize = CachingDataProviderFactory.DEFAULT_MAX_ENTRIES;
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+    }
+
+    public int getPreValidationThreads() {
+        return preValidationThreads;
+    }
+
+    public void setPreValidationThreads(int preValidationThreads) {
+        this.preValidationThreads = preValidationThreads;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    public void setFetchThreads(int fetchThreads) {
+        this.fetchThreads = fetchThreads;
+    }
+
+    public int getPostValidationThreads() {
+        return postValidationThreads;
+    }
+
+    public void setPostValidationThreads(int postValidationThreads) {
+        this.postValidationThreads = postValidationThreads;
+    }
+
+    public int getSaveThreads() {
+        return saveThreads;
+    }
+
+    /**
+     * @param saveThreads The number of content specs that can be saved at the same time. This is separate to the validation
+     *                    threads, so that the number of concurrent saves can be kept low to avoid overloading the server.
+     */
+    public void setSaveThreads(int saveThreads) {
+        this.saveThreads = saveThreads;
+    }
+
+    public int getStageQueueSize() {
+        return stageQueueSize;
+    }
+
+    /**
+     * @param stageQueueSize The number of content specs that can be waiting for each stage, before the stage before it has to wait.
+     */
+    public void setStageQueueSize(int stageQueueSize) {
+        this.stageQueueSize = stageQueueSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize The maximum number of topics, tags, categories and schemas that are cached while processing a batch.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.KeyValueNode;
+import org.jboss.pressgang.ccms.contentspec.Node;
+import org.jboss.pressgang.ccms.contentspec.enums.BugLinkType;
+import org.jboss.pressgang.ccms.utils.common.HashUtilities;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+
+/**
+ * A process wide cache of the outcomes from validating bug link options against an external bug tracker, so that the same
+ * options don't need to be validated against the bug tracker over and over again.
+ */
+public class BugLinkValidationCache {
+    /**
+     * The default length of time, in milliseconds, that a validation outcome is cached for.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 60 * 60 * 1000;
+    /**
+     * The default length of time, in milliseconds, that an invalid outcome is cached for. This is much shorter than the time for
+     * valid outcomes, so that a fix made in the bug tracker (ie adding a missing version) is picked up quickly.
+     */
+    public static final long DEFAULT_INVALID_TIME_TO_LIVE = 5 * 60 * 1000;
+
+    private static final List<String> BUG_LINK_METADATA_KEYS = Collections.unmodifiableList(new ArrayList<String>() {{
+        add(CommonConstants.CS_BUG_LINKS_TITLE);
+        add(CommonConstants.CS_BUGZILLA_PRODUCT_TITLE);
+        add(CommonConstants.CS_BUGZILLA_COMPONENT_TITLE);
+        add(CommonConstants.CS_BUGZILLA_VERSION_TITLE);
+        add(CommonConstants.CS_BUGZILLA_KEYWORDS_TITLE);
+        add(CommonConstants.CS_BUGZILLA_ASSIGNEE_TITLE);
+        add(CommonConstants.CS_BUGZILLA_SERVER_TITLE);
+        add(CommonConstants.CS_BUGZILLA_URL_TITLE);
+        add(CommonConstants.CS_JIRA_PROJECT_TITLE);
+        add(CommonConstants.CS_JIRA_COMPONENT_TITLE);
+        add(CommonConstants.CS_JIRA_VERSION_TITLE);
+        add(CommonConstants.CS_JIRA_LABELS_TITLE);
+        add(CommonConstants.CS_JIRA_SERVER_TITLE);
+    }});
+
+    private static final BugLinkValidationCache INSTANCE = new BugLinkValidationCache();
+
+    private final ConcurrentMap<String, CachedValidation> cache = new ConcurrentHashMap<String, CachedValidation>();
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private volatile long invalidTimeToLive = DEFAULT_INVALID_TIME_TO_LIVE;
+
+    public static BugLinkValidationCache getInstance() {
+        return INSTANCE;
+    }
+
+    protected BugLinkValidationCache() {
+    }
+
+    /**
+     * Creates the key for a content specs bug link options, from a hash of the bug tracker url and the bug link metadata
+     * (product, component, version, etc...).
+     *
+     * @param type        The type of bug links being used.
+     * @param baseUrl     The base url of the bug tracker.
+     * @param contentSpec The content spec that holds the bug link metadata.
+     * @return The key for the bug link options.
+     */
+    public static String createKey(final BugLinkType type, final String baseUrl, final ContentSpec contentSpec) {
+        final List<String> values = new ArrayList<String>();
+        for (final Node node : contentSpec.getNodes()) {
+            if (node instanceof KeyValueNode && BUG_LINK_METADATA_KEYS.contains(((KeyValueNode<?>) node).getKey())) {
+                final KeyValueNode<?> keyValueNode = (KeyValueNode<?>) node;
+                values.add(keyValueNode.getKey() + "=" + keyValueNode.getValue());
+            }
+        }
+        Collections.sort(values);
+
+        final StringBuilder key = new StringBuilder();
+        key.append(type).append("\n").append(baseUrl);
+        for (final String value : values) {
+            key.append("\n").append(value);
+        }
+
+        return HashUtilities.generateMD5(key.toString());
+    }
+
+    /**
+     * Gets the cached outcome for a set of bug link options.
+     *
+     * @param key The key for the bug link options.
+     * @return The cached outcome, or null if there isn't one or it has expired.
+     */
+    public CachedValidation get(final String key) {
+        final CachedValidation cachedValidation = cache.get(key);
+        if (cachedValidation == null) {
+            return null;
+        } else if (getCurrentTime() - cachedValidation.getCreated() >= getTimeToLive(cachedValidation.isValid())) {
+            cache.remove(key, cachedValidation);
+            return null;
+        } else {
+            return cachedValidation;
+        }
+    }
+
+    /**
+     * Caches the outcome for a set of bug link options.
+     *
+     * @param key             The key for the bug link options.
+     * @param validationError The error message if the options were invalid, or null if they were valid.
+     */
+    public void put(final String key, final String validationError) {
+        if (getTimeToLive(validationError == null) > 0) {
+            cache.put(key, new CachedValidation(validationError, getCurrentTime()));
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @param timeToLive How long, in milliseconds, an outcome should be cached for. A value of 0 or less turns caching off.
+     */
+    public void setTimeToLive(final long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getInvalidTimeToLive() {
+        return invalidTimeToLive;
+    }
+
+    /**
+     * @param invalidTimeToLive How long, in milliseconds, an invalid outcome should be cached for. An invalid outcome is never
+     *                          cached for longer than a valid outcome.
+     */
+    public void setInvalidTimeToLive(final long invalidTimeToLive) {
+        this.invalidTimeToLive = invalidTimeToLive;
+    }
+
+    private long getTimeToLive(final boolean valid) {
+        return valid ? timeToLive : Math.min(timeToLive, invalidTimeToLive);
+    }
+
+    /**
+     * @return The current time in milliseconds.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    public static class CachedValidation {
+        private final String validationError;
+        private final long created;
+
+        public CachedValidation(final String validationError, final long created) {
+            this.validationError = validationError;
+            this.created = created;
+        }
+
+        public boolean isValid() {
+            return validationError == null;
+        }
+
+        public String getValidationError() {
+            return validationError;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+    }
+}
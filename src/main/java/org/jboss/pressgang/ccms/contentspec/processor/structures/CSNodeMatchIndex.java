@@ -0,0 +1,91 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+
+/**
+ * An index of the existing entity nodes on a single level of a content spec, keyed by the node id, entity id and title.
+ */
+public class CSNodeMatchIndex extends MatchIndex<CSNodeWrapper> {
+    private final Map<String, List<CSNodeWrapper>> idMap = new HashMap<String, List<CSNodeWrapper>>();
+    private final Map<Integer, List<CSNodeWrapper>> entityIdMap = new HashMap<Integer, List<CSNodeWrapper>>();
+    private final Map<String, List<CSNodeWrapper>> titleMap = new HashMap<String, List<CSNodeWrapper>>();
+
+    public CSNodeMatchIndex(final List<CSNodeWrapper> entityNodes) {
+        super(entityNodes);
+
+        for (final CSNodeWrapper node : entityNodes) {
+            if (node.getId() != null) {
+                addToListMap(idMap, node.getId().toString(), node);
+            }
+            if (node.getEntityId() != null) {
+                addToListMap(entityIdMap, node.getEntityId(), node);
+            }
+            if (node.getTitle() != null) {
+                addToListMap(titleMap, node.getTitle(), node);
+            }
+        }
+    }
+
+    /**
+     * Gets the remaining nodes that have the specified database id.
+     *
+     * @param id The database id of the node, as a string.
+     * @return The list of nodes with the id, which will be empty if it doesn't exist or has already been matched.
+     */
+    public List<CSNodeWrapper> getNodesById(final String id) {
+        return getRemaining(idMap.get(id));
+    }
+
+    /**
+     * Gets the remaining nodes that reference the specified entity (topic or file).
+     *
+     * @param entityId The topic or file id.
+     * @return The list of nodes that reference the entity, in their original order.
+     */
+    public List<CSNodeWrapper> getNodesByEntityId(final Integer entityId) {
+        return getRemaining(entityIdMap.get(entityId));
+    }
+
+    /**
+     * Gets the remaining nodes that have any of the specified titles.
+     *
+     * @param titles The exact titles to look up.
+     * @return The list of nodes with the titles, in their original order.
+     */
+    public List<CSNodeWrapper> getNodesByTitle(final String... titles) {
+        if (titles.length == 1) {
+            return getRemaining(titleMap.get(titles[0]));
+        }
+
+        final List<CSNodeWrapper> retValue = new ArrayList<CSNodeWrapper>();
+        for (final String title : titles) {
+            retValue.addAll(getRemaining(titleMap.get(title)));
+        }
+        sortByPosition(retValue);
+        return retValue;
+    }
+}
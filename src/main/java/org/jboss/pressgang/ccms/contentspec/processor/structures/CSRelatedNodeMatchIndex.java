@@ -0,0 +1,90 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+
+/**
+ * An index of the existing relationships for a content spec entity node, keyed by the relationship type and the related node
+ * id, related entity id or related target id.
+ */
+public class CSRelatedNodeMatchIndex extends MatchIndex<CSRelatedNodeWrapper> {
+    private final Map<String, List<CSRelatedNodeWrapper>> idMap = new HashMap<String, List<CSRelatedNodeWrapper>>();
+    private final Map<String, List<CSRelatedNodeWrapper>> entityIdMap = new HashMap<String, List<CSRelatedNodeWrapper>>();
+    private final Map<String, List<CSRelatedNodeWrapper>> targetIdMap = new HashMap<String, List<CSRelatedNodeWrapper>>();
+
+    public CSRelatedNodeMatchIndex(final List<CSRelatedNodeWrapper> existingRelatedNodes) {
+        super(existingRelatedNodes);
+
+        for (final CSRelatedNodeWrapper relatedNode : existingRelatedNodes) {
+            final Integer relationshipType = relatedNode.getRelationshipType();
+            if (relatedNode.getId() != null) {
+                addToListMap(idMap, createKey(relationshipType, relatedNode.getId().toString()), relatedNode);
+            }
+            if (relatedNode.getEntityId() != null) {
+                addToListMap(entityIdMap, createKey(relationshipType, relatedNode.getEntityId().toString()), relatedNode);
+            }
+            if (relatedNode.getTargetId() != null) {
+                addToListMap(targetIdMap, createKey(relationshipType, relatedNode.getTargetId()), relatedNode);
+            }
+        }
+    }
+
+    private static String createKey(final Integer relationshipType, final String value) {
+        return relationshipType + ":" + value;
+    }
+
+    /**
+     * Gets the remaining relationships of a type, to the related node with the specified database id.
+     *
+     * @param relationshipType The relationship type id.
+     * @param id               The database id of the related node, as a string.
+     * @return The list of matching relationships, in their original order.
+     */
+    public List<CSRelatedNodeWrapper> getRelatedNodesById(final Integer relationshipType, final String id) {
+        return getRemaining(idMap.get(createKey(relationshipType, id)));
+    }
+
+    /**
+     * Gets the remaining relationships of a type, to related nodes that reference the specified topic.
+     *
+     * @param relationshipType The relationship type id.
+     * @param entityId         The topic id of the related node.
+     * @return The list of matching relationships, in their original order.
+     */
+    public List<CSRelatedNodeWrapper> getRelatedNodesByEntityId(final Integer relationshipType, final Integer entityId) {
+        return getRemaining(entityIdMap.get(createKey(relationshipType, entityId.toString())));
+    }
+
+    /**
+     * Gets the remaining relationships of a type, to the related node with the specified target id.
+     *
+     * @param relationshipType The relationship type id.
+     * @param targetId         The target id of the related node.
+     * @return The list of matching relationships, in their original order.
+     */
+    public List<CSRelatedNodeWrapper> getRelatedNodesByTargetId(final Integer relationshipType, final String targetId) {
+        return getRemaining(targetIdMap.get(createKey(relationshipType, targetId)));
+    }
+}
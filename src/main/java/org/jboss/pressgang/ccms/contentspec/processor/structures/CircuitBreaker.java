@@ -0,0 +1,162 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+/**
+ * A circuit breaker for calls to an external service. Once the failure rate over the most recent calls reaches a threshold, the
+ * circuit opens and calls fail fast until the open duration has passed. After that a single trial call is allowed through, which
+ * either closes the circuit again if it succeeds or reopens it if it fails.
+ */
+public class CircuitBreaker {
+    public static enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDuration;
+    private final boolean[] failures;
+
+    private int callCount = 0;
+    private int failureCount = 0;
+    private int nextCall = 0;
+    private State state = State.CLOSED;
+    private long openedAt = 0L;
+    private boolean trialCallInProgress = false;
+
+    /**
+     * @param windowSize           The number of most recent calls to calculate the failure rate from.
+     * @param minimumCalls         The minimum number of calls that need to be made before the circuit can open.
+     * @param failureRateThreshold The failure rate (0.0 - 1.0) at which the circuit should open.
+     * @param openDuration         How long, in milliseconds, the circuit should stay open before allowing a trial call.
+     */
+    public CircuitBreaker(final int windowSize, final int minimumCalls, final double failureRateThreshold, final long openDuration) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size must be at least 1");
+        }
+
+        failures = new boolean[windowSize];
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Checks if a call should be allowed to go through to the external service.
+     *
+     * @return True if the call should be made, or false if it should fail fast.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (getCurrentTime() - openedAt < openDuration) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialCallInProgress = false;
+        }
+
+        if (state == State.HALF_OPEN) {
+            // Only let a single trial call through
+            if (trialCallInProgress) {
+                return false;
+            }
+            trialCallInProgress = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records that a call to the external service succeeded.
+     */
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else {
+            addCall(false);
+        }
+    }
+
+    /**
+     * Records that a call to the external service failed.
+     */
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else {
+            addCall(true);
+            if (callCount >= minimumCalls && (double) failureCount / callCount >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Records a call that failed for a reason that says nothing about the health of the external service (ie a bug in the
+     * caller), so that it doesn't count as a failure. If the call was the trial call, then another trial call is allowed.
+     */
+    public synchronized void recordIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialCallInProgress = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return The current time in milliseconds.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private void addCall(final boolean failure) {
+        // Remove the oldest call once the window is full
+        if (callCount == failures.length) {
+            if (failures[nextCall]) {
+                failureCount--;
+            }
+        } else {
+            callCount++;
+        }
+
+        failures[nextCall] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        nextCall = (nextCall + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = getCurrentTime();
+        trialCallInProgress = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialCallInProgress = false;
+        callCount = 0;
+        failureCount = 0;
+        nextCall = 0;
+    }
+}
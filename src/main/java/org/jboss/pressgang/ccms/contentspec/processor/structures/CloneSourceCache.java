@@ -0,0 +1,109 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.pressgang.ccms.wrapper.PropertyTagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+
+/**
+ * A cache of the topics that cloned topics (ie C<ID>) are cloned from, and the property tags that are used by those topics. The
+ * cache is filled by the validator as it checks the cloned topics, so that cloning the topics when the content spec is saved
+ * doesn't have to fetch the same entities again. A cache should only be used for a single processing run, as the entities aren't
+ * refreshed.
+ */
+public class CloneSourceCache {
+    private final ConcurrentMap<String, TopicWrapper> topics = new ConcurrentHashMap<String, TopicWrapper>();
+    private final ConcurrentMap<Integer, PropertyTagWrapper> propertyTags = new ConcurrentHashMap<Integer, PropertyTagWrapper>();
+
+    /**
+     * Gets a topic from the cache.
+     *
+     * @param topicId  The id of the topic.
+     * @param revision The revision of the topic, or null for the latest revision.
+     * @return The topic if it has been cached, otherwise null.
+     */
+    public TopicWrapper getTopic(final Integer topicId, final Integer revision) {
+        return topics.get(createTopicKey(topicId, revision));
+    }
+
+    /**
+     * Adds a topic to the cache.
+     *
+     * @param topicId  The id of the topic.
+     * @param revision The revision of the topic that was fetched, or null if the latest revision was fetched.
+     * @param topic    The topic.
+     */
+    public void putTopic(final Integer topicId, final Integer revision, final TopicWrapper topic) {
+        if (topic != null) {
+            topics.putIfAbsent(createTopicKey(topicId, revision), topic);
+        }
+    }
+
+    /**
+     * Gets a property tag from the cache.
+     *
+     * @param propertyTagId The id of the property tag.
+     * @return The property tag if it has been cached, otherwise null.
+     */
+    public PropertyTagWrapper getPropertyTag(final Integer propertyTagId) {
+        return propertyTagId == null ? null : propertyTags.get(propertyTagId);
+    }
+
+    /**
+     * Adds a property tag to the cache.
+     *
+     * @param propertyTagId The id of the property tag.
+     * @param propertyTag   The property tag.
+     */
+    public void putPropertyTag(final Integer propertyTagId, final PropertyTagWrapper propertyTag) {
+        if (propertyTagId != null && propertyTag != null) {
+            propertyTags.putIfAbsent(propertyTagId, propertyTag);
+        }
+    }
+
+    /**
+     * @return The number of topics that have been cached.
+     */
+    public int getTopicCount() {
+        return topics.size();
+    }
+
+    /**
+     * @return The number of property tags that have been cached.
+     */
+    public int getPropertyTagCount() {
+        return propertyTags.size();
+    }
+
+    /**
+     * Removes all the topics and property tags from the cache.
+     */
+    public void clear() {
+        topics.clear();
+        propertyTags.clear();
+    }
+
+    private static String createTopicKey(final Integer topicId, final Integer revision) {
+        return topicId + "-" + (revision == null ? "latest" : revision.toString());
+    }
+}
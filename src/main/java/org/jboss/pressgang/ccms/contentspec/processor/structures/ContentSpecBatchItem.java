@@ -0,0 +1,90 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import org.jboss.pressgang.ccms.contentspec.processor.ContentSpecParser;
+import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLoggerManager;
+import org.jboss.pressgang.ccms.wrapper.LogMessageWrapper;
+
+/**
+ * A content spec to be processed as part of a batch.
+ */
+public class ContentSpecBatchItem {
+    private final String contentSpec;
+    private final ContentSpecParser.ParsingMode mode;
+    private final String username;
+    private final LogMessageWrapper logMessage;
+    private final ErrorLoggerManager loggerManager;
+    private TopicSaveJournal topicSaveJournal = null;
+
+    /**
+     * @param contentSpec   The text of the content spec.
+     * @param mode          The mode to parse the content spec in.
+     * @param username      The user who requested the content spec be processed.
+     * @param logMessage    The log message to save the content spec with, or null if not required.
+     * @param loggerManager The logger manager to log the content spec's errors and warnings to. Each content spec should have
+     *                      its own logger manager, since content specs are processed at the same time.
+     */
+    public ContentSpecBatchItem(final String contentSpec, final ContentSpecParser.ParsingMode mode, final String username,
+            final LogMessageWrapper logMessage, final ErrorLoggerManager loggerManager) {
+        this.contentSpec = contentSpec;
+        this.mode = mode;
+        this.username = username;
+        this.logMessage = logMessage;
+        this.loggerManager = loggerManager;
+    }
+
+    public String getContentSpec() {
+        return contentSpec;
+    }
+
+    public ContentSpecParser.ParsingMode getMode() {
+        return mode;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public LogMessageWrapper getLogMessage() {
+        return logMessage;
+    }
+
+    public ErrorLoggerManager getLoggerManager() {
+        return loggerManager;
+    }
+
+    /**
+     * @return The journal to record the content spec's saved topics in, or null if the topics shouldn't be journaled.
+     */
+    public TopicSaveJournal getTopicSaveJournal() {
+        return topicSaveJournal;
+    }
+
+    /**
+     * Sets the journal to record the content spec's saved topics in. Each content spec must have its own journal, since the
+     * journal is bound to a single content spec.
+     *
+     * @param topicSaveJournal The journal for this content spec, or null if the topics shouldn't be journaled.
+     */
+    public void setTopicSaveJournal(final TopicSaveJournal topicSaveJournal) {
+        this.topicSaveJournal = topicSaveJournal;
+    }
+}
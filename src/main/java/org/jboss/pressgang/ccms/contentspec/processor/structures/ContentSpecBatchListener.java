@@ -0,0 +1,33 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+/**
+ * A listener that is notified as each content spec in a batch finishes processing. Content specs finish in different stages and
+ * on different threads, so the listener may be called from more than one thread at the same time.
+ */
+public interface ContentSpecBatchListener {
+    /**
+     * Called when a content spec has finished processing, whether it was successful or not.
+     *
+     * @param result The result of processing the content spec.
+     */
+    void resultCompleted(ContentSpecBatchResult result);
+}
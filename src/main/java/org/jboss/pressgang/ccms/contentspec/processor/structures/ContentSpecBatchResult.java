@@ -0,0 +1,88 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.processor.enums.BatchProcessingStage;
+
+/**
+ * The result of processing a content spec as part of a batch.
+ */
+public class ContentSpecBatchResult {
+    private final ContentSpecBatchItem item;
+    private final boolean processedSuccessfully;
+    private final BatchProcessingStage stage;
+    private final ContentSpec contentSpec;
+    private final List<ProcessingStageEvent> stageEvents;
+    private final Exception exception;
+
+    public ContentSpecBatchResult(final ContentSpecBatchItem item, final boolean processedSuccessfully, final BatchProcessingStage stage,
+            final ContentSpec contentSpec, final List<ProcessingStageEvent> stageEvents, final Exception exception) {
+        this.item = item;
+        this.processedSuccessfully = processedSuccessfully;
+        this.stage = stage;
+        this.contentSpec = contentSpec;
+        this.stageEvents = stageEvents == null ? Collections.<ProcessingStageEvent>emptyList() : Collections.unmodifiableList(
+                stageEvents);
+        this.exception = exception;
+    }
+
+    /**
+     * @return The content spec that was processed.
+     */
+    public ContentSpecBatchItem getItem() {
+        return item;
+    }
+
+    public boolean processedSuccessfully() {
+        return processedSuccessfully;
+    }
+
+    /**
+     * @return The last stage that the content spec reached, which is the stage that failed if it wasn't processed successfully.
+     */
+    public BatchProcessingStage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return The parsed content spec, or null if it couldn't be parsed.
+     */
+    public ContentSpec getContentSpec() {
+        return contentSpec;
+    }
+
+    /**
+     * @return The details about each processing stage that completed, in the order they completed.
+     */
+    public List<ProcessingStageEvent> getStageEvents() {
+        return stageEvents;
+    }
+
+    /**
+     * @return The exception that stopped the content spec from being processed, or null if there wasn't one.
+     */
+    public Exception getException() {
+        return exception;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.pressgang.ccms.contentspec.processor.provider.CachingDataProviderFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.MetricsDataProviderFactory;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+
+/**
+ * A cache of the checksums for content spec revisions, so that the server text for a revision only has to be downloaded and
+ * hashed once. Revisions can't be changed once they are saved, so entries never need to expire and are only removed once the
+ * cache is full.
+ * <p/>
+ * Content spec ids and revisions are only unique on a single server, so each factory (and therefore each server) has its own
+ * cache, which is released once the factory is no longer used. Factories that decorate another factory (eg to record metrics
+ * or cache entities) share the cache of the factory they wrap, since they load from the same server.
+ */
+public class ContentSpecChecksumCache {
+    /**
+     * The default maximum number of checksums to cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final Map<DataProviderFactory, ContentSpecChecksumCache> FACTORY_CACHES = new WeakHashMap<DataProviderFactory,
+            ContentSpecChecksumCache>();
+
+    private final Map<String, String> cache;
+
+    /**
+     * Gets the cache for the server that a factory loads its entities from.
+     *
+     * @param factory The factory that the content specs are loaded from.
+     * @return The checksum cache for the factory's server.
+     */
+    public static ContentSpecChecksumCache getInstance(final DataProviderFactory factory) {
+        final DataProviderFactory serverFactory = getServerFactory(factory);
+        synchronized (FACTORY_CACHES) {
+            ContentSpecChecksumCache checksumCache = FACTORY_CACHES.get(serverFactory);
+            if (checksumCache == null) {
+                checksumCache = new ContentSpecChecksumCache(DEFAULT_MAX_ENTRIES);
+                FACTORY_CACHES.put(serverFactory, checksumCache);
+            }
+            return checksumCache;
+        }
+    }
+
+    /**
+     * @param factory The factory that the content specs are loaded from.
+     * @return The factory that actually loads from the server, once any decorating factories have been unwrapped.
+     */
+    private static DataProviderFactory getServerFactory(final DataProviderFactory factory) {
+        DataProviderFactory serverFactory = factory;
+        while (true) {
+            if (serverFactory instanceof MetricsDataProviderFactory) {
+                serverFactory = ((MetricsDataProviderFactory) serverFactory).getWrappedFactory();
+            } else if (serverFactory instanceof CachingDataProviderFactory) {
+                serverFactory = ((CachingDataProviderFactory) serverFactory).getWrappedFactory();
+            } else {
+                return serverFactory;
+            }
+        }
+    }
+
+    /**
+     * @param maxEntries The maximum number of checksums to cache, before the least recently used checksums are removed.
+     */
+    public ContentSpecChecksumCache(final int maxEntries) {
+        cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached checksum for a content spec revision.
+     *
+     * @param id       The id of the content spec.
+     * @param revision The revision of the content spec.
+     * @return The checksum of the revision, or null if it hasn't been cached.
+     */
+    public String get(final Integer id, final Integer revision) {
+        if (id == null || revision == null) {
+            return null;
+        }
+
+        synchronized (cache) {
+            return cache.get(createKey(id, revision));
+        }
+    }
+
+    /**
+     * Caches the checksum for a content spec revision.
+     *
+     * @param id       The id of the content spec.
+     * @param revision The revision of the content spec.
+     * @param checksum The checksum of the revision.
+     */
+    public void put(final Integer id, final Integer revision, final String checksum) {
+        if (id == null || revision == null || checksum == null) {
+            return;
+        }
+
+        synchronized (cache) {
+            cache.put(createKey(id, revision), checksum);
+        }
+    }
+
+    /**
+     * Removes all of the cached checksums.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return The number of checksums that are cached.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    protected static String createKey(final Integer id, final Integer revision) {
+        return id + ":" + revision;
+    }
+}
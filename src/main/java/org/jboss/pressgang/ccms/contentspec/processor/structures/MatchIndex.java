@@ -0,0 +1,132 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The base for the indexes used to find the existing entities that a content spec item could match, without having to scan every
+ * entity. Items that have been matched are removed from the index, and lookups always return the remaining items in their
+ * original order so that matching behaves the same as a full scan.
+ *
+ * @param <T> The type of entity being indexed.
+ */
+public abstract class MatchIndex<T> {
+    private final List<T> items;
+    private final Map<T, Integer> positions = new IdentityHashMap<T, Integer>();
+    private final Comparator<T> positionComparator = new Comparator<T>() {
+        @Override
+        public int compare(final T item1, final T item2) {
+            return positions.get(item1).compareTo(positions.get(item2));
+        }
+    };
+    private int remaining;
+
+    protected MatchIndex(final List<T> existingItems) {
+        items = new ArrayList<T>(existingItems);
+        remaining = items.size();
+
+        for (int i = 0; i < items.size(); i++) {
+            positions.put(items.get(i), i);
+        }
+    }
+
+    protected static <K, V> void addToListMap(final Map<K, List<V>> map, final K key, final V item) {
+        List<V> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<V>();
+            map.put(key, list);
+        }
+        list.add(item);
+    }
+
+    /**
+     * Filters a list of indexed items down to the items that haven't been matched yet.
+     *
+     * @param list The indexed items, which may be null if nothing was indexed for a key.
+     * @return The items from the list that are still in the index.
+     */
+    protected List<T> getRemaining(final List<T> list) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+
+        final List<T> retValue = new ArrayList<T>(list.size());
+        for (final T item : list) {
+            if (contains(item)) {
+                retValue.add(item);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Sorts a list of items back into the order they were originally indexed in.
+     *
+     * @param list The list of indexed items to sort.
+     */
+    protected void sortByPosition(final List<T> list) {
+        Collections.sort(list, positionComparator);
+    }
+
+    /**
+     * @return All the items that haven't been matched yet, in their original order.
+     */
+    public List<T> getRemainingItems() {
+        final List<T> retValue = new ArrayList<T>(remaining);
+        for (final T item : items) {
+            if (item != null) {
+                retValue.add(item);
+            }
+        }
+        return retValue;
+    }
+
+    public boolean contains(final T item) {
+        final Integer position = positions.get(item);
+        return position != null && items.get(position) != null;
+    }
+
+    /**
+     * Removes an item from the index, so that it can no longer be matched.
+     *
+     * @param item The item to remove.
+     */
+    public void remove(final T item) {
+        final Integer position = positions.get(item);
+        if (position != null && items.get(position) != null) {
+            items.set(position, null);
+            remaining--;
+        }
+    }
+
+    public boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    public int size() {
+        return remaining;
+    }
+}
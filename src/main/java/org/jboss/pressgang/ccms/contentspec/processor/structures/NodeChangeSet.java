@@ -0,0 +1,151 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+
+/**
+ * The edit script produced when merging a Content Spec into its Database counterpart. Each entity node that needs to be sent
+ * to the server is recorded once, along with the set of operations that caused it to be sent.
+ */
+public class NodeChangeSet {
+    public static enum ChangeType {
+        /**
+         * A node that doesn't exist on the server yet.
+         */
+        INSERT,
+        /**
+         * A node that no longer exists in the content spec.
+         */
+        DELETE,
+        /**
+         * A node that has been moved to a different parent.
+         */
+        MOVE,
+        /**
+         * A node that has had one or more of its values changed.
+         */
+        MODIFY,
+        /**
+         * A node that has only had its next node changed.
+         */
+        RELINK
+    }
+
+    private final Map<CSNodeWrapper, Set<ChangeType>> changes = new IdentityHashMap<CSNodeWrapper, Set<ChangeType>>();
+    private final Map<ChangeType, List<CSNodeWrapper>> changesByType = new EnumMap<ChangeType, List<CSNodeWrapper>>(ChangeType.class);
+    private final Map<CSRelatedNodeWrapper, CSNodeWrapper> newRelationships = new IdentityHashMap<CSRelatedNodeWrapper, CSNodeWrapper>();
+    private int totalNodeCount = 0;
+
+    public NodeChangeSet() {
+        for (final ChangeType changeType : ChangeType.values()) {
+            changesByType.put(changeType, new ArrayList<CSNodeWrapper>());
+        }
+    }
+
+    /**
+     * Records an operation against an entity node.
+     *
+     * @param node       The entity node that was changed.
+     * @param changeType The type of change that was made.
+     */
+    public void addChange(final CSNodeWrapper node, final ChangeType changeType) {
+        Set<ChangeType> nodeChanges = changes.get(node);
+        if (nodeChanges == null) {
+            nodeChanges = EnumSet.noneOf(ChangeType.class);
+            changes.put(node, nodeChanges);
+        }
+
+        if (nodeChanges.add(changeType)) {
+            changesByType.get(changeType).add(node);
+        }
+    }
+
+    /**
+     * Records a new relationship, along with the node it relates to. This allows relationships to nodes that haven't been saved
+     * yet to be resolved when the content spec is saved.
+     *
+     * @param relationship The new related node entity.
+     * @param relatedNode  The entity node that the relationship points to.
+     */
+    public void addNewRelationship(final CSRelatedNodeWrapper relationship, final CSNodeWrapper relatedNode) {
+        newRelationships.put(relationship, relatedNode);
+    }
+
+    /**
+     * @return The new relationships that were created, mapped to the entity node that each relationship points to.
+     */
+    public Map<CSRelatedNodeWrapper, CSNodeWrapper> getNewRelationships() {
+        return Collections.unmodifiableMap(newRelationships);
+    }
+
+    /**
+     * Records that a node from the content spec was processed, regardless of whether it changed.
+     */
+    public void addProcessedNode() {
+        totalNodeCount++;
+    }
+
+    public boolean hasChanged(final CSNodeWrapper node) {
+        return changes.containsKey(node);
+    }
+
+    public List<CSNodeWrapper> getNodes(final ChangeType changeType) {
+        return Collections.unmodifiableList(changesByType.get(changeType));
+    }
+
+    /**
+     * @return The number of distinct nodes that need to be sent to the server.
+     */
+    public int getChangedNodeCount() {
+        return changes.size();
+    }
+
+    /**
+     * @return The number of nodes that were processed from the content spec.
+     */
+    public int getTotalNodeCount() {
+        return totalNodeCount;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder retValue = new StringBuilder();
+        retValue.append(getChangedNodeCount()).append("/").append(getTotalNodeCount()).append(" nodes changed");
+        for (final ChangeType changeType : ChangeType.values()) {
+            retValue.append(", ").append(changeType.name().toLowerCase()).append(": ").append(changesByType.get(changeType).size());
+        }
+        return retValue.toString();
+    }
+}
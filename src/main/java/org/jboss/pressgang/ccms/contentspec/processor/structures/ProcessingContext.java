@@ -0,0 +1,150 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
+
+/**
+ * The context that parsing, validating and processing a content spec is done in. It holds an optional deadline and a cancellation
+ * token, that are checked along with the normal shutdown checks so that processing can be stopped once it runs out of time. It
+ * also records which nodes have been validated, so that a partial validation report can be created.
+ */
+public class ProcessingContext {
+    private final ProcessingContext parent;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Set<SpecNode> checkedNodes = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<SpecNode,
+            Boolean>()));
+
+    /**
+     * Creates a context that has no deadline.
+     */
+    public ProcessingContext() {
+        parent = null;
+        deadline = 0L;
+        hasDeadline = false;
+    }
+
+    /**
+     * Creates a context that has a deadline.
+     *
+     * @param timeout How long processing is allowed to take, from now.
+     * @param unit    The unit of the timeout.
+     */
+    public ProcessingContext(final long timeout, final TimeUnit unit) {
+        parent = null;
+        deadline = getCurrentTime() + unit.toNanos(timeout);
+        hasDeadline = true;
+    }
+
+    /**
+     * Creates a context for a single run within another context. The run uses the deadline of the parent context and is stopped
+     * if the parent is cancelled, but cancelling the run doesn't cancel the parent. The run records its own checked nodes, so
+     * that they are released along with the run.
+     *
+     * @param parent The context that the run is part of.
+     */
+    public ProcessingContext(final ProcessingContext parent) {
+        this.parent = parent;
+        deadline = 0L;
+        hasDeadline = false;
+    }
+
+    /**
+     * Cancels any processing using this context.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get() || (parent != null && parent.isCancelled());
+    }
+
+    public boolean hasDeadline() {
+        return parent == null ? hasDeadline : parent.hasDeadline();
+    }
+
+    public boolean isDeadlineExceeded() {
+        if (parent != null) {
+            return parent.isDeadlineExceeded();
+        }
+        return hasDeadline && getCurrentTime() - deadline >= 0;
+    }
+
+    /**
+     * @return True if processing should stop, because it has been cancelled or the deadline has passed.
+     */
+    public boolean isStopRequested() {
+        return isCancelled() || isDeadlineExceeded();
+    }
+
+    /**
+     * Gets how much time is left before the deadline, which can be used as the timeout for any blocking calls.
+     *
+     * @param unit The unit to return the time in.
+     * @return The time left before the deadline, 0 if the deadline has passed or Long.MAX_VALUE if there is no deadline.
+     */
+    public long getRemainingTime(final TimeUnit unit) {
+        if (parent != null) {
+            return parent.getRemainingTime(unit);
+        } else if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+
+        final long remaining = deadline - getCurrentTime();
+        return remaining <= 0 ? 0 : unit.convert(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records that a node has been validated.
+     *
+     * @param node The node that was validated.
+     */
+    public void markChecked(final SpecNode node) {
+        checkedNodes.add(node);
+    }
+
+    public boolean isChecked(final SpecNode node) {
+        return checkedNodes.contains(node);
+    }
+
+    /**
+     * Forgets the nodes that have been validated, so that a context that is used for more than one validation doesn't hold on
+     * to the content specs that were validated previously.
+     */
+    public void clearChecked() {
+        checkedNodes.clear();
+    }
+
+    /**
+     * @return The current time in nanoseconds.
+     */
+    protected long getCurrentTime() {
+        return System.nanoTime();
+    }
+}
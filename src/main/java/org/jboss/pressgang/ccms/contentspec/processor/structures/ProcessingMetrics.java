@@ -0,0 +1,194 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics for parsing and processing content specs, such as how long each part of the processing took, how many times
+ * each provider method was called and how long those calls took, and the size of the content spec that was processed.
+ */
+public class ProcessingMetrics {
+    public static final String PARSE = "parse";
+    public static final String FIRST_VALIDATION_PASS = "firstValidationPass";
+    public static final String BUG_LINK_VALIDATION_PASS = "bugLinkValidationPass";
+    public static final String SECOND_VALIDATION_PASS = "secondValidationPass";
+    public static final String CREATE_OR_UPDATE_TOPICS = "createOrUpdateTopics";
+    public static final String SAVE_TOPIC_POOL = "TopicPool.savePool";
+    public static final String MERGE_CHILDREN = "mergeChildren";
+    public static final String MERGE_RELATIONSHIPS = "mergeRelationships";
+
+    private final ConcurrentMap<String, Timing> timings = new ConcurrentHashMap<String, Timing>();
+    private final ConcurrentMap<String, Timing> providerCalls = new ConcurrentHashMap<String, Timing>();
+    private volatile int nodeCount = 0;
+    private volatile int topicCount = 0;
+    private volatile int relationshipCount = 0;
+
+    /**
+     * Records how long a part of the processing took.
+     *
+     * @param name     The name of the part of processing, ie {@link #FIRST_VALIDATION_PASS}.
+     * @param duration How long it took.
+     * @param unit     The unit of the duration.
+     */
+    public void recordTime(final String name, final long duration, final TimeUnit unit) {
+        getOrCreateTiming(timings, name).record(unit.toNanos(duration));
+    }
+
+    /**
+     * Records a call to a provider method.
+     *
+     * @param method   The provider method that was called, ie "TopicProvider.getTopic".
+     * @param duration How long the call took.
+     * @param unit     The unit of the duration.
+     */
+    public void recordProviderCall(final String method, final long duration, final TimeUnit unit) {
+        getOrCreateTiming(providerCalls, method).record(unit.toNanos(duration));
+    }
+
+    /**
+     * @return The timings for each part of processing, sorted by name.
+     */
+    public Map<String, Timing> getTimings() {
+        return Collections.unmodifiableMap(new TreeMap<String, Timing>(timings));
+    }
+
+    /**
+     * @param name The name of the part of processing.
+     * @return The timing for the part of processing, or null if it hasn't been recorded.
+     */
+    public Timing getTiming(final String name) {
+        return timings.get(name);
+    }
+
+    /**
+     * @return The timings for each provider method that was called, sorted by method name.
+     */
+    public Map<String, Timing> getProviderCalls() {
+        return Collections.unmodifiableMap(new TreeMap<String, Timing>(providerCalls));
+    }
+
+    /**
+     * @param method The provider method, ie "TopicProvider.getTopic".
+     * @return The number of times the provider method was called.
+     */
+    public long getProviderCallCount(final String method) {
+        final Timing timing = providerCalls.get(method);
+        return timing == null ? 0 : timing.getCount();
+    }
+
+    /**
+     * @return The total number of provider calls that were made.
+     */
+    public long getTotalProviderCallCount() {
+        long count = 0;
+        for (final Timing timing : providerCalls.values()) {
+            count += timing.getCount();
+        }
+        return count;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    public int getTopicCount() {
+        return topicCount;
+    }
+
+    public void setTopicCount(int topicCount) {
+        this.topicCount = topicCount;
+    }
+
+    public int getRelationshipCount() {
+        return relationshipCount;
+    }
+
+    public void setRelationshipCount(int relationshipCount) {
+        this.relationshipCount = relationshipCount;
+    }
+
+    /**
+     * Clears all of the recorded metrics.
+     */
+    public void reset() {
+        timings.clear();
+        providerCalls.clear();
+        nodeCount = 0;
+        topicCount = 0;
+        relationshipCount = 0;
+    }
+
+    private static Timing getOrCreateTiming(final ConcurrentMap<String, Timing> timings, final String name) {
+        Timing timing = timings.get(name);
+        if (timing == null) {
+            final Timing newTiming = new Timing();
+            timing = timings.putIfAbsent(name, newTiming);
+            if (timing == null) {
+                timing = newTiming;
+            }
+        }
+        return timing;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder retValue = new StringBuilder("ProcessingMetrics{nodes=").append(nodeCount).append(", topics=").append(
+                topicCount).append(", relationships=").append(relationshipCount).append(", timings=").append(getTimings()).append(
+                ", providerCalls=").append(getProviderCalls()).append("}");
+        return retValue.toString();
+    }
+
+    /**
+     * The number of times something happened and how long it took in total.
+     */
+    public static class Timing {
+        private final AtomicLong count = new AtomicLong(0);
+        private final AtomicLong totalTime = new AtomicLong(0);
+
+        protected void record(final long durationNanos) {
+            count.incrementAndGet();
+            totalTime.addAndGet(durationNanos);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalTime(final TimeUnit unit) {
+            return unit.convert(totalTime.get(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount() + ", totalTimeMillis=" + getTotalTime(TimeUnit.MILLISECONDS) + "}";
+        }
+    }
+}
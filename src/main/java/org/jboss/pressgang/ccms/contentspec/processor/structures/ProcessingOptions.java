@@ -34,6 +34,48 @@ public class ProcessingOptions {
     private Integer maxRevision = null;
     private boolean printChangeWarnings = true;
     private boolean validate = true;
+    private int validationThreads = 1;
+    private int topicPreparationThreads = 1;
+    private ProcessingMetrics metrics = null;
+    private String validationMemoDirectory = null;
+    private boolean rebuildValidationMemo = false;
+    private int topicSaveBatchSize = 0;
+    private int topicSaveThreads = 1;
+    private TopicSaveJournal topicSaveJournal = null;
+    private TopicSaveProgressListener topicSaveProgressListener = null;
+
+    public ProcessingOptions() {
+    }
+
+    /**
+     * Creates a copy of another set of processing options.
+     *
+     * @param processingOptions The processing options to copy.
+     */
+    public ProcessingOptions(final ProcessingOptions processingOptions) {
+        validateOnly = processingOptions.isValidateOnly();
+        ignoreChecksum = processingOptions.isIgnoreChecksum();
+        allowEmptyLevels = processingOptions.isAllowEmptyLevels();
+        allowNewTopics = processingOptions.isAllowNewTopics();
+        strictTitles = processingOptions.isStrictTitles();
+        strictBugLinks = processingOptions.isStrictBugLinks();
+        validateBugLinks = processingOptions.isValidateBugLinks();
+        doBugLinkLastValidateCheck = processingOptions.isDoBugLinkLastValidateCheck();
+        translation = processingOptions.isTranslation();
+        translationLocale = processingOptions.getTranslationLocale();
+        maxRevision = processingOptions.getMaxRevision();
+        printChangeWarnings = processingOptions.isPrintChangeWarnings();
+        validate = processingOptions.isValidate();
+        validationThreads = processingOptions.getValidationThreads();
+        topicPreparationThreads = processingOptions.getTopicPreparationThreads();
+        metrics = processingOptions.getMetrics();
+        validationMemoDirectory = processingOptions.getValidationMemoDirectory();
+        rebuildValidationMemo = processingOptions.isRebuildValidationMemo();
+        topicSaveBatchSize = processingOptions.getTopicSaveBatchSize();
+        topicSaveThreads = processingOptions.getTopicSaveThreads();
+        topicSaveJournal = processingOptions.getTopicSaveJournal();
+        topicSaveProgressListener = processingOptions.getTopicSaveProgressListener();
+    }
 
     public boolean isValidateOnly() {
         return validateOnly;
@@ -138,4 +180,85 @@ public class ProcessingOptions {
     public void setValidate(boolean validate) {
         this.validate = validate;
     }
+
+    public int getValidationThreads() {
+        return validationThreads;
+    }
+
+    public void setValidationThreads(int validationThreads) {
+        this.validationThreads = validationThreads;
+    }
+
+    public int getTopicPreparationThreads() {
+        return topicPreparationThreads;
+    }
+
+    public void setTopicPreparationThreads(int topicPreparationThreads) {
+        this.topicPreparationThreads = topicPreparationThreads;
+    }
+
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(ProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public String getValidationMemoDirectory() {
+        return validationMemoDirectory;
+    }
+
+    public void setValidationMemoDirectory(String validationMemoDirectory) {
+        this.validationMemoDirectory = validationMemoDirectory;
+    }
+
+    public boolean isRebuildValidationMemo() {
+        return rebuildValidationMemo;
+    }
+
+    public void setRebuildValidationMemo(boolean rebuildValidationMemo) {
+        this.rebuildValidationMemo = rebuildValidationMemo;
+    }
+
+    /**
+     * @return The maximum number of topics to save in a single request, or 0 if all the topics should be saved in one request.
+     */
+    public int getTopicSaveBatchSize() {
+        return topicSaveBatchSize;
+    }
+
+    public void setTopicSaveBatchSize(int topicSaveBatchSize) {
+        this.topicSaveBatchSize = topicSaveBatchSize;
+    }
+
+    /**
+     * @return The maximum number of chunks of topics to save at the same time, when saving the topics in chunks.
+     */
+    public int getTopicSaveThreads() {
+        return topicSaveThreads;
+    }
+
+    public void setTopicSaveThreads(int topicSaveThreads) {
+        this.topicSaveThreads = topicSaveThreads;
+    }
+
+    /**
+     * @return The journal to record the saved topics in when saving the topics in chunks, so that a failed save can be resumed.
+     */
+    public TopicSaveJournal getTopicSaveJournal() {
+        return topicSaveJournal;
+    }
+
+    public void setTopicSaveJournal(TopicSaveJournal topicSaveJournal) {
+        this.topicSaveJournal = topicSaveJournal;
+    }
+
+    public TopicSaveProgressListener getTopicSaveProgressListener() {
+        return topicSaveProgressListener;
+    }
+
+    public void setTopicSaveProgressListener(TopicSaveProgressListener topicSaveProgressListener) {
+        this.topicSaveProgressListener = topicSaveProgressListener;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+
+public class ProcessingResult {
+    final boolean processedSuccessfully;
+    final ContentSpec contentSpec;
+    final List<ProcessingStageEvent> stageEvents;
+
+    public ProcessingResult(final boolean processedSuccessfully, final ContentSpec contentSpec,
+            final List<ProcessingStageEvent> stageEvents) {
+        this.processedSuccessfully = processedSuccessfully;
+        this.contentSpec = contentSpec;
+        this.stageEvents = Collections.unmodifiableList(stageEvents);
+    }
+
+    public boolean processedSuccessfully() {
+        return processedSuccessfully;
+    }
+
+    public ContentSpec getContentSpec() {
+        return contentSpec;
+    }
+
+    /**
+     * @return The details about each processing stage that completed, in the order they completed.
+     */
+    public List<ProcessingStageEvent> getStageEvents() {
+        return stageEvents;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import org.jboss.pressgang.ccms.contentspec.processor.enums.ProcessingStage;
+
+/**
+ * Details about a processing stage that has completed.
+ */
+public class ProcessingStageEvent {
+    private final ProcessingStage stage;
+    private final long duration;
+    private final int itemCount;
+    private final boolean successful;
+
+    /**
+     * @param stage      The stage that completed.
+     * @param duration   How long the stage took, in milliseconds.
+     * @param itemCount  The number of items (topics, nodes, etc...) that the stage processed.
+     * @param successful If the stage completed successfully.
+     */
+    public ProcessingStageEvent(final ProcessingStage stage, final long duration, final int itemCount, final boolean successful) {
+        this.stage = stage;
+        this.duration = duration;
+        this.itemCount = itemCount;
+        this.successful = successful;
+    }
+
+    public ProcessingStage getStage() {
+        return stage;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    @Override
+    public String toString() {
+        return stage + " (" + itemCount + " items, " + duration + "ms" + (successful ? "" : ", failed") + ")";
+    }
+}
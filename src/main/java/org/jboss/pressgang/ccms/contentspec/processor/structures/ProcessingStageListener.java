@@ -0,0 +1,42 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import org.jboss.pressgang.ccms.contentspec.processor.enums.ProcessingStage;
+
+/**
+ * A listener that is notified as a content spec moves through each processing stage. Some stages run at the same time, so the
+ * listener may be called from more than one thread.
+ */
+public interface ProcessingStageListener {
+    /**
+     * Called when a processing stage starts.
+     *
+     * @param stage The stage that is starting.
+     */
+    void stageStarted(ProcessingStage stage);
+
+    /**
+     * Called when a processing stage completes, whether it was successful or not.
+     *
+     * @param event The details about the stage that completed.
+     */
+    void stageCompleted(ProcessingStageEvent event);
+}
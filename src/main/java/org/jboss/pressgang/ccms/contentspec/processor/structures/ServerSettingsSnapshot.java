@@ -0,0 +1,203 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.pressgang.ccms.contentspec.processor.utils.DaemonThreadFactory;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
+import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the server settings so that they can be shared by the processors, validators and snapshot processors that are created
+ * for each request, instead of each one fetching the settings when it is constructed. The settings are loaded the first time
+ * they are needed, and once they are older than the time to live they are refreshed on a background thread. The previous
+ * settings are returned while the refresh is in progress, and are kept if the refresh fails.
+ * <p/>
+ * The settings that are returned are never modified by the snapshot, a refresh replaces them with a new set of settings.
+ */
+public class ServerSettingsSnapshot {
+    private static final Logger LOG = LoggerFactory.getLogger(ServerSettingsSnapshot.class);
+    public static final long DEFAULT_TTL_MINUTES = 5L;
+
+    private final DataProviderFactory factory;
+    private final long ttl;
+    private final Object loadLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicLong loadCount = new AtomicLong(0L);
+    private volatile ServerSettingsWrapper serverSettings;
+    private volatile long loadedAt = 0L;
+    private volatile ExecutorService refreshExecutor;
+
+    /**
+     * Creates a snapshot that refreshes the settings every {@link #DEFAULT_TTL_MINUTES} minutes.
+     *
+     * @param factory The factory to load the server settings from.
+     */
+    public ServerSettingsSnapshot(final DataProviderFactory factory) {
+        this(factory, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param factory The factory to load the server settings from.
+     * @param ttl     How long the settings should be used for, before they are refreshed.
+     * @param unit    The unit of the time to live.
+     */
+    public ServerSettingsSnapshot(final DataProviderFactory factory, final long ttl, final TimeUnit unit) {
+        if (factory == null) {
+            throw new IllegalArgumentException("The factory must not be null");
+        }
+
+        this.factory = factory;
+        this.ttl = unit.toMillis(Math.max(ttl, 0L));
+    }
+
+    /**
+     * Gets the server settings. If the settings haven't been loaded yet then they are loaded on the calling thread, otherwise
+     * the current settings are returned and, if they have expired, a refresh is started in the background.
+     *
+     * @return The server settings.
+     */
+    public ServerSettingsWrapper getServerSettings() {
+        final ServerSettingsWrapper currentSettings = serverSettings;
+        if (currentSettings == null) {
+            synchronized (loadLock) {
+                // Another thread may have loaded the settings while waiting
+                if (serverSettings == null) {
+                    load();
+                }
+                return serverSettings;
+            }
+        }
+
+        if (isExpired()) {
+            startBackgroundRefresh();
+        }
+
+        return currentSettings;
+    }
+
+    /**
+     * Loads the server settings on the calling thread, replacing the current settings.
+     *
+     * @return The server settings that were loaded.
+     */
+    public ServerSettingsWrapper refresh() {
+        synchronized (loadLock) {
+            load();
+            return serverSettings;
+        }
+    }
+
+    /**
+     * @return True if the settings have been loaded and are older than the time to live.
+     */
+    public boolean isExpired() {
+        return serverSettings != null && getCurrentTime() - loadedAt >= ttl;
+    }
+
+    /**
+     * @return The number of times the server settings have been loaded.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Stops the background refresh thread, if one has been started. The current settings can still be used afterwards.
+     */
+    public void shutdown() {
+        final ExecutorService executorService;
+        synchronized (this) {
+            executorService = refreshExecutor;
+            refreshExecutor = null;
+        }
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The current time in milliseconds.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Runs a refresh of the server settings in the background.
+     *
+     * @param refreshTask The task that refreshes the settings.
+     */
+    protected void submitRefresh(final Runnable refreshTask) {
+        ExecutorService executorService;
+        synchronized (this) {
+            if (refreshExecutor == null) {
+                refreshExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("csprocessor-server-settings-"));
+            }
+            executorService = refreshExecutor;
+        }
+        executorService.submit(refreshTask);
+    }
+
+    private void startBackgroundRefresh() {
+        // Only allow a single refresh at a time
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            submitRefresh(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (Exception e) {
+                        // Keep using the old settings, and try again the next time they are requested
+                        LOG.warn("Failed to refresh the server settings", e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            LOG.warn("Failed to start refreshing the server settings", e);
+        }
+    }
+
+    private void load() {
+        final ServerSettingsWrapper loadedSettings = factory.getProvider(ServerSettingsProvider.class).getServerSettings();
+        if (loadedSettings == null) {
+            throw new IllegalStateException("The server settings could not be loaded");
+        }
+
+        loadCount.incrementAndGet();
+        loadedAt = getCurrentTime();
+        serverSettings = loadedSettings;
+    }
+}
@@ -19,6 +19,10 @@
 
 package org.jboss.pressgang.ccms.contentspec.processor.structures;
 
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicChangeProvider;
+
 public class SnapshotOptions {
     private boolean addRevisions = true;
     private boolean addFixedUrls = true;
@@ -26,6 +30,11 @@ public class SnapshotOptions {
     private Integer revision = null;
     private boolean translation = false;
     private String translationLocale = null;
+    private int topicFetchThreads = 1;
+    private boolean revisionsOnly = false;
+    private Map<Integer, Integer> previousRevisions = null;
+    private Integer previousSnapshotRevision = null;
+    private TopicChangeProvider topicChangeProvider = null;
 
     public boolean isAddRevisions() {
         return addRevisions;
@@ -74,4 +83,60 @@ public class SnapshotOptions {
     public void setAddFixedUrls(boolean addFixedUrls) {
         this.addFixedUrls = addFixedUrls;
     }
+
+    public int getTopicFetchThreads() {
+        return topicFetchThreads;
+    }
+
+    public void setTopicFetchThreads(int topicFetchThreads) {
+        this.topicFetchThreads = topicFetchThreads;
+    }
+
+    public boolean isRevisionsOnly() {
+        return revisionsOnly;
+    }
+
+    /**
+     * @param revisionsOnly If the snapshot should only set the topic revisions, without setting the topics on the content spec.
+     *                      Topics that keep their current revision aren't looked up at all in this mode.
+     */
+    public void setRevisionsOnly(boolean revisionsOnly) {
+        this.revisionsOnly = revisionsOnly;
+    }
+
+    public Map<Integer, Integer> getPreviousRevisions() {
+        return previousRevisions;
+    }
+
+    /**
+     * @param previousRevisions The topic id to revision mapping from a previous snapshot of the content spec. When creating a
+     *                          revision only snapshot that updates the revisions, topics that haven't changed since the
+     *                          previous snapshot keep their previous revision instead of being looked up again.
+     */
+    public void setPreviousRevisions(final Map<Integer, Integer> previousRevisions) {
+        this.previousRevisions = previousRevisions;
+    }
+
+    public Integer getPreviousSnapshotRevision() {
+        return previousSnapshotRevision;
+    }
+
+    /**
+     * @param previousSnapshotRevision The latest server revision at the time the previous snapshot was created.
+     */
+    public void setPreviousSnapshotRevision(final Integer previousSnapshotRevision) {
+        this.previousSnapshotRevision = previousSnapshotRevision;
+    }
+
+    public TopicChangeProvider getTopicChangeProvider() {
+        return topicChangeProvider;
+    }
+
+    /**
+     * @param topicChangeProvider A source of topic changes to use instead of the topic provider, such as a locally stored change
+     *                            log. If not set, the changes are taken from the topic provider if it supports it.
+     */
+    public void setTopicChangeProvider(final TopicChangeProvider topicChangeProvider) {
+        this.topicChangeProvider = topicChangeProvider;
+    }
 }
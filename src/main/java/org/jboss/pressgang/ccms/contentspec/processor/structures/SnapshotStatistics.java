@@ -0,0 +1,52 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statistics about how a snapshot of a content spec was created.
+ */
+public class SnapshotStatistics {
+    private final AtomicInteger refreshedTopicCount = new AtomicInteger(0);
+    private final AtomicInteger reusedTopicCount = new AtomicInteger(0);
+
+    /**
+     * @return The number of topics that were looked up for the snapshot.
+     */
+    public int getRefreshedTopicCount() {
+        return refreshedTopicCount.get();
+    }
+
+    public void addRefreshedTopics(final int count) {
+        refreshedTopicCount.addAndGet(count);
+    }
+
+    /**
+     * @return The number of topics that kept the revision from a previous snapshot, without being looked up.
+     */
+    public int getReusedTopicCount() {
+        return reusedTopicCount.get();
+    }
+
+    public void addReusedTopics(final int count) {
+        reusedTopicCount.addAndGet(count);
+    }
+}
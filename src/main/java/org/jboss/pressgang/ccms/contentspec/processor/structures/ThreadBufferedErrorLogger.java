@@ -0,0 +1,201 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLogger;
+
+/**
+ * An ErrorLogger that passes messages through to another logger, unless the current thread has started buffering its messages.
+ * This allows work to be done on multiple threads, while still logging the messages in the same order as if the work was done
+ * on a single thread. The buffer is shared by all ThreadBufferedErrorLoggers, so messages logged by different loggers on the same
+ * thread keep their order.
+ */
+public class ThreadBufferedErrorLogger extends ErrorLogger {
+    private static final ThreadLocal<List<BufferedMessage>> buffer = new ThreadLocal<List<BufferedMessage>>();
+    private static final ThreadLocal<int[]> problemCount = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private final ErrorLogger logger;
+
+    public ThreadBufferedErrorLogger(final String name, final ErrorLogger logger) {
+        super(name);
+        this.logger = logger;
+    }
+
+    /**
+     * Start buffering any messages logged by the current thread.
+     */
+    public static void startBuffering() {
+        buffer.set(new ArrayList<BufferedMessage>());
+    }
+
+    /**
+     * Stop buffering messages for the current thread.
+     *
+     * @return The messages that were logged by the current thread since buffering was started.
+     */
+    public static List<BufferedMessage> stopBuffering() {
+        final List<BufferedMessage> messages = buffer.get();
+        buffer.remove();
+        return messages == null ? new ArrayList<BufferedMessage>() : messages;
+    }
+
+    /**
+     * Gets the number of warnings and errors that have been logged by the current thread, including any that were buffered. This
+     * can be used to check if a piece of work logged any problems.
+     *
+     * @return The number of warnings and errors logged by the current thread.
+     */
+    public static int getProblemCount() {
+        return problemCount.get()[0];
+    }
+
+    /**
+     * Log a set of buffered messages to the loggers they were originally logged to, in the order they were originally logged. If
+     * the current thread is also buffering, then the messages are added to its buffer.
+     *
+     * @param messages The buffered messages to log.
+     */
+    public static void flush(final List<BufferedMessage> messages) {
+        for (final BufferedMessage message : messages) {
+            final ThreadBufferedErrorLogger logger = message.getLogger();
+            final Throwable throwable = message.getThrowable();
+            switch (message.getType()) {
+                case DEBUG:
+                    if (throwable == null) {
+                        logger.debug(message.getMessage());
+                    } else {
+                        logger.debug(message.getMessage(), throwable);
+                    }
+                    break;
+                case INFO:
+                    logger.info(message.getMessage());
+                    break;
+                case WARN:
+                    logger.warn(message.getMessage());
+                    break;
+                case ERROR:
+                    if (throwable == null) {
+                        logger.error(message.getMessage());
+                    } else {
+                        logger.error(message.getMessage(), throwable);
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void debug(final String msg) {
+        if (!addToBuffer(MessageType.DEBUG, msg, null)) {
+            logger.debug(msg);
+        }
+    }
+
+    @Override
+    public void debug(final String msg, final Throwable throwable) {
+        if (!addToBuffer(MessageType.DEBUG, msg, throwable)) {
+            logger.debug(msg, throwable);
+        }
+    }
+
+    @Override
+    public void info(final String msg) {
+        if (!addToBuffer(MessageType.INFO, msg, null)) {
+            logger.info(msg);
+        }
+    }
+
+    @Override
+    public void warn(final String msg) {
+        problemCount.get()[0]++;
+        if (!addToBuffer(MessageType.WARN, msg, null)) {
+            logger.warn(msg);
+        }
+    }
+
+    @Override
+    public void error(final String msg) {
+        problemCount.get()[0]++;
+        if (!addToBuffer(MessageType.ERROR, msg, null)) {
+            logger.error(msg);
+        }
+    }
+
+    @Override
+    public void error(final String msg, final Throwable throwable) {
+        problemCount.get()[0]++;
+        if (!addToBuffer(MessageType.ERROR, msg, throwable)) {
+            logger.error(msg, throwable);
+        }
+    }
+
+    private boolean addToBuffer(final MessageType type, final String msg, final Throwable throwable) {
+        final List<BufferedMessage> messages = buffer.get();
+        if (messages == null) {
+            return false;
+        } else {
+            messages.add(new BufferedMessage(this, type, msg, throwable));
+            return true;
+        }
+    }
+
+    public static enum MessageType {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    public static class BufferedMessage {
+        private final ThreadBufferedErrorLogger logger;
+        private final MessageType type;
+        private final String message;
+        private final Throwable throwable;
+
+        public BufferedMessage(final ThreadBufferedErrorLogger logger, final MessageType type, final String message,
+                final Throwable throwable) {
+            this.logger = logger;
+            this.type = type;
+            this.message = message;
+            this.throwable = throwable;
+        }
+
+        public ThreadBufferedErrorLogger getLogger() {
+            return logger;
+        }
+
+        public MessageType getType() {
+            return type;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+    }
+}
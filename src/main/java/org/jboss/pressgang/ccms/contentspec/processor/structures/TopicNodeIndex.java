@@ -0,0 +1,149 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.ITopicNode;
+
+/**
+ * An index of the topic nodes in a content spec, so that the topic nodes only have to be collected once and can then be looked
+ * up by their id, their database id and revision or the topic they duplicate.
+ */
+public class TopicNodeIndex {
+    private static final Pattern CLONED_ID_TYPE_PATTERN = Pattern.compile("^C\\d+$");
+
+    private final List<ITopicNode> topicNodes;
+    private final Map<String, List<ITopicNode>> idTopicNodeMap = new HashMap<String, List<ITopicNode>>();
+    private final Map<Integer, Map<Integer, List<ITopicNode>>> existingTopicRevisions = new LinkedHashMap<Integer, Map<Integer,
+            List<ITopicNode>>>();
+    private final Map<String, ITopicNode> clonedTopicMap = new HashMap<String, ITopicNode>();
+
+    public TopicNodeIndex(final ContentSpec contentSpec) {
+        this(contentSpec.getAllTopicNodes());
+    }
+
+    public TopicNodeIndex(final List<ITopicNode> topicNodes) {
+        this.topicNodes = Collections.unmodifiableList(new ArrayList<ITopicNode>(topicNodes));
+
+        for (final ITopicNode topicNode : topicNodes) {
+            final String id = topicNode.getId();
+            if (id != null) {
+                List<ITopicNode> idTopicNodes = idTopicNodeMap.get(id);
+                if (idTopicNodes == null) {
+                    idTopicNodes = new ArrayList<ITopicNode>();
+                    idTopicNodeMap.put(id, idTopicNodes);
+                }
+                idTopicNodes.add(topicNode);
+
+                // Store the first topic that can be used as the source for cloned duplicates (ie XC<Number>)
+                final int cloneIndex = id.lastIndexOf('C');
+                if (cloneIndex != -1 && (cloneIndex == 0 || id.charAt(cloneIndex - 1) != 'X')) {
+                    final String idType = id.substring(cloneIndex);
+                    if (CLONED_ID_TYPE_PATTERN.matcher(idType).matches() && !clonedTopicMap.containsKey(idType)) {
+                        clonedTopicMap.put(idType, topicNode);
+                    }
+                }
+            }
+
+            if (topicNode.isTopicAnExistingTopic() && topicNode.getDBId() != null) {
+                Map<Integer, List<ITopicNode>> revisions = existingTopicRevisions.get(topicNode.getDBId());
+                if (revisions == null) {
+                    revisions = new LinkedHashMap<Integer, List<ITopicNode>>();
+                    existingTopicRevisions.put(topicNode.getDBId(), revisions);
+                }
+
+                List<ITopicNode> revisionTopicNodes = revisions.get(topicNode.getRevision());
+                if (revisionTopicNodes == null) {
+                    revisionTopicNodes = new ArrayList<ITopicNode>();
+                    revisions.put(topicNode.getRevision(), revisionTopicNodes);
+                }
+                revisionTopicNodes.add(topicNode);
+            }
+        }
+    }
+
+    /**
+     * @return All the topic nodes in the content spec, in the order they appear.
+     */
+    public List<ITopicNode> getTopicNodes() {
+        return topicNodes;
+    }
+
+    /**
+     * @return A mapping of topic ids (ie N1, X1, 123) to the topic nodes that use the id.
+     */
+    public Map<String, List<ITopicNode>> getIdTopicNodeMap() {
+        return Collections.unmodifiableMap(idTopicNodeMap);
+    }
+
+    /**
+     * Gets the topic nodes that use an id.
+     *
+     * @param id The topic id (ie N1, X1, 123).
+     * @return The topic nodes that use the id, or null if none exist.
+     */
+    public List<ITopicNode> getTopicNodesById(final String id) {
+        return idTopicNodeMap.get(id);
+    }
+
+    /**
+     * @return A mapping of the database ids of existing topics to the revisions used and the topic nodes for each revision.
+     */
+    public Map<Integer, Map<Integer, List<ITopicNode>>> getExistingTopicRevisions() {
+        return Collections.unmodifiableMap(existingTopicRevisions);
+    }
+
+    /**
+     * Gets the topic node that a duplicate topic (ie X1 or XC1) is a duplicate of.
+     *
+     * @param topicNode The duplicate topic node.
+     * @return The topic node that the topic is a duplicate of, or null if it couldn't be found.
+     */
+    public ITopicNode getDuplicatedTopicSource(final ITopicNode topicNode) {
+        final String id = topicNode.getId();
+        if (topicNode.isTopicADuplicateTopic()) {
+            final List<ITopicNode> sourceTopicNodes = idTopicNodeMap.get("N" + id.substring(1));
+            return sourceTopicNodes == null ? null : sourceTopicNodes.get(0);
+        } else if (topicNode.isTopicAClonedDuplicateTopic()) {
+            final String idType = id.substring(1);
+            if (CLONED_ID_TYPE_PATTERN.matcher(idType).matches()) {
+                return clonedTopicMap.get(idType);
+            }
+
+            // The id isn't in the expected format, so check every topic
+            for (final ITopicNode sourceTopicNode : topicNodes) {
+                final String key = sourceTopicNode.getId();
+                if (key.endsWith(idType) && !key.endsWith(id)) {
+                    return sourceTopicNode;
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A journal of the topics that have been saved while processing a content spec, so that if processing fails part way through
+ * saving the topics, a retry can reuse the topics that were already saved instead of creating them again. Each entry maps a
+ * key for a new or cloned topic node, that doesn't depend on the line the topic is on, to the id of the topic that was created
+ * for it. The journal is bound to a single content spec, and any entries for a different content spec are discarded. A journal
+ * can optionally be backed by a file so that it survives a restart.
+ */
+public class TopicSaveJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(TopicSaveJournal.class);
+    /**
+     * The property the content spec key is stored under in the journal file. Topic keys always start with the topic id, so
+     * this can't clash with a topic key.
+     */
+    private static final String CONTENT_SPEC_PROPERTY = ".contentSpec";
+
+    private final File journalFile;
+    private final Map<String, Integer> entries = new HashMap<String, Integer>();
+    private String contentSpecKey = null;
+    private boolean changed = false;
+
+    /**
+     * Creates a journal that is only held in memory.
+     */
+    public TopicSaveJournal() {
+        journalFile = null;
+    }
+
+    /**
+     * Creates a journal that is backed by a file, loading any entries that were saved previously.
+     *
+     * @param journalFile The file to store the journal in.
+     */
+    public TopicSaveJournal(final File journalFile) {
+        this.journalFile = journalFile;
+        load();
+    }
+
+    /**
+     * Binds the journal to a content spec. If the journal holds entries for a different content spec, then the entries are
+     * discarded since they don't refer to topics in this content spec.
+     *
+     * @param contentSpecKey The key that identifies the content spec being processed.
+     * @return True if entries for a different content spec were discarded, otherwise false.
+     */
+    public synchronized boolean bindToContentSpec(final String contentSpecKey) {
+        if (contentSpecKey == null ? this.contentSpecKey == null : contentSpecKey.equals(this.contentSpecKey)) return false;
+
+        final boolean discarded = !entries.isEmpty();
+        entries.clear();
+        this.contentSpecKey = contentSpecKey;
+        changed = true;
+        return discarded;
+    }
+
+    public synchronized String getContentSpecKey() {
+        return contentSpecKey;
+    }
+
+    /**
+     * Gets the id of the topic that was saved for a topic node.
+     *
+     * @param key The journal key of the topic node.
+     * @return The id of the saved topic, or null if the topic node hasn't been saved.
+     */
+    public synchronized Integer getTopicId(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Records that a topic was saved for a topic node.
+     *
+     * @param key     The journal key of the topic node.
+     * @param topicId The id of the topic that was saved.
+     */
+    public synchronized void recordSaved(final String key, final Integer topicId) {
+        if (key == null || topicId == null) return;
+
+        entries.put(key, topicId);
+        changed = true;
+    }
+
+    /**
+     * Removes all of the entries, once the content spec has been saved or the saved topics have been rolled back.
+     */
+    public synchronized void clear() {
+        if (entries.isEmpty()) return;
+
+        entries.clear();
+        changed = true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes any changes to the journal file, if the journal is backed by a file.
+     */
+    public synchronized void save() {
+        if (!changed || journalFile == null) return;
+
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Integer> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        if (contentSpecKey != null) {
+            properties.setProperty(CONTENT_SPEC_PROPERTY, contentSpecKey);
+        }
+
+        // Write to a temp file first, so that a failed write can't corrupt the existing journal
+        final File tempFile = new File(journalFile.getAbsoluteFile().getParentFile(), journalFile.getName() + ".tmp");
+        OutputStream os = null;
+        try {
+            tempFile.getParentFile().mkdirs();
+            os = new FileOutputStream(tempFile);
+            properties.store(os, null);
+            os.close();
+            os = null;
+
+            if (!tempFile.renameTo(journalFile)) {
+                journalFile.delete();
+                if (!tempFile.renameTo(journalFile)) {
+                    throw new IOException("Unable to rename " + tempFile + " to " + journalFile);
+                }
+            }
+            changed = false;
+        } catch (IOException e) {
+            LOG.warn("Unable to save the topic save journal to " + journalFile, e);
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    // Do nothing
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (!journalFile.exists()) return;
+
+        final Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(journalFile);
+            properties.load(is);
+        } catch (IOException e) {
+            LOG.warn("Unable to load the topic save journal from " + journalFile, e);
+            return;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // Do nothing
+                }
+            }
+        }
+
+        contentSpecKey = properties.getProperty(CONTENT_SPEC_PROPERTY);
+        for (final String key : properties.stringPropertyNames()) {
+            if (CONTENT_SPEC_PROPERTY.equals(key)) continue;
+
+            try {
+                entries.put(key, Integer.parseInt(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // Ignore any corrupt entries, as the topic will just be created again
+                changed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+/**
+ * A listener that is notified as each chunk of topics is saved, when the topics are saved in chunks. Chunks can be saved at the
+ * same time, however the listener is always called from the processing thread in the order the chunks were created.
+ */
+public interface TopicSaveProgressListener {
+    /**
+     * Called when a chunk of topics has been saved.
+     *
+     * @param chunk           The number of the chunk that was saved, starting from 1.
+     * @param chunkCount      The total number of chunks.
+     * @param savedTopicCount The number of topics that have been saved so far, including this chunk.
+     * @param topicCount      The total number of topics to be saved.
+     */
+    void chunkSaved(int chunk, int chunkCount, int savedTopicCount, int topicCount);
+}
@@ -0,0 +1,277 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jboss.pressgang.ccms.utils.common.HashUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file backed store of the existing topics that passed post validation, so that topics that haven't changed since the last
+ * time they were validated can be skipped. Each entry is keyed by everything the validation depends on (the topic id, the
+ * revision that was asked for, the spec line, the format, the locale and whether titles are strict) and records the revision of
+ * the topic on the server at the time, so that an entry is only used while the server revision is still the same.
+ */
+public class TopicValidationMemo {
+    private static final Logger LOG = LoggerFactory.getLogger(TopicValidationMemo.class);
+    private static final String MEMO_FILE_NAME = "topic-validation-memo.properties";
+    private static final String VALUE_SEPARATOR = ",";
+
+    /**
+     * The default maximum number of entries to store, before the least recently used entries are evicted.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 50000;
+
+    private final File memoFile;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private boolean loaded = false;
+    private boolean changed = false;
+
+    /**
+     * The memo file isn't read until the memo is first used.
+     *
+     * @param directory  The directory to store the memo in.
+     * @param maxEntries The maximum number of entries to store, before the least recently used entries are evicted.
+     */
+    public TopicValidationMemo(final File directory, final int maxEntries) {
+        memoFile = new File(directory, MEMO_FILE_NAME);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param directory  The path of the directory to store the memo in.
+     * @param maxEntries The maximum number of entries to store, before the least recently used entries are evicted.
+     */
+    public TopicValidationMemo(final String directory, final int maxEntries) {
+        this(new File(directory), maxEntries);
+    }
+
+    /**
+     * Creates the key for a topic's validation.
+     *
+     * @param topicId          The id of the topic.
+     * @param revision         The revision of the topic that was asked for, or null if the latest revision was used.
+     * @param specLine         The content spec line for the topic.
+     * @param format           The format of the content spec.
+     * @param locale           The locale the topic is being validated against.
+     * @param strictTitles     If titles have to match exactly.
+     * @return The key for the topic's validation.
+     */
+    public static String createKey(final Integer topicId, final Integer revision, final String specLine, final String format,
+            final String locale, final boolean strictTitles) {
+        return HashUtilities.generateMD5(topicId + "\n" + revision + "\n" + specLine + "\n" + format + "\n" + locale + "\n" +
+                strictTitles);
+    }
+
+    /**
+     * Checks if a topic has already passed validation for a key, and the topic hasn't changed on the server since.
+     *
+     * @param key            The key for the topic's validation.
+     * @param serverRevision The current revision of the topic on the server.
+     * @return True if the topic has already passed validation, otherwise false.
+     */
+    public synchronized boolean isValidated(final String key, final Integer serverRevision) {
+        load();
+        final Entry entry = entries.get(key);
+        if (entry == null || serverRevision == null || !serverRevision.equals(entry.getServerRevision())) {
+            return false;
+        }
+
+        entry.setLastUsed(getCurrentTime());
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Records that a topic passed validation.
+     *
+     * @param key            The key for the topic's validation.
+     * @param serverRevision The revision of the topic on the server that was validated.
+     */
+    public synchronized void recordValidated(final String key, final Integer serverRevision) {
+        if (serverRevision == null) return;
+
+        load();
+        entries.put(key, new Entry(serverRevision, getCurrentTime()));
+        changed = true;
+    }
+
+    /**
+     * Removes all of the entries, so that the memo is rebuilt by the following validations.
+     */
+    public synchronized void clear() {
+        // There's no need to read the memo file, since all of its entries would be removed
+        loaded = true;
+        entries.clear();
+        changed = true;
+    }
+
+    public synchronized int size() {
+        load();
+        return entries.size();
+    }
+
+    /**
+     * Writes any changes to the memo file, after evicting the least recently used entries if there are too many.
+     */
+    public synchronized void save() {
+        if (!changed) return;
+
+        evict();
+
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().getServerRevision() + VALUE_SEPARATOR + entry.getValue()
+                    .getLastUsed());
+        }
+
+        // Write to a unique temp file first, so that a failed write or another process saving at the same time can't corrupt the
+        // existing memo
+        File tempFile = null;
+        OutputStream os = null;
+        try {
+            memoFile.getParentFile().mkdirs();
+            tempFile = File.createTempFile(MEMO_FILE_NAME, ".tmp", memoFile.getParentFile());
+            os = new FileOutputStream(tempFile);
+            properties.store(os, null);
+            os.close();
+            os = null;
+
+            if (!tempFile.renameTo(memoFile)) {
+                memoFile.delete();
+                if (!tempFile.renameTo(memoFile)) {
+                    throw new IOException("Unable to rename " + tempFile + " to " + memoFile);
+                }
+            }
+            changed = false;
+        } catch (IOException e) {
+            LOG.warn("Unable to save the topic validation memo to " + memoFile, e);
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    // Do nothing
+                }
+            }
+            if (tempFile != null && tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    protected void evict() {
+        if (entries.size() <= maxEntries) return;
+
+        final List<Map.Entry<String, Entry>> sortedEntries = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+        Collections.sort(sortedEntries, new Comparator<Map.Entry<String, Entry>>() {
+            @Override
+            public int compare(final Map.Entry<String, Entry> entry1, final Map.Entry<String, Entry> entry2) {
+                final long lastUsed1 = entry1.getValue().getLastUsed();
+                final long lastUsed2 = entry2.getValue().getLastUsed();
+                return lastUsed1 < lastUsed2 ? -1 : (lastUsed1 == lastUsed2 ? 0 : 1);
+            }
+        });
+
+        final int evictCount = entries.size() - maxEntries;
+        for (int i = 0; i < evictCount; i++) {
+            entries.remove(sortedEntries.get(i).getKey());
+        }
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+
+        if (!memoFile.exists()) return;
+
+        final Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(memoFile);
+            properties.load(is);
+        } catch (IOException e) {
+            LOG.warn("Unable to load the topic validation memo from " + memoFile + ", so it will be rebuilt", e);
+            return;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // Do nothing
+                }
+            }
+        }
+
+        for (final String key : properties.stringPropertyNames()) {
+            final String[] values = properties.getProperty(key).split(VALUE_SEPARATOR);
+            try {
+                entries.put(key, new Entry(Integer.parseInt(values[0]), Long.parseLong(values[1])));
+            } catch (RuntimeException e) {
+                // Ignore any corrupt entries, as the topic will just be validated again
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * @return The current time in milliseconds.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private static class Entry {
+        private final Integer serverRevision;
+        private long lastUsed;
+
+        Entry(final Integer serverRevision, final long lastUsed) {
+            this.serverRevision = serverRevision;
+            this.lastUsed = lastUsed;
+        }
+
+        public Integer getServerRevision() {
+            return serverRevision;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public void setLastUsed(long lastUsed) {
+            this.lastUsed = lastUsed;
+        }
+    }
+}
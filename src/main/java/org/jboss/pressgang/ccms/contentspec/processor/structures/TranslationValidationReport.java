@@ -0,0 +1,54 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
+
+/**
+ * The outcome of validating a content spec against a single translation locale. The messages for the locale are held in the
+ * report instead of being logged, so that the messages for each locale don't get mixed together. They can be logged using
+ * {@link ThreadBufferedErrorLogger#flush(List)}.
+ */
+public class TranslationValidationReport extends ValidationReport {
+    private final String locale;
+    private final List<ThreadBufferedErrorLogger.BufferedMessage> messages;
+
+    public TranslationValidationReport(final String locale, final boolean valid, final List<SpecNode> uncheckedNodes,
+            final List<ThreadBufferedErrorLogger.BufferedMessage> messages) {
+        super(valid, uncheckedNodes);
+        this.locale = locale;
+        this.messages = Collections.unmodifiableList(new ArrayList<ThreadBufferedErrorLogger.BufferedMessage>(messages));
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return The messages that were logged while validating the topics against the locale, in the order they were logged.
+     */
+    public List<ThreadBufferedErrorLogger.BufferedMessage> getMessages() {
+        return messages;
+    }
+}
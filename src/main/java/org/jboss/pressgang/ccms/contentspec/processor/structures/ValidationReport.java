@@ -0,0 +1,60 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
+
+/**
+ * The outcome of validating a content spec, which may be partial if validation was stopped before every node could be checked.
+ */
+public class ValidationReport {
+    private final boolean valid;
+    private final List<SpecNode> uncheckedNodes;
+
+    public ValidationReport(final boolean valid, final List<SpecNode> uncheckedNodes) {
+        this.valid = valid;
+        this.uncheckedNodes = Collections.unmodifiableList(new ArrayList<SpecNode>(uncheckedNodes));
+    }
+
+    /**
+     * @return True if all of the nodes that were checked are valid, and every node was checked.
+     */
+    public boolean isValid() {
+        return valid && isComplete();
+    }
+
+    /**
+     * @return True if every node was checked.
+     */
+    public boolean isComplete() {
+        return uncheckedNodes.isEmpty();
+    }
+
+    /**
+     * @return The levels and topics that weren't checked, in the order they appear in the content spec.
+     */
+    public List<SpecNode> getUncheckedNodes() {
+        return uncheckedNodes;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utilities to calculate the checksum of a content spec, without having to create any copies of the content spec text.
+ */
+public class ChecksumUtilities {
+    private static final Pattern CHECKSUM_PATTERN = Pattern.compile("CHECKSUM[ ]*=.*(\r)?\n");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Calculates the MD5 checksum of a content spec, ignoring the first CHECKSUM line and any exact copies of it. The text is
+     * encoded and hashed in small chunks, so the result is the same as hashing the text returned by
+     * ContentSpecUtilities.removeChecksum(), but without having to build the stripped copy or a byte array of the whole text.
+     *
+     * @param contentSpecString The content spec text to calculate the checksum for.
+     * @return The lowercase hex encoded MD5 checksum of the content spec.
+     */
+    public static String generateChecksum(final String contentSpecString) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        final CharsetEncoder encoder = UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+                CodingErrorAction.REPLACE);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        // Hash the text around the checksum line. Every copy of the line is skipped, since removeChecksum() replaces them all.
+        final Matcher matcher = CHECKSUM_PATTERN.matcher(contentSpecString);
+        int start = 0;
+        if (matcher.find()) {
+            final String checksumLine = matcher.group();
+            int index = matcher.start();
+            while (index != -1) {
+                updateDigest(digest, encoder, buffer, contentSpecString, start, index, false);
+                start = index + checksumLine.length();
+                index = contentSpecString.indexOf(checksumLine, start);
+            }
+        }
+        updateDigest(digest, encoder, buffer, contentSpecString, start, contentSpecString.length(), true);
+
+        return toHex(digest.digest());
+    }
+
+    private static void updateDigest(final MessageDigest digest, final CharsetEncoder encoder, final ByteBuffer buffer,
+            final CharSequence text, final int start, final int end, final boolean endOfInput) {
+        final CharBuffer chars = CharBuffer.wrap(text, start, end);
+        while (true) {
+            final CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            drainBuffer(digest, buffer);
+            if (result.isUnderflow()) {
+                break;
+            } else if (result.isError()) {
+                throwCodingException(result);
+            }
+        }
+
+        if (endOfInput) {
+            while (true) {
+                final CoderResult result = encoder.flush(buffer);
+                drainBuffer(digest, buffer);
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void drainBuffer(final MessageDigest digest, final ByteBuffer buffer) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+
+    private static void throwCodingException(final CoderResult result) {
+        try {
+            result.throwException();
+        } catch (CharacterCodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_CHARS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.utils.common.StringUtilities;
+
+/**
+ * Utilities to check if two strings are similar, which give the same result as comparing
+ * {@link StringUtilities#similarDamerauLevenshtein(String, String)} against a minimum similarity, but avoid calculating the full
+ * distance for strings that can't possibly match.
+ */
+public class FuzzyMatchUtilities {
+    /**
+     * The maximum number of bigrams that a single edit operation can remove. Insertions, deletions and substitutions affect at
+     * most two bigrams and an adjacent transposition affects at most three.
+     */
+    private static final int MAX_BIGRAMS_PER_EDIT = 3;
+
+    /**
+     * Checks if two strings are similar to one another, in that their Damerau-Levenshtein similarity is greater than or equal to
+     * the minimum similarity.
+     *
+     * @param s1            The first string to compare.
+     * @param s2            The second string to compare.
+     * @param minSimilarity The minimum similarity (0.0 - 1.0) that the strings have to match by.
+     * @return True if the strings are similar, otherwise false.
+     */
+    public static boolean isSimilar(final String s1, final String s2, final double minSimilarity) {
+        final int maxLength = s1 == null || s2 == null ? 0 : Math.max(s1.length(), s2.length());
+        if (maxLength == 0) {
+            return StringUtilities.similarDamerauLevenshtein(s1, s2) >= minSimilarity;
+        }
+
+        final int maxDistance = getMaxDistance(maxLength, minSimilarity);
+
+        // The distance can never be less than the difference in length
+        if (Math.abs(s1.length() - s2.length()) > maxDistance) {
+            return false;
+        }
+
+        // Each edit can only remove a limited number of bigrams, so make sure enough bigrams are shared
+        if (maxLength - 1 - countCommonBigrams(s1, s2) > maxDistance * MAX_BIGRAMS_PER_EDIT) {
+            return false;
+        }
+
+        // The optimal string alignment distance is never less than the unrestricted distance, so if it's in range the strings match
+        if (optimalStringAlignmentDistance(s1, s2, maxDistance) <= maxDistance) {
+            return true;
+        }
+
+        // Otherwise the unrestricted distance must also be out of range for the strings not to match
+        if (damerauLevenshteinDistance(s1, s2, maxDistance) > maxDistance) {
+            return false;
+        }
+
+        // The two distances disagree, so fall back to the full calculation
+        return StringUtilities.similarDamerauLevenshtein(s1, s2) >= minSimilarity;
+    }
+
+    /**
+     * Gets the largest distance that two strings can have and still meet the minimum similarity.
+     *
+     * @param maxLength     The length of the longest string.
+     * @param minSimilarity The minimum similarity (0.0 - 1.0) that the strings have to match by.
+     * @return The largest distance that still meets the minimum similarity.
+     */
+    protected static int getMaxDistance(final int maxLength, final double minSimilarity) {
+        int maxDistance = 0;
+        while (maxDistance < maxLength && 1.0 - ((double) (maxDistance + 1) / maxLength) >= minSimilarity) {
+            maxDistance++;
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Counts the number of bigrams that two strings have in common, where duplicate bigrams are counted as many times as they
+     * occur in both strings.
+     *
+     * @param s1 The first string.
+     * @param s2 The second string.
+     * @return The number of common bigrams.
+     */
+    protected static int countCommonBigrams(final String s1, final String s2) {
+        final int[] bigrams1 = getSortedBigrams(s1);
+        final int[] bigrams2 = getSortedBigrams(s2);
+
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < bigrams1.length && j < bigrams2.length) {
+            if (bigrams1[i] == bigrams2[j]) {
+                count++;
+                i++;
+                j++;
+            } else if (bigrams1[i] < bigrams2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] getSortedBigrams(final String s) {
+        if (s.length() < 2) {
+            return new int[0];
+        }
+
+        final int[] bigrams = new int[s.length() - 1];
+        for (int i = 0; i < bigrams.length; i++) {
+            bigrams[i] = (s.charAt(i) << 16) | s.charAt(i + 1);
+        }
+        Arrays.sort(bigrams);
+        return bigrams;
+    }
+
+    /**
+     * Calculates the optimal string alignment distance (adjacent transpositions only) between two strings, only looking at the
+     * band of cells that can be within the maximum distance.
+     *
+     * @param s1          The first string.
+     * @param s2          The second string.
+     * @param maxDistance The maximum distance of interest.
+     * @return The distance, or maxDistance + 1 if the distance is greater than the maximum distance.
+     */
+    protected static int optimalStringAlignmentDistance(final String s1, final String s2, final int maxDistance) {
+        final int n = s1.length();
+        final int m = s2.length();
+        final int limit = maxDistance + 1;
+
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = Math.min(j, limit);
+        }
+
+        for (int i = 1; i <= n; i++) {
+            final int start = Math.max(1, i - maxDistance);
+            final int end = Math.min(m, i + maxDistance);
+
+            // Cells just outside of the band are always out of range
+            curr[0] = Math.min(i, limit);
+            curr[start - 1] = start == 1 ? curr[0] : limit;
+            if (end < m) {
+                curr[end + 1] = limit;
+            }
+
+            int rowMin = start == 1 ? curr[0] : limit;
+            for (int j = start; j <= end; j++) {
+                final int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && s1.charAt(i - 1) == s2.charAt(j - 2) && s1.charAt(i - 2) == s2.charAt(j - 1)) {
+                    value = Math.min(value, prevPrev[j - 2] + 1);
+                }
+
+                curr[j] = Math.min(value, limit);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+
+            // Stop if nothing in the row is in range, since the distance can only grow from here
+            if (rowMin >= limit) {
+                return limit;
+            }
+
+            final int[] temp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = temp;
+        }
+
+        return prev[m];
+    }
+
+    /**
+     * Calculates the unrestricted Damerau-Levenshtein distance between two strings, stopping as soon as the distance is known to
+     * be greater than the maximum distance.
+     *
+     * @param s1          The first string.
+     * @param s2          The second string.
+     * @param maxDistance The maximum distance of interest.
+     * @return The distance, or maxDistance + 1 if the distance is greater than the maximum distance.
+     */
+    protected static int damerauLevenshteinDistance(final String s1, final String s2, final int maxDistance) {
+        final int n = s1.length();
+        final int m = s2.length();
+        final int limit = maxDistance + 1;
+
+        final int[][] d = new int[n + 2][m + 2];
+        d[0][0] = limit;
+        for (int i = 0; i <= n; i++) {
+            d[i + 1][0] = limit;
+            d[i + 1][1] = Math.min(i, limit);
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j + 1] = limit;
+            d[1][j + 1] = Math.min(j, limit);
+        }
+
+        final Map<Character, Integer> lastRow = new HashMap<Character, Integer>();
+        for (int i = 1; i <= n; i++) {
+            final char c1 = s1.charAt(i - 1);
+            int lastMatchingColumn = 0;
+            int rowMin = d[i + 1][1];
+            for (int j = 1; j <= m; j++) {
+                final char c2 = s2.charAt(j - 1);
+                final Integer i1 = lastRow.get(c2);
+                final int k = i1 == null ? 0 : i1;
+                final int l = lastMatchingColumn;
+
+                final int cost;
+                if (c1 == c2) {
+                    cost = 0;
+                    lastMatchingColumn = j;
+                } else {
+                    cost = 1;
+                }
+
+                if (Math.abs(i - j) > maxDistance) {
+                    // Cells outside of the band are always out of range
+                    d[i + 1][j + 1] = limit;
+                } else {
+                    int value = Math.min(Math.min(d[i][j] + cost, d[i + 1][j] + 1), d[i][j + 1] + 1);
+                    value = Math.min(value, d[k][l] + (i - k - 1) + 1 + (j - l - 1));
+                    d[i + 1][j + 1] = Math.min(value, limit);
+                }
+                rowMin = Math.min(rowMin, d[i + 1][j + 1]);
+            }
+            lastRow.put(c1, i);
+
+            // Stop if nothing in the row is in range, since the distance can only grow from here
+            if (rowMin >= limit) {
+                return limit;
+            }
+        }
+
+        return d[n + 1][m + 1];
+    }
+}
@@ -25,6 +25,7 @@ import java.util.regex.Pattern;
 
 import org.jboss.pressgang.ccms.contentspec.ITopicNode;
 import org.jboss.pressgang.ccms.contentspec.processor.exceptions.InvalidKeyValueException;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CloneSourceCache;
 import org.jboss.pressgang.ccms.contentspec.processor.structures.VariableSet;
 import org.jboss.pressgang.ccms.provider.DataProviderFactory;
 import org.jboss.pressgang.ccms.provider.PropertyTagProvider;
@@ -144,6 +145,22 @@ public class ProcessorUtilities {
         }
     }
 
+    /**
+     * Gets the revision that an existing topic should be looked up at, which is the topic node's own revision or the maximum
+     * revision if the topic node doesn't specify one.
+     *
+     * @param topicNode   The topic node to get the revision for.
+     * @param maxRevision The maximum revision that topics should be looked up at, or null to use the latest revision.
+     * @return The revision to look up the topic at, or null if the latest revision should be used.
+     */
+    public static Integer getTopicRevision(final ITopicNode topicNode, final Integer maxRevision) {
+        if (topicNode.getRevision() == null && maxRevision != null) {
+            return maxRevision;
+        } else {
+            return topicNode.getRevision();
+        }
+    }
+
     /**
      * Clones a Topic, resets the Added By and CSP ID properties and ignores assigned writers when cloning.
      *
@@ -154,6 +171,21 @@ public class ProcessorUtilities {
      */
     public static TopicWrapper cloneTopic(final DataProviderFactory providerFactory, final ITopicNode specTopic,
             final ServerEntitiesWrapper serverEntities) {
+        return cloneTopic(providerFactory, specTopic, serverEntities, null);
+    }
+
+    /**
+     * Clones a Topic, resets the Added By and CSP ID properties and ignores assigned writers when cloning. The original topic and
+     * the property tags are looked up in the cache first, and are only fetched if they haven't been cached.
+     *
+     * @param providerFactory
+     * @param specTopic        The SpecTopic object that represents a topic.
+     * @param serverEntities
+     * @param cloneSourceCache The cache of original topics and property tags, or null if they should always be fetched.
+     * @return The cloned topic wrapper entity.
+     */
+    public static TopicWrapper cloneTopic(final DataProviderFactory providerFactory, final ITopicNode specTopic,
+            final ServerEntitiesWrapper serverEntities, final CloneSourceCache cloneSourceCache) {
         final TopicProvider topicProvider = providerFactory.getProvider(TopicProvider.class);
         final TopicSourceURLProvider topicSourceUrlProvider = providerFactory.getProvider(TopicSourceURLProvider.class);
         final TagProvider tagProvider = providerFactory.getProvider(TagProvider.class);
@@ -161,7 +193,13 @@ public class ProcessorUtilities {
 
         // Get the existing topic from the database
         int clonedId = Integer.parseInt(specTopic.getId().substring(1));
-        final TopicWrapper originalTopic = topicProvider.getTopic(clonedId, null);
+        TopicWrapper originalTopic = cloneSourceCache == null ? null : cloneSourceCache.getTopic(clonedId, null);
+        if (originalTopic == null) {
+            originalTopic = topicProvider.getTopic(clonedId, null);
+            if (cloneSourceCache != null) {
+                cloneSourceCache.putTopic(clonedId, null, originalTopic);
+            }
+        }
         final TopicWrapper cloneTopic = topicProvider.newTopic();
 
         LOG.debug("Cloning existing topic " + originalTopic.getId());
@@ -225,7 +263,8 @@ public class ProcessorUtilities {
                 cloneTopic);
         final List<PropertyTagInTopicWrapper> propertyItems = originalTopic.getProperties().getItems();
         for (final PropertyTagInTopicWrapper property : propertyItems) {
-            final PropertyTagInTopicWrapper clonedProperty = cloneTopicProperty(cloneTopic, propertyTagProvider, property);
+            final PropertyTagInTopicWrapper clonedProperty = cloneTopicProperty(cloneTopic, propertyTagProvider, property,
+                    cloneSourceCache);
             // Ignore the CSP and Added By Property ID as we will add a new one later
             if (!(property.getId().equals(serverEntities.getCspIdPropertyTagId()) || property.getId().equals(serverEntities.getAddedByPropertyTagId()))) {
                 newProperties.addNewItem(clonedProperty);
@@ -235,7 +274,8 @@ public class ProcessorUtilities {
         // Add the added by property tag
         final String assignedWriter = specTopic.getAssignedWriter(true);
         if (assignedWriter != null) {
-            final PropertyTagWrapper addedByPropertyTag = propertyTagProvider.getPropertyTag(serverEntities.getAddedByPropertyTagId());
+            final PropertyTagWrapper addedByPropertyTag = getPropertyTag(propertyTagProvider, serverEntities.getAddedByPropertyTagId(),
+                    cloneSourceCache);
             final PropertyTagInTopicWrapper addedByProperty = propertyTagProvider.newPropertyTagInTopic(addedByPropertyTag, cloneTopic);
             addedByProperty.setValue(assignedWriter);
             newProperties.addNewItem(addedByProperty);
@@ -258,7 +298,21 @@ public class ProcessorUtilities {
      */
     public static PropertyTagInTopicWrapper cloneTopicProperty(final TopicWrapper topic, final PropertyTagProvider propertyTagProvider,
             final PropertyTagInTopicWrapper originalProperty) {
-        final PropertyTagWrapper propertyTag = propertyTagProvider.getPropertyTag(originalProperty.getId());
+        return cloneTopicProperty(topic, propertyTagProvider, originalProperty, null);
+    }
+
+    /**
+     * Clones a Topic Property Tag, using the cached property tag if one exists.
+     *
+     * @param topic
+     * @param propertyTagProvider The property tag provider to lookup additional details.
+     * @param originalProperty    The PropertyTag to be cloned.
+     * @param cloneSourceCache    The cache of property tags, or null if the property tag should always be fetched.
+     * @return The cloned property tag.
+     */
+    public static PropertyTagInTopicWrapper cloneTopicProperty(final TopicWrapper topic, final PropertyTagProvider propertyTagProvider,
+            final PropertyTagInTopicWrapper originalProperty, final CloneSourceCache cloneSourceCache) {
+        final PropertyTagWrapper propertyTag = getPropertyTag(propertyTagProvider, originalProperty.getId(), cloneSourceCache);
         final PropertyTagInTopicWrapper newPropertyTag = propertyTagProvider.newPropertyTagInTopic(propertyTag, topic);
 
         newPropertyTag.setName(originalProperty.getName());
@@ -267,6 +321,28 @@ public class ProcessorUtilities {
         return newPropertyTag;
     }
 
+    /**
+     * Gets a property tag from the cache, or fetches it and adds it to the cache if it hasn't been cached.
+     *
+     * @param propertyTagProvider The property tag provider to fetch the property tag from.
+     * @param propertyTagId       The id of the property tag.
+     * @param cloneSourceCache    The cache of property tags, or null if the property tag should always be fetched.
+     * @return The property tag.
+     */
+    public static PropertyTagWrapper getPropertyTag(final PropertyTagProvider propertyTagProvider, final Integer propertyTagId,
+            final CloneSourceCache cloneSourceCache) {
+        if (cloneSourceCache == null) {
+            return propertyTagProvider.getPropertyTag(propertyTagId);
+        }
+
+        PropertyTagWrapper propertyTag = cloneSourceCache.getPropertyTag(propertyTagId);
+        if (propertyTag == null) {
+            propertyTag = propertyTagProvider.getPropertyTag(propertyTagId);
+            cloneSourceCache.putPropertyTag(propertyTagId, propertyTag);
+        }
+        return propertyTag;
+    }
+
     /**
      * Clones a Topic Source URL
      *
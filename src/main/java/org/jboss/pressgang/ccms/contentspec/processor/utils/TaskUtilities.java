@@ -0,0 +1,86 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Utilities for waiting on tasks that are run on a worker thread.
+ */
+public class TaskUtilities {
+    /**
+     * How often, in milliseconds, to check if processing should stop while waiting for a task.
+     */
+    public static final long STOP_POLL_INTERVAL = 100;
+
+    /**
+     * A condition that is checked while waiting for a task, to see if the wait should be abandoned.
+     */
+    public static interface StopCondition {
+        boolean isStopRequested();
+    }
+
+    private TaskUtilities() {
+    }
+
+    /**
+     * Waits for a task to complete, while periodically checking if processing should stop.
+     *
+     * @param future        The future for the task to wait on.
+     * @param stopCondition The condition to check while waiting.
+     * @return The result of the task, or null if processing should stop or the thread was interrupted.
+     * @throws ExecutionException Thrown if the task threw an exception.
+     */
+    public static <T> T waitForTask(final Future<T> future, final StopCondition stopCondition) throws ExecutionException {
+        while (!stopCondition.isStopRequested()) {
+            try {
+                return future.get(STOP_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check if processing should stop and then keep waiting
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Rethrows the cause of a failed task, so that the original exception isn't hidden behind the ExecutionException. Checked
+     * exceptions are wrapped in a RuntimeException.
+     *
+     * @param e The exception thrown when getting the result of the task.
+     * @return The wrapped cause, if the cause was a checked exception, so that it can be thrown by the caller.
+     */
+    public static RuntimeException propagateCause(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else {
+            return new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.ipsedixit.annotation.Arbitrary;
+import org.jboss.pressgang.ccms.contentspec.processor.enums.BatchProcessingStage;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.CachingDataProviderFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.BatchProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchItem;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchListener;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecBatchResult;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicSaveJournal;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentSpecBatchProcessorTest extends ContentSpecProcessorTest {
+    private static final int ITEM_COUNT = 20;
+
+    @Arbitrary String username;
+
+    BatchProcessingOptions batchOptions;
+    List<ContentSpecBatchItem> items;
+    List<ContentSpecBatchResult> listenerResults;
+    ContentSpecBatchListener listener;
+
+    @Before
+    public void setUpBatch() {
+        batchOptions = new BatchProcessingOptions();
+        batchOptions.setParseThreads(2);
+        batchOptions.setStageQueueSize(2);
+
+        items = new ArrayList<ContentSpecBatchItem>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(new ContentSpecBatchItem("Title = Test " + i, ContentSpecParser.ParsingMode.NEW, username, null, loggerManager));
+        }
+
+        listenerResults = Collections.synchronizedList(new ArrayList<ContentSpecBatchResult>());
+        listener = new ContentSpecBatchListener() {
+            @Override
+            public void resultCompleted(ContentSpecBatchResult result) {
+                listenerResults.add(result);
+            }
+        };
+    }
+
+    @Test
+    public void shouldStreamAResultForEveryContentSpecWhenTheyFailToParse() {
+        // Given a batch processor where the content specs fail to parse
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions) {
+            @Override
+            protected boolean parse(final BatchJob job) {
+                return false;
+            }
+        };
+
+        // When processing more content specs than the parse stage can queue
+        final List<ContentSpecBatchResult> results = batchProcessor.process(items, listener);
+
+        // Then there should be a result for every content spec
+        assertThat(results.size(), is(ITEM_COUNT));
+        // and the listener should have been passed every result
+        assertThat(listenerResults.size(), is(ITEM_COUNT));
+        assertTrue(listenerResults.containsAll(results));
+        // and every content spec should have failed in the parse stage
+        for (final ContentSpecBatchResult result : results) {
+            assertFalse(result.processedSuccessfully());
+            assertThat(result.getStage(), is(BatchProcessingStage.PARSE));
+        }
+    }
+
+    @Test
+    public void shouldReportTheExceptionWhenAStageFails() {
+        // Given a batch processor where parsing throws an exception
+        final IllegalStateException exception = new IllegalStateException();
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions) {
+            @Override
+            protected boolean parse(final BatchJob job) {
+                throw exception;
+            }
+        };
+
+        // When processing a content spec
+        final List<ContentSpecBatchResult> results = batchProcessor.process(items.subList(0, 1), listener);
+
+        // Then the result should hold the exception
+        assertThat(results.size(), is(1));
+        assertFalse(results.get(0).processedSuccessfully());
+        assertThat(results.get(0).getException(), is((Exception) exception));
+    }
+
+    @Test
+    public void shouldCompleteTheContentSpecWhenAStageFailsWithAnError() {
+        // Given a batch processor where parsing fails with an error
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions) {
+            @Override
+            protected boolean parse(final BatchJob job) {
+                throw new AssertionError();
+            }
+        };
+
+        // When processing the content specs
+        final List<ContentSpecBatchResult> results = batchProcessor.process(items, listener);
+
+        // Then every content spec should still have a failed result
+        assertThat(results.size(), is(ITEM_COUNT));
+        assertThat(listenerResults.size(), is(ITEM_COUNT));
+        for (final ContentSpecBatchResult result : results) {
+            assertFalse(result.processedSuccessfully());
+            assertThat(result.getStage(), is(BatchProcessingStage.PARSE));
+        }
+    }
+
+    @Test
+    public void shouldOnlyShareTheCacheBetweenContentSpecsInTheSameBatch() {
+        // Given a batch processor that records the cache used for each content spec
+        final List<CachingDataProviderFactory> caches = Collections.synchronizedList(new ArrayList<CachingDataProviderFactory>());
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions) {
+            @Override
+            protected boolean parse(final BatchJob job) {
+                caches.add(job.getCachingProviderFactory());
+                return false;
+            }
+        };
+
+        // When processing two batches of content specs
+        batchProcessor.process(items.subList(0, 2), listener);
+        batchProcessor.process(items.subList(2, 3), listener);
+
+        // Then the content specs in the same batch should share a cache
+        assertThat(caches.size(), is(3));
+        assertTrue(caches.get(0) == caches.get(1));
+        // and the content specs in the next batch should use a new cache
+        assertFalse(caches.get(0) == caches.get(2));
+    }
+
+    @Test
+    public void shouldNotProcessAnyContentSpecsOnceShutdown() {
+        // Given a batch processor that has been shutdown
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions) {
+            @Override
+            protected boolean parse(final BatchJob job) {
+                throw new IllegalStateException("Parsing shouldn't have been started");
+            }
+        };
+        batchProcessor.shutdown();
+
+        // When processing the content specs
+        final List<ContentSpecBatchResult> results = batchProcessor.process(items, listener);
+
+        // Then every content spec should have failed without being parsed
+        assertThat(results.size(), is(ITEM_COUNT));
+        for (final ContentSpecBatchResult result : results) {
+            assertFalse(result.processedSuccessfully());
+            assertThat(result.getException() == null, is(true));
+        }
+        // and the batch processor should be shutdown
+        assertTrue(batchProcessor.isShutdown());
+    }
+
+    @Test
+    public void shouldGiveEachContentSpecItsOwnOptionsAndJournal() {
+        // Given the processing options have a journal
+        when(processingOptions.getTopicSaveJournal()).thenReturn(new TopicSaveJournal());
+        when(processingOptions.getTopicSaveBatchSize()).thenReturn(50);
+        final ContentSpecBatchProcessor batchProcessor = new ContentSpecBatchProcessor(providerFactory, processingOptions,
+                batchOptions);
+        // and the first content spec has its own journal
+        final TopicSaveJournal journal = new TopicSaveJournal();
+        items.get(0).setTopicSaveJournal(journal);
+
+        // When creating the options for two content specs
+        final ProcessingOptions firstOptions = batchProcessor.createProcessingOptions(items.get(0));
+        final ProcessingOptions secondOptions = batchProcessor.createProcessingOptions(items.get(1));
+
+        // Then each content spec should have its own copy of the options
+        assertThat(firstOptions, not(sameInstance(secondOptions)));
+        assertThat(firstOptions.getTopicSaveBatchSize(), is(50));
+        // and only use the journal from its own batch item
+        assertThat(firstOptions.getTopicSaveJournal(), sameInstance(journal));
+        assertNull(secondOptions.getTopicSaveJournal());
+    }
+}
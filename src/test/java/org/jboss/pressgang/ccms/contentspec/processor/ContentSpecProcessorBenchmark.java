@@ -0,0 +1,105 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ParserResults;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingMetrics;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingOptions;
+import org.jboss.pressgang.ccms.contentspec.utils.logging.ErrorLoggerManager;
+import org.jboss.pressgang.ccms.provider.mocks.InMemoryDataProviderFactory;
+import org.jboss.pressgang.ccms.provider.mocks.SyntheticDatasetGenerator;
+
+/**
+ * Processes a generated content spec end to end against the in-memory providers, at a range of provider latencies, and prints
+ * how long each run took and how many provider calls it made. Each content spec is created (NEW mode) and then processed again
+ * as an edit of the content spec that was created (EDITED mode). This isn't run as part of the unit tests, run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.jboss.pressgang.ccms.contentspec.processor.ContentSpecProcessorBenchmark
+ * </pre>
+ * The optional arguments are the number of chapters, the number of topics per chapter and the latencies to run at in
+ * milliseconds, ie "10 20 0,1,5,20".
+ */
+public class ContentSpecProcessorBenchmark {
+    private static final long SEED = 1234L;
+    private static final int DATASET_TOPIC_COUNT = 5000;
+    private static final double NEW_TOPIC_RATIO = 0.1;
+    /**
+     * The jitter, as a proportion of the latency.
+     */
+    private static final double JITTER = 0.2;
+
+    public static void main(final String[] args) {
+        final int chapterCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int topicsPerChapter = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final String[] latencies = (args.length > 2 ? args[2] : "0,1,5,20").split(",");
+
+        System.out.println("latency(ms)\tmode\tprocessed\ttime(ms)\tproviderCalls");
+        for (final String latency : latencies) {
+            run(Long.parseLong(latency.trim()), chapterCount, topicsPerChapter);
+        }
+    }
+
+    private static void run(final long latency, final int chapterCount, final int topicsPerChapter) {
+        // Generate the same dataset and content spec for each run, so that only the latency changes
+        final InMemoryDataProviderFactory factory = new InMemoryDataProviderFactory(SEED);
+        final SyntheticDatasetGenerator generator = new SyntheticDatasetGenerator(SEED);
+        generator.setTopicCount(DATASET_TOPIC_COUNT);
+        final SyntheticDatasetGenerator.SyntheticDataset dataset = generator.generate(factory);
+        final String contentSpecString = generator.generateContentSpec(dataset, "Benchmark", chapterCount, topicsPerChapter,
+                NEW_TOPIC_RATIO);
+        factory.setLatency(latency * 1000L, (long) (latency * 1000L * JITTER), TimeUnit.MICROSECONDS);
+
+        // Create the content spec, and then edit the content spec that was created
+        final ContentSpec contentSpec = process(factory, latency, contentSpecString, ContentSpecParser.ParsingMode.NEW);
+        if (contentSpec != null && contentSpec.getId() != null) {
+            final String editedContentSpecString = SyntheticDatasetGenerator.addContentSpecText(factory, contentSpec.getId(),
+                    contentSpecString);
+            process(factory, latency, editedContentSpecString, ContentSpecParser.ParsingMode.EDITED);
+        }
+    }
+
+    private static ContentSpec process(final InMemoryDataProviderFactory factory, final long latency, final String contentSpecString,
+            final ContentSpecParser.ParsingMode mode) {
+        factory.resetCallCounts();
+        final ErrorLoggerManager loggerManager = new ErrorLoggerManager();
+        final ProcessingMetrics metrics = new ProcessingMetrics();
+        final ProcessingOptions processingOptions = new ProcessingOptions();
+        processingOptions.setMetrics(metrics);
+
+        final long start = System.nanoTime();
+        final ContentSpecParser parser = new ContentSpecParser(factory, loggerManager);
+        final ParserResults parserResults = parser.parse(contentSpecString, mode);
+        boolean processed = parserResults.parsedSuccessfully();
+        if (processed) {
+            final ContentSpecProcessor processor = new ContentSpecProcessor(factory, loggerManager, processingOptions);
+            processed = processor.processContentSpec(parserResults.getContentSpec(), "benchmark", mode);
+        }
+        final long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.println(latency + "\t" + mode + "\t" + processed + "\t" + duration + "\t" + factory.getCallCount());
+        System.out.println(metrics);
+
+        return processed ? parserResults.getContentSpec() : null;
+    }
+}
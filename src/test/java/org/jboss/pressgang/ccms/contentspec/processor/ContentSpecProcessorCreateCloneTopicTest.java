@@ -49,6 +49,7 @@ import net.sf.ipsedixit.annotation.Arbitrary;
 import net.sf.ipsedixit.annotation.ArbitraryString;
 import net.sf.ipsedixit.core.StringType;
 import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.CloneSourceCache;
 import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
 import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
 import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
@@ -67,6 +68,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 
 public class ContentSpecProcessorCreateCloneTopicTest extends ContentSpecProcessorTest {
+    private static final int CLONE_COUNT = 500;
+
     @Arbitrary Integer id;
     @Arbitrary Integer revision;
     @Arbitrary String title;
@@ -499,6 +502,73 @@ public class ContentSpecProcessorCreateCloneTopicTest extends ContentSpecProcess
         assertThat(topicSourceURLCollection.getUnchangedItems().size(), is(0));
     }
 
+    @Test
+    public void shouldNotFetchTheOriginalTopicOrPropertyTagsWhenCloningCachedTopics() {
+        // Given the original topic and its property tags were cached during validation
+        setupBaseTopicMocks();
+        setupExistingTopicMocks();
+        setupValidBaseTopicMocks();
+        final CloneSourceCache cache = processor.getCloneSourceCache();
+        cache.putTopic(1, null, topicWrapper);
+        cache.putPropertyTag(CSP_PROPERTY_ID, cspIdPropertyTag);
+        cache.putPropertyTag(ADDED_BY_PROPERTY_TAG_ID, addedByPropertyTag);
+        // and a lot of topics that clone the topic
+        final List<SpecTopic> specTopics = new ArrayList<SpecTopic>();
+        for (int i = 0; i < CLONE_COUNT; i++) {
+            specTopics.add(make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "C1"), with(SpecTopicMaker.uniqueId, "L-C1"),
+                    with(SpecTopicMaker.title, title), with(SpecTopicMaker.type, type), with(SpecTopicMaker.assignedWriter, username),
+                    with(SpecTopicMaker.revision, (Integer) null))));
+        }
+
+        // When creating the topic entities for the topics
+        for (final SpecTopic specTopic : specTopics) {
+            try {
+                assertNotNull(processor.createTopicEntity(providerFactory, specTopic, DOCBOOK_45, localeWrapper));
+            } catch (Exception e) {
+                e.printStackTrace();
+                fail("Creating a topic should not have thrown an exception");
+            }
+        }
+
+        // Then the original topic and property tags should never have been fetched
+        verify(topicProvider, never()).getTopic(anyInt(), anyInt());
+        verify(propertyTagProvider, never()).getPropertyTag(anyInt());
+        // and a new topic should have been created for every clone
+        verify(topicProvider, times(CLONE_COUNT)).newTopic();
+        verifyUnchangedOriginalTopic();
+    }
+
+    @Test
+    public void shouldOnlyFetchThePropertyTagsOnceWhenCloningTopics() {
+        // Given the original topic wasn't cached
+        setupBaseTopicMocks();
+        setupExistingTopicMocks();
+        setupValidBaseTopicMocks();
+        // and a lot of topics that clone the topic
+        final List<SpecTopic> specTopics = new ArrayList<SpecTopic>();
+        for (int i = 0; i < CLONE_COUNT; i++) {
+            specTopics.add(make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "C1"), with(SpecTopicMaker.uniqueId, "L-C1"),
+                    with(SpecTopicMaker.title, title), with(SpecTopicMaker.type, type), with(SpecTopicMaker.assignedWriter, username),
+                    with(SpecTopicMaker.revision, (Integer) null))));
+        }
+
+        // When creating the topic entities for the topics
+        for (final SpecTopic specTopic : specTopics) {
+            try {
+                assertNotNull(processor.createTopicEntity(providerFactory, specTopic, DOCBOOK_45, localeWrapper));
+            } catch (Exception e) {
+                e.printStackTrace();
+                fail("Creating a topic should not have thrown an exception");
+            }
+        }
+
+        // Then the original topic should only have been fetched once
+        verify(topicProvider, times(1)).getTopic(anyInt(), anyInt());
+        // and each property tag should only have been fetched once
+        verify(propertyTagProvider, times(1)).getPropertyTag(CSP_PROPERTY_ID);
+        verify(propertyTagProvider, times(1)).getPropertyTag(ADDED_BY_PROPERTY_TAG_ID);
+    }
+
     protected void setupExistingTopicMocks() {
         // and the topic has an id
         when(topicWrapper.getId()).thenReturn(id);
@@ -0,0 +1,117 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.ipsedixit.annotation.ArbitraryString;
+import net.sf.ipsedixit.core.StringType;
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.ITopicNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicNodeIndex;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.junit.Test;
+
+public class ContentSpecProcessorCreateDuplicatedTopicMapTest extends ContentSpecProcessorTest {
+    @ArbitraryString(type = StringType.ALPHANUMERIC) String title;
+
+    @Test
+    public void shouldMapDuplicateTopicsToTheirSourceTopics() {
+        // Given a new topic and a duplicate of it
+        final SpecTopic newTopic = createTopic("N1");
+        final SpecTopic duplicateTopic = createTopic("X1");
+        // and a cloned topic and a duplicate of it
+        final SpecTopic clonedTopic = createTopic("C15");
+        final SpecTopic clonedDuplicateTopic = createTopic("XC15");
+        // and some other topics
+        final List<ITopicNode> topicNodes = new ArrayList<ITopicNode>();
+        topicNodes.add(createTopic("N2"));
+        topicNodes.add(duplicateTopic);
+        topicNodes.add(clonedDuplicateTopic);
+        topicNodes.add(createTopic("C5"));
+        topicNodes.add(newTopic);
+        topicNodes.add(clonedTopic);
+
+        // When creating the duplicated topic map
+        final Map<ITopicNode, ITopicNode> result = processor.createDuplicatedTopicMap(new TopicNodeIndex(topicNodes));
+
+        // Then only the duplicate topics should be mapped
+        assertThat(result.size(), is(2));
+        // and they should be mapped to the topics they duplicate
+        assertSame(result.get(duplicateTopic), newTopic);
+        assertSame(result.get(clonedDuplicateTopic), clonedTopic);
+    }
+
+    @Test
+    public void shouldMapDuplicateTopicToNullWhenSourceTopicDoesNotExist() {
+        // Given a duplicate topic without the topic it duplicates
+        final SpecTopic duplicateTopic = createTopic("X1");
+        final List<ITopicNode> topicNodes = new ArrayList<ITopicNode>();
+        topicNodes.add(duplicateTopic);
+        topicNodes.add(createTopic("N2"));
+
+        // When creating the duplicated topic map
+        final Map<ITopicNode, ITopicNode> result = processor.createDuplicatedTopicMap(new TopicNodeIndex(topicNodes));
+
+        // Then the duplicate topic should be mapped to nothing
+        assertThat(result.size(), is(1));
+        assertNull(result.get(duplicateTopic));
+    }
+
+    @Test
+    public void shouldMapDuplicateTopicsUsingTheCurrentIdsWhenTheIndexIsInvalidated() {
+        // Given a content spec with a topic and a duplicate of it
+        final SpecTopic newTopic = createTopic("N1");
+        final SpecTopic duplicateTopic = createTopic("X1");
+        final ContentSpec contentSpec = new ContentSpec();
+        contentSpec.getBaseLevel().appendSpecTopic(newTopic);
+        contentSpec.getBaseLevel().appendSpecTopic(duplicateTopic);
+        // and the topic node index was built for the content spec
+        final ContentSpecProcessor.ProcessorData processorData = new ContentSpecProcessor.ProcessorData();
+        processorData.setContentSpec(contentSpec);
+        processorData.getTopicNodeIndex();
+        // and the ids of the topics were changed afterwards
+        newTopic.setId("N2");
+        duplicateTopic.setId("X2");
+
+        // When invalidating the index and creating the duplicated topic map
+        processorData.invalidateTopicNodeIndex();
+        final Map<ITopicNode, ITopicNode> result = processor.createDuplicatedTopicMap(processorData.getTopicNodeIndex());
+
+        // Then the duplicate topic should be mapped using its new id
+        assertThat(result.size(), is(1));
+        assertSame(result.get(duplicateTopic), newTopic);
+    }
+
+    protected SpecTopic createTopic(final String id) {
+        return make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, id), with(SpecTopicMaker.title, title)));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.ITopicNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.exceptions.ProcessingException;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.jboss.pressgang.ccms.contentspec.utils.TopicPool;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ContentSpecProcessorCreateOrUpdateTopicsTest extends ContentSpecProcessorTest {
+    @Mock LocaleWrapper localeWrapper;
+    @Mock ContentSpec contentSpec;
+    @Mock TopicPool topicPool;
+    @Mock TopicWrapper firstTopic;
+    @Mock TopicWrapper secondTopic;
+
+    SpecTopic firstSpecTopic;
+    SpecTopic secondSpecTopic;
+    List<ITopicNode> topicNodes;
+    ContentSpecProcessor.ProcessorData processorData;
+    ContentSpecProcessor processorSpy;
+
+    @Before
+    public void setUpTopics() {
+        when(contentSpec.getFormat()).thenReturn(DOCBOOK_45);
+        processorData = new ContentSpecProcessor.ProcessorData();
+        processorData.setContentSpec(contentSpec);
+
+        // Given two new topics
+        firstSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "N1")));
+        secondSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "N2")));
+        topicNodes = Arrays.<ITopicNode>asList(firstSpecTopic, secondSpecTopic);
+
+        processorSpy = spy(processor);
+    }
+
+    @Test
+    public void shouldAddTopicsInOrderWhenCreatingInParallel() throws Exception {
+        // Given the first topic takes longer to create than the second
+        doAnswer(new Answer<TopicWrapper>() {
+            @Override
+            public TopicWrapper answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(200);
+                return firstTopic;
+            }
+        }).when(processorSpy).createTopicEntity(any(DataProviderFactory.class), eq(firstSpecTopic), anyString(),
+                any(LocaleWrapper.class));
+        doReturn(secondTopic).when(processorSpy).createTopicEntity(any(DataProviderFactory.class), eq(secondSpecTopic), anyString(),
+                any(LocaleWrapper.class));
+
+        // When creating the topics in parallel
+        processorSpy.createOrUpdateTopicsInParallel(topicNodes, topicPool, processorData, localeWrapper, 2);
+
+        // Then the topics should be added to the pool in the order they appear
+        final InOrder inOrder = inOrder(topicPool);
+        inOrder.verify(topicPool).addNewTopic(firstTopic);
+        inOrder.verify(topicPool).addNewTopic(secondTopic);
+    }
+
+    @Test
+    public void shouldThrowExceptionAndStopAddingTopicsWhenATopicFails() throws Exception {
+        // Given the first topic fails to be created
+        doThrow(new ProcessingException("Creating a topic failed.")).when(processorSpy).createTopicEntity(
+                any(DataProviderFactory.class), eq(firstSpecTopic), anyString(), any(LocaleWrapper.class));
+        doReturn(secondTopic).when(processorSpy).createTopicEntity(any(DataProviderFactory.class), eq(secondSpecTopic), anyString(),
+                any(LocaleWrapper.class));
+
+        // When creating the topics in parallel
+        try {
+            processorSpy.createOrUpdateTopicsInParallel(topicNodes, topicPool, processorData, localeWrapper, 2);
+
+            // Then an exception should be thrown
+            fail("Creating the topics should have thrown an exception");
+        } catch (ProcessingException e) {
+            // and no topics should have been added to the pool
+            verify(topicPool, never()).addNewTopic(any(TopicWrapper.class));
+        }
+    }
+}
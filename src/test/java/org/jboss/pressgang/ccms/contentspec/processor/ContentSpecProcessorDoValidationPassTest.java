@@ -0,0 +1,121 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.processor.constants.ProcessorConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ContentSpecProcessorDoValidationPassTest extends ContentSpecProcessorTest {
+    @Mock ContentSpec contentSpec;
+
+    ContentSpecProcessor.ProcessorData processorData;
+    ContentSpecProcessor processorSpy;
+
+    @Before
+    public void setUpProcessorData() {
+        processorData = new ContentSpecProcessor.ProcessorData();
+        processorData.setContentSpec(contentSpec);
+
+        // Given the first validation pass succeeds
+        processorSpy = spy(processor);
+        doReturn(true).when(processorSpy).doFirstValidationPass(processorData);
+    }
+
+    @Test
+    public void shouldSucceedWhenBugLinksAndSecondPassAreValid() {
+        // Given the bug links and the second pass are valid
+        doReturn(true).when(processorSpy).doBugLinkValidationPass(processorData);
+        doReturn(true).when(processorSpy).doSecondValidationPass(processorData);
+
+        // When validating the content spec
+        final boolean result = processorSpy.doValidationPass(processorData);
+
+        // Then the result should be a success
+        assertThat(result, is(true));
+    }
+
+    @Test
+    public void shouldRunSecondPassWhenBugLinksAreInvalid() {
+        // Given the bug links and the second pass are invalid
+        doReturn(false).when(processorSpy).doBugLinkValidationPass(processorData);
+        doReturn(false).when(processorSpy).doSecondValidationPass(processorData);
+
+        // When validating the content spec
+        final boolean result = processorSpy.doValidationPass(processorData);
+
+        // Then the result should be a failure
+        assertThat(result, is(false));
+        // and both passes should have been run
+        verify(processorSpy).doBugLinkValidationPass(processorData);
+        verify(processorSpy).doSecondValidationPass(processorData);
+        // and the content spec should only be reported as invalid once
+        assertThat(logger.getLogMessages().size(), is(1));
+        assertThat(logger.getLogMessages().toString(), containsString(ProcessorConstants.ERROR_INVALID_CS_MSG));
+    }
+
+    @Test
+    public void shouldRethrowTheExceptionFromTheSecondPass() {
+        // Given the bug links are valid
+        doReturn(true).when(processorSpy).doBugLinkValidationPass(processorData);
+        // and the second pass fails
+        final IllegalStateException exception = new IllegalStateException();
+        doThrow(exception).when(processorSpy).doSecondValidationPass(processorData);
+
+        // When validating the content spec
+        try {
+            processorSpy.doValidationPass(processorData);
+            fail("The exception from the second pass should have been rethrown");
+        } catch (IllegalStateException e) {
+            // Then the original exception should be thrown
+            assertSame(e, exception);
+        }
+    }
+
+    @Test
+    public void shouldRethrowTheErrorFromTheSecondPassWithoutWrappingIt() {
+        // Given the bug links are valid
+        doReturn(true).when(processorSpy).doBugLinkValidationPass(processorData);
+        // and the second pass fails with an error
+        final AssertionError error = new AssertionError();
+        doThrow(error).when(processorSpy).doSecondValidationPass(processorData);
+
+        // When validating the content spec
+        try {
+            processorSpy.doValidationPass(processorData);
+            fail("The error from the second pass should have been rethrown");
+        } catch (AssertionError e) {
+            // Then the original error should be thrown
+            assertSame(e, error);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.ipsedixit.annotation.ArbitraryString;
+import net.sf.ipsedixit.core.StringType;
+import org.jboss.pressgang.ccms.contentspec.Node;
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.NodeChangeSet;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.ContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.mocks.UpdateableCollectionWrapperMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ContentSpecProcessorMergeChildrenChangeSetTest extends ContentSpecProcessorTest {
+    private static final int NODE_COUNT = 5000;
+    private static final int TOPIC_ID_OFFSET = 10000;
+
+    @ArbitraryString(type = StringType.ALPHANUMERIC) String title;
+    @ArbitraryString(type = StringType.ALPHANUMERIC) String changedTitle;
+
+    @Mock ContentSpecWrapper contentSpecWrapper;
+
+    List<Node> childNodes;
+    List<CSNodeWrapper> childrenNodes;
+    UpdateableCollectionWrapperMock<CSNodeWrapper> updatedChildrenNodes;
+    Map<SpecNode, CSNodeWrapper> nodeMap;
+
+    @Before
+    public void setUpNodes() {
+        childNodes = new ArrayList<Node>();
+        childrenNodes = new LinkedList<CSNodeWrapper>();
+        updatedChildrenNodes = new UpdateableCollectionWrapperMock<CSNodeWrapper>();
+        nodeMap = new HashMap<SpecNode, CSNodeWrapper>();
+
+        // Create a spec with NODE_COUNT topics that exactly match the existing entities
+        CSNodeWrapper nextNode = null;
+        final List<CSNodeWrapper> entities = new ArrayList<CSNodeWrapper>();
+        for (int i = NODE_COUNT; i > 0; i--) {
+            final CSNodeWrapper node = mock(CSNodeWrapper.class);
+            setUpNodeToReturnNulls(node);
+            when(node.getId()).thenReturn(i);
+            when(node.getNodeType()).thenReturn(CommonConstants.CS_NODE_TOPIC);
+            when(node.getEntityId()).thenReturn(TOPIC_ID_OFFSET + i);
+            when(node.getTitle()).thenReturn(title + i);
+            when(node.getNextNode()).thenReturn(nextNode);
+            when(node.getContentSpec()).thenReturn(contentSpecWrapper);
+            entities.add(0, node);
+            nextNode = node;
+        }
+        childrenNodes.addAll(entities);
+
+        for (int i = 1; i <= NODE_COUNT; i++) {
+            final SpecTopic specTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.uniqueId, Integer.toString(i)),
+                    with(SpecTopicMaker.id, Integer.toString(TOPIC_ID_OFFSET + i)), with(SpecTopicMaker.title, title + i),
+                    with(SpecTopicMaker.revision, (Integer) null)));
+            childNodes.add(specTopic);
+        }
+
+        // and the content spec will return a collection
+        given(contentSpecWrapper.getChildren()).willReturn(updatedChildrenNodes);
+    }
+
+    @Test
+    public void shouldOnlySendChangedNodeForOneLineEdit() {
+        // Given a single topic title was edited in the middle of the spec
+        final int editedIndex = NODE_COUNT / 2;
+        ((SpecTopic) childNodes.get(editedIndex)).setTitle(changedTitle);
+        final CSNodeWrapper editedNode = childrenNodes.get(editedIndex);
+        final NodeChangeSet changeSet = new NodeChangeSet();
+
+        // When merging the children nodes
+        try {
+            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap, changeSet);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("An Exception should not have been thrown. Message: " + e.getMessage());
+        }
+
+        // Then every node should have been processed
+        assertThat(changeSet.getTotalNodeCount(), is(NODE_COUNT));
+        // and only the edited node should be sent
+        assertThat(changeSet.getChangedNodeCount(), is(1));
+        assertThat(changeSet.getNodes(NodeChangeSet.ChangeType.MODIFY).size(), is(1));
+        assertSame(changeSet.getNodes(NodeChangeSet.ChangeType.MODIFY).get(0), editedNode);
+        assertThat(updatedChildrenNodes.size(), is(1));
+        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(1));
+        assertSame(updatedChildrenNodes.getUpdateItems().get(0), editedNode);
+    }
+
+    @Test
+    public void shouldOnlyRelinkNeighboursForOneLineInsert() {
+        // Given a new topic was inserted in the middle of the spec
+        final int insertIndex = NODE_COUNT / 2;
+        final SpecTopic newSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.uniqueId, "L-1"),
+                with(SpecTopicMaker.id, Integer.toString(TOPIC_ID_OFFSET)), with(SpecTopicMaker.title, changedTitle),
+                with(SpecTopicMaker.revision, (Integer) null)));
+        childNodes.add(insertIndex, newSpecTopic);
+        final CSNodeWrapper prevNode = childrenNodes.get(insertIndex - 1);
+        final CSNodeWrapper newNode = mock(CSNodeWrapper.class);
+        given(contentSpecNodeProvider.newCSNode()).willReturn(newNode);
+        given(newNode.getId()).willReturn(null);
+        given(newNode.getNextNode()).willReturn(null);
+        final NodeChangeSet changeSet = new NodeChangeSet();
+
+        // When merging the children nodes
+        try {
+            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap, changeSet);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("An Exception should not have been thrown. Message: " + e.getMessage());
+        }
+
+        // Then every node should have been processed
+        assertThat(changeSet.getTotalNodeCount(), is(NODE_COUNT + 1));
+        // and only the new node and the node before it should be sent
+        assertThat(changeSet.getChangedNodeCount(), is(2));
+        assertThat(changeSet.getNodes(NodeChangeSet.ChangeType.INSERT).size(), is(1));
+        assertSame(changeSet.getNodes(NodeChangeSet.ChangeType.INSERT).get(0), newNode);
+        assertTrue(changeSet.getNodes(NodeChangeSet.ChangeType.RELINK).contains(prevNode));
+        assertFalse(changeSet.getNodes(NodeChangeSet.ChangeType.MODIFY).contains(prevNode));
+        assertThat(updatedChildrenNodes.getAddItems().size(), is(1));
+        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(1));
+    }
+
+    @Test
+    public void shouldOnlySendTheChangeSetWhenTheExistingNodesAreLoaded() {
+        // Given a single topic title was edited in the middle of the spec
+        final int editedIndex = NODE_COUNT / 2;
+        ((SpecTopic) childNodes.get(editedIndex)).setTitle(changedTitle);
+        final CSNodeWrapper editedNode = childrenNodes.get(editedIndex);
+        // and the content spec collection holds all of the existing nodes
+        for (final CSNodeWrapper node : childrenNodes) {
+            updatedChildrenNodes.addItem(node);
+        }
+        final NodeChangeSet changeSet = new NodeChangeSet();
+
+        // When merging the children nodes and removing the nodes that don't need to be sent
+        boolean hasChanges = false;
+        try {
+            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap, changeSet);
+            hasChanges = processor.removeUnchangedNodes(updatedChildrenNodes, changeSet);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("An Exception should not have been thrown. Message: " + e.getMessage());
+        }
+
+        // Then only the edited node should be left to send
+        assertTrue(hasChanges);
+        assertThat(updatedChildrenNodes.size(), is(1));
+        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(1));
+        assertSame(updatedChildrenNodes.getUpdateItems().get(0), editedNode);
+    }
+}
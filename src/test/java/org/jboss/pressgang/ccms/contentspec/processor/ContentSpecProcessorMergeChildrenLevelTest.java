@@ -23,6 +23,7 @@ import static com.natpryce.makeiteasy.MakeItEasy.a;
 import static com.natpryce.makeiteasy.MakeItEasy.make;
 import static com.natpryce.makeiteasy.MakeItEasy.with;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -50,6 +51,7 @@ import org.jboss.pressgang.ccms.contentspec.Level;
 import org.jboss.pressgang.ccms.contentspec.Node;
 import org.jboss.pressgang.ccms.contentspec.SpecNode;
 import org.jboss.pressgang.ccms.contentspec.enums.LevelType;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.NodeChangeSet;
 import org.jboss.pressgang.ccms.contentspec.test.makers.shared.LevelMaker;
 import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
 import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
@@ -311,21 +313,27 @@ public class ContentSpecProcessorMergeChildrenLevelTest extends ContentSpecProce
         // and is in the child nodes collection
         childrenNodes.add(newCSNode);
         childrenNodes.add(foundCSNode);
-        // and the content spec will return a collection
+        // and the content spec will return a collection holding the existing nodes
+        updatedChildrenNodes.addItem(newCSNode);
+        updatedChildrenNodes.addItem(foundCSNode);
         given(contentSpecWrapper.getChildren()).willReturn(updatedChildrenNodes);
+        final NodeChangeSet changeSet = new NodeChangeSet();
 
-        // When merging the children nodes
+        // When merging the children nodes and removing the nodes that don't need to be sent
         try {
-            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap);
+            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap, changeSet);
+            processor.removeUnchangedNodes(updatedChildrenNodes, changeSet);
         } catch (Exception e) {
             fail("An Exception should not have been thrown. Message: " + e.getMessage());
         }
 
-        // Then a updated node should exist in the updated collection
-        assertThat(updatedChildrenNodes.size(), is(2));
-        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(2));
+        // Then only the chapter should be sent, to link it to the section
+        assertThat(changeSet.getChangedNodeCount(), is(1));
+        assertThat(updatedChildrenNodes.size(), is(1));
+        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(1));
         assertSame(updatedChildrenNodes.getUpdateItems().get(0), foundCSNode);
-        assertSame(updatedChildrenNodes.getUpdateItems().get(1), newCSNode);
+        // and the section shouldn't be sent since only its neighbour changed
+        assertFalse(updatedChildrenNodes.getItems().contains(newCSNode));
         // and the main details haven't changed for the chapter
         verifyBaseExistingLevel(foundCSNode);
         // and the main details haven't changed for the section
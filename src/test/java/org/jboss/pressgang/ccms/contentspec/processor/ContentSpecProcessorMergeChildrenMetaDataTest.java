@@ -179,6 +179,41 @@ public class ContentSpecProcessorMergeChildrenMetaDataTest extends ContentSpecPr
         verifyBaseExistingMetaData(foundCSNode);
     }
 
+    @Test
+    public void shouldMergeAbstractMetaDataWithAlternateTitle() {
+        final List<Node> childNodes = new ArrayList<Node>();
+        // Given a content spec abstract meta data
+        final KeyValueNode<String> metaData = new KeyValueNode<String>(CommonConstants.CS_ABSTRACT_TITLE, value);
+        childNodes.add(metaData);
+        // and a child node exists in the database using the old abstract title
+        given(foundCSNode.getNodeType()).willReturn(CommonConstants.CS_NODE_META_DATA);
+        given(foundCSNode.getTitle()).willReturn(CommonConstants.CS_ABSTRACT_ALTERNATE_TITLE);
+        // and another node exists that won't match
+        given(newCSNode.getNodeType()).willReturn(CommonConstants.CS_NODE_META_DATA);
+        given(newCSNode.getTitle()).willReturn(randomAlphaString);
+        // and both are in the child nodes collection
+        childrenNodes.add(newCSNode);
+        childrenNodes.add(foundCSNode);
+        // and the content spec will return a collection
+        given(contentSpecWrapper.getChildren()).willReturn(updatedChildrenNodes);
+
+        // When merging the children nodes
+        try {
+            processor.mergeChildren(childNodes, childrenNodes, providerFactory, null, contentSpecWrapper, nodeMap);
+        } catch (Exception e) {
+            fail("An Exception should not have been thrown. Message: " + e.getMessage());
+        }
+
+        // Then the node using the old title should be updated
+        assertThat(updatedChildrenNodes.getUpdateItems().size(), is(1));
+        assertSame(updatedChildrenNodes.getUpdateItems().get(0), foundCSNode);
+        // and the other node should be set for removal
+        assertThat(childrenNodes.size(), is(1));
+        assertTrue(childrenNodes.contains(newCSNode));
+        // and the title was updated to the current abstract title
+        verify(foundCSNode, times(1)).setTitle(CommonConstants.CS_ABSTRACT_TITLE);
+    }
+
     @Test
     public void shouldIgnoreMetaDataWithDBIdsWhereValueIsUnchanged() {
         final List<Node> childNodes = new ArrayList<Node>();
@@ -28,6 +28,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -586,4 +587,47 @@ public class ContentSpecProcessorMergeTopicRelationshipsTest extends ContentSpec
         assertTrue(relatedToNodes.getRemoveItems().contains(relatedNode));
         assertTrue(relatedToNodes.getRemoveItems().contains(relatedNode2));
     }
+
+    @Test
+    public void shouldMatchAllExistingRelationshipsForLargeLinkList() {
+        final int relationshipCount = 200;
+        final LinkedList<Relationship> relationships = new LinkedList<Relationship>();
+        // Given a spec topic that has a large link list
+        for (int i = 1; i <= relationshipCount; i++) {
+            final SpecTopic linkedSpecTopic = mock(SpecTopic.class);
+            given(linkedSpecTopic.getDBId()).willReturn(i);
+            relationships.add(new TopicRelationship(specTopic, linkedSpecTopic, RelationshipType.LINKLIST));
+        }
+        given(specTopic.getRelationships()).willReturn(relationships);
+        // and a matching node
+        given(nodeEntity.getRelatedToNodes()).willReturn(relatedToNodes);
+        nodeMap.put(specTopic, nodeEntity);
+        // and the node already has all the relationships, but stored in reverse order
+        for (int i = relationshipCount; i > 0; i--) {
+            final CSRelatedNodeWrapper existingRelatedNode = mock(CSRelatedNodeWrapper.class);
+            given(existingRelatedNode.getEntityId()).willReturn(i);
+            given(existingRelatedNode.getRelationshipType()).willReturn(CommonConstants.CS_RELATIONSHIP_LINK_LIST);
+            given(existingRelatedNode.getRelationshipSort()).willReturn(i);
+            given(existingRelatedNode.getRelationshipMode()).willReturn(CommonConstants.CS_RELATIONSHIP_MODE_ID);
+            relatedToNodes.addItem(existingRelatedNode);
+        }
+
+        // When merging the topic relationships
+        try {
+            processor.mergeRelationships(nodeMap, providerFactory);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("An Exception should not have been thrown. Message: " + e.getMessage());
+        }
+
+        // Then the node shouldn't have been updated
+        assertThat(updatedChildrenNodes.size(), is(0));
+        // and every relationship should have matched an existing relationship
+        assertThat(relatedToNodes.size(), is(relationshipCount));
+        assertThat(relatedToNodes.getAddItems().size(), is(0));
+        assertThat(relatedToNodes.getUpdateItems().size(), is(0));
+        assertThat(relatedToNodes.getRemoveItems().size(), is(0));
+        // and no new related nodes were created
+        verify(contentSpecNodeProvider, never()).newCSRelatedNode(any(CSNodeWrapper.class));
+    }
 }
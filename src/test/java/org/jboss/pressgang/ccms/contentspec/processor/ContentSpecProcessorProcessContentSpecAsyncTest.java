@@ -0,0 +1,160 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.processor.enums.ProcessingStage;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingResult;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingStageEvent;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingStageListener;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+public class ContentSpecProcessorProcessContentSpecAsyncTest extends ContentSpecProcessorTest {
+    @Mock ContentSpec contentSpec;
+    @Mock ProcessingStageListener stageListener;
+
+    @Test
+    public void shouldRecordStageAndNotifyListener() {
+        // Given processor data with a stage listener
+        final ContentSpecProcessor.ProcessorData processorData = new ContentSpecProcessor.ProcessorData();
+        processorData.setStageListener(stageListener);
+
+        // When a stage starts and completes
+        final long startTime = processor.startStage(processorData, ProcessingStage.TOPIC_SAVE);
+        processor.completeStage(processorData, ProcessingStage.TOPIC_SAVE, startTime, 5, true);
+
+        // Then the listener should be notified in order
+        final ArgumentCaptor<ProcessingStageEvent> event = ArgumentCaptor.forClass(ProcessingStageEvent.class);
+        final InOrder inOrder = inOrder(stageListener);
+        inOrder.verify(stageListener).stageStarted(ProcessingStage.TOPIC_SAVE);
+        inOrder.verify(stageListener).stageCompleted(event.capture());
+        // and the event should have the stage details
+        assertThat(event.getValue().getStage(), is(ProcessingStage.TOPIC_SAVE));
+        assertThat(event.getValue().getItemCount(), is(5));
+        assertThat(event.getValue().isSuccessful(), is(true));
+        // and the event should be recorded
+        assertThat(processorData.getStageEvents().size(), is(1));
+    }
+
+    @Test
+    public void shouldOnlyCancelTheRunWhenFutureIsCancelled() {
+        // Given an executor that doesn't run anything straight away
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        // and the content spec is being processed asynchronously
+        final Future<ProcessingResult> future = processor.processContentSpecAsync(contentSpec, null, ContentSpecParser.ParsingMode.EITHER,
+                null, executor, stageListener);
+
+        // When the future is cancelled
+        future.cancel(true);
+
+        // Then the future should be cancelled
+        assertThat(future.isCancelled(), is(true));
+        // and the processor should still be usable for other runs
+        assertThat(processor.getProcessingContext().isCancelled(), is(false));
+        assertThat(processor.isShutdown(), is(false));
+        // and the cancelled run should never be started
+        tasks.get(0).run();
+        verify(stageListener, never()).stageStarted(any(ProcessingStage.class));
+    }
+
+    @Test
+    public void shouldNotChangeTheProcessingContextWhenACompletedFutureIsCancelled() throws Exception {
+        // Given an executor that runs everything straight away
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        // and the processor is shutting down, so the run completes straight away
+        processor.shutdown();
+        final ProcessingContext processingContext = processor.getProcessingContext();
+        final Future<ProcessingResult> future = processor.processContentSpecAsync(contentSpec, null, ContentSpecParser.ParsingMode.EITHER,
+                null, executor, stageListener);
+
+        // When the completed future is cancelled
+        final boolean result = future.cancel(true);
+
+        // Then nothing should be cancelled
+        assertThat(result, is(false));
+        assertThat(future.get().processedSuccessfully(), is(false));
+        // and the processor should be using its original context again
+        assertSame(processor.getProcessingContext(), processingContext);
+        assertThat(processingContext.isCancelled(), is(false));
+    }
+
+    @Test
+    public void shouldRejectASecondRunWhileARunIsInProgress() throws Exception {
+        // Given an executor that doesn't run anything straight away
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        // and the processor is shutting down, so runs complete straight away
+        processor.shutdown();
+        // and a content spec has been submitted to be processed
+        final Future<ProcessingResult> future = processor.processContentSpecAsync(contentSpec, null, ContentSpecParser.ParsingMode.EITHER,
+                null, executor, stageListener);
+
+        // When another content spec is submitted before the first run completes
+        try {
+            processor.processContentSpecAsync(contentSpec, null, ContentSpecParser.ParsingMode.EITHER, null, executor, stageListener);
+
+            // Then an exception should be thrown
+            fail("Submitting a second run should have thrown an exception");
+        } catch (IllegalStateException e) {
+            // and only the first run should have been submitted
+            assertThat(tasks.size(), is(1));
+        }
+
+        // and once the first run completes another run can be started
+        tasks.get(0).run();
+        assertThat(future.get().processedSuccessfully(), is(false));
+        processor.processContentSpecAsync(contentSpec, null, ContentSpecParser.ParsingMode.EITHER, null, executor, stageListener);
+        assertThat(tasks.size(), is(2));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.entities.Relationship;
+import org.jboss.pressgang.ccms.contentspec.entities.TopicRelationship;
+import org.jboss.pressgang.ccms.contentspec.enums.RelationshipType;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.SingleSaveContentSpecProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.NodeChangeSet;
+import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.ContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.LogMessageWrapper;
+import org.jboss.pressgang.ccms.wrapper.mocks.UpdateableCollectionWrapperMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+public class ContentSpecProcessorSaveMergedContentSpecTest extends ContentSpecProcessorTest {
+    @Mock ContentSpecWrapper contentSpecWrapper;
+    @Mock LogMessageWrapper logMessage;
+    @Mock CSNodeWrapper newCSNode;
+    @Mock CSNodeWrapper existingCSNode;
+    @Mock CSNodeWrapper levelCSNode;
+    @Mock CSNodeWrapper nestedCSNode;
+    @Mock CSRelatedNodeWrapper newRelatedNode;
+    @Mock SpecTopic specTopic;
+    @Mock SpecTopic newSpecTopic;
+
+    UpdateableCollectionWrapperMock<CSNodeWrapper> updatedChildrenNodes;
+    UpdateableCollectionWrapperMock<CSRelatedNodeWrapper> relatedToNodes;
+
+    Map<SpecNode, CSNodeWrapper> nodeMap;
+    NodeChangeSet changeSet;
+
+    @Before
+    public void setUpChangeSet() {
+        nodeMap = new HashMap<SpecNode, CSNodeWrapper>();
+        changeSet = new NodeChangeSet();
+        updatedChildrenNodes = new UpdateableCollectionWrapperMock<CSNodeWrapper>();
+        relatedToNodes = new UpdateableCollectionWrapperMock<CSRelatedNodeWrapper>();
+
+        // Given a new node and an existing node that were changed
+        when(newCSNode.getId()).thenReturn(null);
+        when(existingCSNode.getId()).thenReturn(1);
+        changeSet.addChange(newCSNode, NodeChangeSet.ChangeType.INSERT);
+        changeSet.addChange(existingCSNode, NodeChangeSet.ChangeType.MODIFY);
+    }
+
+    @Test
+    public void shouldSaveInTwoRequestsWhenProviderDoesNotSupportTemporaryIds() {
+        // Given a provider that doesn't support temporary ids
+
+        // When saving the merged content spec
+        processor.saveMergedContentSpec(providerFactory, contentSpecWrapper, nodeMap, changeSet, logMessage);
+
+        // Then the nodes should be saved first and then the full content spec
+        final InOrder inOrder = inOrder(contentSpecProvider);
+        inOrder.verify(contentSpecProvider, times(1)).updateContentSpec(contentSpecWrapper);
+        inOrder.verify(contentSpecProvider, times(1)).updateContentSpec(contentSpecWrapper, logMessage);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSaveInOneRequestWhenProviderSupportsTemporaryIds() {
+        // Given a provider that supports temporary ids
+        final ContentSpecProvider singleSaveProvider = mock(ContentSpecProvider.class,
+                withSettings().extraInterfaces(SingleSaveContentSpecProvider.class));
+        when(providerFactory.getProvider(ContentSpecProvider.class)).thenReturn(singleSaveProvider);
+
+        // When saving the merged content spec
+        processor.saveMergedContentSpec(providerFactory, contentSpecWrapper, nodeMap, changeSet, logMessage);
+
+        // Then the content spec should be saved in a single request
+        final ArgumentCaptor<Map> temporaryIds = ArgumentCaptor.forClass(Map.class);
+        verify((SingleSaveContentSpecProvider) singleSaveProvider, times(1)).updateContentSpec(eq(contentSpecWrapper), eq(logMessage),
+                temporaryIds.capture(), any(Map.class));
+        verify(singleSaveProvider, never()).updateContentSpec(any(ContentSpecWrapper.class));
+        verify(singleSaveProvider, never()).updateContentSpec(any(ContentSpecWrapper.class), any(LogMessageWrapper.class));
+        // and only the new node should have a temporary id
+        assertThat(temporaryIds.getValue().size(), is(1));
+        assertThat((Integer) temporaryIds.getValue().get(newCSNode), is(-1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldLinkRelationshipsToNewNodesWithTemporaryIds() {
+        // Given a provider that supports temporary ids
+        final ContentSpecProvider singleSaveProvider = mock(ContentSpecProvider.class,
+                withSettings().extraInterfaces(SingleSaveContentSpecProvider.class));
+        when(providerFactory.getProvider(ContentSpecProvider.class)).thenReturn(singleSaveProvider);
+        // and an existing topic that has a new relationship to the new topic
+        final Relationship relationship = new TopicRelationship(specTopic, newSpecTopic, RelationshipType.REFER_TO);
+        when(specTopic.getRelationships()).thenReturn(Arrays.asList(relationship));
+        when(existingCSNode.getRelatedToNodes()).thenReturn(relatedToNodes);
+        when(existingCSNode.getContentSpec()).thenReturn(contentSpecWrapper);
+        when(newSpecTopic.getRelationships()).thenReturn(new LinkedList<Relationship>());
+        nodeMap.put(specTopic, existingCSNode);
+        nodeMap.put(newSpecTopic, newCSNode);
+        // and creating the new related node works
+        when(contentSpecNodeProvider.newCSRelatedNode(newCSNode)).thenReturn(newRelatedNode);
+        when(contentSpecWrapper.getChildren()).thenReturn(updatedChildrenNodes);
+
+        // When saving the merged content spec
+        processor.saveMergedContentSpec(providerFactory, contentSpecWrapper, nodeMap, changeSet, logMessage);
+
+        // Then the content spec should be saved in a single request
+        final ArgumentCaptor<Map> temporaryIds = ArgumentCaptor.forClass(Map.class);
+        final ArgumentCaptor<Map> temporaryRelatedIds = ArgumentCaptor.forClass(Map.class);
+        verify((SingleSaveContentSpecProvider) singleSaveProvider, times(1)).updateContentSpec(eq(contentSpecWrapper), eq(logMessage),
+                temporaryIds.capture(), temporaryRelatedIds.capture());
+        // and the new relationship should point to the temporary id of the new node
+        assertThat(temporaryRelatedIds.getValue().size(), is(1));
+        assertThat((Integer) temporaryRelatedIds.getValue().get(newRelatedNode), is(temporaryIds.getValue().get(newCSNode)));
+        // and the relationship should be saved with the node that holds it
+        assertSame(relatedToNodes.getAddItems().get(0), newRelatedNode);
+        assertTrue(updatedChildrenNodes.getUpdateItems().contains(existingCSNode));
+    }
+
+    @Test
+    public void shouldSaveRelationshipChangesForTopicsInUnchangedLevelsWhenSavingInTwoRequests() {
+        // Given a provider that doesn't support temporary ids
+        // and an unchanged level that holds an unchanged topic
+        final UpdateableCollectionWrapperMock<CSNodeWrapper> contentSpecChildren = new UpdateableCollectionWrapperMock<CSNodeWrapper>();
+        final UpdateableCollectionWrapperMock<CSNodeWrapper> levelChildren = new UpdateableCollectionWrapperMock<CSNodeWrapper>();
+        contentSpecChildren.addItem(levelCSNode);
+        levelChildren.addItem(nestedCSNode);
+        when(contentSpecWrapper.getChildren()).thenReturn(contentSpecChildren);
+        when(levelCSNode.getId()).thenReturn(10);
+        when(levelCSNode.getChildren()).thenReturn(levelChildren);
+        when(nestedCSNode.getId()).thenReturn(11);
+        when(nestedCSNode.getParent()).thenReturn(levelCSNode);
+        when(nestedCSNode.getContentSpec()).thenReturn(contentSpecWrapper);
+        when(nestedCSNode.getRelatedToNodes()).thenReturn(relatedToNodes);
+        // and the topic has a new relationship
+        final Relationship relationship = new TopicRelationship(specTopic, newSpecTopic, RelationshipType.REFER_TO);
+        when(specTopic.getRelationships()).thenReturn(Arrays.asList(relationship));
+        when(newSpecTopic.getRelationships()).thenReturn(new LinkedList<Relationship>());
+        nodeMap.put(specTopic, nestedCSNode);
+        nodeMap.put(newSpecTopic, newCSNode);
+        when(contentSpecNodeProvider.newCSRelatedNode(newCSNode)).thenReturn(newRelatedNode);
+
+        // When saving the merged content spec
+        processor.saveMergedContentSpec(providerFactory, contentSpecWrapper, nodeMap, changeSet, logMessage);
+
+        // Then the content spec should be saved in two requests
+        verify(contentSpecProvider, times(1)).updateContentSpec(contentSpecWrapper);
+        verify(contentSpecProvider, times(1)).updateContentSpec(contentSpecWrapper, logMessage);
+        // and the level should still be sent with the topic that had its relationships changed
+        assertTrue(contentSpecChildren.getItems().contains(levelCSNode));
+        assertTrue(levelChildren.getUpdateItems().contains(nestedCSNode));
+        assertSame(relatedToNodes.getAddItems().get(0), newRelatedNode);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.ITopicNode;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.exceptions.ProcessingException;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicSaveJournal;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TopicSaveProgressListener;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.jboss.pressgang.ccms.contentspec.utils.TopicPool;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ContentSpecProcessorSaveTopicsInChunksTest extends ContentSpecProcessorTest {
+    @Mock LocaleWrapper localeWrapper;
+    @Mock ContentSpec contentSpec;
+    @Mock TopicPool firstPool;
+    @Mock TopicPool secondPool;
+    @Mock TopicWrapper topic;
+    @Mock TopicSaveProgressListener progressListener;
+
+    SpecTopic firstSpecTopic;
+    SpecTopic secondSpecTopic;
+    SpecTopic thirdSpecTopic;
+    List<ITopicNode> topicNodes;
+    Map<ITopicNode, String> journalKeys;
+    List<TopicPool> poolsToRollback;
+    TopicSaveJournal journal;
+    ContentSpecProcessor.ProcessorData processorData;
+    ContentSpecProcessor processorSpy;
+
+    @Before
+    public void setUpTopics() throws Exception {
+        when(contentSpec.getFormat()).thenReturn(DOCBOOK_45);
+        processorData = new ContentSpecProcessor.ProcessorData();
+        processorData.setContentSpec(contentSpec);
+        poolsToRollback = new ArrayList<TopicPool>();
+        journal = new TopicSaveJournal();
+
+        // Given three new topics
+        firstSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "N1"), with(SpecTopicMaker.uniqueId, "N1")));
+        secondSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "N2"), with(SpecTopicMaker.uniqueId, "N2")));
+        thirdSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "N3"), with(SpecTopicMaker.uniqueId, "N3")));
+        topicNodes = Arrays.<ITopicNode>asList(firstSpecTopic, secondSpecTopic, thirdSpecTopic);
+        journalKeys = processor.getTopicSaveJournalKeys(topicNodes);
+
+        // and the topics are saved in chunks of two, one chunk at a time
+        when(processingOptions.getTopicSaveBatchSize()).thenReturn(2);
+        when(processingOptions.getTopicSaveThreads()).thenReturn(1);
+        when(processingOptions.getTopicSaveJournal()).thenReturn(journal);
+        when(processingOptions.getTopicSaveProgressListener()).thenReturn(progressListener);
+
+        processorSpy = spy(processor);
+        doReturn(topic).when(processorSpy).createTopicEntity(any(DataProviderFactory.class), any(ITopicNode.class), anyString(),
+                any(LocaleWrapper.class));
+        doReturn(firstPool).doReturn(secondPool).when(processorSpy).createTopicPool();
+        setUpPool(firstPool);
+        setUpPool(secondPool);
+    }
+
+    @Test
+    public void shouldSaveEachChunkAndReportProgress() throws Exception {
+        // Given both chunks save successfully
+
+        // When saving the topics in chunks
+        processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+
+        // Then each chunk should be saved in its own pool
+        verify(firstPool, times(2)).addNewTopic(topic);
+        verify(secondPool, times(1)).addNewTopic(topic);
+        // and the progress should be reported for each chunk
+        verify(progressListener).chunkSaved(1, 2, 2, 3);
+        verify(progressListener).chunkSaved(2, 2, 3, 3);
+        // and the saved topics should be recorded in the journal
+        assertThat(journal.getTopicId(journalKeys.get(firstSpecTopic)), is(101));
+        assertThat(journal.getTopicId(journalKeys.get(thirdSpecTopic)), is(103));
+        assertThat(firstSpecTopic.getId(), is("101"));
+    }
+
+    @Test
+    public void shouldKeepJournaledChunksWhenAChunkFails() throws Exception {
+        // Given the second chunk fails to save
+        when(secondPool.savePool()).thenReturn(false);
+
+        // When saving the topics in chunks
+        try {
+            processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+
+            // Then an exception should be thrown
+            fail("Saving the topics should have thrown an exception");
+        } catch (ProcessingException e) {
+            // and only the failed chunk should be rolled back
+            assertThat(poolsToRollback, is(Arrays.asList(secondPool)));
+            // and the first chunk should be kept in the journal
+            assertThat(journal.getTopicId(journalKeys.get(firstSpecTopic)), is(101));
+            assertThat(journal.getTopicId(journalKeys.get(secondSpecTopic)), is(102));
+            assertThat(journal.getTopicId(journalKeys.get(thirdSpecTopic)), is((Integer) null));
+            verify(progressListener, never()).chunkSaved(2, 2, 3, 3);
+        }
+    }
+
+    @Test
+    public void shouldNotRecreateTopicsThatWereSavedByAPreviousAttempt() throws Exception {
+        // Given the first two topics were saved by a previous attempt
+        journal.bindToContentSpec(processor.getTopicSaveJournalContentSpecKey(contentSpec));
+        journal.recordSaved(journalKeys.get(firstSpecTopic), 101);
+        journal.recordSaved(journalKeys.get(secondSpecTopic), 102);
+
+        // When saving the topics in chunks
+        processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+
+        // Then the saved topics should be reused
+        assertThat(firstSpecTopic.getId(), is("101"));
+        assertThat(secondSpecTopic.getId(), is("102"));
+        // and only the remaining topic should be created
+        verify(processorSpy, never()).createTopicEntity(any(DataProviderFactory.class), eq(firstSpecTopic), anyString(),
+                any(LocaleWrapper.class));
+        verify(processorSpy, never()).createTopicEntity(any(DataProviderFactory.class), eq(secondSpecTopic), anyString(),
+                any(LocaleWrapper.class));
+        verify(firstPool, times(1)).addNewTopic(topic);
+        verify(progressListener).chunkSaved(1, 1, 1, 1);
+    }
+
+    @Test
+    public void shouldKeepDuplicatesMappedToTopicsThatWereSavedByAPreviousAttempt() throws Exception {
+        // Given a duplicate of the first topic
+        final SpecTopic duplicateSpecTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "X1"),
+                with(SpecTopicMaker.uniqueId, "X1")));
+        final List<ITopicNode> topicNodes = Arrays.<ITopicNode>asList(firstSpecTopic, duplicateSpecTopic, secondSpecTopic,
+                thirdSpecTopic);
+        when(contentSpec.getAllTopicNodes()).thenReturn(topicNodes);
+        // and the duplicated topic map was created before saving
+        final Map<ITopicNode, ITopicNode> duplicatedTopicMap = processorSpy.createDuplicatedTopicMap(
+                processorData.getTopicNodeIndex());
+        // and the first topic was saved by a previous attempt
+        journal.bindToContentSpec(processor.getTopicSaveJournalContentSpecKey(contentSpec));
+        journal.recordSaved(journalKeys.get(firstSpecTopic), 101);
+
+        // When saving the topics in chunks
+        processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+
+        // Then the index should use the id of the saved topic
+        assertThat(processorData.getTopicNodeIndex().getTopicNodesById("101"), is(Arrays.<ITopicNode>asList(firstSpecTopic)));
+        assertNull(processorData.getTopicNodeIndex().getTopicNodesById("N1"));
+        // and the duplicate should be synced to the saved topic
+        processorSpy.syncDuplicatedTopics(duplicatedTopicMap);
+        assertThat(duplicateSpecTopic.getId(), is("101"));
+        // and only the remaining topics should be created
+        verify(firstPool, times(2)).addNewTopic(topic);
+    }
+
+    @Test
+    public void shouldNotRecreateTopicsThatWereSavedByAPreviousAttemptWhenTheLinesHaveShifted() throws Exception {
+        // Given three new topics
+        final List<ITopicNode> topicNodes = createNewTopics(1, "First", "Second", "Third");
+        // and the second chunk fails to save
+        when(secondPool.savePool()).thenReturn(false);
+        try {
+            processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+            fail("Saving the topics should have thrown an exception");
+        } catch (ProcessingException e) {
+            // Do nothing as the failure is expected
+        }
+        // and the retry has two new lines at the top of the spec, so every topic is on a different line
+        final List<ITopicNode> retryTopicNodes = createNewTopics(3, "First", "Second", "Third");
+        when(secondPool.savePool()).thenReturn(true);
+
+        // When retrying saving the topics in chunks
+        processorSpy.saveTopicsInChunks(retryTopicNodes, processorData, localeWrapper, poolsToRollback);
+
+        // Then the topics that were saved should be reused
+        assertThat(((SpecTopic) retryTopicNodes.get(0)).getDBId(), is(101));
+        assertThat(((SpecTopic) retryTopicNodes.get(1)).getDBId(), is(102));
+        // and only the remaining topic should be created
+        verify(processorSpy, never()).createTopicEntity(any(DataProviderFactory.class), eq(retryTopicNodes.get(0)), anyString(),
+                any(LocaleWrapper.class));
+        verify(processorSpy, never()).createTopicEntity(any(DataProviderFactory.class), eq(retryTopicNodes.get(1)), anyString(),
+                any(LocaleWrapper.class));
+        verify(progressListener).chunkSaved(1, 1, 1, 1);
+    }
+
+    @Test
+    public void shouldDiscardTheJournalForADifferentContentSpec() throws Exception {
+        // Given the first topic was saved by a previous attempt for a different content spec
+        journal.bindToContentSpec("ID:5");
+        journal.recordSaved(journalKeys.get(firstSpecTopic), 201);
+
+        // When saving the topics in chunks
+        processorSpy.saveTopicsInChunks(topicNodes, processorData, localeWrapper, poolsToRollback);
+
+        // Then the journaled topic shouldn't be reused
+        assertThat(firstSpecTopic.getId(), is("101"));
+        verify(firstPool, times(2)).addNewTopic(topic);
+        verify(secondPool, times(1)).addNewTopic(topic);
+        // and the journal should now be bound to the content spec being saved
+        assertThat(journal.getContentSpecKey(), is(processor.getTopicSaveJournalContentSpecKey(contentSpec)));
+    }
+
+    protected List<ITopicNode> createNewTopics(final int firstLineNumber, final String... titles) {
+        final List<ITopicNode> topicNodes = new ArrayList<ITopicNode>();
+        for (int i = 0; i < titles.length; i++) {
+            final int line = firstLineNumber + i;
+            final String id = "N" + (i + 1);
+            topicNodes.add(make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, id), with(SpecTopicMaker.uniqueId,
+                    "L" + line + "-" + id), with(SpecTopicMaker.lineNumber, line), with(SpecTopicMaker.title, titles[i]),
+                    with(SpecTopicMaker.type, "Concept"))));
+        }
+        return topicNodes;
+    }
+
+    protected void setUpPool(final TopicPool pool) {
+        when(pool.savePool()).thenReturn(true);
+        when(pool.isInitialised()).thenReturn(true);
+
+        // Initialising a new topic sets the id of the topic that was created (ie N1 -> 101)
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                final ITopicNode topicNode = (ITopicNode) invocation.getArguments()[0];
+                if (topicNode.isTopicANewTopic()) {
+                    topicNode.setId("10" + topicNode.getId().substring(1));
+                }
+                return null;
+            }
+        }).when(pool).initialiseFromPool(any(ITopicNode.class));
+    }
+}
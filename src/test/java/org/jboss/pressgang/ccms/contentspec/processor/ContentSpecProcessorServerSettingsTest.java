@@ -0,0 +1,54 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ServerSettingsSnapshot;
+import org.junit.Test;
+
+public class ContentSpecProcessorServerSettingsTest extends ContentSpecProcessorTest {
+    private static final int PROCESSOR_COUNT = 20;
+
+    @Test
+    public void shouldOnlyFetchTheServerSettingsOnceWhenCreated() {
+        // Given the processor that was created in the setup
+
+        // When checking how the server settings were fetched
+        // Then the settings should have been shared with the validator instead of being fetched twice
+        verify(serverSettingsProvider, times(1)).getServerSettings();
+    }
+
+    @Test
+    public void shouldNotFetchTheServerSettingsWhenCreatedWithASnapshot() {
+        // Given a snapshot of the server settings
+        final ServerSettingsSnapshot snapshot = new ServerSettingsSnapshot(providerFactory);
+
+        // When creating a number of processors and snapshot processors
+        for (int i = 0; i < PROCESSOR_COUNT; i++) {
+            new ContentSpecProcessor(providerFactory, loggerManager, processingOptions, snapshot);
+            new SnapshotProcessor(providerFactory, snapshot);
+        }
+
+        // Then the settings should only have been fetched by the setup processor and the snapshot
+        verify(serverSettingsProvider, times(2)).getServerSettings();
+    }
+}
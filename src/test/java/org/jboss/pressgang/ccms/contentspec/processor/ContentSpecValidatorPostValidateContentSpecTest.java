@@ -23,10 +23,13 @@ import static com.natpryce.makeiteasy.MakeItEasy.a;
 import static com.natpryce.makeiteasy.MakeItEasy.make;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -38,6 +41,7 @@ import net.sf.ipsedixit.core.StringType;
 import org.jboss.pressgang.ccms.contentspec.ContentSpec;
 import org.jboss.pressgang.ccms.contentspec.SpecTopic;
 import org.jboss.pressgang.ccms.contentspec.entities.InjectionOptions;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ContentSpecChecksumCache;
 import org.jboss.pressgang.ccms.contentspec.test.makers.validator.ContentSpecMaker;
 import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
 import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
@@ -69,6 +73,8 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 @PrepareForTest({HashUtilities.class})
 @PowerMockIgnore({"javax.xml.parsers.*", "org.apache.xerces.jaxp.*", "org.xml.sax.*", "org.w3c.dom.*"})
 public class ContentSpecValidatorPostValidateContentSpecTest extends ContentSpecValidatorTest {
+    // The MD5 checksum of an empty content spec
+    private static final String EMPTY_CHECKSUM = "d41d8cd98f00b204e9800998ecf8427e";
 
     @ArbitraryString(type = StringType.ALPHANUMERIC) String username;
     @ArbitraryString(type = StringType.ALPHA) String strictTopicType;
@@ -127,8 +133,28 @@ public class ContentSpecValidatorPostValidateContentSpecTest extends ContentSpec
         given(contentSpecWrapper.getChildren()).willReturn(metaData);
         given(metaData.getItems()).willReturn(new ArrayList<CSNodeWrapper>());
         // And that the checksum of the server content spec version matches the local one
-        PowerMockito.mockStatic(HashUtilities.class);
-        given(HashUtilities.generateMD5(anyString())).willReturn(contentSpec.getChecksum());
+        contentSpec.setChecksum(EMPTY_CHECKSUM);
+
+        // When the spec is postvalidated
+        boolean result = validator.postValidateContentSpec(contentSpec, username);
+
+        // Then the result should be a success
+        assertThat(result, is(true));
+        // And no error messages should be output
+        assertThat(logger.getLogMessages().toString(), containsString("[]"));
+    }
+
+    @Test
+    public void shouldNotDownloadSpecTextIfChecksumCachedForRevision() {
+        // Given a valid content spec that has an id set
+        ContentSpec contentSpec = make(a(ContentSpecMaker.ContentSpec));
+        // And a valid content spec wrapper for the id and revision specified
+        given(contentSpecProvider.getContentSpec(anyInt(), anyInt())).willReturn(contentSpecWrapper);
+        given(contentSpecWrapper.getRevision()).willReturn(10);
+        given(contentSpecWrapper.getChildren()).willReturn(metaData);
+        given(metaData.getItems()).willReturn(new ArrayList<CSNodeWrapper>());
+        // And the checksum for the revision has already been cached
+        ContentSpecChecksumCache.getInstance(dataProviderFactory).put(contentSpec.getId(), 10, contentSpec.getChecksum());
 
         // When the spec is postvalidated
         boolean result = validator.postValidateContentSpec(contentSpec, username);
@@ -137,6 +163,34 @@ public class ContentSpecValidatorPostValidateContentSpecTest extends ContentSpec
         assertThat(result, is(true));
         // And no error messages should be output
         assertThat(logger.getLogMessages().toString(), containsString("[]"));
+        // And the server text shouldn't have been downloaded
+        verify(textContentSpecProvider, never()).getTextContentSpec(anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldOnlyCacheChecksumIfTheTextIsFromTheSameRevision() {
+        // Given a valid content spec that has an id set
+        ContentSpec contentSpec = make(a(ContentSpecMaker.ContentSpec));
+        contentSpec.setChecksum(EMPTY_CHECKSUM);
+        // And a content spec wrapper at revision 10
+        given(contentSpecProvider.getContentSpec(anyInt(), anyInt())).willReturn(contentSpecWrapper);
+        given(contentSpecWrapper.getRevision()).willReturn(10);
+        given(contentSpecWrapper.getChildren()).willReturn(metaData);
+        given(metaData.getItems()).willReturn(new ArrayList<CSNodeWrapper>());
+        // And the text of the content spec is from revision 11
+        given(textContentSpecProvider.getTextContentSpec(anyInt(), anyInt())).willReturn(textContentSpecWrapper);
+        given(textContentSpecWrapper.getText()).willReturn("");
+        given(textContentSpecWrapper.getRevision()).willReturn(11);
+
+        // When the spec is postvalidated
+        boolean result = validator.postValidateContentSpec(contentSpec, username);
+
+        // Then the result should be a success
+        assertThat(result, is(true));
+        // And the checksum shouldn't have been cached for either revision
+        final ContentSpecChecksumCache checksumCache = ContentSpecChecksumCache.getInstance(dataProviderFactory);
+        assertNull(checksumCache.get(contentSpec.getId(), 10));
+        assertNull(checksumCache.get(contentSpec.getId(), 11));
     }
 
     @Test
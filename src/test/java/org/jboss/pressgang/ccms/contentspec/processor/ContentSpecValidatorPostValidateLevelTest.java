@@ -33,13 +33,16 @@ import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.ipsedixit.annotation.Arbitrary;
 import net.sf.ipsedixit.annotation.ArbitraryString;
 import net.sf.ipsedixit.core.StringType;
 import org.jboss.pressgang.ccms.contentspec.ContentSpec;
 import org.jboss.pressgang.ccms.contentspec.Level;
+import org.jboss.pressgang.ccms.contentspec.SpecNode;
 import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingContext;
 import org.jboss.pressgang.ccms.contentspec.test.makers.shared.LevelMaker;
 import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
 import org.jboss.pressgang.ccms.provider.TagProvider;
@@ -50,6 +53,8 @@ import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.xml.sax.SAXException;
 
 /**
@@ -175,6 +180,92 @@ public class ContentSpecValidatorPostValidateLevelTest extends ContentSpecValida
         assertThat(logger.getLogMessages().toString(), containsString("Invalid Topic! Type doesn't exist."));
     }
 
+    @Test
+    public void shouldLogErrorsInOrderWhenValidatingInParallel() {
+        // Given a valid level with two child levels that have invalid tags
+        Level level = make(a(LevelMaker.Level));
+        level.appendChild(make(a(LevelMaker.Level, with(tags, Arrays.asList("first" + tagname)))));
+        level.appendChild(make(a(LevelMaker.Level, with(tags, Arrays.asList("second" + tagname)))));
+        // And the first tag takes longer to look up than the second
+        given(tagProvider.getTagByName("first" + tagname)).willAnswer(new Answer<TagWrapper>() {
+            @Override
+            public TagWrapper answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(200);
+                return null;
+            }
+        });
+        given(tagProvider.getTagByName("second" + tagname)).willReturn(null);
+
+        // When the level is postvalidated in parallel
+        boolean result = validator.postValidateLevelInParallel(level, contentSpec, 2);
+
+        // Then the result should be a failure
+        assertThat(result, is(false));
+        // And the error messages should be output in the order the levels appear
+        final String logMessages = logger.getLogMessages().toString();
+        assertThat(logMessages, containsString("Tag \"first" + tagname + "\" doesn't exist."));
+        assertThat(logMessages, containsString("Tag \"second" + tagname + "\" doesn't exist."));
+        assertThat(logMessages.indexOf("first" + tagname) < logMessages.indexOf("second" + tagname), is(true));
+    }
+
+    @Test
+    public void shouldStopValidatingInParallelWhenShuttingDown() {
+        // Given a valid level with a child level
+        Level level = make(a(LevelMaker.Level));
+        level.appendChild(make(a(LevelMaker.Level)));
+        // And the validator is shutting down
+        validator.shutdown();
+
+        // When the level is postvalidated in parallel
+        boolean result = validator.postValidateLevelInParallel(level, contentSpec, 2);
+
+        // Then the result should be a failure
+        assertThat(result, is(false));
+        // And the validator should be shutdown
+        assertThat(validator.isShutdown(), is(true));
+    }
+
+    @Test
+    public void shouldListAllNodesAsUncheckedWhenProcessingContextIsCancelled() {
+        // Given a valid level with a child spec topic
+        Level level = make(a(LevelMaker.Level));
+        SpecTopic specTopic = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.title, title), with(SpecTopicMaker.revision, rev)));
+        level.appendChild(specTopic);
+        // And the processing context has been cancelled
+        final ProcessingContext processingContext = new ProcessingContext();
+        processingContext.cancel();
+        validator.setProcessingContext(processingContext);
+
+        // When the level is postvalidated
+        boolean result = validator.postValidateLevel(level, contentSpec);
+
+        // Then the result should be a failure
+        assertThat(result, is(false));
+        // And the level and topic should be listed as unchecked
+        assertThat(validator.getUncheckedNodes(level), is(Arrays.<SpecNode>asList(level, specTopic)));
+    }
+
+    @Test
+    public void shouldListNoUncheckedNodesWhenEveryNodeWasValidated() {
+        // Given a valid level with a valid child spec topic
+        Level level = make(a(LevelMaker.Level));
+        level.appendChild(make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.title, title), with(SpecTopicMaker.revision, rev))));
+        // And the topic exists
+        given(topicProvider.getTopic(anyInt(), anyInt())).willReturn(topicWrapper);
+        given(topicWrapper.getTitle()).willReturn(title);
+        given(topicWrapper.getRevision()).willReturn(rev);
+        // And the processing context has plenty of time left
+        validator.setProcessingContext(new ProcessingContext(1, TimeUnit.HOURS));
+
+        // When the level is postvalidated
+        boolean result = validator.postValidateLevel(level, contentSpec);
+
+        // Then the result should be success
+        assertThat(result, is(true));
+        // And there should be no unchecked nodes
+        assertThat(validator.getUncheckedNodes(level).isEmpty(), is(true));
+    }
+
     private Level createLevelWithInvalidTag() {
         Level level = make(a(LevelMaker.Level, with(tags, Arrays.asList(tagname))));
         given(tagProvider.getTagByName(tagname)).willReturn(null);
@@ -0,0 +1,139 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.Level;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.BatchTranslatedTopicProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.TranslationValidationReport;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.LevelMaker;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.jboss.pressgang.ccms.contentspec.test.makers.validator.ContentSpecMaker;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.provider.TranslatedTopicProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ContentSpecValidatorValidateTranslationsTest extends ContentSpecValidatorTest {
+    @Mock TagProvider tagProvider;
+    @Mock TopicProvider topicProvider;
+
+    BatchTranslatedTopicProvider batchProvider;
+    ContentSpec contentSpec;
+
+    @Before
+    public void setUp() {
+        // Given a translated topic provider that supports batch requests
+        final TranslatedTopicProvider translatedTopicProvider = mock(TranslatedTopicProvider.class,
+                withSettings().extraInterfaces(BatchTranslatedTopicProvider.class));
+        batchProvider = (BatchTranslatedTopicProvider) translatedTopicProvider;
+        when(dataProviderFactory.getProvider(TranslatedTopicProvider.class)).thenReturn(translatedTopicProvider);
+        when(dataProviderFactory.getProvider(TagProvider.class)).thenReturn(tagProvider);
+        when(dataProviderFactory.getProvider(TopicProvider.class)).thenReturn(topicProvider);
+        super.setUp();
+
+        // and a content spec with an existing topic
+        contentSpec = make(a(ContentSpecMaker.ContentSpec, with(ContentSpecMaker.id, (Integer) null)));
+        final Level chapter = make(a(LevelMaker.Level));
+        chapter.appendChild(make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "123"), with(SpecTopicMaker.revision, 1))));
+        contentSpec.getBaseLevel().appendChild(chapter);
+    }
+
+    @Test
+    public void shouldCreateAReportForEachLocale() {
+        // Given the existing topic has no translations
+
+        // When validating the content spec against a number of locales, where one locale is repeated
+        final Map<String, TranslationValidationReport> reports = validator.validateTranslations(contentSpec,
+                Arrays.asList("ja-JP", "de-DE", "ja-JP"));
+
+        // Then there should be one report for each locale, in the order given
+        assertThat(new ArrayList<String>(reports.keySet()), is(Arrays.asList("ja-JP", "de-DE")));
+        for (final TranslationValidationReport report : reports.values()) {
+            // and the report should be invalid, since the translated topic is missing
+            assertThat(report.isValid(), is(false));
+            assertThat(report.isComplete(), is(true));
+            assertThat(report.getMessages().size(), is(1));
+            assertThat(report.getMessages().get(0).getMessage(), containsString("The topic specified doesn't exist in the database."));
+        }
+        // and the locale messages shouldn't be logged with the locale independent messages
+        assertThat(logger.getLogMessages().toString().contains("The topic specified doesn't exist in the database."), is(false));
+    }
+
+    @Test
+    public void shouldLookUpTheTranslatedTopicsOncePerLocale() {
+        // Given the topic revisions used by the content spec
+        final Map<Integer, Integer> topicRevisions = new HashMap<Integer, Integer>();
+        topicRevisions.put(123, 1);
+
+        // When validating the content spec against two locales
+        validator.validateTranslations(contentSpec, Arrays.asList("ja-JP", "de-DE"));
+
+        // Then the translated topics should be looked up in a single request per locale
+        verify(batchProvider, times(1)).getTranslatedTopics(topicRevisions, "ja-JP");
+        verify(batchProvider, times(1)).getTranslatedTopics(topicRevisions, "de-DE");
+        // and the existing topic shouldn't be looked up in the default locale
+        verify(topicProvider, never()).getTopic(123, 1);
+    }
+
+    @Test
+    public void shouldLimitTheLocalesValidatedAtTheSameTimeToTheValidationThreads() {
+        // Given validation can use up to four threads
+        when(processingOptions.getValidationThreads()).thenReturn(4);
+
+        // When getting the number of threads to validate the locales with
+        // Then no more than the number of validation threads should be used
+        assertThat(validator.getTranslationValidationThreads(30), is(4));
+        // and no more than one thread per locale should be used
+        assertThat(validator.getTranslationValidationThreads(2), is(2));
+    }
+
+    @Test
+    public void shouldValidateTheLocalesOneAtATimeWithoutValidationThreads() {
+        // Given no validation threads have been set
+        when(processingOptions.getValidationThreads()).thenReturn(0);
+
+        // When getting the number of threads to validate the locales with
+        final int result = validator.getTranslationValidationThreads(3);
+
+        // Then a single thread should be used
+        assertThat(result, is(1));
+    }
+}
@@ -0,0 +1,249 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.SpecTopic;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicChangeProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicRevisionProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.SnapshotOptions;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.SpecTopicMaker;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.provider.exception.NotFoundException;
+import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
+import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class SnapshotProcessorTest extends BaseUnitTest {
+    @Mock DataProviderFactory providerFactory;
+    @Mock ServerSettingsProvider serverSettingsProvider;
+    @Mock ServerSettingsWrapper serverSettings;
+    @Mock LocaleWrapper defaultLocale;
+    @Mock TopicProvider topicProvider;
+    @Mock TopicWrapper topic1;
+    @Mock TopicWrapper topic2;
+    @Mock TopicChangeProvider topicChangeProvider;
+
+    ContentSpec contentSpec;
+    SpecTopic specTopic1;
+    SpecTopic duplicateSpecTopic1;
+    SpecTopic specTopic2;
+    SnapshotOptions snapshotOptions;
+    SnapshotProcessor processor;
+
+    @Before
+    public void setUp() {
+        when(providerFactory.getProvider(TopicProvider.class)).thenReturn(topicProvider);
+        when(providerFactory.getProvider(ServerSettingsProvider.class)).thenReturn(serverSettingsProvider);
+        when(serverSettingsProvider.getServerSettings()).thenReturn(serverSettings);
+        when(serverSettings.getDefaultLocale()).thenReturn(defaultLocale);
+        when(defaultLocale.getValue()).thenReturn("en-US");
+
+        // Given a content spec with two topics, where the first topic is used twice
+        contentSpec = new ContentSpec();
+        specTopic1 = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "1"), with(SpecTopicMaker.revision, (Integer) null)));
+        duplicateSpecTopic1 = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "1"),
+                with(SpecTopicMaker.revision, (Integer) null)));
+        specTopic2 = make(a(SpecTopicMaker.SpecTopic, with(SpecTopicMaker.id, "2"), with(SpecTopicMaker.revision, 5)));
+        contentSpec.getBaseLevel().appendSpecTopic(specTopic1);
+        contentSpec.getBaseLevel().appendSpecTopic(duplicateSpecTopic1);
+        contentSpec.getBaseLevel().appendSpecTopic(specTopic2);
+        // and topics that exist on the server
+        when(topicProvider.getTopic(1, null)).thenReturn(topic1);
+        when(topicProvider.getTopic(2, 5)).thenReturn(topic2);
+        when(topic1.getTopicRevision()).thenReturn(10);
+        when(topic2.getTopicRevision()).thenReturn(5);
+
+        snapshotOptions = new SnapshotOptions();
+        snapshotOptions.setAddFixedUrls(false);
+        processor = new SnapshotProcessor(providerFactory);
+    }
+
+    @Test
+    public void shouldOnlyLookUpEachTopicRevisionOnce() {
+        // When creating a snapshot of the content spec
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then each topic revision should only be looked up once
+        verify(topicProvider, times(1)).getTopic(1, null);
+        verify(topicProvider, times(1)).getTopic(2, 5);
+        // and every node should have its topic and revision set
+        assertThat(specTopic1.getRevision(), is(10));
+        assertThat(duplicateSpecTopic1.getRevision(), is(10));
+        assertThat(specTopic2.getRevision(), is(5));
+        assertThat((TopicWrapper) duplicateSpecTopic1.getTopic(), is(topic1));
+    }
+
+    @Test
+    public void shouldLookUpTopicsInParallel() {
+        // Given the topics should be looked up on multiple threads
+        snapshotOptions.setTopicFetchThreads(4);
+
+        // When creating a snapshot of the content spec
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the revisions should be the same as looking them up sequentially
+        verify(topicProvider, times(1)).getTopic(1, null);
+        assertThat(specTopic1.getRevision(), is(10));
+        assertThat(duplicateSpecTopic1.getRevision(), is(10));
+        assertThat(specTopic2.getRevision(), is(5));
+    }
+
+    @Test
+    public void shouldNotChangeExistingRevisionsUnlessUpdating() {
+        // Given the second topic has a newer revision on the server
+        when(topicProvider.getTopic(2, null)).thenReturn(topic2);
+        when(topic2.getTopicRevision()).thenReturn(7);
+
+        // When creating a snapshot of the content spec without updating revisions
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the existing revision should be kept
+        assertThat(specTopic2.getRevision(), is(5));
+
+        // When creating a snapshot of the content spec and updating revisions
+        snapshotOptions.setUpdateRevisions(true);
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the revision should be updated to the latest revision
+        assertThat(specTopic2.getRevision(), is(7));
+    }
+
+    @Test
+    public void shouldThrowNotFoundExceptionForMissingTopicsWhenLookingUpInParallel() {
+        // Given a topic that doesn't exist
+        final NotFoundException exception = mock(NotFoundException.class);
+        when(topicProvider.getTopic(2, 5)).thenThrow(exception);
+        // and the topics should be looked up on multiple threads
+        snapshotOptions.setTopicFetchThreads(4);
+
+        // When creating a snapshot of the content spec
+        try {
+            processor.processContentSpec(contentSpec, snapshotOptions);
+
+            // Then an exception should have been thrown
+            fail("A NotFoundException should have been thrown.");
+        } catch (NotFoundException e) {
+            // and it should be the original exception
+            assertThat(e, is(exception));
+        }
+    }
+
+    @Test
+    public void shouldOnlySetRevisionsInRevisionsOnlyMode() {
+        // Given the snapshot should only set revisions
+        snapshotOptions.setRevisionsOnly(true);
+
+        // When creating a snapshot of the content spec
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the revisions should be set
+        assertThat(specTopic1.getRevision(), is(10));
+        assertThat(duplicateSpecTopic1.getRevision(), is(10));
+        assertThat(specTopic2.getRevision(), is(5));
+        // and the topics shouldn't be kept on the nodes
+        assertNull(specTopic1.getTopic());
+        // and the topic that keeps its revision shouldn't be looked up
+        verify(topicProvider, never()).getTopic(2, 5);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldLookUpRevisionsInOneRequestWhenProviderSupportsIt() {
+        // Given a provider that can look up topic revisions in bulk
+        final TopicProvider revisionTopicProvider = mock(TopicProvider.class,
+                withSettings().extraInterfaces(TopicRevisionProvider.class));
+        when(providerFactory.getProvider(TopicProvider.class)).thenReturn(revisionTopicProvider);
+        final Map<Integer, Integer> revisions = new HashMap<Integer, Integer>();
+        revisions.put(1, 10);
+        revisions.put(2, 7);
+        when(((TopicRevisionProvider) revisionTopicProvider).getTopicRevisions(Arrays.asList(1, 2), null)).thenReturn(revisions);
+        processor = new SnapshotProcessor(providerFactory);
+        // and the snapshot should only set revisions, updating the existing revisions
+        snapshotOptions.setRevisionsOnly(true);
+        snapshotOptions.setUpdateRevisions(true);
+
+        // When creating a snapshot of the content spec
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the revisions should be set from the bulk request
+        assertThat(specTopic1.getRevision(), is(10));
+        assertThat(duplicateSpecTopic1.getRevision(), is(10));
+        assertThat(specTopic2.getRevision(), is(7));
+        // and no topics should have been looked up
+        verify(revisionTopicProvider, never()).getTopic(anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldOnlyRefreshTopicsChangedSinceThePreviousSnapshot() {
+        // Given the revisions from a previous snapshot
+        final Map<Integer, Integer> previousRevisions = new HashMap<Integer, Integer>();
+        previousRevisions.put(1, 10);
+        previousRevisions.put(2, 5);
+        // and only the second topic has changed since the previous snapshot
+        when(topicChangeProvider.getChangedTopicIds(Arrays.asList(1, 2), 100)).thenReturn(Arrays.asList(2));
+        when(topicProvider.getTopic(2, null)).thenReturn(topic2);
+        when(topic2.getTopicRevision()).thenReturn(7);
+        // and the snapshot should only update the revisions
+        snapshotOptions.setRevisionsOnly(true);
+        snapshotOptions.setUpdateRevisions(true);
+        snapshotOptions.setPreviousRevisions(previousRevisions);
+        snapshotOptions.setPreviousSnapshotRevision(100);
+        snapshotOptions.setTopicChangeProvider(topicChangeProvider);
+
+        // When creating a snapshot of the content spec
+        processor.processContentSpec(contentSpec, snapshotOptions);
+
+        // Then the unchanged topic should keep its previous revision without being looked up
+        assertThat(specTopic1.getRevision(), is(10));
+        assertThat(duplicateSpecTopic1.getRevision(), is(10));
+        verify(topicProvider, never()).getTopic(1, null);
+        // and the changed topic should be updated
+        assertThat(specTopic2.getRevision(), is(7));
+        // and the statistics should show what was refreshed and reused
+        assertThat(processor.getStatistics().getRefreshedTopicCount(), is(1));
+        assertThat(processor.getStatistics().getReusedTopicCount(), is(1));
+    }
+}
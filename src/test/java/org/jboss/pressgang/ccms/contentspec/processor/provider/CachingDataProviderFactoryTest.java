@@ -0,0 +1,182 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import net.sf.ipsedixit.annotation.Arbitrary;
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class CachingDataProviderFactoryTest extends BaseUnitTest {
+    @Arbitrary Integer id;
+    @Arbitrary Integer revision;
+    @Arbitrary String tagName;
+    @Mock DataProviderFactory providerFactory;
+    @Mock TopicProvider topicProvider;
+    @Mock TagProvider tagProvider;
+    @Mock TopicWrapper topic;
+    @Mock TopicWrapper topicRevision;
+    @Mock TagWrapper tag;
+
+    CachingDataProviderFactory cachingProviderFactory;
+
+    @Before
+    public void setUp() {
+        when(providerFactory.getProvider(TopicProvider.class)).thenReturn(topicProvider);
+        when(providerFactory.getProvider(TagProvider.class)).thenReturn(tagProvider);
+
+        cachingProviderFactory = new CachingDataProviderFactory(providerFactory);
+    }
+
+    @Test
+    public void shouldOnlyFetchEachEntityOnce() {
+        // Given providers that return some entities
+        when(topicProvider.getTopic(id, null)).thenReturn(topic);
+        when(topicProvider.getTopic(id, revision)).thenReturn(topicRevision);
+        when(tagProvider.getTagByName(tagName)).thenReturn(tag);
+
+        // When getting the entities through the caching factory more than once
+        final TopicProvider cachingTopicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        final TagProvider cachingTagProvider = cachingProviderFactory.getProvider(TagProvider.class);
+        cachingTopicProvider.getTopic(id, null);
+        final TopicWrapper topicResult = cachingTopicProvider.getTopic(id, null);
+        final TopicWrapper topicRevisionResult = cachingTopicProvider.getTopic(id, revision);
+        cachingTagProvider.getTagByName(tagName);
+        final TagWrapper tagResult = cachingTagProvider.getTagByName(tagName);
+
+        // Then the cached entities should be returned
+        assertThat(topicResult, is(topic));
+        assertThat(topicRevisionResult, is(topicRevision));
+        assertThat(tagResult, is(tag));
+        // and each entity should only have been fetched once
+        verify(topicProvider, times(1)).getTopic(id, null);
+        verify(topicProvider, times(1)).getTopic(id, revision);
+        verify(tagProvider, times(1)).getTagByName(tagName);
+        assertThat(cachingProviderFactory.getMissCount(), is(3L));
+        assertThat(cachingProviderFactory.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotCacheMissingEntities() {
+        // Given a provider that can't find a topic
+        when(topicProvider.getTopic(id, null)).thenReturn(null);
+
+        // When getting the topic through the caching factory more than once
+        final TopicProvider cachingTopicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        cachingTopicProvider.getTopic(id, null);
+        final TopicWrapper result = cachingTopicProvider.getTopic(id, null);
+
+        // Then the topic should be looked up each time
+        assertThat(result, is(nullValue()));
+        verify(topicProvider, times(2)).getTopic(id, null);
+        assertThat(cachingProviderFactory.size(), is(0));
+    }
+
+    @Test
+    public void shouldFetchTopicsAgainOnceInvalidated() {
+        // Given a topic that has been cached
+        when(topicProvider.getTopic(id, null)).thenReturn(topic);
+        when(tagProvider.getTagByName(tagName)).thenReturn(tag);
+        final TopicProvider cachingTopicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        cachingTopicProvider.getTopic(id, null);
+        // and a tag that has been cached
+        cachingProviderFactory.getProvider(TagProvider.class).getTagByName(tagName);
+
+        // When the topic is invalidated and fetched again
+        cachingProviderFactory.invalidateTopics(Arrays.asList(id));
+        cachingTopicProvider.getTopic(id, null);
+
+        // Then the topic should have been fetched twice
+        verify(topicProvider, times(2)).getTopic(id, null);
+        // and the tag should still be cached
+        assertThat(cachingProviderFactory.size(), is(2));
+    }
+
+    @Test
+    public void shouldFetchTagsAgainOnceTheirProviderIsInvalidated() {
+        // Given a topic and a tag that have been cached
+        when(topicProvider.getTopic(id, null)).thenReturn(topic);
+        when(tagProvider.getTagByName(tagName)).thenReturn(tag);
+        cachingProviderFactory.getProvider(TopicProvider.class).getTopic(id, null);
+        final TagProvider cachingTagProvider = cachingProviderFactory.getProvider(TagProvider.class);
+        cachingTagProvider.getTagByName(tagName);
+
+        // When the tags are invalidated and the tag is fetched again
+        cachingProviderFactory.invalidate(TagProvider.class);
+        cachingTagProvider.getTagByName(tagName);
+
+        // Then the tag should have been fetched twice
+        verify(tagProvider, times(2)).getTagByName(tagName);
+        // and the topic should still be cached
+        assertThat(cachingProviderFactory.size(), is(2));
+    }
+
+    @Test
+    public void shouldRemoveTheLeastRecentlyUsedEntitiesWhenFull() {
+        // Given a caching factory that can only hold two entities
+        cachingProviderFactory = new CachingDataProviderFactory(providerFactory, 2);
+        when(topicProvider.getTopic(1, null)).thenReturn(topic);
+        when(topicProvider.getTopic(2, null)).thenReturn(topic);
+        when(topicProvider.getTopic(3, null)).thenReturn(topic);
+        final TopicProvider cachingTopicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        cachingTopicProvider.getTopic(1, null);
+        cachingTopicProvider.getTopic(2, null);
+        // and the first topic has been used since
+        cachingTopicProvider.getTopic(1, null);
+
+        // When another topic is fetched
+        cachingTopicProvider.getTopic(3, null);
+
+        // Then only two topics should be cached
+        assertThat(cachingProviderFactory.size(), is(2));
+        // and the least recently used topic should have to be fetched again
+        cachingTopicProvider.getTopic(1, null);
+        cachingTopicProvider.getTopic(2, null);
+        verify(topicProvider, times(1)).getTopic(1, null);
+        verify(topicProvider, times(2)).getTopic(2, null);
+    }
+
+    @Test
+    public void shouldPassUncachedMethodsThroughToTheProvider() {
+        // When calling a provider method that isn't cached more than once
+        final TopicProvider cachingTopicProvider = cachingProviderFactory.getProvider(TopicProvider.class);
+        cachingTopicProvider.newTopic();
+        cachingTopicProvider.newTopic();
+
+        // Then every call should be passed through to the provider
+        verify(topicProvider, times(2)).newTopic();
+        assertThat(cachingProviderFactory.getMissCount(), is(0L));
+    }
+}
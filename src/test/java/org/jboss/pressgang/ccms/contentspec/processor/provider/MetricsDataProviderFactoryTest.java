@@ -0,0 +1,122 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import net.sf.ipsedixit.annotation.Arbitrary;
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.processor.structures.ProcessingMetrics;
+import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class MetricsDataProviderFactoryTest extends BaseUnitTest {
+    @Arbitrary Integer id;
+    @Arbitrary String tagName;
+    @Mock DataProviderFactory providerFactory;
+    @Mock TopicProvider topicProvider;
+    @Mock TagProvider tagProvider;
+    @Mock TopicWrapper topic;
+    @Mock TagWrapper tag;
+
+    ProcessingMetrics metrics;
+    MetricsDataProviderFactory metricsProviderFactory;
+
+    @Before
+    public void setUp() {
+        when(providerFactory.getProvider(TopicProvider.class)).thenReturn(topicProvider);
+        when(providerFactory.getProvider(TagProvider.class)).thenReturn(tagProvider);
+
+        metrics = new ProcessingMetrics();
+        metricsProviderFactory = new MetricsDataProviderFactory(providerFactory, metrics);
+    }
+
+    @Test
+    public void shouldCountEachProviderMethodCall() {
+        // Given providers that return some entities
+        when(topicProvider.getTopic(id, null)).thenReturn(topic);
+        when(tagProvider.getTagByName(tagName)).thenReturn(tag);
+
+        // When calling the providers through the metrics factory
+        final TopicProvider wrappedTopicProvider = metricsProviderFactory.getProvider(TopicProvider.class);
+        final TagProvider wrappedTagProvider = metricsProviderFactory.getProvider(TagProvider.class);
+        final TopicWrapper firstResult = wrappedTopicProvider.getTopic(id, null);
+        wrappedTopicProvider.getTopic(id, null);
+        final TagWrapper tagResult = wrappedTagProvider.getTagByName(tagName);
+
+        // Then the calls should be passed through to the actual providers
+        assertThat(firstResult, is(topic));
+        assertThat(tagResult, is(tag));
+        verify(topicProvider, times(2)).getTopic(id, null);
+        // and each call should be counted against its method
+        assertThat(metrics.getProviderCallCount("TopicProvider.getTopic"), is(2L));
+        assertThat(metrics.getProviderCallCount("TagProvider.getTagByName"), is(1L));
+        assertThat(metrics.getTotalProviderCallCount(), is(3L));
+    }
+
+    @Test
+    public void shouldCountFailedCallsAndRethrowTheOriginalException() {
+        // Given a provider that throws an exception
+        final IllegalStateException exception = new IllegalStateException();
+        when(topicProvider.getTopic(id, null)).thenThrow(exception);
+
+        // When calling the provider through the metrics factory
+        try {
+            metricsProviderFactory.getProvider(TopicProvider.class).getTopic(id, null);
+
+            // Then an exception should have been thrown
+            fail("An exception should have been thrown.");
+        } catch (IllegalStateException e) {
+            // and it should be the original exception
+            assertThat(e, is(exception));
+        }
+        // and the call should still be counted
+        assertThat(metrics.getProviderCallCount("TopicProvider.getTopic"), is(1L));
+    }
+
+    @Test
+    public void shouldKeepOptionalProviderInterfaces() {
+        // Given a provider that supports saving a content spec in a single request
+        final ContentSpecProvider contentSpecProvider = mock(ContentSpecProvider.class,
+                withSettings().extraInterfaces(SingleSaveContentSpecProvider.class));
+        when(providerFactory.getProvider(ContentSpecProvider.class)).thenReturn(contentSpecProvider);
+
+        // When getting the provider through the metrics factory
+        final ContentSpecProvider result = metricsProviderFactory.getProvider(ContentSpecProvider.class);
+
+        // Then the wrapped provider should still support single saves
+        assertTrue(result instanceof SingleSaveContentSpecProvider);
+    }
+}
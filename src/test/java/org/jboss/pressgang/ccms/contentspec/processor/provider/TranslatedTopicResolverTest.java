@@ -0,0 +1,118 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.provider;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.TranslatedTopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.base.BaseTopicWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class TranslatedTopicResolverTest extends BaseUnitTest {
+    private static final String LOCALE = "ja-JP";
+
+    @Mock DataProviderFactory providerFactory;
+    @Mock TranslatedTopicWrapper translatedTopic1;
+    @Mock TranslatedTopicWrapper translatedTopic1Revision3;
+    @Mock TranslatedTopicWrapper translatedTopic2;
+
+    BatchTranslatedTopicProvider batchProvider;
+    TranslatedTopicResolver resolver;
+
+    @Before
+    public void setUp() {
+        // Given a translated topic provider that supports batch requests
+        final TranslatedTopicProvider translatedTopicProvider = mock(TranslatedTopicProvider.class,
+                withSettings().extraInterfaces(BatchTranslatedTopicProvider.class));
+        batchProvider = (BatchTranslatedTopicProvider) translatedTopicProvider;
+        when(providerFactory.getProvider(TranslatedTopicProvider.class)).thenReturn(translatedTopicProvider);
+
+        resolver = new TranslatedTopicResolver(providerFactory, LOCALE);
+    }
+
+    @Test
+    public void shouldResolveTopicsInAsFewRequestsAsPossible() {
+        // Given three topics to resolve, where one topic is used at two revisions
+        final Map<Integer, Integer> firstBatch = new HashMap<Integer, Integer>();
+        firstBatch.put(1, null);
+        firstBatch.put(2, 5);
+        final Map<Integer, Integer> secondBatch = new HashMap<Integer, Integer>();
+        secondBatch.put(1, 3);
+        when(batchProvider.getTranslatedTopics(firstBatch, LOCALE)).thenReturn(createResults(1, translatedTopic1, 2,
+                translatedTopic2));
+        when(batchProvider.getTranslatedTopics(secondBatch, LOCALE)).thenReturn(createResults(1, translatedTopic1Revision3, null,
+                null));
+        resolver.addTopic(1, null);
+        resolver.addTopic(2, 5);
+        resolver.addTopic(1, 3);
+
+        // When resolving the topics
+        resolver.resolve();
+
+        // Then the topics should be resolved in two requests, since the first topic can only be in a request once
+        verify(batchProvider, times(1)).getTranslatedTopics(firstBatch, LOCALE);
+        verify(batchProvider, times(1)).getTranslatedTopics(secondBatch, LOCALE);
+        // and each topic should return its translation
+        assertThat((TranslatedTopicWrapper) resolver.getTranslatedTopic(1, null), is(translatedTopic1));
+        assertThat((TranslatedTopicWrapper) resolver.getTranslatedTopic(2, 5), is(translatedTopic2));
+        assertThat((TranslatedTopicWrapper) resolver.getTranslatedTopic(1, 3), is(translatedTopic1Revision3));
+    }
+
+    @Test
+    public void shouldReturnNullForTopicsWithoutATranslation() {
+        // Given a topic that has no translation
+        final Map<Integer, Integer> batch = new HashMap<Integer, Integer>();
+        batch.put(1, null);
+        when(batchProvider.getTranslatedTopics(batch, LOCALE)).thenReturn(new HashMap<Integer, TranslatedTopicWrapper>());
+        resolver.addTopic(1, null);
+
+        // When resolving the topic
+        resolver.resolve();
+        final BaseTopicWrapper<?> result = resolver.getTranslatedTopic(1, null);
+
+        // Then no translated topic should be returned
+        assertNull(result);
+    }
+
+    protected Map<Integer, TranslatedTopicWrapper> createResults(final Integer id1, final TranslatedTopicWrapper topic1,
+            final Integer id2, final TranslatedTopicWrapper topic2) {
+        final Map<Integer, TranslatedTopicWrapper> results = new HashMap<Integer, TranslatedTopicWrapper>();
+        results.put(id1, topic1);
+        if (id2 != null) {
+            results.put(id2, topic2);
+        }
+        return results;
+    }
+}
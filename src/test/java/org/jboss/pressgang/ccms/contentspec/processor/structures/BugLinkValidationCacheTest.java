@@ -0,0 +1,156 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.ContentSpec;
+import org.jboss.pressgang.ccms.contentspec.KeyValueNode;
+import org.jboss.pressgang.ccms.contentspec.enums.BugLinkType;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BugLinkValidationCacheTest extends BaseUnitTest {
+    private static final String BASE_URL = "https://bugzilla.example.com/";
+    private static final long TIME_TO_LIVE = 1000L;
+
+    TestBugLinkValidationCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new TestBugLinkValidationCache();
+        cache.setTimeToLive(TIME_TO_LIVE);
+    }
+
+    @Test
+    public void shouldCreateTheSameKeyForTheSameOptions() {
+        // Given two content specs with the same bug options in a different order
+        final ContentSpec contentSpec1 = new ContentSpec();
+        contentSpec1.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_PRODUCT_TITLE, "Product"));
+        contentSpec1.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_COMPONENT_TITLE, "Component"));
+        final ContentSpec contentSpec2 = new ContentSpec();
+        contentSpec2.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_COMPONENT_TITLE, "Component"));
+        contentSpec2.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_PRODUCT_TITLE, "Product"));
+        // and some metadata that isn't used by bug links
+        contentSpec2.appendChild(new KeyValueNode<String>(CommonConstants.CS_TITLE_TITLE, "Title"));
+
+        // When creating the keys
+        final String key1 = BugLinkValidationCache.createKey(BugLinkType.BUGZILLA, BASE_URL, contentSpec1);
+        final String key2 = BugLinkValidationCache.createKey(BugLinkType.BUGZILLA, BASE_URL, contentSpec2);
+
+        // Then the keys should be the same
+        assertThat(key1, is(key2));
+    }
+
+    @Test
+    public void shouldCreateDifferentKeysForDifferentOptions() {
+        // Given two content specs with different bug options
+        final ContentSpec contentSpec1 = new ContentSpec();
+        contentSpec1.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_VERSION_TITLE, "1.0"));
+        final ContentSpec contentSpec2 = new ContentSpec();
+        contentSpec2.appendChild(new KeyValueNode<String>(CommonConstants.CS_BUGZILLA_VERSION_TITLE, "2.0"));
+
+        // When creating the keys
+        final String key1 = BugLinkValidationCache.createKey(BugLinkType.BUGZILLA, BASE_URL, contentSpec1);
+        final String key2 = BugLinkValidationCache.createKey(BugLinkType.BUGZILLA, BASE_URL, contentSpec2);
+
+        // Then the keys should be different
+        assertThat(key1, not(key2));
+    }
+
+    @Test
+    public void shouldReturnCachedOutcomeBeforeItExpires() {
+        // Given a valid and an invalid outcome that have been cached
+        cache.put("valid", null);
+        cache.put("invalid", "Invalid product");
+        // and some time has passed
+        cache.currentTime += TIME_TO_LIVE - 1;
+
+        // When getting the outcomes
+        final BugLinkValidationCache.CachedValidation valid = cache.get("valid");
+        final BugLinkValidationCache.CachedValidation invalid = cache.get("invalid");
+
+        // Then the cached outcomes should be returned
+        assertTrue(valid.isValid());
+        assertFalse(invalid.isValid());
+        assertThat(invalid.getValidationError(), is("Invalid product"));
+    }
+
+    @Test
+    public void shouldNotReturnCachedOutcomeOnceItExpires() {
+        // Given an outcome that has been cached
+        cache.put("valid", null);
+        // and the time to live has passed
+        cache.currentTime += TIME_TO_LIVE;
+
+        // When getting the outcome
+        final BugLinkValidationCache.CachedValidation result = cache.get("valid");
+
+        // Then nothing should be returned
+        assertThat(result, nullValue());
+    }
+
+    @Test
+    public void shouldExpireInvalidOutcomesBeforeValidOutcomes() {
+        // Given invalid outcomes are only cached for a short time
+        cache.setInvalidTimeToLive(TIME_TO_LIVE / 10);
+        // and a valid and an invalid outcome that have been cached
+        cache.put("valid", null);
+        cache.put("invalid", "Invalid product");
+        // and the invalid time to live has passed
+        cache.currentTime += TIME_TO_LIVE / 10;
+
+        // When getting the outcomes
+        final BugLinkValidationCache.CachedValidation valid = cache.get("valid");
+        final BugLinkValidationCache.CachedValidation invalid = cache.get("invalid");
+
+        // Then only the valid outcome should be returned
+        assertTrue(valid.isValid());
+        assertThat(invalid, nullValue());
+    }
+
+    @Test
+    public void shouldNotCacheWhenTimeToLiveIsZero() {
+        // Given caching has been turned off
+        cache.setTimeToLive(0);
+
+        // When caching an outcome
+        cache.put("valid", null);
+
+        // Then nothing should be returned
+        assertThat(cache.get("valid"), nullValue());
+    }
+
+    protected static class TestBugLinkValidationCache extends BugLinkValidationCache {
+        long currentTime = 0L;
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest extends BaseUnitTest {
+    private static final long OPEN_DURATION = 1000L;
+
+    TestCircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        circuitBreaker = new TestCircuitBreaker(4, 2, 0.5, OPEN_DURATION);
+    }
+
+    @Test
+    public void shouldStayClosedWhenCallsSucceed() {
+        // Given a circuit breaker where every call succeeds
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.recordSuccess();
+        }
+
+        // When checking if a request is allowed
+        final boolean result = circuitBreaker.allowRequest();
+
+        // Then the request should be allowed
+        assertTrue(result);
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void shouldNotOpenBeforeTheMinimumNumberOfCalls() {
+        // Given a circuit breaker where a single call has failed
+        circuitBreaker.recordFailure();
+
+        // When checking if a request is allowed
+        final boolean result = circuitBreaker.allowRequest();
+
+        // Then the request should be allowed
+        assertTrue(result);
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void shouldFailFastWhenTheFailureRateReachesTheThreshold() {
+        // Given a circuit breaker where half of the recent calls have failed
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        // When checking if a request is allowed
+        final boolean result = circuitBreaker.allowRequest();
+
+        // Then the request should fail fast
+        assertFalse(result);
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void shouldOnlyCountCallsInTheWindow() {
+        // Given a circuit breaker where the old calls failed
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordSuccess();
+        // and the failure has since dropped out of the window
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        // When checking if a request is allowed
+        final boolean result = circuitBreaker.allowRequest();
+
+        // Then the request should be allowed, since only 1 of the last 4 calls failed
+        assertTrue(result);
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void shouldAllowASingleTrialCallOnceTheOpenDurationHasPassed() {
+        // Given a circuit breaker that has opened
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        // and the open duration has passed
+        circuitBreaker.currentTime += OPEN_DURATION;
+
+        // When checking if requests are allowed
+        final boolean firstResult = circuitBreaker.allowRequest();
+        final boolean secondResult = circuitBreaker.allowRequest();
+
+        // Then only the first request should be allowed
+        assertTrue(firstResult);
+        assertFalse(secondResult);
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    }
+
+    @Test
+    public void shouldCloseWhenTheTrialCallSucceeds() {
+        // Given a circuit breaker that is allowing a trial call
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.currentTime += OPEN_DURATION;
+        circuitBreaker.allowRequest();
+
+        // When the trial call succeeds
+        circuitBreaker.recordSuccess();
+
+        // Then the circuit should be closed
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+        // and the old failures should be forgotten
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldReopenWhenTheTrialCallFails() {
+        // Given a circuit breaker that is allowing a trial call
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.currentTime += OPEN_DURATION;
+        circuitBreaker.allowRequest();
+
+        // When the trial call fails
+        circuitBreaker.recordFailure();
+
+        // Then the circuit should be open again
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void shouldAllowAnotherTrialCallWhenTheTrialCallIsIgnored() {
+        // Given a circuit breaker that is allowing a trial call
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.currentTime += OPEN_DURATION;
+        circuitBreaker.allowRequest();
+
+        // When the trial call fails for a reason that isn't the external service's fault
+        circuitBreaker.recordIgnored();
+
+        // Then the circuit should still be half open
+        assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+        // and another trial call should be allowed
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    protected static class TestCircuitBreaker extends CircuitBreaker {
+        long currentTime = 0L;
+
+        public TestCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDuration) {
+            super(windowSize, minimumCalls, failureRateThreshold, openDuration);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.CachingDataProviderFactory;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.MetricsDataProviderFactory;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ContentSpecChecksumCacheTest extends BaseUnitTest {
+    @Mock DataProviderFactory factory;
+    @Mock DataProviderFactory otherFactory;
+
+    @Test
+    public void shouldUseTheSameCacheForTheSameFactory() {
+        // Given the cache for a factory
+        final ContentSpecChecksumCache checksumCache = ContentSpecChecksumCache.getInstance(factory);
+
+        // When getting the cache for the factory again
+        final ContentSpecChecksumCache result = ContentSpecChecksumCache.getInstance(factory);
+
+        // Then the same cache should be returned
+        assertThat(result, sameInstance(checksumCache));
+    }
+
+    @Test
+    public void shouldUseTheCacheOfTheWrappedFactoryForDecoratingFactories() {
+        // Given the cache for a factory
+        final ContentSpecChecksumCache checksumCache = ContentSpecChecksumCache.getInstance(factory);
+        // and a factory that records metrics for a caching factory, that wraps the factory
+        final DataProviderFactory decoratedFactory = new MetricsDataProviderFactory(new CachingDataProviderFactory(factory),
+                new ProcessingMetrics());
+
+        // When getting the cache for the decorating factory
+        final ContentSpecChecksumCache result = ContentSpecChecksumCache.getInstance(decoratedFactory);
+
+        // Then the cache for the wrapped factory should be returned
+        assertThat(result, sameInstance(checksumCache));
+    }
+
+    @Test
+    public void shouldNotShareChecksumsBetweenServers() {
+        // Given a checksum cached for a content spec revision on one server
+        ContentSpecChecksumCache.getInstance(factory).put(1, 10, "abc");
+
+        // When getting the checksum for the same revision from a factory for another server
+        final String result = ContentSpecChecksumCache.getInstance(otherFactory).get(1, 10);
+
+        // Then no checksum should be found
+        assertThat(result, nullValue());
+    }
+
+    @Test
+    public void shouldRemoveTheLeastRecentlyUsedChecksumsWhenFull() {
+        // Given a cache that can only hold two checksums
+        final ContentSpecChecksumCache checksumCache = new ContentSpecChecksumCache(2);
+        checksumCache.put(1, 1, "first");
+        checksumCache.put(1, 2, "second");
+        // and the first checksum has been used since
+        checksumCache.get(1, 1);
+
+        // When another checksum is cached
+        checksumCache.put(1, 3, "third");
+
+        // Then the least recently used checksum should have been removed
+        assertThat(checksumCache.size(), is(2));
+        assertThat(checksumCache.get(1, 1), is("first"));
+        assertThat(checksumCache.get(1, 2), nullValue());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static com.natpryce.makeiteasy.MakeItEasy.a;
+import static com.natpryce.makeiteasy.MakeItEasy.make;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.Level;
+import org.jboss.pressgang.ccms.contentspec.test.makers.shared.LevelMaker;
+import org.junit.Test;
+
+public class ProcessingContextTest extends BaseUnitTest {
+    @Test
+    public void shouldNeverStopWithoutADeadline() {
+        // Given a context without a deadline
+        final ProcessingContext context = new ProcessingContext();
+
+        // When checking if processing should stop
+        final boolean result = context.isStopRequested();
+
+        // Then processing shouldn't stop
+        assertFalse(result);
+        // and there should be unlimited time remaining
+        assertThat(context.getRemainingTime(TimeUnit.MILLISECONDS), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldStopWhenCancelled() {
+        // Given a context with plenty of time left
+        final ProcessingContext context = new ProcessingContext(1, TimeUnit.HOURS);
+
+        // When the context is cancelled
+        context.cancel();
+
+        // Then processing should stop
+        assertTrue(context.isStopRequested());
+        assertFalse(context.isDeadlineExceeded());
+    }
+
+    @Test
+    public void shouldOnlyCancelTheRunWhenARunContextIsCancelled() {
+        // Given a context for a run within another context
+        final ProcessingContext parent = new ProcessingContext();
+        final ProcessingContext context = new ProcessingContext(parent);
+
+        // When the run context is cancelled
+        context.cancel();
+
+        // Then the run should stop
+        assertTrue(context.isStopRequested());
+        // and the parent context shouldn't be cancelled
+        assertFalse(parent.isStopRequested());
+    }
+
+    @Test
+    public void shouldStopARunWhenTheParentIsCancelledOrRunsOutOfTime() {
+        // Given a context for a run within a context that has a deadline
+        final TestProcessingContext parent = new TestProcessingContext(1000);
+        final ProcessingContext context = new ProcessingContext(parent);
+
+        // When the time moves past the parent's deadline
+        parent.currentTime += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        // Then the run should stop
+        assertTrue(context.isDeadlineExceeded());
+        assertTrue(context.isStopRequested());
+        // and the run should be cancelled once the parent is cancelled
+        parent.cancel();
+        assertTrue(context.isCancelled());
+    }
+
+    @Test
+    public void shouldStopOnceTheDeadlineHasPassed() {
+        // Given a context that has a deadline
+        final TestProcessingContext context = new TestProcessingContext(1000);
+
+        // When the time moves past the deadline
+        context.currentTime += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        // Then processing should stop
+        assertTrue(context.isDeadlineExceeded());
+        assertTrue(context.isStopRequested());
+        // and there should be no time remaining
+        assertThat(context.getRemainingTime(TimeUnit.MILLISECONDS), is(0L));
+    }
+
+    @Test
+    public void shouldReturnTheRemainingTimeBeforeTheDeadline() {
+        // Given a context that has a deadline
+        final TestProcessingContext context = new TestProcessingContext(1000);
+
+        // When some of the time has been used
+        context.currentTime += TimeUnit.MILLISECONDS.toNanos(400);
+
+        // Then the rest of the time should be remaining
+        assertFalse(context.isStopRequested());
+        assertThat(context.getRemainingTime(TimeUnit.MILLISECONDS), is(600L));
+    }
+
+    @Test
+    public void shouldOnlyRecordCheckedNodesInTheRunContext() {
+        // Given a context for a run within another context
+        final ProcessingContext parent = new ProcessingContext();
+        final ProcessingContext context = new ProcessingContext(parent);
+        final Level level = make(a(LevelMaker.Level));
+
+        // When a node is checked in the run
+        context.markChecked(level);
+
+        // Then the node should only be checked in the run context
+        assertTrue(context.isChecked(level));
+        assertFalse(parent.isChecked(level));
+    }
+
+    @Test
+    public void shouldForgetCheckedNodesWhenCleared() {
+        // Given a context where a node has been checked
+        final ProcessingContext context = new ProcessingContext();
+        final Level level = make(a(LevelMaker.Level));
+        context.markChecked(level);
+
+        // When the checked nodes are cleared
+        context.clearChecked();
+
+        // Then the node should no longer be checked
+        assertFalse(context.isChecked(level));
+    }
+
+    protected static class TestProcessingContext extends ProcessingContext {
+        // Starts at 0, which is also what the deadline is calculated from while the super constructor runs
+        long currentTime;
+
+        public TestProcessingContext(final long timeoutMillis) {
+            super(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
+import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ServerSettingsSnapshotTest extends BaseUnitTest {
+    private static final long TIME_TO_LIVE = 1000L;
+
+    @Mock DataProviderFactory providerFactory;
+    @Mock ServerSettingsProvider serverSettingsProvider;
+    @Mock ServerSettingsWrapper serverSettings;
+    @Mock ServerSettingsWrapper updatedServerSettings;
+
+    TestServerSettingsSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        when(providerFactory.getProvider(ServerSettingsProvider.class)).thenReturn(serverSettingsProvider);
+        when(serverSettingsProvider.getServerSettings()).thenReturn(serverSettings, updatedServerSettings);
+        snapshot = new TestServerSettingsSnapshot(providerFactory);
+    }
+
+    @Test
+    public void shouldNotLoadTheSettingsUntilTheyAreNeeded() {
+        // Given a snapshot that was just created
+
+        // When nothing has asked for the settings
+        // Then the settings shouldn't have been loaded
+        verify(serverSettingsProvider, never()).getServerSettings();
+        assertThat(snapshot.getLoadCount(), is(0L));
+        assertFalse(snapshot.isExpired());
+    }
+
+    @Test
+    public void shouldOnlyLoadTheSettingsOnceBeforeTheyExpire() {
+        // Given the settings have been requested before
+        snapshot.getServerSettings();
+        snapshot.currentTime += TIME_TO_LIVE - 1;
+
+        // When requesting the settings again
+        final ServerSettingsWrapper result = snapshot.getServerSettings();
+
+        // Then the same settings should be returned without loading them again
+        assertThat(result, is(sameInstance(serverSettings)));
+        verify(serverSettingsProvider, times(1)).getServerSettings();
+        assertThat(snapshot.refreshTasks.size(), is(0));
+    }
+
+    @Test
+    public void shouldReturnTheOldSettingsWhileRefreshingInTheBackground() {
+        // Given the settings have expired
+        snapshot.getServerSettings();
+        snapshot.currentTime += TIME_TO_LIVE;
+        assertTrue(snapshot.isExpired());
+
+        // When requesting the settings twice before the refresh has run
+        final ServerSettingsWrapper result = snapshot.getServerSettings();
+        snapshot.getServerSettings();
+
+        // Then the old settings should be returned
+        assertThat(result, is(sameInstance(serverSettings)));
+        // and only a single refresh should have been started
+        assertThat(snapshot.refreshTasks.size(), is(1));
+
+        // When the refresh runs
+        snapshot.refreshTasks.get(0).run();
+
+        // Then the new settings should be returned
+        assertThat(snapshot.getServerSettings(), is(sameInstance(updatedServerSettings)));
+        assertThat(snapshot.getLoadCount(), is(2L));
+        assertFalse(snapshot.isExpired());
+    }
+
+    @Test
+    public void shouldKeepTheOldSettingsWhenARefreshFails() {
+        // Given the settings have expired
+        snapshot.getServerSettings();
+        snapshot.currentTime += TIME_TO_LIVE;
+        // and the server can't be reached
+        when(serverSettingsProvider.getServerSettings()).thenThrow(new RuntimeException("Connection refused"));
+
+        // When the settings are refreshed in the background
+        snapshot.getServerSettings();
+        snapshot.refreshTasks.get(0).run();
+
+        // Then the old settings should still be returned
+        assertThat(snapshot.getServerSettings(), is(sameInstance(serverSettings)));
+        // and another refresh should be started
+        assertThat(snapshot.refreshTasks.size(), is(2));
+    }
+
+    protected static class TestServerSettingsSnapshot extends ServerSettingsSnapshot {
+        long currentTime = 0L;
+        final List<Runnable> refreshTasks = new ArrayList<Runnable>();
+
+        public TestServerSettingsSnapshot(final DataProviderFactory factory) {
+            super(factory, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+
+        @Override
+        protected void submitRefresh(final Runnable refreshTask) {
+            refreshTasks.add(refreshTask);
+        }
+    }
+}
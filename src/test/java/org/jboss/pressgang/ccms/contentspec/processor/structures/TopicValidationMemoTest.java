@@ -0,0 +1,162 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.structures;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TopicValidationMemoTest extends BaseUnitTest {
+    private static final String KEY = TopicValidationMemo.createKey(1, null, "Topic [1]", "DocBook 4.5", "en-US", false);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    File directory;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot();
+    }
+
+    @Test
+    public void shouldCreateDifferentKeysWhenTheSpecLineChanges() {
+        // Given a key for a topic
+        // When creating a key for the same topic with a different spec line
+        final String key = TopicValidationMemo.createKey(1, null, "Topic [1, tag]", "DocBook 4.5", "en-US", false);
+
+        // Then the keys should be different
+        assertThat(key, not(KEY));
+    }
+
+    @Test
+    public void shouldOnlyBeValidatedWhileTheServerRevisionIsTheSame() {
+        // Given a memo where a topic has been validated at revision 10
+        final TopicValidationMemo memo = new TopicValidationMemo(directory, 10);
+        memo.recordValidated(KEY, 10);
+
+        // When checking if the topic has been validated
+        // Then it should only be validated for the same server revision
+        assertTrue(memo.isValidated(KEY, 10));
+        assertFalse(memo.isValidated(KEY, 11));
+    }
+
+    @Test
+    public void shouldLoadTheEntriesThatWereSaved() {
+        // Given a memo where a topic has been validated and saved
+        final TopicValidationMemo memo = new TopicValidationMemo(directory, 10);
+        memo.recordValidated(KEY, 10);
+        memo.save();
+
+        // When loading the memo again
+        final TopicValidationMemo loadedMemo = new TopicValidationMemo(directory, 10);
+
+        // Then the topic should still be validated
+        assertTrue(loadedMemo.isValidated(KEY, 10));
+    }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedEntriesWhenSaving() {
+        // Given a memo that can only hold two entries
+        final TestTopicValidationMemo memo = new TestTopicValidationMemo(directory, 2);
+        // and three topics have been validated
+        memo.recordValidated("first", 1);
+        memo.currentTime++;
+        memo.recordValidated("second", 1);
+        memo.currentTime++;
+        memo.recordValidated("third", 1);
+        // and the first topic has been used since
+        memo.currentTime++;
+        memo.isValidated("first", 1);
+
+        // When the memo is saved
+        memo.save();
+
+        // Then the least recently used entry should have been evicted
+        assertThat(memo.size(), is(2));
+        assertTrue(memo.isValidated("first", 1));
+        assertFalse(memo.isValidated("second", 1));
+        assertTrue(memo.isValidated("third", 1));
+    }
+
+    @Test
+    public void shouldRemoveAllEntriesWhenRebuilding() {
+        // Given a memo with a saved entry
+        final TopicValidationMemo memo = new TopicValidationMemo(directory, 10);
+        memo.recordValidated(KEY, 10);
+        memo.save();
+
+        // When the memo is cleared and saved
+        memo.clear();
+        memo.save();
+
+        // Then the entry should be gone when loading the memo again
+        assertFalse(new TopicValidationMemo(directory, 10).isValidated(KEY, 10));
+    }
+
+    @Test
+    public void shouldNotReadTheMemoFileUntilItIsUsed() {
+        // Given a memo that is created before a topic is validated and saved
+        final TopicValidationMemo memo = new TopicValidationMemo(directory, 10);
+        final TopicValidationMemo savingMemo = new TopicValidationMemo(directory, 10);
+        savingMemo.recordValidated(KEY, 10);
+        savingMemo.save();
+
+        // When checking if the topic has been validated
+        // Then the saved entry should be used
+        assertTrue(memo.isValidated(KEY, 10));
+    }
+
+    @Test
+    public void shouldOnlyLeaveTheMemoFileAfterSaving() {
+        // Given a memo where a topic has been validated
+        final TopicValidationMemo memo = new TopicValidationMemo(directory, 10);
+        memo.recordValidated(KEY, 10);
+
+        // When the memo is saved
+        memo.save();
+
+        // Then the temp file should have been renamed to the memo file
+        assertThat(directory.list().length, is(1));
+        assertThat(directory.list()[0], is("topic-validation-memo.properties"));
+    }
+
+    protected static class TestTopicValidationMemo extends TopicValidationMemo {
+        long currentTime;
+
+        public TestTopicValidationMemo(final File directory, final int maxEntries) {
+            super(directory, maxEntries);
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
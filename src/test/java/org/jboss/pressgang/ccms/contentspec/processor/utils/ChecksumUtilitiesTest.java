@@ -0,0 +1,115 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.utils.ContentSpecUtilities;
+import org.jboss.pressgang.ccms.utils.common.HashUtilities;
+import org.junit.Test;
+
+public class ChecksumUtilitiesTest extends BaseUnitTest {
+    private static final String SPEC_CHARS = "abcXYZ =\t\r\n[]\u00e9\u4e2d\ud83d\ude00";
+
+    @Test
+    public void shouldIgnoreChecksumLine() {
+        // Given a content spec that has a checksum line
+        final String contentSpec = "CHECKSUM=1234567890abcdef\nTitle = Test\nProduct = Product\n";
+
+        // When generating the checksum
+        final String result = ChecksumUtilities.generateChecksum(contentSpec);
+
+        // Then the checksum should be the same as the content spec without the checksum line
+        assertThat(result, is(md5("Title = Test\nProduct = Product\n")));
+    }
+
+    @Test
+    public void shouldOnlyIgnoreFirstChecksumLine() {
+        // Given a content spec that has a checksum line with windows line endings and a second checksum line
+        final String contentSpec = "# Comment\r\nCHECKSUM = abc\r\nTitle = Test\r\nCHECKSUM=def\n";
+
+        // When generating the checksum
+        final String result = ChecksumUtilities.generateChecksum(contentSpec);
+
+        // Then only the first checksum line should be ignored
+        assertThat(result, is(md5("# Comment\r\nTitle = Test\r\nCHECKSUM=def\n")));
+    }
+
+    @Test
+    public void shouldMatchHashOfStrippedTextForLargeContentSpecs() {
+        // Given a large content spec with multibyte characters and a checksum line in the middle
+        final Random random = new Random(20140101L);
+        final StringBuilder before = new StringBuilder();
+        final StringBuilder after = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            before.append(SPEC_CHARS.charAt(random.nextInt(SPEC_CHARS.length() - 2)));
+            after.append(SPEC_CHARS.charAt(random.nextInt(SPEC_CHARS.length() - 2)));
+        }
+        // and a character that needs a surrogate pair either side of the checksum line
+        before.append("\ud83d\ude00\n");
+        after.insert(0, "\ud83d\ude00");
+        final String contentSpec = before + "CHECKSUM=abc\n" + after;
+
+        // When generating the checksum
+        final String result = ChecksumUtilities.generateChecksum(contentSpec);
+
+        // Then the checksum should be the same as hashing the content spec without the checksum line
+        assertThat(result, is(md5(before.toString() + after.toString())));
+    }
+
+    @Test
+    public void shouldMatchTheChecksumOfTheStrippedCopy() {
+        // Given content specs with and without checksum lines, including a checksum line that is repeated
+        final Random random = new Random(20140102L);
+        final StringBuilder large = new StringBuilder("CHECKSUM = 0123456789abcdef\r\nTitle = Test\r\n");
+        for (int i = 0; i < 50000; i++) {
+            large.append(SPEC_CHARS.charAt(random.nextInt(SPEC_CHARS.length() - 2)));
+        }
+        final String[] contentSpecs = {"", "Title = Test\nProduct = Product\n", "CHECKSUM=abc\nTitle = Test\n",
+                "# Comment\r\nCHECKSUM = abc\r\nTitle = Test\r\nCHECKSUM=def\n", "CHECKSUM=abc\nTitle = Test\nCHECKSUM=abc\n",
+                "ID = 1\nCHECKSUM=\u00e9\ud83d\ude00\nTitle = \u4e2d\n", "CHECKSUM=abc", large.toString()};
+
+        for (final String contentSpec : contentSpecs) {
+            // When generating the checksum by streaming the text
+            final String result = ChecksumUtilities.generateChecksum(contentSpec);
+
+            // Then it should be the same as the checksum of the copy that has the checksum line removed
+            assertThat(result, is(HashUtilities.generateMD5(ContentSpecUtilities.removeChecksum(contentSpec))));
+        }
+    }
+
+    protected String md5(final String text) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(text.getBytes("UTF-8"));
+            final StringBuilder hex = new StringBuilder();
+            for (final byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.sf.ipsedixit.annotation.ArbitraryString;
+import net.sf.ipsedixit.core.StringType;
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.processor.constants.ProcessorConstants;
+import org.jboss.pressgang.ccms.utils.common.StringUtilities;
+import org.junit.Test;
+
+public class FuzzyMatchUtilitiesTest extends BaseUnitTest {
+    private static final String TITLE_CHARS = "abcdeABC -";
+    private static final int PAIR_COUNT = 20000;
+
+    @ArbitraryString(type = StringType.ALPHANUMERIC) String title;
+
+    @Test
+    public void shouldMatchIdenticalTitles() {
+        // Given two identical titles
+        final String title2 = title;
+
+        // When checking if they are similar
+        final boolean result = FuzzyMatchUtilities.isSimilar(title, title2, ProcessorConstants.MIN_MATCH_SIMILARITY);
+
+        // Then they should match
+        assertTrue(result);
+    }
+
+    @Test
+    public void shouldNotMatchTitlesWithLargeLengthDifference() {
+        // Given two titles where one is much longer than the other
+        final String title2 = title + title + title;
+
+        // When checking if they are similar
+        final boolean result = FuzzyMatchUtilities.isSimilar(title, title2, ProcessorConstants.MIN_MATCH_SIMILARITY);
+
+        // Then they shouldn't match
+        assertFalse(result);
+    }
+
+    @Test
+    public void shouldMatchTitlesWithTransposedCharacters() {
+        // Given a title with two characters swapped
+        final String title1 = "Installation Guide";
+        final String title2 = "Installation Gudie";
+
+        // When checking if they are similar
+        final boolean result = FuzzyMatchUtilities.isSimilar(title1, title2, ProcessorConstants.MIN_MATCH_SIMILARITY);
+
+        // Then they should match
+        assertTrue(result);
+    }
+
+    @Test
+    public void shouldMatchTheSameAsStringUtilitiesForRandomTitles() {
+        // Given a set of random title pairs, where most of the pairs are small edits of each other
+        final Random random = new Random(20140101L);
+
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            final String title1 = createRandomTitle(random);
+            final String title2 = random.nextInt(4) == 0 ? createRandomTitle(random) : mutateTitle(random, title1);
+            if (title2.isEmpty()) {
+                continue;
+            }
+
+            // When checking if they are similar
+            final boolean result = FuzzyMatchUtilities.isSimilar(title1, title2, ProcessorConstants.MIN_MATCH_SIMILARITY);
+
+            // Then the result should be the same as the full Damerau-Levenshtein calculation
+            final boolean expected = StringUtilities.similarDamerauLevenshtein(title1,
+                    title2) >= ProcessorConstants.MIN_MATCH_SIMILARITY;
+            assertThat("\"" + title1 + "\" vs \"" + title2 + "\"", result, is(expected));
+        }
+    }
+
+    protected String createRandomTitle(final Random random) {
+        final int length = 1 + random.nextInt(30);
+        final StringBuilder title = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            title.append(TITLE_CHARS.charAt(random.nextInt(TITLE_CHARS.length())));
+        }
+        return title.toString();
+    }
+
+    protected String mutateTitle(final Random random, final String title) {
+        final StringBuilder mutatedTitle = new StringBuilder(title);
+        final int edits = random.nextInt(6);
+        for (int i = 0; i < edits && mutatedTitle.length() > 1; i++) {
+            final int pos = random.nextInt(mutatedTitle.length() - 1);
+            final char c = TITLE_CHARS.charAt(random.nextInt(TITLE_CHARS.length()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    mutatedTitle.insert(pos, c);
+                    break;
+                case 1:
+                    mutatedTitle.deleteCharAt(pos);
+                    break;
+                case 2:
+                    mutatedTitle.setCharAt(pos, c);
+                    break;
+                default:
+                    final char temp = mutatedTitle.charAt(pos);
+                    mutatedTitle.setCharAt(pos, mutatedTitle.charAt(pos + 1));
+                    mutatedTitle.setCharAt(pos + 1, temp);
+                    break;
+            }
+        }
+        return mutatedTitle.toString();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.contentspec.processor.utils;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.junit.Test;
+
+public class TaskUtilitiesTest extends BaseUnitTest {
+    private static final TaskUtilities.StopCondition NEVER_STOP = new TaskUtilities.StopCondition() {
+        @Override
+        public boolean isStopRequested() {
+            return false;
+        }
+    };
+
+    @Test
+    public void shouldReturnTheResultOfACompletedTask() throws Exception {
+        // Given a task that has completed
+        final FutureTask<String> future = createTask("result");
+        future.run();
+
+        // When waiting for the task
+        final String result = TaskUtilities.waitForTask(future, NEVER_STOP);
+
+        // Then the result of the task should be returned
+        assertThat(result, is("result"));
+    }
+
+    @Test
+    public void shouldStopWaitingWhenStopIsRequested() throws Exception {
+        // Given a task that will never complete
+        final FutureTask<String> future = createTask("result");
+        // and a condition that asks to stop after being checked a few times
+        final TaskUtilities.StopCondition stopCondition = new TaskUtilities.StopCondition() {
+            private int checks = 0;
+
+            @Override
+            public boolean isStopRequested() {
+                return ++checks > 2;
+            }
+        };
+
+        // When waiting for the task
+        final String result = TaskUtilities.waitForTask(future, stopCondition);
+
+        // Then no result should be returned
+        assertNull(result);
+    }
+
+    @Test
+    public void shouldRethrowUncheckedCauses() {
+        // Given a task that failed with an unchecked exception
+        final IllegalStateException exception = new IllegalStateException();
+        final ExecutionException executionException = new ExecutionException(exception);
+
+        // When propagating the cause
+        try {
+            TaskUtilities.propagateCause(executionException);
+            fail("The cause should have been rethrown");
+        } catch (IllegalStateException e) {
+            // Then the original exception should be thrown
+            assertSame(e, exception);
+        }
+    }
+
+    @Test
+    public void shouldWrapCheckedCauses() {
+        // Given a task that failed with a checked exception
+        final IOException exception = new IOException();
+        final ExecutionException executionException = new ExecutionException(exception);
+
+        // When propagating the cause
+        final RuntimeException result = TaskUtilities.propagateCause(executionException);
+
+        // Then the checked exception should be wrapped
+        assertSame(result.getCause(), exception);
+    }
+
+    protected FutureTask<String> createTask(final String result) {
+        return new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return result;
+            }
+        });
+    }
+}
@@ -0,0 +1,1744 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.provider.mocks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.pressgang.ccms.contentspec.processor.provider.BatchTranslatedTopicProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.SingleSaveContentSpecProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicChangeProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicRevisionProvider;
+import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
+import org.jboss.pressgang.ccms.provider.CSInfoNodeProvider;
+import org.jboss.pressgang.ccms.provider.CSNodeProvider;
+import org.jboss.pressgang.ccms.provider.CategoryProvider;
+import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
+import org.jboss.pressgang.ccms.provider.DataProviderFactory;
+import org.jboss.pressgang.ccms.provider.FileProvider;
+import org.jboss.pressgang.ccms.provider.PropertyTagProvider;
+import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TextContentSpecProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.provider.TopicSourceURLProvider;
+import org.jboss.pressgang.ccms.provider.TranslatedTopicProvider;
+import org.jboss.pressgang.ccms.provider.exception.NotFoundException;
+import org.jboss.pressgang.ccms.wrapper.BlobConstantWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSInfoNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CategoryWrapper;
+import org.jboss.pressgang.ccms.wrapper.ContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.FileWrapper;
+import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
+import org.jboss.pressgang.ccms.wrapper.LogMessageWrapper;
+import org.jboss.pressgang.ccms.wrapper.PropertyTagInContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.PropertyTagInTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.PropertyTagWrapper;
+import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
+import org.jboss.pressgang.ccms.wrapper.TagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TextContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicSourceURLWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.base.BaseTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.UpdateableCollectionWrapper;
+import org.jboss.pressgang.ccms.wrapper.mocks.WrapperProxyMock;
+
+/**
+ * A DataProviderFactory that stores its entities in memory, so that the processor can be run end to end without a server. Each
+ * supported provider has an in-memory implementation below, that implements the lookups, revisions, saves and deletes of the
+ * provider's entities. Queries aren't supported, since they use the server's query language. The provider interfaces are exposed
+ * using a proxy that passes each call on to the method of the implementation with the same name and parameters, and throws an
+ * UnsupportedOperationException for any method that isn't implemented, or for any provider that isn't supported. The methods that
+ * aren't implemented can be listed using {@link #getUnsupportedMethods(Class)}.
+ * <p/>
+ * The providers also implement the optional {@link SingleSaveContentSpecProvider}, {@link TopicRevisionProvider},
+ * {@link TopicChangeProvider} and {@link BatchTranslatedTopicProvider} interfaces. The entities are {@link WrapperProxyMock}s,
+ * and a copy is returned each time one is looked up, the same as each REST call returning a new entity.
+ * <p/>
+ * Content specs and their text ({@link #TEXT_CONTENT_SPEC}) share the same id and revisions, so that the text can be added for
+ * a content spec to process it in EDIT mode. Translated topics are added using {@link #addTranslatedTopic(TranslatedTopicWrapper)},
+ * as they are stored by the id and revision of the topic they translate.
+ * <p/>
+ * Every call that would go to the server waits for the configured latency, plus or minus a random jitter, so that the effect of
+ * the network on the processor can be measured.
+ */
+public class InMemoryDataProviderFactory extends DataProviderFactory {
+    public static final String TOPIC = "Topic";
+    public static final String TAG = "Tag";
+    public static final String CATEGORY = "Category";
+    public static final String CONTENT_SPEC = "ContentSpec";
+    public static final String TEXT_CONTENT_SPEC = "TextContentSpec";
+    public static final String CS_NODE = "CSNode";
+    public static final String FILE = "File";
+    public static final String BLOB_CONSTANT = "BlobConstant";
+    public static final String PROPERTY_TAG = "PropertyTag";
+    public static final String TRANSLATED_TOPIC = "TranslatedTopic";
+
+    private static final Map<Class<?>, Class<?>> PRIMITIVE_WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        PRIMITIVE_WRAPPERS.put(boolean.class, Boolean.class);
+        PRIMITIVE_WRAPPERS.put(int.class, Integer.class);
+        PRIMITIVE_WRAPPERS.put(long.class, Long.class);
+    }
+
+    private final Map<Class<?>, Object> providers = new ConcurrentHashMap<Class<?>, Object>();
+    private final Map<String, Map<Integer, TreeMap<Integer, Object>>> entities = new HashMap<String, Map<Integer, TreeMap<Integer,
+            Object>>>();
+    private final Map<String, AtomicInteger> nextIds = new HashMap<String, AtomicInteger>();
+    private final AtomicInteger nextRevision = new AtomicInteger(1);
+    private final ConcurrentMap<String, AtomicLong> callCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong totalCallCount = new AtomicLong(0L);
+    private final Random random;
+
+    /**
+     * The revisions of the entities that have changed since the last commit or rollback, as they were before they were first
+     * changed. Only used if transactions are supported.
+     */
+    private final Map<String, Map<Integer, TreeMap<Integer, Object>>> undoLog = new HashMap<String, Map<Integer, TreeMap<Integer,
+            Object>>>();
+
+    private volatile ServerSettingsWrapper serverSettings;
+    private volatile long latency = 0L;
+    private volatile long jitter = 0L;
+    private volatile boolean transactionsSupported = false;
+
+    public InMemoryDataProviderFactory() {
+        this(0L);
+    }
+
+    /**
+     * @param seed The seed for the random jitter, so that runs can be repeated.
+     */
+    public InMemoryDataProviderFactory(final long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProvider(final Class<T> clazz) {
+        if (!clazz.isInterface()) {
+            throw new IllegalArgumentException(clazz.getName() + " isn't an interface, so can't be provided from memory");
+        }
+
+        Object provider = providers.get(clazz);
+        if (provider == null) {
+            final InMemoryProvider implementation = createProvider(clazz);
+
+            // The proxy also implements any optional interfaces that the in-memory provider implements
+            final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+            interfaces.add(clazz);
+            interfaces.addAll(Arrays.asList(implementation.getClass().getInterfaces()));
+            provider = Proxy.newProxyInstance(clazz.getClassLoader(), interfaces.toArray(new Class<?>[interfaces.size()]),
+                    new InMemoryProviderHandler(implementation));
+            providers.put(clazz, provider);
+        }
+
+        return (T) provider;
+    }
+
+    /**
+     * Gets the methods of a provider that the in-memory providers don't implement, and so throw an UnsupportedOperationException.
+     *
+     * @param clazz The provider interface.
+     * @return The name and parameter types of each method that isn't implemented, ie "getTopicsWithQuery[class java.lang.String]".
+     */
+    public List<String> getUnsupportedMethods(final Class<?> clazz) {
+        final InMemoryProviderHandler handler = new InMemoryProviderHandler(createProvider(clazz));
+        final List<String> unsupportedMethods = new ArrayList<String>();
+        for (final Method method : clazz.getMethods()) {
+            if (handler.findImplementationMethod(method) == null) {
+                unsupportedMethods.add(method.getName() + Arrays.toString(method.getParameterTypes()));
+            }
+        }
+        Collections.sort(unsupportedMethods);
+        return unsupportedMethods;
+    }
+
+    private InMemoryProvider createProvider(final Class<?> clazz) {
+        if (clazz == TopicProvider.class) {
+            return new InMemoryTopicProvider();
+        } else if (clazz == TagProvider.class) {
+            return new InMemoryTagProvider();
+        } else if (clazz == CategoryProvider.class) {
+            return new InMemoryCategoryProvider();
+        } else if (clazz == PropertyTagProvider.class) {
+            return new InMemoryPropertyTagProvider();
+        } else if (clazz == BlobConstantProvider.class) {
+            return new InMemoryBlobConstantProvider();
+        } else if (clazz == FileProvider.class) {
+            return new InMemoryFileProvider();
+        } else if (clazz == ContentSpecProvider.class) {
+            return new InMemoryContentSpecProvider();
+        } else if (clazz == TextContentSpecProvider.class) {
+            return new InMemoryTextContentSpecProvider();
+        } else if (clazz == CSNodeProvider.class) {
+            return new InMemoryCSNodeProvider();
+        } else if (clazz == CSInfoNodeProvider.class) {
+            return new InMemoryCSInfoNodeProvider();
+        } else if (clazz == TopicSourceURLProvider.class) {
+            return new InMemoryTopicSourceURLProvider();
+        } else if (clazz == TranslatedTopicProvider.class) {
+            return new InMemoryTranslatedTopicProvider();
+        } else if (clazz == ServerSettingsProvider.class) {
+            return new InMemoryServerSettingsProvider();
+        } else {
+            // Every call to any other provider is unsupported
+            return new InMemoryProvider(clazz.getSimpleName());
+        }
+    }
+
+    @Override
+    public boolean isTransactionsSupported() {
+        return transactionsSupported;
+    }
+
+    /**
+     * @param transactionsSupported Whether changes should be recorded, so that they can be rolled back.
+     */
+    public void setTransactionsSupported(final boolean transactionsSupported) {
+        this.transactionsSupported = transactionsSupported;
+    }
+
+    /**
+     * Undoes every change that was made since the last commit or rollback, if transactions are supported.
+     */
+    @Override
+    public void rollback() {
+        synchronized (entities) {
+            for (final Map.Entry<String, Map<Integer, TreeMap<Integer, Object>>> typeEntry : undoLog.entrySet()) {
+                final Map<Integer, TreeMap<Integer, Object>> typeEntities = getEntities(typeEntry.getKey());
+                for (final Map.Entry<Integer, TreeMap<Integer, Object>> entry : typeEntry.getValue().entrySet()) {
+                    if (entry.getValue() == null) {
+                        typeEntities.remove(entry.getKey());
+                    } else {
+                        typeEntities.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            undoLog.clear();
+        }
+    }
+
+    /**
+     * Keeps every change that was made since the last commit or rollback.
+     */
+    public void commit() {
+        synchronized (entities) {
+            undoLog.clear();
+        }
+    }
+
+    /**
+     * Sets how long each call to a provider should take.
+     *
+     * @param latency The average time a call should take.
+     * @param jitter  The maximum amount of time that a call can randomly be faster or slower than the average.
+     * @param unit    The unit of the latency and jitter.
+     */
+    public void setLatency(final long latency, final long jitter, final TimeUnit unit) {
+        this.latency = unit.toNanos(Math.max(latency, 0L));
+        this.jitter = unit.toNanos(Math.max(jitter, 0L));
+    }
+
+    public ServerSettingsWrapper getServerSettings() {
+        return serverSettings;
+    }
+
+    public void setServerSettings(final ServerSettingsWrapper serverSettings) {
+        this.serverSettings = serverSettings;
+    }
+
+    /**
+     * @return The total number of calls that have been made to the providers, not including calls to create new entities.
+     */
+    public long getCallCount() {
+        return totalCallCount.get();
+    }
+
+    /**
+     * @param methodName The provider and method name, ie "TopicProvider.getTopic".
+     * @return The number of times the provider method has been called.
+     */
+    public long getCallCount(final String methodName) {
+        final AtomicLong count = callCounts.get(methodName);
+        return count == null ? 0L : count.get();
+    }
+
+    /**
+     * @return The number of calls made to each provider method, ie "TopicProvider.getTopic".
+     */
+    public Map<String, Long> getCallCounts() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : callCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public void resetCallCounts() {
+        callCounts.clear();
+        totalCallCount.set(0L);
+    }
+
+    /**
+     * Creates a new entity, that can be added using {@link #addEntity(String, Object)}.
+     *
+     * @param wrapperClass The wrapper interface for the entity, ie TopicWrapper.
+     * @return The new entity.
+     */
+    public <T> T newEntity(final Class<T> wrapperClass) {
+        return WrapperProxyMock.create(wrapperClass);
+    }
+
+    /**
+     * Adds an entity, without waiting for the latency or counting it as a call. If the entity doesn't have an id then the next
+     * id is used, and a new revision is always assigned.
+     *
+     * @param entityType The type of entity, ie {@link #TOPIC}.
+     * @param entity     The entity to add, which must have been created by {@link #newEntity(Class)}.
+     * @return The entity that was added, with its id and revision set.
+     */
+    public <T> T addEntity(final String entityType, final T entity) {
+        return saveEntity(entityType, entity);
+    }
+
+    /**
+     * Adds a translation of a topic, without waiting for the latency or counting it as a call. The translation is used for the
+     * revision of the topic it was added for and any later revisions, until a translation is added for a later revision.
+     *
+     * @param translatedTopic The translated topic to add, with its topic id, topic revision and locale set.
+     * @return The translated topic that was added.
+     */
+    public TranslatedTopicWrapper addTranslatedTopic(final TranslatedTopicWrapper translatedTopic) {
+        final Integer topicId = (Integer) WrapperProxyMock.getProperty(translatedTopic, "topicId");
+        final Integer topicRevision = (Integer) WrapperProxyMock.getProperty(translatedTopic, "topicRevision");
+        final String locale = getLocaleValue(WrapperProxyMock.getProperty(translatedTopic, "locale"));
+        if (topicId == null || topicRevision == null || locale == null) {
+            throw new IllegalArgumentException("The topic id, topic revision and locale of a translated topic must be set");
+        }
+
+        synchronized (entities) {
+            putRevision(getTranslatedTopicType(locale), topicId, topicRevision, WrapperProxyMock.copy(translatedTopic));
+        }
+        return WrapperProxyMock.copy(translatedTopic);
+    }
+
+    /**
+     * Gets the latest revision of an entity, without waiting for the latency or counting it as a call.
+     *
+     * @param entityType The type of entity, ie {@link #TOPIC}.
+     * @param id         The id of the entity.
+     * @return A copy of the entity, or null if it doesn't exist.
+     */
+    public Object getEntity(final String entityType, final Integer id) {
+        return findEntity(entityType, id, null);
+    }
+
+    /**
+     * @param entityType The type of entity, ie {@link #TOPIC}.
+     * @return The number of entities of the type that exist.
+     */
+    public int getEntityCount(final String entityType) {
+        synchronized (entities) {
+            return getEntities(entityType).size();
+        }
+    }
+
+    /**
+     * Waits for the configured latency, plus or minus a random amount of jitter.
+     */
+    protected void simulateLatency() {
+        long delay = latency;
+        if (jitter > 0) {
+            final double offset;
+            synchronized (random) {
+                offset = random.nextDouble() * 2 - 1;
+            }
+            delay += (long) (offset * jitter);
+        }
+
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Map<Integer, TreeMap<Integer, Object>> getEntities(final String entityType) {
+        Map<Integer, TreeMap<Integer, Object>> typeEntities = entities.get(entityType);
+        if (typeEntities == null) {
+            typeEntities = new HashMap<Integer, TreeMap<Integer, Object>>();
+            entities.put(entityType, typeEntities);
+        }
+        return typeEntities;
+    }
+
+    private AtomicInteger getNextId(final String entityType) {
+        AtomicInteger nextId = nextIds.get(entityType);
+        if (nextId == null) {
+            nextId = new AtomicInteger(1);
+            nextIds.put(entityType, nextId);
+        }
+        return nextId;
+    }
+
+    private Object findEntity(final String entityType, final Integer id, final Integer revision) {
+        if (id == null) return null;
+
+        synchronized (entities) {
+            final TreeMap<Integer, Object> revisions = getEntities(entityType).get(id);
+            if (revisions == null || revisions.isEmpty()) {
+                return null;
+            }
+
+            // Use the latest revision at or before the revision that was asked for
+            final Map.Entry<Integer, Object> entry = revision == null ? revisions.lastEntry() : revisions.floorEntry(revision);
+            return entry == null ? null : WrapperProxyMock.copy(entry.getValue());
+        }
+    }
+
+    private Integer findRevision(final String entityType, final Integer id, final Integer revision) {
+        if (id == null) return null;
+
+        synchronized (entities) {
+            final TreeMap<Integer, Object> revisions = getEntities(entityType).get(id);
+            if (revisions == null || revisions.isEmpty()) {
+                return null;
+            }
+
+            return revision == null ? revisions.lastKey() : revisions.floorKey(revision);
+        }
+    }
+
+    /**
+     * Checks if a content spec, or any of the nodes below it, has a node for an entity, ie a topic.
+     */
+    @SuppressWarnings("rawtypes")
+    private static boolean hasNodeForEntity(final Object parent, final Integer entityId) {
+        final Object children = WrapperProxyMock.getProperty(parent, "children");
+        if (!(children instanceof CollectionWrapper)) return false;
+
+        for (final Object child : ((CollectionWrapper) children).getItems()) {
+            if (WrapperProxyMock.isMock(child) && (entityId.equals(WrapperProxyMock.getProperty(child, "entityId")) || hasNodeForEntity(
+                    child, entityId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object findEntityByName(final String entityType, final String name) {
+        if (name == null) return null;
+
+        synchronized (entities) {
+            for (final TreeMap<Integer, Object> revisions : getEntities(entityType).values()) {
+                final Object entity = revisions.lastEntry().getValue();
+                if (name.equals(WrapperProxyMock.getProperty(entity, "name"))) {
+                    return WrapperProxyMock.copy(entity);
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T saveEntity(final String entityType, final T entity) {
+        if (!WrapperProxyMock.isMock(entity)) {
+            throw new IllegalArgumentException("Only entities created by the in-memory providers can be saved");
+        }
+
+        synchronized (entities) {
+            final AtomicInteger nextId = getNextId(entityType);
+            Integer id = (Integer) WrapperProxyMock.getProperty(entity, "id");
+            if (id == null) {
+                id = nextId.getAndIncrement();
+            } else if (id >= nextId.get()) {
+                nextId.set(id + 1);
+            }
+            final Integer revision = nextRevision.getAndIncrement();
+            WrapperProxyMock.setProperty(entity, "id", id);
+            WrapperProxyMock.setProperty(entity, "revision", revision);
+
+            // Content spec nodes are saved with the content spec, so they need their ids set as well
+            if (CONTENT_SPEC.equals(entityType) || CS_NODE.equals(entityType)) {
+                saveChildNodes(entity);
+            }
+
+            final Object savedEntity = WrapperProxyMock.copy(entity);
+            applyCollectionChanges(savedEntity);
+            putRevision(entityType, id, revision, savedEntity);
+
+            // Keep the revisions of a content spec and its text the same
+            if (CONTENT_SPEC.equals(entityType)) {
+                copyLatestRevision(TEXT_CONTENT_SPEC, id, revision);
+            } else if (TEXT_CONTENT_SPEC.equals(entityType)) {
+                copyLatestRevision(CONTENT_SPEC, id, revision);
+            }
+
+            return (T) WrapperProxyMock.copy(savedEntity);
+        }
+    }
+
+    private void putRevision(final String entityType, final Integer id, final Integer revision, final Object entity) {
+        final Map<Integer, TreeMap<Integer, Object>> typeEntities = getEntities(entityType);
+        TreeMap<Integer, Object> revisions = typeEntities.get(id);
+        recordUndo(entityType, id, revisions);
+        revisions = revisions == null ? new TreeMap<Integer, Object>() : new TreeMap<Integer, Object>(revisions);
+        revisions.put(revision, entity);
+        typeEntities.put(id, revisions);
+    }
+
+    private void copyLatestRevision(final String entityType, final Integer id, final Integer revision) {
+        final TreeMap<Integer, Object> revisions = getEntities(entityType).get(id);
+        if (revisions == null || revisions.isEmpty()) return;
+
+        final Object entity = WrapperProxyMock.copy(revisions.lastEntry().getValue());
+        WrapperProxyMock.setProperty(entity, "revision", revision);
+        putRevision(entityType, id, revision, entity);
+    }
+
+    private boolean deleteEntity(final String entityType, final Integer id) {
+        synchronized (entities) {
+            final Map<Integer, TreeMap<Integer, Object>> typeEntities = getEntities(entityType);
+            final TreeMap<Integer, Object> revisions = typeEntities.get(id);
+            if (revisions == null) {
+                return false;
+            }
+
+            recordUndo(entityType, id, revisions);
+            typeEntities.remove(id);
+            return true;
+        }
+    }
+
+    private void recordUndo(final String entityType, final Integer id, final TreeMap<Integer, Object> revisions) {
+        if (!transactionsSupported) return;
+
+        Map<Integer, TreeMap<Integer, Object>> typeUndoLog = undoLog.get(entityType);
+        if (typeUndoLog == null) {
+            typeUndoLog = new HashMap<Integer, TreeMap<Integer, Object>>();
+            undoLog.put(entityType, typeUndoLog);
+        }
+
+        // Only keep the revisions from before the first change
+        if (!typeUndoLog.containsKey(id)) {
+            typeUndoLog.put(id, revisions);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void saveChildNodes(final Object entity) {
+        final Object children = WrapperProxyMock.getProperty(entity, "children");
+        if (!(children instanceof CollectionWrapper)) return;
+
+        for (final Object child : ((CollectionWrapper) children).getItems()) {
+            if (WrapperProxyMock.isMock(child) && !((CollectionWrapper) children).getRemoveItems().contains(child)) {
+                saveEntity(CS_NODE, child);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes that were made to the collections of an entity, so that removed items are removed and the rest are
+     * unchanged, the same as a collection that was loaded from the server.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void applyCollectionChanges(final Object entity) {
+        for (final String property : new String[]{"tags", "properties", "children", "sourceUrls", "sourceURLs", "outgoingTopics",
+                "incomingTopics", "outgoingRelationships", "incomingRelationships", "categories", "parentTags", "childTags",
+                "relatedToNodes", "relatedFromNodes", "bookTags", "languageFiles"}) {
+            final Object value = WrapperProxyMock.getProperty(entity, property);
+            if (value instanceof CollectionWrapper) {
+                final CollectionWrapper collection = (CollectionWrapper) value;
+                final List<Object> items = new ArrayList<Object>(collection.getItems());
+                items.removeAll(collection.getRemoveItems());
+                WrapperProxyMock.setProperty(entity, property, WrapperProxyMock.newCollection(items));
+            }
+        }
+    }
+
+    private void recordCall(final String methodName) {
+        totalCallCount.incrementAndGet();
+        AtomicLong count = callCounts.get(methodName);
+        if (count == null) {
+            count = new AtomicLong(0L);
+            final AtomicLong existingCount = callCounts.putIfAbsent(methodName, count);
+            if (existingCount != null) {
+                count = existingCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private static String getTranslatedTopicType(final String locale) {
+        return TRANSLATED_TOPIC + "-" + locale;
+    }
+
+    private static String getLocaleValue(final Object locale) {
+        if (locale instanceof LocaleWrapper) {
+            return ((LocaleWrapper) locale).getValue();
+        } else {
+            return locale == null ? null : locale.toString();
+        }
+    }
+
+    /**
+     * Creates an entity that joins two entities, ie a property tag in a topic, which takes its details from the entity it links
+     * to.
+     */
+    private static <T> T newLinkedEntity(final Class<T> wrapperClass, final Object linkedEntity) {
+        final T entity = WrapperProxyMock.create(wrapperClass);
+        if (WrapperProxyMock.isMock(linkedEntity)) {
+            for (final String property : new String[]{"id", "name", "description"}) {
+                WrapperProxyMock.setProperty(entity, property, WrapperProxyMock.getProperty(linkedEntity, property));
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Passes each call to a provider on to the in-memory implementation of the provider, or fails if the implementation doesn't
+     * have a matching method.
+     */
+    private static class InMemoryProviderHandler implements InvocationHandler {
+        private final InMemoryProvider provider;
+        private final ConcurrentMap<Method, Method> implementationMethods = new ConcurrentHashMap<Method, Method>();
+
+        InMemoryProviderHandler(final InMemoryProvider provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                } else {
+                    return "InMemory" + provider.providerName;
+                }
+            }
+
+            final Method implementationMethod = findImplementationMethod(method);
+            if (implementationMethod == null) {
+                throw new UnsupportedOperationException(provider.providerName + "." + name + Arrays.toString(
+                        method.getParameterTypes()) + " isn't supported by the in-memory providers");
+            }
+
+            try {
+                return implementationMethod.invoke(provider, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Finds the method of the implementation with the same name, that accepts the parameters of the provider method.
+         */
+        private Method findImplementationMethod(final Method method) {
+            Method implementationMethod = implementationMethods.get(method);
+            if (implementationMethod != null) {
+                return implementationMethod;
+            }
+
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (final Method candidate : provider.getClass().getMethods()) {
+                if (candidate.getDeclaringClass() != Object.class && candidate.getName().equals(method.getName()) && acceptsParameters(
+                        candidate.getParameterTypes(), parameterTypes)) {
+                    // The implementations are private classes, so their public methods still need to be made accessible
+                    candidate.setAccessible(true);
+                    implementationMethod = candidate;
+                    implementationMethods.put(method, candidate);
+                    break;
+                }
+            }
+
+            return implementationMethod;
+        }
+
+        private static boolean acceptsParameters(final Class<?>[] parameterTypes, final Class<?>[] argumentTypes) {
+            if (parameterTypes.length != argumentTypes.length) return false;
+
+            for (int i = 0; i < parameterTypes.length; i++) {
+                final Class<?> argumentType = PRIMITIVE_WRAPPERS.containsKey(argumentTypes[i]) ? PRIMITIVE_WRAPPERS.get(
+                        argumentTypes[i]) : argumentTypes[i];
+                if (!parameterTypes[i].isAssignableFrom(argumentType)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The base of the in-memory providers. A provider that is only this class doesn't support any calls.
+     */
+    private class InMemoryProvider {
+        private final String providerName;
+
+        InMemoryProvider(final String providerName) {
+            this.providerName = providerName;
+        }
+
+        /**
+         * Records a call that would go to the server, and waits for the latency.
+         */
+        protected void startCall(final String methodName) {
+            recordCall(providerName + "." + methodName);
+            simulateLatency();
+        }
+
+        @SuppressWarnings("unchecked")
+        protected <T> T getRequiredEntity(final String entityType, final Integer id, final Integer revision) {
+            final Object entity = findEntity(entityType, id, revision);
+            if (entity == null) {
+                throw new NotFoundException("Could not find " + entityType + " " + id + (revision == null ? "" : ", rev " + revision));
+            }
+            return (T) entity;
+        }
+
+        /**
+         * Gets the latest revision of a number of entities, skipping any that don't exist.
+         */
+        @SuppressWarnings("unchecked")
+        protected <T> CollectionWrapper<T> getLatestEntities(final String entityType, final Collection<Integer> ids) {
+            final List<Object> latestEntities = new ArrayList<Object>();
+            if (ids != null) {
+                for (final Integer id : ids) {
+                    final Object entity = findEntity(entityType, id, null);
+                    if (entity != null) {
+                        latestEntities.add(entity);
+                    }
+                }
+            }
+            return WrapperProxyMock.newCollection(latestEntities);
+        }
+
+        /**
+         * Gets the revisions of an entity up to and including a revision, oldest first.
+         */
+        @SuppressWarnings("unchecked")
+        protected <T> CollectionWrapper<T> getEntityRevisions(final String entityType, final Integer id, final Integer revision) {
+            final List<Object> revisionEntities = new ArrayList<Object>();
+            synchronized (entities) {
+                final TreeMap<Integer, Object> revisions = id == null ? null : getEntities(entityType).get(id);
+                if (revisions == null || revisions.isEmpty()) {
+                    throw new NotFoundException("Could not find " + entityType + " " + id);
+                }
+
+                final Map<Integer, Object> matchingRevisions = revision == null ? revisions : revisions.headMap(revision, true);
+                for (final Object entity : matchingRevisions.values()) {
+                    revisionEntities.add(WrapperProxyMock.copy(entity));
+                }
+            }
+            return WrapperProxyMock.newCollection(revisionEntities);
+        }
+
+        /**
+         * Gets a collection of an entity revision, ie the tags of a topic. A collection that was never set is empty.
+         */
+        @SuppressWarnings("unchecked")
+        protected <T> T getEntityCollection(final String entityType, final Integer id, final Integer revision, final String property) {
+            final Object value = WrapperProxyMock.getProperty(getRequiredEntity(entityType, id, revision), property);
+            return (T) (value == null ? WrapperProxyMock.newCollection() : value);
+        }
+
+        @SuppressWarnings("unchecked")
+        protected <T> CollectionWrapper<T> saveEntities(final String entityType, final CollectionWrapper<T> collection) {
+            final List<Object> savedEntities = new ArrayList<Object>();
+            if (collection != null) {
+                for (final T entity : collection.getItems()) {
+                    savedEntities.add(saveEntity(entityType, entity));
+                }
+            }
+            return WrapperProxyMock.newCollection(savedEntities);
+        }
+
+        protected boolean deleteEntities(final String entityType, final Collection<Integer> ids) {
+            boolean deleted = false;
+            if (ids != null) {
+                for (final Integer id : ids) {
+                    deleted = deleteEntity(entityType, id) || deleted;
+                }
+            }
+            return deleted;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryTopicProvider extends InMemoryProvider implements TopicRevisionProvider, TopicChangeProvider {
+        InMemoryTopicProvider() {
+            super(TopicProvider.class.getSimpleName());
+        }
+
+        public TopicWrapper getTopic(final Integer id) {
+            return getTopic(id, null);
+        }
+
+        public TopicWrapper getTopic(final Integer id, final Integer revision) {
+            startCall("getTopic");
+            return getRequiredEntity(TOPIC, id, revision);
+        }
+
+        public CollectionWrapper<TopicWrapper> getTopics(final Collection<Integer> ids) {
+            startCall("getTopics");
+            return getLatestEntities(TOPIC, ids);
+        }
+
+        public CollectionWrapper<TopicWrapper> getTopicRevisions(final Integer id, final Integer revision) {
+            startCall("getTopicRevisions");
+            return getEntityRevisions(TOPIC, id, revision);
+        }
+
+        public CollectionWrapper<TagWrapper> getTopicTags(final Integer id) {
+            return getTopicTags(id, null);
+        }
+
+        public CollectionWrapper<TagWrapper> getTopicTags(final Integer id, final Integer revision) {
+            startCall("getTopicTags");
+            return getEntityCollection(TOPIC, id, revision, "tags");
+        }
+
+        public UpdateableCollectionWrapper<TopicSourceURLWrapper> getTopicSourceUrls(final Integer id, final Integer revision) {
+            startCall("getTopicSourceUrls");
+            return getEntityCollection(TOPIC, id, revision, "sourceURLs");
+        }
+
+        public UpdateableCollectionWrapper<TopicSourceURLWrapper> getTopicSourceUrls(final Integer id, final Integer revision,
+                final BaseTopicWrapper<?> parent) {
+            return getTopicSourceUrls(id, revision);
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInTopicWrapper> getTopicProperties(final Integer id, final Integer revision) {
+            startCall("getTopicProperties");
+            return getEntityCollection(TOPIC, id, revision, "properties");
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInTopicWrapper> getTopicProperties(final Integer id, final Integer revision,
+                final BaseTopicWrapper<?> parent) {
+            return getTopicProperties(id, revision);
+        }
+
+        public CollectionWrapper<TopicWrapper> getTopicOutgoingRelationships(final Integer id, final Integer revision) {
+            startCall("getTopicOutgoingRelationships");
+            return getEntityCollection(TOPIC, id, revision, "outgoingRelationships");
+        }
+
+        public CollectionWrapper<TopicWrapper> getTopicIncomingRelationships(final Integer id, final Integer revision) {
+            startCall("getTopicIncomingRelationships");
+            return getEntityCollection(TOPIC, id, revision, "incomingRelationships");
+        }
+
+        /**
+         * Gets the translations of a topic revision in every locale that has been added.
+         */
+        public CollectionWrapper<TranslatedTopicWrapper> getTopicTranslations(final Integer id, final Integer revision) {
+            startCall("getTopicTranslations");
+            final TopicWrapper topic = getRequiredEntity(TOPIC, id, revision);
+            final List<Object> translatedTopics = new ArrayList<Object>();
+            synchronized (entities) {
+                for (final String entityType : entities.keySet()) {
+                    if (entityType.startsWith(TRANSLATED_TOPIC + "-")) {
+                        final Object translatedTopic = findEntity(entityType, id, topic.getRevision());
+                        if (translatedTopic != null) {
+                            translatedTopics.add(translatedTopic);
+                        }
+                    }
+                }
+            }
+            return WrapperProxyMock.newCollection(translatedTopics);
+        }
+
+        /**
+         * Gets the latest revision of the content specs that have a node for the topic.
+         */
+        public CollectionWrapper<ContentSpecWrapper> getTopicContentSpecs(final Integer id) {
+            startCall("getTopicContentSpecs");
+            final List<Object> contentSpecs = new ArrayList<Object>();
+            synchronized (entities) {
+                for (final TreeMap<Integer, Object> revisions : getEntities(CONTENT_SPEC).values()) {
+                    final Object contentSpec = revisions.lastEntry().getValue();
+                    if (hasNodeForEntity(contentSpec, id)) {
+                        contentSpecs.add(WrapperProxyMock.copy(contentSpec));
+                    }
+                }
+            }
+            return WrapperProxyMock.newCollection(contentSpecs);
+        }
+
+        public CollectionWrapper<ContentSpecWrapper> getTopicContentSpecs(final Integer id, final Integer revision) {
+            return getTopicContentSpecs(id);
+        }
+
+        @Override
+        public Map<Integer, Integer> getTopicRevisions(final Collection<Integer> ids, final Integer revision) {
+            startCall("getTopicRevisions");
+            final Map<Integer, Integer> topicRevisions = new HashMap<Integer, Integer>();
+            for (final Integer id : ids) {
+                final Integer topicRevision = findRevision(TOPIC, id, revision);
+                if (topicRevision != null) {
+                    topicRevisions.put(id, topicRevision);
+                }
+            }
+            return topicRevisions;
+        }
+
+        @Override
+        public Collection<Integer> getChangedTopicIds(final Collection<Integer> ids, final Integer revision) {
+            if (revision == null) return null;
+
+            startCall("getChangedTopicIds");
+            final List<Integer> changedIds = new ArrayList<Integer>();
+            for (final Integer id : ids) {
+                final Integer topicRevision = findRevision(TOPIC, id, null);
+                if (topicRevision != null && topicRevision > revision) {
+                    changedIds.add(id);
+                }
+            }
+            return changedIds;
+        }
+
+        public TopicWrapper createTopic(final TopicWrapper topic) {
+            return createTopic(topic, null);
+        }
+
+        public TopicWrapper createTopic(final TopicWrapper topic, final LogMessageWrapper logMessage) {
+            startCall("createTopic");
+            return saveEntity(TOPIC, topic);
+        }
+
+        public TopicWrapper updateTopic(final TopicWrapper topic) {
+            return updateTopic(topic, null);
+        }
+
+        public TopicWrapper updateTopic(final TopicWrapper topic, final LogMessageWrapper logMessage) {
+            startCall("updateTopic");
+            return saveEntity(TOPIC, topic);
+        }
+
+        public CollectionWrapper<TopicWrapper> createTopics(final CollectionWrapper<TopicWrapper> topics) {
+            return createTopics(topics, null);
+        }
+
+        public CollectionWrapper<TopicWrapper> createTopics(final CollectionWrapper<TopicWrapper> topics,
+                final LogMessageWrapper logMessage) {
+            startCall("createTopics");
+            return saveEntities(TOPIC, topics);
+        }
+
+        public CollectionWrapper<TopicWrapper> updateTopics(final CollectionWrapper<TopicWrapper> topics) {
+            return updateTopics(topics, null);
+        }
+
+        public CollectionWrapper<TopicWrapper> updateTopics(final CollectionWrapper<TopicWrapper> topics,
+                final LogMessageWrapper logMessage) {
+            startCall("updateTopics");
+            return saveEntities(TOPIC, topics);
+        }
+
+        public boolean deleteTopic(final Integer id) {
+            return deleteTopic(id, null);
+        }
+
+        public boolean deleteTopic(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteTopic");
+            return deleteEntity(TOPIC, id);
+        }
+
+        public boolean deleteTopics(final Collection<Integer> ids) {
+            return deleteTopics(ids, null);
+        }
+
+        public boolean deleteTopics(final Collection<Integer> ids, final LogMessageWrapper logMessage) {
+            startCall("deleteTopics");
+            return deleteEntities(TOPIC, ids);
+        }
+
+        public TopicWrapper newTopic() {
+            return WrapperProxyMock.create(TopicWrapper.class);
+        }
+
+        public CollectionWrapper<TopicWrapper> newTopicCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryTagProvider extends InMemoryProvider {
+        InMemoryTagProvider() {
+            super(TagProvider.class.getSimpleName());
+        }
+
+        public TagWrapper getTag(final Integer id) {
+            return getTag(id, null);
+        }
+
+        public TagWrapper getTag(final Integer id, final Integer revision) {
+            startCall("getTag");
+            return getRequiredEntity(TAG, id, revision);
+        }
+
+        public TagWrapper getTagByName(final String name) {
+            startCall("getTagByName");
+            return (TagWrapper) findEntityByName(TAG, name);
+        }
+
+        public CollectionWrapper<TagWrapper> getTags(final Collection<Integer> ids) {
+            startCall("getTags");
+            return getLatestEntities(TAG, ids);
+        }
+
+        public CollectionWrapper<TagWrapper> getTagRevisions(final Integer id, final Integer revision) {
+            startCall("getTagRevisions");
+            return getEntityRevisions(TAG, id, revision);
+        }
+
+        public CollectionWrapper<CategoryWrapper> getTagCategories(final Integer id, final Integer revision) {
+            startCall("getTagCategories");
+            return getEntityCollection(TAG, id, revision, "categories");
+        }
+
+        public CollectionWrapper<TagWrapper> getTagParentTags(final Integer id, final Integer revision) {
+            startCall("getTagParentTags");
+            return getEntityCollection(TAG, id, revision, "parentTags");
+        }
+
+        public CollectionWrapper<TagWrapper> getTagChildTags(final Integer id, final Integer revision) {
+            startCall("getTagChildTags");
+            return getEntityCollection(TAG, id, revision, "childTags");
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInTopicWrapper> getTagProperties(final Integer id, final Integer revision) {
+            startCall("getTagProperties");
+            return getEntityCollection(TAG, id, revision, "properties");
+        }
+
+        public TagWrapper createTag(final TagWrapper tag) {
+            return createTag(tag, null);
+        }
+
+        public TagWrapper createTag(final TagWrapper tag, final LogMessageWrapper logMessage) {
+            startCall("createTag");
+            return saveEntity(TAG, tag);
+        }
+
+        public TagWrapper updateTag(final TagWrapper tag) {
+            return updateTag(tag, null);
+        }
+
+        public TagWrapper updateTag(final TagWrapper tag, final LogMessageWrapper logMessage) {
+            startCall("updateTag");
+            return saveEntity(TAG, tag);
+        }
+
+        public boolean deleteTag(final Integer id) {
+            return deleteTag(id, null);
+        }
+
+        public boolean deleteTag(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteTag");
+            return deleteEntity(TAG, id);
+        }
+
+        public TagWrapper newTag() {
+            return WrapperProxyMock.create(TagWrapper.class);
+        }
+
+        public CollectionWrapper<TagWrapper> newTagCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryCategoryProvider extends InMemoryProvider {
+        InMemoryCategoryProvider() {
+            super(CategoryProvider.class.getSimpleName());
+        }
+
+        public CategoryWrapper getCategory(final Integer id) {
+            return getCategory(id, null);
+        }
+
+        public CategoryWrapper getCategory(final Integer id, final Integer revision) {
+            startCall("getCategory");
+            return getRequiredEntity(CATEGORY, id, revision);
+        }
+
+        public CategoryWrapper getCategoryByName(final String name) {
+            startCall("getCategoryByName");
+            return (CategoryWrapper) findEntityByName(CATEGORY, name);
+        }
+
+        public CollectionWrapper<CategoryWrapper> getCategories(final Collection<Integer> ids) {
+            startCall("getCategories");
+            return getLatestEntities(CATEGORY, ids);
+        }
+
+        public CollectionWrapper<CategoryWrapper> getCategoryRevisions(final Integer id, final Integer revision) {
+            startCall("getCategoryRevisions");
+            return getEntityRevisions(CATEGORY, id, revision);
+        }
+
+        public CollectionWrapper<TagWrapper> getCategoryTags(final Integer id, final Integer revision) {
+            startCall("getCategoryTags");
+            return getEntityCollection(CATEGORY, id, revision, "tags");
+        }
+
+        public CategoryWrapper createCategory(final CategoryWrapper category) {
+            return createCategory(category, null);
+        }
+
+        public CategoryWrapper createCategory(final CategoryWrapper category, final LogMessageWrapper logMessage) {
+            startCall("createCategory");
+            return saveEntity(CATEGORY, category);
+        }
+
+        public CategoryWrapper updateCategory(final CategoryWrapper category) {
+            return updateCategory(category, null);
+        }
+
+        public CategoryWrapper updateCategory(final CategoryWrapper category, final LogMessageWrapper logMessage) {
+            startCall("updateCategory");
+            return saveEntity(CATEGORY, category);
+        }
+
+        public boolean deleteCategory(final Integer id) {
+            return deleteCategory(id, null);
+        }
+
+        public boolean deleteCategory(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteCategory");
+            return deleteEntity(CATEGORY, id);
+        }
+
+        public CategoryWrapper newCategory() {
+            return WrapperProxyMock.create(CategoryWrapper.class);
+        }
+
+        public CollectionWrapper<CategoryWrapper> newCategoryCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryPropertyTagProvider extends InMemoryProvider {
+        InMemoryPropertyTagProvider() {
+            super(PropertyTagProvider.class.getSimpleName());
+        }
+
+        public PropertyTagWrapper getPropertyTag(final Integer id) {
+            return getPropertyTag(id, null);
+        }
+
+        public PropertyTagWrapper getPropertyTag(final Integer id, final Integer revision) {
+            startCall("getPropertyTag");
+            return getRequiredEntity(PROPERTY_TAG, id, revision);
+        }
+
+        public PropertyTagWrapper getPropertyTagByName(final String name) {
+            startCall("getPropertyTagByName");
+            return (PropertyTagWrapper) findEntityByName(PROPERTY_TAG, name);
+        }
+
+        public CollectionWrapper<PropertyTagWrapper> getPropertyTags(final Collection<Integer> ids) {
+            startCall("getPropertyTags");
+            return getLatestEntities(PROPERTY_TAG, ids);
+        }
+
+        public CollectionWrapper<PropertyTagWrapper> getPropertyTagRevisions(final Integer id, final Integer revision) {
+            startCall("getPropertyTagRevisions");
+            return getEntityRevisions(PROPERTY_TAG, id, revision);
+        }
+
+        public PropertyTagWrapper createPropertyTag(final PropertyTagWrapper propertyTag) {
+            return createPropertyTag(propertyTag, null);
+        }
+
+        public PropertyTagWrapper createPropertyTag(final PropertyTagWrapper propertyTag, final LogMessageWrapper logMessage) {
+            startCall("createPropertyTag");
+            return saveEntity(PROPERTY_TAG, propertyTag);
+        }
+
+        public PropertyTagWrapper updatePropertyTag(final PropertyTagWrapper propertyTag) {
+            return updatePropertyTag(propertyTag, null);
+        }
+
+        public PropertyTagWrapper updatePropertyTag(final PropertyTagWrapper propertyTag, final LogMessageWrapper logMessage) {
+            startCall("updatePropertyTag");
+            return saveEntity(PROPERTY_TAG, propertyTag);
+        }
+
+        public boolean deletePropertyTag(final Integer id) {
+            return deletePropertyTag(id, null);
+        }
+
+        public boolean deletePropertyTag(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deletePropertyTag");
+            return deleteEntity(PROPERTY_TAG, id);
+        }
+
+        public PropertyTagWrapper newPropertyTag() {
+            return WrapperProxyMock.create(PropertyTagWrapper.class);
+        }
+
+        public CollectionWrapper<PropertyTagWrapper> newPropertyTagCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+
+        public PropertyTagInTopicWrapper newPropertyTagInTopic(final PropertyTagWrapper propertyTag, final BaseTopicWrapper<?> topic) {
+            return newLinkedEntity(PropertyTagInTopicWrapper.class, propertyTag);
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInTopicWrapper> newPropertyTagInTopicCollection(final BaseTopicWrapper<?> topic) {
+            return WrapperProxyMock.newCollection();
+        }
+
+        public PropertyTagInContentSpecWrapper newPropertyTagInContentSpec(final PropertyTagWrapper propertyTag,
+                final ContentSpecWrapper contentSpec) {
+            return newLinkedEntity(PropertyTagInContentSpecWrapper.class, propertyTag);
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInContentSpecWrapper> newPropertyTagInContentSpecCollection(
+                final ContentSpecWrapper contentSpec) {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryBlobConstantProvider extends InMemoryProvider {
+        InMemoryBlobConstantProvider() {
+            super(BlobConstantProvider.class.getSimpleName());
+        }
+
+        public BlobConstantWrapper getBlobConstant(final Integer id) {
+            return getBlobConstant(id, null);
+        }
+
+        public BlobConstantWrapper getBlobConstant(final Integer id, final Integer revision) {
+            startCall("getBlobConstant");
+            return getRequiredEntity(BLOB_CONSTANT, id, revision);
+        }
+
+        public CollectionWrapper<BlobConstantWrapper> getBlobConstantRevisions(final Integer id, final Integer revision) {
+            startCall("getBlobConstantRevisions");
+            return getEntityRevisions(BLOB_CONSTANT, id, revision);
+        }
+
+        public BlobConstantWrapper createBlobConstant(final BlobConstantWrapper blobConstant) {
+            return createBlobConstant(blobConstant, null);
+        }
+
+        public BlobConstantWrapper createBlobConstant(final BlobConstantWrapper blobConstant, final LogMessageWrapper logMessage) {
+            startCall("createBlobConstant");
+            return saveEntity(BLOB_CONSTANT, blobConstant);
+        }
+
+        public BlobConstantWrapper updateBlobConstant(final BlobConstantWrapper blobConstant) {
+            return updateBlobConstant(blobConstant, null);
+        }
+
+        public BlobConstantWrapper updateBlobConstant(final BlobConstantWrapper blobConstant, final LogMessageWrapper logMessage) {
+            startCall("updateBlobConstant");
+            return saveEntity(BLOB_CONSTANT, blobConstant);
+        }
+
+        public boolean deleteBlobConstant(final Integer id) {
+            return deleteBlobConstant(id, null);
+        }
+
+        public boolean deleteBlobConstant(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteBlobConstant");
+            return deleteEntity(BLOB_CONSTANT, id);
+        }
+
+        public BlobConstantWrapper newBlobConstant() {
+            return WrapperProxyMock.create(BlobConstantWrapper.class);
+        }
+
+        public CollectionWrapper<BlobConstantWrapper> newBlobConstantCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryFileProvider extends InMemoryProvider {
+        InMemoryFileProvider() {
+            super(FileProvider.class.getSimpleName());
+        }
+
+        public FileWrapper getFile(final Integer id) {
+            return getFile(id, null);
+        }
+
+        public FileWrapper getFile(final Integer id, final Integer revision) {
+            startCall("getFile");
+            return getRequiredEntity(FILE, id, revision);
+        }
+
+        public CollectionWrapper<FileWrapper> getFileRevisions(final Integer id, final Integer revision) {
+            startCall("getFileRevisions");
+            return getEntityRevisions(FILE, id, revision);
+        }
+
+        public <T> UpdateableCollectionWrapper<T> getFileLanguageFiles(final Integer id, final Integer revision) {
+            startCall("getFileLanguageFiles");
+            return getEntityCollection(FILE, id, revision, "languageFiles");
+        }
+
+        public <T> UpdateableCollectionWrapper<T> getFileLanguageFiles(final Integer id, final Integer revision,
+                final FileWrapper parent) {
+            return getFileLanguageFiles(id, revision);
+        }
+
+        public FileWrapper createFile(final FileWrapper file) {
+            return createFile(file, null);
+        }
+
+        public FileWrapper createFile(final FileWrapper file, final LogMessageWrapper logMessage) {
+            startCall("createFile");
+            return saveEntity(FILE, file);
+        }
+
+        public FileWrapper updateFile(final FileWrapper file) {
+            return updateFile(file, null);
+        }
+
+        public FileWrapper updateFile(final FileWrapper file, final LogMessageWrapper logMessage) {
+            startCall("updateFile");
+            return saveEntity(FILE, file);
+        }
+
+        public boolean deleteFile(final Integer id) {
+            return deleteFile(id, null);
+        }
+
+        public boolean deleteFile(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteFile");
+            return deleteEntity(FILE, id);
+        }
+
+        public FileWrapper newFile() {
+            return WrapperProxyMock.create(FileWrapper.class);
+        }
+
+        public CollectionWrapper<FileWrapper> newFileCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryContentSpecProvider extends InMemoryProvider implements SingleSaveContentSpecProvider {
+        InMemoryContentSpecProvider() {
+            super(ContentSpecProvider.class.getSimpleName());
+        }
+
+        public ContentSpecWrapper getContentSpec(final Integer id) {
+            return getContentSpec(id, null);
+        }
+
+        public ContentSpecWrapper getContentSpec(final Integer id, final Integer revision) {
+            startCall("getContentSpec");
+            return getRequiredEntity(CONTENT_SPEC, id, revision);
+        }
+
+        public CollectionWrapper<ContentSpecWrapper> getContentSpecs(final Collection<Integer> ids) {
+            startCall("getContentSpecs");
+            return getLatestEntities(CONTENT_SPEC, ids);
+        }
+
+        public CollectionWrapper<ContentSpecWrapper> getContentSpecRevisions(final Integer id, final Integer revision) {
+            startCall("getContentSpecRevisions");
+            return getEntityRevisions(CONTENT_SPEC, id, revision);
+        }
+
+        public CollectionWrapper<TagWrapper> getContentSpecTags(final Integer id, final Integer revision) {
+            startCall("getContentSpecTags");
+            return getEntityCollection(CONTENT_SPEC, id, revision, "tags");
+        }
+
+        public CollectionWrapper<TagWrapper> getContentSpecBookTags(final Integer id, final Integer revision) {
+            startCall("getContentSpecBookTags");
+            return getEntityCollection(CONTENT_SPEC, id, revision, "bookTags");
+        }
+
+        public UpdateableCollectionWrapper<CSNodeWrapper> getContentSpecNodes(final Integer id, final Integer revision) {
+            startCall("getContentSpecNodes");
+            return getEntityCollection(CONTENT_SPEC, id, revision, "children");
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInContentSpecWrapper> getContentSpecProperties(final Integer id,
+                final Integer revision) {
+            startCall("getContentSpecProperties");
+            return getEntityCollection(CONTENT_SPEC, id, revision, "properties");
+        }
+
+        public UpdateableCollectionWrapper<PropertyTagInContentSpecWrapper> getContentSpecProperties(final Integer id,
+                final Integer revision, final ContentSpecWrapper parent) {
+            return getContentSpecProperties(id, revision);
+        }
+
+        public String getContentSpecAsString(final Integer id) {
+            return getContentSpecAsString(id, null);
+        }
+
+        public String getContentSpecAsString(final Integer id, final Integer revision) {
+            startCall("getContentSpecAsString");
+            final TextContentSpecWrapper textContentSpec = getRequiredEntity(TEXT_CONTENT_SPEC, id, revision);
+            return textContentSpec.getText();
+        }
+
+        public ContentSpecWrapper createContentSpec(final ContentSpecWrapper contentSpec) {
+            return createContentSpec(contentSpec, null);
+        }
+
+        public ContentSpecWrapper createContentSpec(final ContentSpecWrapper contentSpec, final LogMessageWrapper logMessage) {
+            startCall("createContentSpec");
+            return saveEntity(CONTENT_SPEC, contentSpec);
+        }
+
+        public ContentSpecWrapper updateContentSpec(final ContentSpecWrapper contentSpec) {
+            return updateContentSpec(contentSpec, null);
+        }
+
+        public ContentSpecWrapper updateContentSpec(final ContentSpecWrapper contentSpec, final LogMessageWrapper logMessage) {
+            startCall("updateContentSpec");
+            return saveEntity(CONTENT_SPEC, contentSpec);
+        }
+
+        /**
+         * Saves a content spec in a single call, by giving the new nodes their real ids and pointing the relationships to them at
+         * those ids before the content spec is saved.
+         */
+        @Override
+        public ContentSpecWrapper updateContentSpec(final ContentSpecWrapper contentSpec, final LogMessageWrapper logMessage,
+                final Map<CSNodeWrapper, Integer> temporaryNodeIds, final Map<CSRelatedNodeWrapper, Integer> temporaryRelatedNodeIds) {
+            startCall("updateContentSpec");
+            synchronized (entities) {
+                // Give the new nodes their ids in the order they were added (-1, -2, ...), so the ids are the same for each run
+                final TreeMap<Integer, CSNodeWrapper> nodesByTemporaryId = new TreeMap<Integer, CSNodeWrapper>(
+                        Collections.reverseOrder());
+                for (final Map.Entry<CSNodeWrapper, Integer> entry : temporaryNodeIds.entrySet()) {
+                    nodesByTemporaryId.put(entry.getValue(), entry.getKey());
+                }
+                final Map<Integer, Integer> nodeIds = new HashMap<Integer, Integer>();
+                final AtomicInteger nextNodeId = getNextId(CS_NODE);
+                for (final Map.Entry<Integer, CSNodeWrapper> entry : nodesByTemporaryId.entrySet()) {
+                    final Integer id = nextNodeId.getAndIncrement();
+                    WrapperProxyMock.setProperty(entry.getValue(), "id", id);
+                    nodeIds.put(entry.getKey(), id);
+                }
+
+                for (final Map.Entry<CSRelatedNodeWrapper, Integer> entry : temporaryRelatedNodeIds.entrySet()) {
+                    final Integer id = nodeIds.get(entry.getValue());
+                    if (id == null) {
+                        throw new IllegalArgumentException("No node has the temporary id " + entry.getValue());
+                    }
+                    WrapperProxyMock.setProperty(entry.getKey(), "id", id);
+                }
+
+                return saveEntity(CONTENT_SPEC, contentSpec);
+            }
+        }
+
+        public boolean deleteContentSpec(final Integer id) {
+            return deleteContentSpec(id, null);
+        }
+
+        public boolean deleteContentSpec(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteContentSpec");
+            synchronized (entities) {
+                deleteEntity(TEXT_CONTENT_SPEC, id);
+                return deleteEntity(CONTENT_SPEC, id);
+            }
+        }
+
+        public ContentSpecWrapper newContentSpec() {
+            return WrapperProxyMock.create(ContentSpecWrapper.class);
+        }
+
+        public CollectionWrapper<ContentSpecWrapper> newContentSpecCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryTextContentSpecProvider extends InMemoryProvider {
+        InMemoryTextContentSpecProvider() {
+            super(TextContentSpecProvider.class.getSimpleName());
+        }
+
+        public TextContentSpecWrapper getTextContentSpec(final Integer id) {
+            return getTextContentSpec(id, null);
+        }
+
+        public TextContentSpecWrapper getTextContentSpec(final Integer id, final Integer revision) {
+            startCall("getTextContentSpec");
+            return getRequiredEntity(TEXT_CONTENT_SPEC, id, revision);
+        }
+
+        public CollectionWrapper<TextContentSpecWrapper> getTextContentSpecRevisions(final Integer id, final Integer revision) {
+            startCall("getTextContentSpecRevisions");
+            return getEntityRevisions(TEXT_CONTENT_SPEC, id, revision);
+        }
+
+        /**
+         * Saves the text of a content spec. The text isn't parsed, so the content spec entity is only given the new revision if it
+         * already exists.
+         */
+        public TextContentSpecWrapper createTextContentSpec(final TextContentSpecWrapper textContentSpec) {
+            return createTextContentSpec(textContentSpec, null);
+        }
+
+        public TextContentSpecWrapper createTextContentSpec(final TextContentSpecWrapper textContentSpec,
+                final LogMessageWrapper logMessage) {
+            startCall("createTextContentSpec");
+            return saveEntity(TEXT_CONTENT_SPEC, textContentSpec);
+        }
+
+        public TextContentSpecWrapper updateTextContentSpec(final TextContentSpecWrapper textContentSpec) {
+            return updateTextContentSpec(textContentSpec, null);
+        }
+
+        public TextContentSpecWrapper updateTextContentSpec(final TextContentSpecWrapper textContentSpec,
+                final LogMessageWrapper logMessage) {
+            startCall("updateTextContentSpec");
+            return saveEntity(TEXT_CONTENT_SPEC, textContentSpec);
+        }
+
+        public TextContentSpecWrapper newTextContentSpec() {
+            return WrapperProxyMock.create(TextContentSpecWrapper.class);
+        }
+
+        public CollectionWrapper<TextContentSpecWrapper> newTextContentSpecCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryCSNodeProvider extends InMemoryProvider {
+        InMemoryCSNodeProvider() {
+            super(CSNodeProvider.class.getSimpleName());
+        }
+
+        public CSNodeWrapper getCSNode(final Integer id) {
+            return getCSNode(id, null);
+        }
+
+        public CSNodeWrapper getCSNode(final Integer id, final Integer revision) {
+            startCall("getCSNode");
+            return getRequiredEntity(CS_NODE, id, revision);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> getCSNodes(final Collection<Integer> ids) {
+            startCall("getCSNodes");
+            return getLatestEntities(CS_NODE, ids);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> getCSNodeRevisions(final Integer id, final Integer revision) {
+            startCall("getCSNodeRevisions");
+            return getEntityRevisions(CS_NODE, id, revision);
+        }
+
+        public UpdateableCollectionWrapper<CSNodeWrapper> getCSNodeChildren(final Integer id, final Integer revision) {
+            startCall("getCSNodeChildren");
+            return getEntityCollection(CS_NODE, id, revision, "children");
+        }
+
+        public UpdateableCollectionWrapper<CSRelatedNodeWrapper> getCSNodeRelatedToNodes(final Integer id, final Integer revision) {
+            startCall("getCSNodeRelatedToNodes");
+            return getEntityCollection(CS_NODE, id, revision, "relatedToNodes");
+        }
+
+        public UpdateableCollectionWrapper<CSRelatedNodeWrapper> getCSNodeRelatedFromNodes(final Integer id,
+                final Integer revision) {
+            startCall("getCSNodeRelatedFromNodes");
+            return getEntityCollection(CS_NODE, id, revision, "relatedFromNodes");
+        }
+
+        public CSInfoNodeWrapper getCSNodeInfo(final Integer id, final Integer revision) {
+            startCall("getCSNodeInfo");
+            final CSNodeWrapper node = getRequiredEntity(CS_NODE, id, revision);
+            return node.getInfoTopicNode();
+        }
+
+        public CSNodeWrapper createCSNode(final CSNodeWrapper node) {
+            return createCSNode(node, null);
+        }
+
+        public CSNodeWrapper createCSNode(final CSNodeWrapper node, final LogMessageWrapper logMessage) {
+            startCall("createCSNode");
+            return saveEntity(CS_NODE, node);
+        }
+
+        public CSNodeWrapper updateCSNode(final CSNodeWrapper node) {
+            return updateCSNode(node, null);
+        }
+
+        public CSNodeWrapper updateCSNode(final CSNodeWrapper node, final LogMessageWrapper logMessage) {
+            startCall("updateCSNode");
+            return saveEntity(CS_NODE, node);
+        }
+
+        public boolean deleteCSNode(final Integer id) {
+            return deleteCSNode(id, null);
+        }
+
+        public boolean deleteCSNode(final Integer id, final LogMessageWrapper logMessage) {
+            startCall("deleteCSNode");
+            return deleteEntity(CS_NODE, id);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> createCSNodes(final CollectionWrapper<CSNodeWrapper> nodes) {
+            return createCSNodes(nodes, null);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> createCSNodes(final CollectionWrapper<CSNodeWrapper> nodes,
+                final LogMessageWrapper logMessage) {
+            startCall("createCSNodes");
+            return saveEntities(CS_NODE, nodes);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> updateCSNodes(final CollectionWrapper<CSNodeWrapper> nodes) {
+            return updateCSNodes(nodes, null);
+        }
+
+        public CollectionWrapper<CSNodeWrapper> updateCSNodes(final CollectionWrapper<CSNodeWrapper> nodes,
+                final LogMessageWrapper logMessage) {
+            startCall("updateCSNodes");
+            return saveEntities(CS_NODE, nodes);
+        }
+
+        public boolean deleteCSNodes(final Collection<Integer> ids) {
+            return deleteCSNodes(ids, null);
+        }
+
+        public boolean deleteCSNodes(final Collection<Integer> ids, final LogMessageWrapper logMessage) {
+            startCall("deleteCSNodes");
+            return deleteEntities(CS_NODE, ids);
+        }
+
+        public CSNodeWrapper newCSNode() {
+            return WrapperProxyMock.create(CSNodeWrapper.class);
+        }
+
+        public UpdateableCollectionWrapper<CSNodeWrapper> newCSNodeCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+
+        public CSRelatedNodeWrapper newCSRelatedNode(final CSNodeWrapper relatedNode) {
+            return newLinkedEntity(CSRelatedNodeWrapper.class, relatedNode);
+        }
+
+        public UpdateableCollectionWrapper<CSRelatedNodeWrapper> newCSRelatedNodeCollection() {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryCSInfoNodeProvider extends InMemoryProvider {
+        InMemoryCSInfoNodeProvider() {
+            super(CSInfoNodeProvider.class.getSimpleName());
+        }
+
+        public CSInfoNodeWrapper newCSNodeInfo(final CSNodeWrapper node) {
+            return WrapperProxyMock.create(CSInfoNodeWrapper.class);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private class InMemoryTopicSourceURLProvider extends InMemoryProvider {
+        InMemoryTopicSourceURLProvider() {
+            super(TopicSourceURLProvider.class.getSimpleName());
+        }
+
+        public TopicSourceURLWrapper newTopicSourceURL(final BaseTopicWrapper<?> topic) {
+            return WrapperProxyMock.create(TopicSourceURLWrapper.class);
+        }
+
+        public UpdateableCollectionWrapper<TopicSourceURLWrapper> newTopicSourceURLCollection(final BaseTopicWrapper<?> topic) {
+            return WrapperProxyMock.newCollection();
+        }
+    }
+
+    private class InMemoryTranslatedTopicProvider extends InMemoryProvider implements BatchTranslatedTopicProvider {
+        InMemoryTranslatedTopicProvider() {
+            super(TranslatedTopicProvider.class.getSimpleName());
+        }
+
+        @Override
+        public Map<Integer, TranslatedTopicWrapper> getTranslatedTopics(final Map<Integer, Integer> topicRevisions,
+                final String locale) {
+            startCall("getTranslatedTopics");
+            final Map<Integer, TranslatedTopicWrapper> translatedTopics = new HashMap<Integer, TranslatedTopicWrapper>();
+            for (final Map.Entry<Integer, Integer> entry : topicRevisions.entrySet()) {
+                final Object translatedTopic = findEntity(getTranslatedTopicType(locale), entry.getKey(), entry.getValue());
+                if (translatedTopic != null) {
+                    translatedTopics.put(entry.getKey(), (TranslatedTopicWrapper) translatedTopic);
+                }
+            }
+            return translatedTopics;
+        }
+    }
+
+    private class InMemoryServerSettingsProvider extends InMemoryProvider {
+        InMemoryServerSettingsProvider() {
+            super(ServerSettingsProvider.class.getSimpleName());
+        }
+
+        public ServerSettingsWrapper getServerSettings() {
+            startCall("getServerSettings");
+            return serverSettings;
+        }
+
+        public ServerSettingsWrapper updateServerSettings(final ServerSettingsWrapper settings) {
+            startCall("updateServerSettings");
+            setServerSettings(settings);
+            return settings;
+        }
+    }
+}
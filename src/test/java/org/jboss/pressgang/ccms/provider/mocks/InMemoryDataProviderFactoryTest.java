@@ -0,0 +1,382 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.provider.mocks;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.contentspec.BaseUnitTest;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.BatchTranslatedTopicProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.SingleSaveContentSpecProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicChangeProvider;
+import org.jboss.pressgang.ccms.contentspec.processor.provider.TopicRevisionProvider;
+import org.jboss.pressgang.ccms.provider.BlobConstantProvider;
+import org.jboss.pressgang.ccms.provider.CSNodeProvider;
+import org.jboss.pressgang.ccms.provider.CategoryProvider;
+import org.jboss.pressgang.ccms.provider.ContentSpecProvider;
+import org.jboss.pressgang.ccms.provider.FileProvider;
+import org.jboss.pressgang.ccms.provider.PropertyTagProvider;
+import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
+import org.jboss.pressgang.ccms.provider.TagProvider;
+import org.jboss.pressgang.ccms.provider.TextContentSpecProvider;
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.provider.TranslatedTopicProvider;
+import org.jboss.pressgang.ccms.provider.exception.NotFoundException;
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.CSRelatedNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.ContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.TagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TextContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.mocks.WrapperProxyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryDataProviderFactoryTest extends BaseUnitTest {
+    private static final long SEED = 42L;
+
+    InMemoryDataProviderFactory factory;
+    SyntheticDatasetGenerator generator;
+
+    @Before
+    public void setUp() {
+        factory = new InMemoryDataProviderFactory(SEED);
+        generator = new SyntheticDatasetGenerator(SEED);
+        generator.setTopicCount(20);
+        generator.setTagCount(5);
+    }
+
+    @Test
+    public void shouldSeedTheProvidersFromTheGeneratedDataset() {
+        // Given a generated dataset
+        final SyntheticDatasetGenerator.SyntheticDataset dataset = generator.generate(factory);
+
+        // When looking up a topic, a type tag and the server settings
+        final TopicWrapper topic = factory.getProvider(TopicProvider.class).getTopic(dataset.getTopicIds().get(0), null);
+        final TagWrapper tag = factory.getProvider(TagProvider.class).getTagByName("Concept");
+
+        // Then they should exist
+        assertThat(dataset.getTopicIds().size(), is(20));
+        assertThat(topic.getTitle(), is("Topic 1"));
+        assertTrue(tag.containedInCategory(factory.getServerSettings().getEntities().getTypeCategoryId()));
+        assertThat(factory.getProvider(ServerSettingsProvider.class).getServerSettings().getDefaultLocale().getValue(),
+                is(SyntheticDatasetGenerator.DEFAULT_LOCALE));
+        // and each lookup should be counted
+        assertThat(factory.getCallCount("TopicProvider.getTopic"), is(1L));
+        assertThat(factory.getCallCount(), is(3L));
+    }
+
+    @Test
+    public void shouldGenerateTheSameDatasetForTheSameSeed() {
+        // Given two datasets generated from the same seed
+        final InMemoryDataProviderFactory otherFactory = new InMemoryDataProviderFactory(SEED);
+        final SyntheticDatasetGenerator otherGenerator = new SyntheticDatasetGenerator(SEED);
+        otherGenerator.setTopicCount(20);
+        otherGenerator.setTagCount(5);
+        final SyntheticDatasetGenerator.SyntheticDataset dataset = generator.generate(factory);
+        final SyntheticDatasetGenerator.SyntheticDataset otherDataset = otherGenerator.generate(otherFactory);
+
+        // When generating a content spec from each dataset
+        final String contentSpec = generator.generateContentSpec(dataset, "Book", 3, 5, 0.2);
+        final String otherContentSpec = otherGenerator.generateContentSpec(otherDataset, "Book", 3, 5, 0.2);
+
+        // Then the content specs should be the same
+        assertThat(contentSpec, is(otherContentSpec));
+        final TopicWrapper topic = (TopicWrapper) factory.getEntity(InMemoryDataProviderFactory.TOPIC, 5);
+        final TopicWrapper otherTopic = (TopicWrapper) otherFactory.getEntity(InMemoryDataProviderFactory.TOPIC, 5);
+        assertThat(topic.getXml(), is(otherTopic.getXml()));
+    }
+
+    @Test
+    public void shouldKeepEachRevisionWhenUpdatingAnEntity() {
+        // Given a topic
+        final TopicProvider topicProvider = factory.getProvider(TopicProvider.class);
+        final TopicWrapper topic = topicProvider.newTopic();
+        topic.setTitle("Original");
+        final TopicWrapper createdTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, topic);
+        final Integer originalRevision = createdTopic.getRevision();
+
+        // When the topic that was looked up is changed and saved
+        final TopicWrapper updatedTopic = topicProvider.getTopic(createdTopic.getId(), null);
+        updatedTopic.setTitle("Updated");
+        factory.addEntity(InMemoryDataProviderFactory.TOPIC, updatedTopic);
+
+        // Then the latest revision should have the change
+        assertThat(topicProvider.getTopic(createdTopic.getId(), null).getTitle(), is("Updated"));
+        // and the original revision should still be available
+        assertThat(topicProvider.getTopic(createdTopic.getId(), originalRevision).getTitle(), is("Original"));
+        // and each lookup should return a different copy
+        final TopicWrapper latestTopic = topicProvider.getTopic(createdTopic.getId(), null);
+        assertThat(topicProvider.getTopic(createdTopic.getId(), null), is(not(sameInstance(latestTopic))));
+    }
+
+    @Test
+    public void shouldUndoChangesWhenRolledBack() {
+        // Given a factory that supports transactions
+        factory.setTransactionsSupported(true);
+        final TopicWrapper committedTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, factory.newEntity(TopicWrapper.class));
+        factory.commit();
+        // and a topic that was added after the commit
+        final TopicWrapper newTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, factory.newEntity(TopicWrapper.class));
+
+        // When rolling back
+        factory.rollback();
+
+        // Then only the committed topic should exist
+        assertThat(factory.getEntity(InMemoryDataProviderFactory.TOPIC, committedTopic.getId()), is(not(nullValue())));
+        assertThat(factory.getEntity(InMemoryDataProviderFactory.TOPIC, newTopic.getId()), is(nullValue()));
+        try {
+            factory.getProvider(TopicProvider.class).getTopic(newTopic.getId(), null);
+            fail("The topic should not be found");
+        } catch (NotFoundException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void shouldWaitForTheLatencyOnEachCall() {
+        // Given a factory with some latency
+        factory.setLatency(20, 5, TimeUnit.MILLISECONDS);
+        final TopicProvider topicProvider = factory.getProvider(TopicProvider.class);
+
+        // When creating a new topic and looking up a topic that doesn't exist
+        final long start = System.nanoTime();
+        topicProvider.newTopic();
+        try {
+            topicProvider.getTopic(1, null);
+        } catch (NotFoundException e) {
+            // Expected
+        }
+        final long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then only the lookup should have waited
+        assertTrue(duration >= 15);
+        assertThat(factory.getCallCount(), is(1L));
+        assertFalse(factory.getCallCounts().containsKey("TopicProvider.newTopic"));
+    }
+
+    @Test
+    public void shouldFailForCallsThatAreNotSupported() {
+        // Given a provider that the in-memory providers don't support
+        final UnsupportedProvider provider = factory.getProvider(UnsupportedProvider.class);
+
+        // When calling the provider
+        try {
+            provider.getUnsupported(1);
+            fail("The call should not be supported");
+        } catch (UnsupportedOperationException e) {
+            // Then the call should fail and not be counted
+            assertThat(factory.getCallCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void shouldGetTheTagsOfATopicRevision() {
+        // Given a generated dataset
+        final SyntheticDatasetGenerator.SyntheticDataset dataset = generator.generate(factory);
+        final TopicProvider topicProvider = factory.getProvider(TopicProvider.class);
+        final TopicWrapper topic = topicProvider.getTopic(dataset.getTopicIds().get(0), null);
+
+        // When getting the tags of the topic
+        final Collection<TagWrapper> tags = topicProvider.getTopicTags(topic.getId(), topic.getRevision()).getItems();
+
+        // Then the tags of the topic should be returned, rather than looking up the topic as a "TopicTags" entity
+        assertThat(tags.size(), is(topic.getTags().getItems().size()));
+        assertThat(factory.getCallCount("TopicProvider.getTopicTags"), is(1L));
+    }
+
+    @Test
+    public void shouldGetTheTextOfAContentSpecAtTheSameRevisionAsTheContentSpec() {
+        // Given a content spec
+        final ContentSpecWrapper contentSpec = factory.addEntity(InMemoryDataProviderFactory.CONTENT_SPEC,
+                factory.newEntity(ContentSpecWrapper.class));
+
+        // When the text is added for the content spec
+        final String editedContentSpec = SyntheticDatasetGenerator.addContentSpecText(factory, contentSpec.getId(),
+                "Title = Book\n");
+
+        // Then the text should be returned at the same revision as the content spec
+        final TextContentSpecWrapper textContentSpec = factory.getProvider(TextContentSpecProvider.class).getTextContentSpec(
+                contentSpec.getId(), null);
+        final ContentSpecWrapper latestContentSpec = factory.getProvider(ContentSpecProvider.class).getContentSpec(contentSpec.getId(),
+                null);
+        assertThat(textContentSpec.getText(), is("ID = " + contentSpec.getId() + "\nTitle = Book\n"));
+        assertThat(textContentSpec.getRevision(), is(latestContentSpec.getRevision()));
+        assertTrue(editedContentSpec.startsWith("CHECKSUM = "));
+        // and saving the content spec again should keep the text at the new revision
+        final ContentSpecWrapper updatedContentSpec = factory.addEntity(InMemoryDataProviderFactory.CONTENT_SPEC, latestContentSpec);
+        assertThat(factory.getProvider(TextContentSpecProvider.class).getTextContentSpec(contentSpec.getId(),
+                updatedContentSpec.getRevision()).getRevision(), is(updatedContentSpec.getRevision()));
+    }
+
+    @Test
+    public void shouldGetTheRevisionsAndChangesOfTopics() {
+        // Given two topics
+        final TopicWrapper topic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, factory.newEntity(TopicWrapper.class));
+        final TopicWrapper otherTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, factory.newEntity(TopicWrapper.class));
+        final Integer topicRevision = topic.getRevision();
+        final Integer revision = otherTopic.getRevision();
+        // and the first topic was updated
+        final TopicWrapper updatedTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, topic);
+        final TopicProvider topicProvider = factory.getProvider(TopicProvider.class);
+
+        // When getting the revisions and the changed topics
+        final Map<Integer, Integer> revisions = ((TopicRevisionProvider) topicProvider).getTopicRevisions(Arrays.asList(
+                topic.getId(), otherTopic.getId(), 100), revision);
+        final Collection<Integer> changedIds = ((TopicChangeProvider) topicProvider).getChangedTopicIds(Arrays.asList(topic.getId(),
+                otherTopic.getId()), revision);
+
+        // Then the revisions should be at or before the revision, and only the updated topic should have changed
+        assertThat(revisions.size(), is(2));
+        assertThat(revisions.get(topic.getId()), is(topicRevision));
+        assertThat(revisions.get(otherTopic.getId()), is(revision));
+        assertThat(changedIds.size(), is(1));
+        assertTrue(changedIds.contains(updatedTopic.getId()));
+    }
+
+    @Test
+    public void shouldSaveNewNodesAndTheirRelationshipsInASingleSave() {
+        // Given a content spec with two new nodes
+        final ContentSpecProvider contentSpecProvider = factory.getProvider(ContentSpecProvider.class);
+        final CSNodeProvider nodeProvider = factory.getProvider(CSNodeProvider.class);
+        final ContentSpecWrapper contentSpec = contentSpecProvider.newContentSpec();
+        final CSNodeWrapper node = nodeProvider.newCSNode();
+        final CSNodeWrapper otherNode = nodeProvider.newCSNode();
+        WrapperProxyMock.setProperty(contentSpec, "children", WrapperProxyMock.newCollection(Arrays.asList(node, otherNode)));
+        // and the first node is related to the second
+        final CSRelatedNodeWrapper relatedNode = nodeProvider.newCSRelatedNode(otherNode);
+        WrapperProxyMock.setProperty(node, "relatedToNodes", WrapperProxyMock.newCollection(Arrays.asList(relatedNode)));
+        final Map<CSNodeWrapper, Integer> temporaryNodeIds = new IdentityHashMap<CSNodeWrapper, Integer>();
+        temporaryNodeIds.put(node, -1);
+        temporaryNodeIds.put(otherNode, -2);
+        final Map<CSRelatedNodeWrapper, Integer> temporaryRelatedNodeIds = new IdentityHashMap<CSRelatedNodeWrapper, Integer>();
+        temporaryRelatedNodeIds.put(relatedNode, -2);
+
+        // When saving the content spec in a single call
+        assertTrue(contentSpecProvider instanceof SingleSaveContentSpecProvider);
+        ((SingleSaveContentSpecProvider) contentSpecProvider).updateContentSpec(contentSpec, null, temporaryNodeIds,
+                temporaryRelatedNodeIds);
+
+        // Then the nodes should be saved in the order of their temporary ids
+        assertThat(node.getId(), is(1));
+        assertThat(otherNode.getId(), is(2));
+        assertThat(factory.getEntityCount(InMemoryDataProviderFactory.CS_NODE), is(2));
+        // and the relationship should point to the saved node
+        assertThat(relatedNode.getId(), is(otherNode.getId()));
+        assertThat(factory.getCallCount("ContentSpecProvider.updateContentSpec"), is(1L));
+    }
+
+    @Test
+    public void shouldGetTheTranslationsOfTopicsInASingleCall() {
+        // Given a topic with a translation of its first revision
+        final TopicWrapper topic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, factory.newEntity(TopicWrapper.class));
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("topicId", topic.getId());
+        properties.put("topicRevision", topic.getRevision());
+        properties.put("locale", "de-DE");
+        properties.put("title", "Translated Title");
+        factory.addTranslatedTopic(WrapperProxyMock.create(TranslatedTopicWrapper.class, properties));
+        // and the topic was updated after it was translated
+        final TopicWrapper updatedTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, topic);
+        final TranslatedTopicProvider translatedTopicProvider = factory.getProvider(TranslatedTopicProvider.class);
+
+        // When getting the translations of the latest revision
+        final Map<Integer, Integer> topicRevisions = new HashMap<Integer, Integer>();
+        topicRevisions.put(topic.getId(), updatedTopic.getRevision());
+        topicRevisions.put(100, null);
+        final Map<Integer, TranslatedTopicWrapper> translatedTopics = ((BatchTranslatedTopicProvider) translatedTopicProvider)
+                .getTranslatedTopics(topicRevisions, "de-DE");
+
+        // Then the translation of the earlier revision should be used
+        assertThat(translatedTopics.size(), is(1));
+        assertThat(translatedTopics.get(topic.getId()).getTitle(), is("Translated Title"));
+        // and there should be no translations for other locales
+        assertTrue(((BatchTranslatedTopicProvider) translatedTopicProvider).getTranslatedTopics(topicRevisions, "fr-FR").isEmpty());
+    }
+
+    @Test
+    public void shouldOnlyLeaveQueriesUnimplementedForTheProvidersItSupports() {
+        // Given the providers that are stored in memory
+        final List<Class<?>> providerClasses = Arrays.<Class<?>>asList(TopicProvider.class, TagProvider.class,
+                CategoryProvider.class, ContentSpecProvider.class, TextContentSpecProvider.class, CSNodeProvider.class,
+                FileProvider.class, BlobConstantProvider.class, PropertyTagProvider.class, ServerSettingsProvider.class);
+
+        // When listing the methods that aren't implemented
+        final List<String> unimplementedMethods = new ArrayList<String>();
+        for (final Class<?> providerClass : providerClasses) {
+            for (final String method : factory.getUnsupportedMethods(providerClass)) {
+                // Queries use the server's query language, so they are deliberately unsupported
+                if (!method.contains("WithQuery[")) {
+                    unimplementedMethods.add(providerClass.getSimpleName() + "." + method);
+                }
+            }
+        }
+
+        // Then every other method should be implemented
+        assertThat("Unimplemented methods: " + unimplementedMethods, unimplementedMethods.isEmpty(), is(true));
+        // and an unsupported provider should have every method listed
+        assertThat(factory.getUnsupportedMethods(UnsupportedProvider.class), is(Arrays.asList(
+                "getUnsupported[class java.lang.Integer]")));
+    }
+
+    @Test
+    public void shouldGetTheRevisionsOfAnEntity() {
+        // Given a topic
+        final TopicProvider topicProvider = factory.getProvider(TopicProvider.class);
+        final TopicWrapper topic = topicProvider.newTopic();
+        topic.setTitle("Original");
+        final TopicWrapper createdTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, topic);
+        final Integer originalRevision = createdTopic.getRevision();
+        // and the topic was updated
+        createdTopic.setTitle("Updated");
+        final TopicWrapper updatedTopic = factory.addEntity(InMemoryDataProviderFactory.TOPIC, createdTopic);
+
+        // When getting the revisions of the topic
+        final List<TopicWrapper> revisions = topicProvider.getTopicRevisions(updatedTopic.getId(), null).getItems();
+
+        // Then every revision should be returned, oldest first
+        assertThat(revisions.size(), is(2));
+        assertThat(revisions.get(0).getTitle(), is("Original"));
+        assertThat(revisions.get(1).getRevision(), is(updatedTopic.getRevision()));
+        // and only the revisions up to a revision should be returned when asking for it
+        assertThat(topicProvider.getTopicRevisions(updatedTopic.getId(), originalRevision).getItems().size(), is(1));
+        assertThat(factory.getCallCount("TopicProvider.getTopicRevisions"), is(2L));
+    }
+
+    public static interface UnsupportedProvider {
+        Object getUnsupported(Integer id);
+    }
+}
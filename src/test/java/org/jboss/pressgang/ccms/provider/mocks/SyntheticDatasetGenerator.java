@@ -0,0 +1,328 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.provider.mocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.jboss.pressgang.ccms.contentspec.processor.utils.ChecksumUtilities;
+import org.jboss.pressgang.ccms.utils.common.ResourceUtilities;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.jboss.pressgang.ccms.wrapper.BlobConstantWrapper;
+import org.jboss.pressgang.ccms.wrapper.CategoryWrapper;
+import org.jboss.pressgang.ccms.wrapper.LocaleWrapper;
+import org.jboss.pressgang.ccms.wrapper.PropertyTagWrapper;
+import org.jboss.pressgang.ccms.wrapper.ServerEntitiesWrapper;
+import org.jboss.pressgang.ccms.wrapper.ServerSettingsWrapper;
+import org.jboss.pressgang.ccms.wrapper.TagWrapper;
+import org.jboss.pressgang.ccms.wrapper.TextContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.mocks.WrapperProxyMock;
+
+/**
+ * Fills an {@link InMemoryDataProviderFactory} with a repeatable set of server settings, categories, tags, property tags, schemas
+ * and topics, and generates content specs that use them, so that the processor can be benchmarked without a server.
+ */
+public class SyntheticDatasetGenerator {
+    public static final String DEFAULT_LOCALE = "en-US";
+    public static final List<String> TOPIC_TYPES = Collections.unmodifiableList(Arrays.asList("Concept", "Task", "Reference",
+            "Conceptual Overview"));
+
+    private final Random random;
+    private int topicCount = 1000;
+    private int tagCount = 50;
+    private int categoryCount = 5;
+    private int maxTagsPerTopic = 3;
+    private int paragraphsPerTopic = 3;
+
+    /**
+     * @param seed The seed to generate the dataset from, so that the same dataset is generated each time.
+     */
+    public SyntheticDatasetGenerator(final long seed) {
+        random = new Random(seed);
+    }
+
+    public int getTopicCount() {
+        return topicCount;
+    }
+
+    public void setTopicCount(final int topicCount) {
+        this.topicCount = topicCount;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public void setTagCount(final int tagCount) {
+        this.tagCount = tagCount;
+    }
+
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    public void setCategoryCount(final int categoryCount) {
+        this.categoryCount = categoryCount;
+    }
+
+    public int getMaxTagsPerTopic() {
+        return maxTagsPerTopic;
+    }
+
+    public void setMaxTagsPerTopic(final int maxTagsPerTopic) {
+        this.maxTagsPerTopic = maxTagsPerTopic;
+    }
+
+    public int getParagraphsPerTopic() {
+        return paragraphsPerTopic;
+    }
+
+    public void setParagraphsPerTopic(final int paragraphsPerTopic) {
+        this.paragraphsPerTopic = paragraphsPerTopic;
+    }
+
+    /**
+     * Generates the dataset and adds it to a factory.
+     *
+     * @param factory The factory to add the entities to.
+     * @return The details of the entities that were generated.
+     */
+    public SyntheticDataset generate(final InMemoryDataProviderFactory factory) {
+        final SyntheticDataset dataset = new SyntheticDataset();
+        final LocaleWrapper defaultLocale = createLocale(DEFAULT_LOCALE);
+
+        // Categories
+        final Integer typeCategoryId = addCategory(factory, "Type");
+        final Integer writerCategoryId = addCategory(factory, "Assigned Writer");
+        final List<Integer> categoryIds = new ArrayList<Integer>();
+        for (int i = 1; i <= categoryCount; i++) {
+            categoryIds.add(addCategory(factory, "Category " + i));
+        }
+
+        // Tags
+        final List<TagWrapper> typeTags = new ArrayList<TagWrapper>();
+        for (final String topicType : TOPIC_TYPES) {
+            typeTags.add(addTag(factory, topicType, typeCategoryId));
+            dataset.typeTagNames.add(topicType);
+        }
+        addTag(factory, "writer", writerCategoryId);
+        dataset.writerNames.add("writer");
+        final List<TagWrapper> tags = new ArrayList<TagWrapper>();
+        for (int i = 1; i <= tagCount; i++) {
+            final String name = "Tag " + i;
+            tags.add(addTag(factory, name, categoryIds.isEmpty() ? null : categoryIds.get(random.nextInt(categoryIds.size()))));
+            dataset.tagNames.add(name);
+        }
+        final Map<String, Integer> specialTagIds = new HashMap<String, Integer>();
+        for (final String name : new String[]{"Info", "Internal Only", "Legal Notice", "Revision History", "Author Group",
+                "Abstract"}) {
+            specialTagIds.put(name, (Integer) WrapperProxyMock.getProperty(addTag(factory, name, null), "id"));
+        }
+
+        // Property tags
+        final Map<String, Integer> propertyTagIds = new HashMap<String, Integer>();
+        for (final String name : new String[]{"Added By", "CSP Property ID", "Read Only", "Fixed URL",
+                "Bug Links Last Validated"}) {
+            final PropertyTagWrapper propertyTag = factory.newEntity(PropertyTagWrapper.class);
+            WrapperProxyMock.setProperty(propertyTag, "name", name);
+            propertyTagIds.put(name, factory.addEntity(InMemoryDataProviderFactory.PROPERTY_TAG, propertyTag).getId());
+        }
+
+        // Schemas
+        final BlobConstantWrapper rocbookDtd = factory.newEntity(BlobConstantWrapper.class);
+        WrapperProxyMock.setProperty(rocbookDtd, "name", "rocbook.dtd");
+        WrapperProxyMock.setProperty(rocbookDtd, "value", ResourceUtilities.resourceFileToByteArray("/", "rocbook.dtd"));
+        final Integer rocbookDtdId = factory.addEntity(InMemoryDataProviderFactory.BLOB_CONSTANT, rocbookDtd).getId();
+
+        // Server settings
+        final Map<String, Object> entityIds = new HashMap<String, Object>();
+        entityIds.put("typeCategoryId", typeCategoryId);
+        entityIds.put("writerCategoryId", writerCategoryId);
+        entityIds.put("infoTagId", specialTagIds.get("Info"));
+        entityIds.put("internalOnlyTagId", specialTagIds.get("Internal Only"));
+        entityIds.put("legalNoticeTagId", specialTagIds.get("Legal Notice"));
+        entityIds.put("revisionHistoryTagId", specialTagIds.get("Revision History"));
+        entityIds.put("authorGroupTagId", specialTagIds.get("Author Group"));
+        entityIds.put("abstractTagId", specialTagIds.get("Abstract"));
+        entityIds.put("addedByPropertyTagId", propertyTagIds.get("Added By"));
+        entityIds.put("cspIdPropertyTagId", propertyTagIds.get("CSP Property ID"));
+        entityIds.put("readOnlyPropertyTagId", propertyTagIds.get("Read Only"));
+        entityIds.put("fixedUrlPropertyTagId", propertyTagIds.get("Fixed URL"));
+        entityIds.put("bugLinksLastValidatedPropertyTagId", propertyTagIds.get("Bug Links Last Validated"));
+        entityIds.put("rocBook45DTDBlobConstantId", rocbookDtdId);
+        entityIds.put("unknownUserId", 0);
+        final Map<String, Object> settings = new HashMap<String, Object>();
+        settings.put("entities", WrapperProxyMock.create(ServerEntitiesWrapper.class, entityIds));
+        settings.put("defaultLocale", defaultLocale);
+        factory.setServerSettings(WrapperProxyMock.create(ServerSettingsWrapper.class, settings));
+
+        // Topics
+        for (int i = 1; i <= topicCount; i++) {
+            final TopicWrapper topic = factory.newEntity(TopicWrapper.class);
+            topic.setTitle("Topic " + i);
+            topic.setDescription("A generated topic");
+            topic.setXml(generateTopicXml("Topic " + i));
+            topic.setXmlFormat(CommonConstants.DOCBOOK_45);
+            topic.setLocale(defaultLocale);
+
+            // Give each topic a type and some random tags
+            final List<TagWrapper> topicTags = new ArrayList<TagWrapper>();
+            topicTags.add(typeTags.get(random.nextInt(typeTags.size())));
+            final int topicTagCount = tags.isEmpty() ? 0 : random.nextInt(maxTagsPerTopic + 1);
+            for (int j = 0; j < topicTagCount; j++) {
+                final TagWrapper tag = tags.get(random.nextInt(tags.size()));
+                if (!topicTags.contains(tag)) {
+                    topicTags.add(tag);
+                }
+            }
+            WrapperProxyMock.setProperty(topic, "tags", WrapperProxyMock.newCollection(topicTags));
+
+            dataset.topicIds.add(factory.addEntity(InMemoryDataProviderFactory.TOPIC, topic).getId());
+        }
+
+        return dataset;
+    }
+
+    /**
+     * Generates the text for a DocBook 4.5 content spec, that uses existing topics from the dataset and new topics.
+     *
+     * @param dataset          The dataset to pick the existing topics from.
+     * @param title            The title of the content spec.
+     * @param chapterCount     The number of chapters in the content spec.
+     * @param topicsPerChapter The number of topics in each chapter.
+     * @param newTopicRatio    The proportion (0.0 - 1.0) of topics that should be new topics.
+     * @return The content spec text.
+     */
+    public String generateContentSpec(final SyntheticDataset dataset, final String title, final int chapterCount,
+            final int topicsPerChapter, final double newTopicRatio) {
+        final StringBuilder contentSpec = new StringBuilder();
+        contentSpec.append("Title = ").append(title).append("\n");
+        contentSpec.append("Product = Synthetic Product\n");
+        contentSpec.append("Version = 1\n");
+        contentSpec.append("Format = ").append(CommonConstants.DOCBOOK_45_TITLE).append("\n");
+        contentSpec.append("Copyright Holder = Red Hat\n");
+        contentSpec.append("\n");
+
+        final Set<Integer> usedTopicIds = new HashSet<Integer>();
+        int newTopicCount = 0;
+        for (int i = 1; i <= chapterCount; i++) {
+            contentSpec.append("Chapter: Chapter ").append(i).append("\n");
+            for (int j = 1; j <= topicsPerChapter; j++) {
+                final Integer topicId = dataset.topicIds.isEmpty() ? null : dataset.topicIds.get(random.nextInt(dataset.topicIds
+                        .size()));
+
+                // Topics can only be used once in a content spec, so use a new topic if it's already been used
+                if (topicId == null || random.nextDouble() < newTopicRatio || !usedTopicIds.add(topicId)) {
+                    newTopicCount++;
+                    final String topicType = dataset.typeTagNames.get(random.nextInt(dataset.typeTagNames.size()));
+                    contentSpec.append("  New Topic ").append(newTopicCount).append(" [N").append(newTopicCount).append(", ").append(
+                            topicType).append("]\n");
+                } else {
+                    contentSpec.append("  Topic ").append(topicId).append(" [").append(topicId).append("]\n");
+                }
+            }
+        }
+
+        return contentSpec.toString();
+    }
+
+    /**
+     * Adds the text for a content spec that has been saved to a factory, so that the content spec can be processed in EDIT mode.
+     *
+     * @param factory       The factory that the content spec was saved to.
+     * @param contentSpecId The id of the saved content spec.
+     * @param contentSpec   The text that the content spec was created from, ie from
+     *                      {@link #generateContentSpec(SyntheticDataset, String, int, int, double)}.
+     * @return The text to process the content spec in EDIT mode, with the CHECKSUM and ID of the saved content spec.
+     */
+    public static String addContentSpecText(final InMemoryDataProviderFactory factory, final Integer contentSpecId,
+            final String contentSpec) {
+        final String text = CommonConstants.CS_ID_TITLE + " = " + contentSpecId + "\n" + contentSpec;
+        final TextContentSpecWrapper textContentSpec = factory.newEntity(TextContentSpecWrapper.class);
+        WrapperProxyMock.setProperty(textContentSpec, "id", contentSpecId);
+        WrapperProxyMock.setProperty(textContentSpec, "text", text);
+        factory.addEntity(InMemoryDataProviderFactory.TEXT_CONTENT_SPEC, textContentSpec);
+
+        return CommonConstants.CS_CHECKSUM_TITLE + " = " + ChecksumUtilities.generateChecksum(text) + "\n" + text;
+    }
+
+    private String generateTopicXml(final String title) {
+        final StringBuilder xml = new StringBuilder("<section>\n<title>").append(title).append("</title>\n");
+        for (int i = 0; i < paragraphsPerTopic; i++) {
+            xml.append("<para>Generated paragraph ").append(random.nextInt(100000)).append(".</para>\n");
+        }
+        return xml.append("</section>").toString();
+    }
+
+    private static LocaleWrapper createLocale(final String value) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("value", value);
+        return WrapperProxyMock.create(LocaleWrapper.class, properties);
+    }
+
+    private static Integer addCategory(final InMemoryDataProviderFactory factory, final String name) {
+        final CategoryWrapper category = factory.newEntity(CategoryWrapper.class);
+        WrapperProxyMock.setProperty(category, "name", name);
+        return factory.addEntity(InMemoryDataProviderFactory.CATEGORY, category).getId();
+    }
+
+    private static TagWrapper addTag(final InMemoryDataProviderFactory factory, final String name, final Integer categoryId) {
+        final TagWrapper tag = factory.newEntity(TagWrapper.class);
+        WrapperProxyMock.setProperty(tag, "name", name);
+        if (categoryId != null) {
+            WrapperProxyMock.setProperty(tag, WrapperProxyMock.CATEGORY_IDS, new HashSet<Integer>(Arrays.asList(categoryId)));
+        }
+        return factory.addEntity(InMemoryDataProviderFactory.TAG, tag);
+    }
+
+    /**
+     * The details of a generated dataset, that can be used to generate content specs.
+     */
+    public static class SyntheticDataset {
+        private final List<Integer> topicIds = new ArrayList<Integer>();
+        private final List<String> typeTagNames = new ArrayList<String>();
+        private final List<String> tagNames = new ArrayList<String>();
+        private final List<String> writerNames = new ArrayList<String>();
+
+        public List<Integer> getTopicIds() {
+            return Collections.unmodifiableList(topicIds);
+        }
+
+        public List<String> getTypeTagNames() {
+            return Collections.unmodifiableList(typeTagNames);
+        }
+
+        public List<String> getTagNames() {
+            return Collections.unmodifiableList(tagNames);
+        }
+
+        public List<String> getWriterNames() {
+            return Collections.unmodifiableList(writerNames);
+        }
+    }
+}
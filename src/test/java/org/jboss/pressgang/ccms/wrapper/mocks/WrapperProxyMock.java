@@ -0,0 +1,315 @@
+/*
+  Copyright 2011-2014 Red Hat, Inc
+
+  This file is part of PressGang CCMS.
+
+  PressGang CCMS is free software: you can redistribute it and/or modify
+  it under the terms of the GNU Lesser General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  PressGang CCMS is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License
+  along with PressGang CCMS.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.jboss.pressgang.ccms.wrapper.mocks;
+
+import java.beans.Introspector;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.UpdateableCollectionWrapper;
+
+/**
+ * An implementation of any of the wrapper interfaces that stores its values in a map, so that entities can be created for the
+ * in-memory providers without having to write a mock for each wrapper. Getters return the value that was set for the property,
+ * any collection that hasn't been set is created empty when it is first requested, and any other method returns a default
+ * value.
+ * <p/>
+ * Some methods that look up a value from a collection are also supported, ie TopicWrapper.hasTag(Integer),
+ * TagWrapper.containedInCategory(Integer) and getProperty(Integer). The categories a tag is in are set using the
+ * {@link #CATEGORY_IDS} property.
+ */
+public class WrapperProxyMock implements InvocationHandler {
+    public static final String CATEGORY_IDS = "categoryIds";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Map<String, String> PROPERTY_ALIASES = new HashMap<String, String>();
+
+    static {
+        PROPERTY_ALIASES.put("topicId", "id");
+        PROPERTY_ALIASES.put("topicRevision", "revision");
+    }
+
+    private final Class<?>[] interfaces;
+    private final Map<String, Object> properties = new ConcurrentHashMap<String, Object>();
+
+    private WrapperProxyMock(final Class<?>[] interfaces) {
+        this.interfaces = interfaces;
+    }
+
+    /**
+     * Creates a new, empty entity.
+     *
+     * @param wrapperClass The wrapper interface that the entity should implement.
+     * @return The new entity.
+     */
+    public static <T> T create(final Class<T> wrapperClass) {
+        return wrapperClass.cast(create(new Class<?>[]{wrapperClass}, Collections.<String, Object>emptyMap()));
+    }
+
+    /**
+     * Creates a new entity with some initial values.
+     *
+     * @param wrapperClass The wrapper interface that the entity should implement.
+     * @param properties   The property names (ie "title" for getTitle()) and the values to set for them.
+     * @return The new entity.
+     */
+    public static <T> T create(final Class<T> wrapperClass, final Map<String, ?> properties) {
+        return wrapperClass.cast(create(new Class<?>[]{wrapperClass}, properties));
+    }
+
+    private static Object create(final Class<?>[] interfaces, final Map<String, ?> properties) {
+        final WrapperProxyMock handler = new WrapperProxyMock(interfaces);
+        for (final Map.Entry<String, ?> entry : properties.entrySet()) {
+            handler.setProperty(entry.getKey(), entry.getValue());
+        }
+        return Proxy.newProxyInstance(interfaces[0].getClassLoader(), interfaces, handler);
+    }
+
+    /**
+     * @param entity The object to check.
+     * @return True if the object was created by this class.
+     */
+    public static boolean isMock(final Object entity) {
+        return entity != null && Proxy.isProxyClass(entity.getClass()) && Proxy.getInvocationHandler(
+                entity) instanceof WrapperProxyMock;
+    }
+
+    /**
+     * Gets a property value of an entity, without going through its getter.
+     *
+     * @param entity   An entity created by this class.
+     * @param property The name of the property.
+     * @return The value of the property, or null if it hasn't been set.
+     */
+    public static Object getProperty(final Object entity, final String property) {
+        return getHandler(entity).properties.get(resolveAlias(property));
+    }
+
+    /**
+     * Sets a property value of an entity, without going through its setter.
+     *
+     * @param entity   An entity created by this class.
+     * @param property The name of the property.
+     * @param value    The value to set, or null to remove the value.
+     */
+    public static void setProperty(final Object entity, final String property, final Object value) {
+        getHandler(entity).setProperty(property, value);
+    }
+
+    /**
+     * Copies an entity. The collections of the entity are also copied, so that items can be added or removed from the copy
+     * without changing the original, however the items themselves are shared.
+     *
+     * @param entity An entity created by this class.
+     * @return The copy of the entity.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(final T entity) {
+        final WrapperProxyMock handler = getHandler(entity);
+        final Map<String, Object> copiedProperties = new HashMap<String, Object>();
+        for (final Map.Entry<String, Object> entry : handler.properties.entrySet()) {
+            copiedProperties.put(entry.getKey(), copyValue(entry.getValue()));
+        }
+        return (T) create(handler.interfaces, copiedProperties);
+    }
+
+    /**
+     * @return A new, empty collection that implements both CollectionWrapper and UpdateableCollectionWrapper.
+     */
+    @SuppressWarnings("rawtypes")
+    public static UpdateableCollectionWrapper newCollection() {
+        return new UpdateableCollectionWrapperMock();
+    }
+
+    /**
+     * Creates a collection that contains some unchanged items.
+     *
+     * @param items The items to add to the collection.
+     * @return The new collection.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static UpdateableCollectionWrapper newCollection(final Collection<?> items) {
+        final UpdateableCollectionWrapper collection = newCollection();
+        for (final Object item : items) {
+            collection.addItem(item);
+        }
+        return collection;
+    }
+
+    private static WrapperProxyMock getHandler(final Object entity) {
+        if (!isMock(entity)) {
+            throw new IllegalArgumentException("The entity wasn't created by WrapperProxyMock");
+        }
+        return (WrapperProxyMock) Proxy.getInvocationHandler(entity);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Object copyValue(final Object value) {
+        if (value instanceof CollectionWrapper) {
+            final CollectionWrapper collection = (CollectionWrapper) value;
+            final UpdateableCollectionWrapper copy = newCollection();
+            for (final Object item : collection.getUnchangedItems()) {
+                copy.addItem(item);
+            }
+            for (final Object item : collection.getAddItems()) {
+                copy.addNewItem(item);
+            }
+            for (final Object item : collection.getRemoveItems()) {
+                copy.addRemoveItem(item);
+            }
+            if (collection instanceof UpdateableCollectionWrapper) {
+                for (final Object item : ((UpdateableCollectionWrapper) collection).getUpdateItems()) {
+                    copy.addUpdateItem(item);
+                }
+            }
+            return copy;
+        } else if (value instanceof Set) {
+            return new HashSet<Object>((Set<Object>) value);
+        } else if (value instanceof List) {
+            return new ArrayList<Object>((List<Object>) value);
+        } else {
+            return value;
+        }
+    }
+
+    private static String resolveAlias(final String property) {
+        final String alias = PROPERTY_ALIASES.get(property);
+        return alias == null ? property : alias;
+    }
+
+    private void setProperty(final String property, final Object value) {
+        if (value == null) {
+            properties.remove(resolveAlias(property));
+        } else {
+            properties.put(resolveAlias(property), value);
+        }
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final String name = method.getName();
+        final int argCount = args == null ? 0 : args.length;
+
+        // Entities are only equal to themselves, the same as the wrappers that aren't cached
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else {
+                return interfaces[0].getSimpleName() + "[id=" + properties.get("id") + ", revision=" + properties.get(
+                        "revision") + "]";
+            }
+        }
+
+        if ("unwrap".equals(name) && argCount == 0) {
+            return proxy;
+        } else if ("clone".equals(name)) {
+            return copy(proxy);
+        } else if ("containedInCategory".equals(name) && argCount == 1) {
+            final Object categoryIds = properties.get(CATEGORY_IDS);
+            return categoryIds instanceof Collection && ((Collection<?>) categoryIds).contains(args[0]);
+        } else if ("hasTag".equals(name) && argCount == 1) {
+            return findItemById(properties.get("tags"), args[0]) != null;
+        } else if ("getProperty".equals(name) && argCount == 1) {
+            return findItemById(properties.get("properties"), args[0]);
+        } else if (name.startsWith("set") && name.length() > 3 && argCount == 1) {
+            setProperty(Introspector.decapitalize(name.substring(3)), args[0]);
+            return null;
+        } else if (argCount == 0 && (name.startsWith("get") && name.length() > 3 || name.startsWith("is") && name.length() > 2)) {
+            final String property = resolveAlias(Introspector.decapitalize(name.substring(name.startsWith("get") ? 3 : 2)));
+            return getPropertyValue(property, method.getReturnType());
+        }
+
+        return defaultValue(method.getReturnType());
+    }
+
+    private Object getPropertyValue(final String property, final Class<?> returnType) {
+        Object value = properties.get(property);
+        if (value == null) {
+            if (returnType.isAssignableFrom(UpdateableCollectionWrapperMock.class)) {
+                // Create any collections that haven't been set, the same as the wrappers do for expanded collections
+                value = newCollection();
+                properties.put(property, value);
+            } else {
+                return defaultValue(returnType);
+            }
+        }
+
+        // Allow text to be used for byte values, ie the value of a blob constant
+        if (returnType == byte[].class && value instanceof String) {
+            return ((String) value).getBytes(UTF_8);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Object findItemById(final Object collection, final Object id) {
+        if (!(collection instanceof CollectionWrapper) || id == null) return null;
+
+        for (final Object item : ((CollectionWrapper) collection).getItems()) {
+            if (isMock(item) && id.equals(getProperty(item, "id"))) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param type The type to get the default value for.
+     * @return The value that an unset property of the type has, ie false for a boolean or an empty list for a List.
+     */
+    public static Object defaultValue(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type == List.class || type == Collection.class) {
+                return new ArrayList<Object>();
+            }
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == double.class) {
+            return 0D;
+        }
+        return null;
+    }
+}